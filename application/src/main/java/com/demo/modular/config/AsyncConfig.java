@@ -0,0 +1,13 @@
+package com.demo.modular.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Runs {@code @ApplicationModuleListener} event listeners of the modules
+ * asynchronously, on the auto-configured application task executor.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
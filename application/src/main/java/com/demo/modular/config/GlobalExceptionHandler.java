@@ -1,9 +1,11 @@
 package com.demo.modular.config;
 
 import com.demo.modular.order.api.exception.OrderCreationException;
+import com.demo.modular.order.api.exception.OrderIdempotencyKeyConflictException;
 import com.demo.modular.order.api.exception.OrderInvalidStateException;
 import com.demo.modular.order.api.exception.OrderNotFoundException;
 import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentIdempotencyKeyConflictException;
 import com.demo.modular.payment.api.exception.PaymentNotFoundException;
 import com.demo.modular.payment.api.exception.PaymentProcessingException;
 import com.demo.modular.product.api.exception.InsufficientStockException;
@@ -12,6 +14,7 @@ import com.demo.modular.product.api.exception.ProductValidationException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -173,6 +176,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    @ExceptionHandler(OrderIdempotencyKeyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleOrderIdempotencyKeyConflictException(OrderIdempotencyKeyConflictException ex) {
+        return idempotencyKeyConflict(ex.getMessage());
+    }
+
     /**
      * Handle Payment module exceptions
      */
@@ -218,6 +226,41 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    @ExceptionHandler(PaymentIdempotencyKeyConflictException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentIdempotencyKeyConflictException(PaymentIdempotencyKeyConflictException ex) {
+        return idempotencyKeyConflict(ex.getMessage());
+    }
+
+    private ResponseEntity<ErrorResponse> idempotencyKeyConflict(String message) {
+        log.warn("Idempotency key conflict: {}", message);
+        
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Idempotency Key Conflict")
+                .message(message)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+    /**
+     * Handle optimistic locking conflicts that persisted after all retries
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        log.error("Concurrent modification: {}", ex.getMessage());
+        
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Concurrent Modification")
+                .message("The resource was modified concurrently. Please retry.")
+                .build();
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
     /**
      * Handle generic IllegalArgumentException
      */
@@ -0,0 +1,80 @@
+package com.demo.modular.config;
+
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Exposes optimistic locking conflicts and exhausted retries as Micrometer metrics.
+ *
+ * <p>Resilience4j already publishes per-call retry outcomes
+ * ({@code resilience4j.retry.calls}); these counters add, per retry instance,
+ * the number of individual version conflicts ({@code optimistic.lock.conflicts},
+ * whether retried or not) and of calls that ran out of attempts on a conflict
+ * ({@code optimistic.lock.exhausted}).
+ * The WARN log carries the entity type and id, which identifies hot SKUs.</p>
+ */
+@Configuration
+@Slf4j
+public class OptimisticLockMetricsConfig {
+
+    private static final String OPTIMISTIC_LOCK_RETRY_SUFFIX = "OptimisticLock";
+
+    @Bean
+    RegistryEventConsumer<Retry> optimisticLockRetryMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<Retry> entryAddedEvent) {
+                Retry retry = entryAddedEvent.getAddedEntry();
+                if (!retry.getName().endsWith(OPTIMISTIC_LOCK_RETRY_SUFFIX)) {
+                    return;
+                }
+
+                Counter conflicts = Counter.builder("optimistic.lock.conflicts")
+                        .description("Optimistic locking conflicts detected")
+                        .tag("retry", retry.getName())
+                        .register(meterRegistry);
+                Counter exhausted = Counter.builder("optimistic.lock.exhausted")
+                        .description("Calls that gave up after optimistic locking conflicts on every attempt")
+                        .tag("retry", retry.getName())
+                        .register(meterRegistry);
+
+                retry.getEventPublisher()
+                        .onRetry(event -> {
+                            conflicts.increment();
+                            log.warn("[Optimistic Lock] Conflict in {} (attempt {}): {}",
+                                    event.getName(), event.getNumberOfRetryAttempts(),
+                                    event.getLastThrowable().getMessage());
+                        })
+                        .onError(event -> {
+                            if (event.getLastThrowable() instanceof OptimisticLockingFailureException) {
+                                conflicts.increment();
+                                exhausted.increment();
+                                log.error("[Optimistic Lock] Giving up in {} after {} attempts: {}",
+                                        event.getName(), event.getNumberOfRetryAttempts(),
+                                        event.getLastThrowable().getMessage());
+                            }
+                        });
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<Retry> entryRemoveEvent) {
+                // Counters stay registered - nothing to clean up
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<Retry> entryReplacedEvent) {
+                // Retry instances are never replaced at runtime
+            }
+        };
+    }
+}
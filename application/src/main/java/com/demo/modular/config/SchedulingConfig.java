@@ -0,0 +1,12 @@
+package com.demo.modular.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs of the modules.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
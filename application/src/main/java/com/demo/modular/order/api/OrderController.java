@@ -1,19 +1,27 @@
 package com.demo.modular.order.api;
 
 import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderBatchResultDTO;
 import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
+import com.demo.modular.order.api.dto.OrderPageDTO;
 import com.demo.modular.order.api.dto.OrderStatus;
 import com.demo.modular.order.api.exception.OrderCreationException;
+import com.demo.modular.order.api.exception.OrderIntakeQueueFullException;
 import com.demo.modular.order.api.exception.OrderNotFoundException;
 import com.demo.modular.order.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -23,12 +31,22 @@ public class OrderController {
 
     private final OrderService orderService;
 
+    // sync: place the order within the request (201); async: queue it and return 202 with a status URL
+    @Value("${order.intake.mode:sync}")
+    private String intakeMode;
+
     @PostMapping
-    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request,
+                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if ("async".equals(intakeMode)) {
+            return submitOrder(request, idempotencyKey);
+        }
         log.info("REST: Creating order for product {} with quantity {}", 
                 request.getProductId(), request.getQuantity());
         try {
-            OrderDTO createdOrder = orderService.createOrder(request);
+            OrderDTO createdOrder = idempotencyKey == null
+                    ? orderService.createOrder(request)
+                    : orderService.createOrder(request, idempotencyKey);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
         } catch (OrderCreationException e) {
             log.error("Failed to create order: {}", e.getMessage());
@@ -36,6 +54,26 @@ public class OrderController {
         }
     }
 
+    @GetMapping("/intake/{requestId}")
+    public ResponseEntity<OrderIntakeDTO> getOrderIntake(@PathVariable Long requestId) {
+        log.info("REST: Getting order intake request {}", requestId);
+        return orderService.getOrderIntake(requestId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<OrderBatchResultDTO> createOrders(@RequestBody List<CreateOrderRequest> requests) {
+        log.info("REST: Creating batch of {} orders", requests.size());
+        try {
+            // Items are validated individually - invalid ones are reported in the result, not rejected up front
+            return ResponseEntity.ok(orderService.createOrders(requests));
+        } catch (OrderCreationException e) {
+            log.error("Failed to create order batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderDTO> getOrder(@PathVariable Long id) {
         log.info("REST: Getting order {}", id);
@@ -45,9 +83,10 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
-        log.info("REST: Getting all orders");
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<OrderPageDTO> getOrders(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "50") int size) {
+        log.info("REST: Getting orders page (size {})", size);
+        return ResponseEntity.ok(orderService.getOrderPage(cursor, size));
     }
 
     @GetMapping("/status/{status}")
@@ -56,6 +95,12 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getOrdersByStatus(status));
     }
 
+    @GetMapping("/status/counts")
+    public ResponseEntity<Map<OrderStatus, Long>> getOrderCountsByStatus() {
+        log.info("REST: Getting order counts per status");
+        return ResponseEntity.ok(orderService.getOrderCountsByStatus());
+    }
+
     @PutMapping("/{id}/cancel")
     public ResponseEntity<Void> cancelOrder(@PathVariable Long id) {
         log.info("REST: Cancelling order {}", id);
@@ -66,5 +111,25 @@ public class OrderController {
             return ResponseEntity.notFound().build();
         }
     }
-}
 
+    private ResponseEntity<OrderIntakeDTO> submitOrder(CreateOrderRequest request, String idempotencyKey) {
+        log.info("REST: Queueing order for product {} with quantity {}", 
+                request.getProductId(), request.getQuantity());
+        try {
+            OrderIntakeDTO intake = idempotencyKey == null
+                    ? orderService.submitOrder(request)
+                    : orderService.submitOrder(request, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/api/orders/intake/{requestId}")
+                            .buildAndExpand(intake.getRequestId())
+                            .toUri())
+                    .body(intake);
+        } catch (OrderIntakeQueueFullException e) {
+            log.warn("Order intake queue full: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+}
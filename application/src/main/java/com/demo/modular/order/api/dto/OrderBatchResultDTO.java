@@ -0,0 +1,25 @@
+package com.demo.modular.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk order request.
+ * {@code results} holds one entry per submitted order, in submission order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBatchResultDTO {
+
+    private List<OrderItemResultDTO> results;
+
+    private int succeeded;
+
+    private int failed;
+}
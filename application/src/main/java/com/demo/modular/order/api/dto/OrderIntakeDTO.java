@@ -0,0 +1,35 @@
+package com.demo.modular.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order submitted for asynchronous placement and its processing state.
+ * {@code orderId} is set once the order was placed, {@code error} if it was rejected.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeDTO {
+
+    private Long requestId;
+
+    private Long productId;
+
+    private Integer quantity;
+
+    private OrderIntakeStatus status;
+
+    private Long orderId;
+
+    private String error;
+
+    private LocalDateTime queuedAt;
+
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,10 @@
+package com.demo.modular.order.api.dto;
+
+/**
+ * Processing state of an asynchronously submitted order - part of the public API.
+ */
+public enum OrderIntakeStatus {
+    QUEUED,
+    COMPLETED,
+    REJECTED
+}
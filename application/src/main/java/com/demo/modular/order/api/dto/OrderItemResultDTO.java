@@ -0,0 +1,28 @@
+package com.demo.modular.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one order within a bulk order request.
+ * Either {@code order} (on success) or {@code error} (on failure) is set.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemResultDTO {
+
+    /**
+     * Position of the order in the submitted list, starting at 0.
+     */
+    private int index;
+
+    private boolean success;
+
+    private OrderDTO order;
+
+    private String error;
+}
@@ -0,0 +1,25 @@
+package com.demo.modular.order.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of orders, ordered by ID.
+ * Pass {@code nextCursor} back to fetch the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDTO {
+
+    private List<OrderDTO> items;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
@@ -4,9 +4,11 @@ package com.demo.modular.order.api.dto;
  * Order status enum - part of the public API.
  */
 public enum OrderStatus {
+    AWAITING_STOCK,
     PENDING,
     PAID,
     FAILED,
-    CANCELLED
+    CANCELLED,
+    REJECTED
 }
 
@@ -0,0 +1,16 @@
+package com.demo.modular.order.api.event;
+
+import com.demo.modular.product.api.event.StockReservationRequest;
+
+/**
+ * An order was placed and awaits its stock - part of the public API.
+ * Published in the transaction that created the order; as a
+ * {@link StockReservationRequest} it makes the Product module reserve the stock.
+ */
+public record OrderPlaced(Long orderId, Long productId, Integer quantity) implements StockReservationRequest {
+
+    @Override
+    public Long reservationId() {
+        return orderId;
+    }
+}
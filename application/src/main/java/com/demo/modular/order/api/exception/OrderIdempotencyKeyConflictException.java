@@ -0,0 +1,20 @@
+package com.demo.modular.order.api.exception;
+
+/**
+ * Exception thrown when an idempotency key cannot be honored: it was already
+ * used for a different request, or the request holding it is still running.
+ * This exception is part of the public API and can be caught by other modules.
+ */
+public class OrderIdempotencyKeyConflictException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public OrderIdempotencyKeyConflictException(String idempotencyKey, String message) {
+        super(message);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
@@ -0,0 +1,19 @@
+package com.demo.modular.order.api.exception;
+
+/**
+ * Exception thrown when the asynchronous order intake queue is at capacity.
+ * Clients should retry later.
+ */
+public class OrderIntakeQueueFullException extends RuntimeException {
+
+    private final long capacity;
+
+    public OrderIntakeQueueFullException(long capacity) {
+        super("Order intake queue is full (capacity " + capacity + ")");
+        this.capacity = capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
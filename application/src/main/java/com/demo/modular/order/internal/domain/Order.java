@@ -58,6 +58,13 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Optimistic locking version - concurrent modifications fail instead of overwriting each other.
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
+
     /**
      * Constructor for creating new orders (private - use static factory method).
      */
@@ -82,6 +89,15 @@ public class Order {
         return new Order(productId, productName, quantity, totalAmount, OrderStatus.PENDING);
     }
 
+    /**
+     * Create a new Order whose stock is reserved asynchronously.
+     * The total is an estimate until {@link #confirmStock} applies the reserved price.
+     */
+    public static Order place(ProductId productId, ProductName productName, Quantity quantity, Money estimatedTotal) {
+        validateCreationParams(productId, productName, quantity, estimatedTotal);
+        return new Order(productId, productName, quantity, estimatedTotal, OrderStatus.AWAITING_STOCK);
+    }
+
     private static void validateCreationParams(ProductId productId, ProductName productName, Quantity quantity, Money totalAmount) {
         if (productId == null) {
             throw new IllegalArgumentException("Product ID is required");
@@ -115,6 +131,36 @@ public class Order {
 
     // ===== Business Methods - State Machine =====
 
+    /**
+     * Stock was reserved - the order becomes payable at the reserved price.
+     * Enforces state transition rules.
+     */
+    public void confirmStock(ProductName productName, Money unitPrice) {
+        if (status != OrderStatus.AWAITING_STOCK) {
+            throw new IllegalStateException(
+                String.format("Cannot confirm stock. Order is in %s state", status)
+            );
+        }
+        this.productName = productName;
+        this.totalAmount = unitPrice.multiply(quantity.getValue());
+        this.status = OrderStatus.PENDING;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Stock could not be reserved.
+     * Enforces state transition rules.
+     */
+    public void rejectStock() {
+        if (status != OrderStatus.AWAITING_STOCK) {
+            throw new IllegalStateException(
+                String.format("Cannot reject stock. Order is in %s state", status)
+            );
+        }
+        this.status = OrderStatus.REJECTED;
+        this.updatedAt = LocalDateTime.now();
+    }
+
     /**
      * Mark order as paid.
      * Enforces state transition rules.
@@ -151,6 +197,9 @@ public class Order {
         if (status == OrderStatus.PAID) {
             throw new IllegalStateException("Cannot cancel a paid order");
         }
+        if (status == OrderStatus.REJECTED) {
+            throw new IllegalStateException("Cannot cancel a rejected order");
+        }
         if (status == OrderStatus.CANCELLED) {
             // Already cancelled, idempotent operation
             return;
@@ -168,6 +217,13 @@ public class Order {
         return this.status == OrderStatus.PENDING;
     }
 
+    /**
+     * Check if order is waiting for its stock reservation.
+     */
+    public boolean isAwaitingStock() {
+        return this.status == OrderStatus.AWAITING_STOCK;
+    }
+
     /**
      * Check if order is paid.
      */
@@ -186,7 +242,7 @@ public class Order {
      * Check if order can be cancelled.
      */
     public boolean canBeCancelled() {
-        return status == OrderStatus.PENDING || status == OrderStatus.FAILED;
+        return status == OrderStatus.PENDING || status == OrderStatus.FAILED || status == OrderStatus.AWAITING_STOCK;
     }
 
     /**
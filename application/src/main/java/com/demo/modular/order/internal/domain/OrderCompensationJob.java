@@ -0,0 +1,142 @@
+package com.demo.modular.order.internal.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A compensation the Order module still owes: stock reserved for an order that
+ * no longer needs it, to be returned to the Product module.
+ *
+ * <p>Jobs are recorded in the same transaction as the state change that
+ * requires them and carried out later by a background executor, which retries
+ * them with backoff until they succeed or run out of attempts.</p>
+ */
+@Entity
+@Table(name = "compensation_jobs", schema = "order_schema",
+       indexes = @Index(name = "idx_compensation_jobs_order_id", columnList = "order_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class OrderCompensationJob {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The order the stock was reserved for - null for a job covering several orders.
+     */
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /**
+     * Earliest time the executor picks the job up (again).
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    private OrderCompensationJob(Long orderId, Long productId, Integer quantity) {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    // ===== Static Factory Methods =====
+
+    /**
+     * Job returning {@code quantity} of a product reserved for an order.
+     */
+    public static OrderCompensationJob restoreStock(Long orderId, Long productId, Integer quantity) {
+        if (orderId == null || productId == null) {
+            throw new IllegalArgumentException("Order ID and product ID are required");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to restore must be positive");
+        }
+        return new OrderCompensationJob(orderId, productId, quantity);
+    }
+
+    /**
+     * Job returning {@code quantity} of a product reserved for several orders at
+     * once, e.g. stale orders cancelled together.
+     */
+    public static OrderCompensationJob restoreStock(Long productId, Integer quantity) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID is required");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to restore must be positive");
+        }
+        return new OrderCompensationJob(null, productId, quantity);
+    }
+
+    // ===== Business Methods - State Machine =====
+
+    /**
+     * Records that the stock was restored.
+     */
+    public void complete() {
+        requirePending();
+        this.status = Status.COMPLETED;
+        this.completedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records a failed attempt. The job is retried after {@code retryDelay},
+     * or marked FAILED for manual follow-up once {@code maxAttempts} is reached.
+     */
+    public void recordFailedAttempt(String error, int maxAttempts, Duration retryDelay) {
+        requirePending();
+        this.attempts++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (attempts >= maxAttempts) {
+            this.status = Status.FAILED;
+            this.completedAt = LocalDateTime.now();
+        } else {
+            this.nextAttemptAt = LocalDateTime.now().plus(retryDelay);
+        }
+    }
+
+    private void requirePending() {
+        if (status != Status.PENDING) {
+            throw new IllegalStateException(
+                String.format("Compensation job %d is no longer pending (%s)", id, status)
+            );
+        }
+    }
+}
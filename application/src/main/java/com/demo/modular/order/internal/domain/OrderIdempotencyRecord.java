@@ -0,0 +1,40 @@
+package com.demo.modular.order.internal.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Completed response of a request made with an {@code Idempotency-Key}.
+ * The key is the primary key, so only one request per key can ever commit.
+ * Rows are written with native statements and only read through JPA.
+ */
+@Entity
+@Table(name = "idempotency_records", schema = "order_schema",
+       indexes = @Index(name = "idx_order_idempotency_records_created_at", columnList = "created_at"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class OrderIdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    /**
+     * Hash of the request, so a key reused for a different request is detected.
+     */
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    /**
+     * JSON response body; only null inside the transaction that claimed the key.
+     */
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,103 @@
+package com.demo.modular.order.internal.domain;
+
+import com.demo.modular.order.api.dto.OrderIntakeStatus;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order request waiting in (or processed from) the durable intake queue.
+ * Rows are enqueued with a native statement that enforces the queue capacity;
+ * workers lock queued rows and move them to COMPLETED or REJECTED.
+ */
+@Entity
+@Table(name = "intake_requests", schema = "order_schema",
+       indexes = @Index(name = "idx_intake_requests_processed_at", columnList = "processed_at"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class OrderIntakeRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderIntakeStatus status;
+
+    /**
+     * The placed order; set when COMPLETED.
+     */
+    @Column(name = "order_id")
+    private Long orderId;
+
+    /**
+     * Why the order was not placed; set when REJECTED.
+     */
+    @Column(name = "error", length = 500)
+    private String error;
+
+    /**
+     * Failed processing attempts - a request that keeps failing is rejected
+     * instead of blocking the queue.
+     */
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // ===== Business Methods - State Machine =====
+
+    /**
+     * Records the order placed for this request.
+     */
+    public void complete(Long orderId) {
+        requireQueued();
+        this.status = OrderIntakeStatus.COMPLETED;
+        this.orderId = orderId;
+        this.processedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records why the order cannot be placed.
+     */
+    public void reject(String error) {
+        requireQueued();
+        this.status = OrderIntakeStatus.REJECTED;
+        this.error = error;
+        this.processedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records a failed processing attempt, rejecting the request once
+     * {@code maxAttempts} is reached.
+     */
+    public void recordFailedAttempt(String error, int maxAttempts) {
+        requireQueued();
+        this.attempts++;
+        if (attempts >= maxAttempts) {
+            reject(error);
+        }
+    }
+
+    private void requireQueued() {
+        if (status != OrderIntakeStatus.QUEUED) {
+            throw new IllegalStateException(
+                String.format("Intake request %d was already processed (%s)", id, status)
+            );
+        }
+    }
+}
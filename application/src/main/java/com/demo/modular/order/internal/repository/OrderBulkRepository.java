@@ -0,0 +1,22 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.internal.domain.Order;
+
+import java.util.List;
+
+/**
+ * Bulk write operations that Spring Data JPA cannot batch.
+ * Mixed into {@link OrderRepository}.
+ */
+public interface OrderBulkRepository {
+
+    /**
+     * Inserts new orders with a single JDBC batch. Hibernate cannot batch
+     * these inserts because order IDs are database-generated (IDENTITY).
+     * The orders are not attached to the persistence context.
+     *
+     * @param orders new, not yet persisted orders
+     * @return the generated IDs, positionally matching {@code orders}
+     */
+    List<Long> insertAll(List<Order> orders);
+}
@@ -0,0 +1,60 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.internal.domain.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+class OrderBulkRepositoryImpl implements OrderBulkRepository {
+
+    private static final String INSERT_ORDER =
+            "INSERT INTO order_schema.orders (product_id, product_name, quantity, total_amount, currency, status, " +
+            "created_at, updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_ORDER, new String[]{"id"}),
+                orderValues(orders),
+                keyHolder);
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.get("id")).longValue())
+                .toList();
+    }
+
+    private static BatchPreparedStatementSetter orderValues(List<Order> orders) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Order order = orders.get(i);
+                statement.setLong(1, order.getProductId());
+                statement.setString(2, order.getProductName().getValue());
+                statement.setInt(3, order.getQuantity().getValue());
+                statement.setBigDecimal(4, order.getTotalAmount().getAmount());
+                statement.setString(5, order.getTotalAmount().getCurrency());
+                statement.setString(6, order.getStatus().name());
+                statement.setTimestamp(7, Timestamp.valueOf(order.getCreatedAt()));
+                statement.setTimestamp(8, Timestamp.valueOf(order.getUpdatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return orders.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.internal.domain.OrderCompensationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderCompensationJobRepository extends JpaRepository<OrderCompensationJob, Long> {
+    
+    /**
+     * Locks pending jobs that are due, skipping rows already locked by another
+     * executor, so executors on several instances never run the same job twice.
+     */
+    @Query(value = "SELECT * FROM order_schema.compensation_jobs " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OrderCompensationJob> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /**
+     * Locks the given jobs if they are still pending and not locked by another executor.
+     */
+    @Query(value = "SELECT * FROM order_schema.compensation_jobs WHERE id IN (:ids) AND status = 'PENDING' " +
+                   "ORDER BY id FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OrderCompensationJob> lockPendingByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Whether stock of the order is being, or has been, given back by a job of its own.
+     */
+    boolean existsByOrderId(Long orderId);
+    
+    /**
+     * Pending and failed job counts and the creation time of the oldest pending job.
+     */
+    @Query("SELECT SUM(CASE WHEN j.status = com.demo.modular.order.internal.domain.OrderCompensationJob.Status.PENDING THEN 1 ELSE 0 END) AS pending, " +
+           "SUM(CASE WHEN j.status = com.demo.modular.order.internal.domain.OrderCompensationJob.Status.FAILED THEN 1 ELSE 0 END) AS failed, " +
+           "MIN(CASE WHEN j.status = com.demo.modular.order.internal.domain.OrderCompensationJob.Status.PENDING THEN j.createdAt END) AS oldest " +
+           "FROM OrderCompensationJob j " +
+           "WHERE j.status <> com.demo.modular.order.internal.domain.OrderCompensationJob.Status.COMPLETED")
+    BacklogSummary summarizeBacklog();
+    
+    /**
+     * Deletes completed jobs older than the retention period. Failed jobs are kept for follow-up.
+     *
+     * @return number of jobs deleted
+     */
+    @Modifying
+    @Query("DELETE FROM OrderCompensationJob j " +
+           "WHERE j.status = com.demo.modular.order.internal.domain.OrderCompensationJob.Status.COMPLETED " +
+           "AND j.completedAt < :cutoff")
+    int deleteCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Backlog of the compensation executor.
+     */
+    interface BacklogSummary {
+        Long getPending();
+        Long getFailed();
+        LocalDateTime getOldest();
+    }
+}
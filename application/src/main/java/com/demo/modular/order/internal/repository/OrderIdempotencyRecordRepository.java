@@ -0,0 +1,42 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.internal.domain.OrderIdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OrderIdempotencyRecordRepository extends JpaRepository<OrderIdempotencyRecord, String> {
+    
+    /**
+     * Claims a key for the current transaction. If another transaction holds an
+     * uncommitted claim on the same key, this waits for it to commit or roll back.
+     *
+     * @return 1 if the key was claimed, 0 if a committed record already exists
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_schema.idempotency_records (idempotency_key, request_fingerprint, created_at) " +
+                   "VALUES (:key, :fingerprint, :now) ON CONFLICT (idempotency_key) DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now);
+    
+    /**
+     * Stores the response of a claimed key, in the same transaction as the claim.
+     */
+    @Modifying
+    @Query("UPDATE OrderIdempotencyRecord r SET r.response = :response WHERE r.key = :key")
+    int complete(@Param("key") String key, @Param("response") String response);
+    
+    /**
+     * Deletes records older than the retention period.
+     *
+     * @return number of records deleted
+     */
+    @Modifying
+    @Query("DELETE FROM OrderIdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,75 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.internal.domain.OrderIntakeRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderIntakeRequestRepository extends JpaRepository<OrderIntakeRequest, Long> {
+    
+    /**
+     * Appends a request to the queue unless it already holds {@code capacity}
+     * queued requests. The depth is counted on the partial index
+     * {@code idx_intake_requests_queued}; concurrent enqueuers can overshoot the
+     * capacity by at most their own number.
+     *
+     * @return the request ID, or empty if the queue is full
+     */
+    @Query(value = "INSERT INTO order_schema.intake_requests (product_id, quantity, status, attempts, created_at) " +
+                   "SELECT :productId, :quantity, 'QUEUED', 0, :now " +
+                   "WHERE (SELECT count(*) FROM order_schema.intake_requests WHERE status = 'QUEUED') < :capacity " +
+                   "RETURNING id",
+           nativeQuery = true)
+    Optional<Long> enqueue(@Param("productId") Long productId, @Param("quantity") Integer quantity,
+                           @Param("now") LocalDateTime now, @Param("capacity") long capacity);
+    
+    /**
+     * Locks the oldest queued requests, skipping rows already locked by other
+     * workers, so any number of workers on any number of instances drain the
+     * queue without waiting for each other or taking the same request twice.
+     */
+    @Query(value = "SELECT * FROM order_schema.intake_requests WHERE status = 'QUEUED' " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OrderIntakeRequest> lockQueued(@Param("limit") int limit);
+    
+    /**
+     * Locks the given requests if they are still queued and not locked by another worker.
+     */
+    @Query(value = "SELECT * FROM order_schema.intake_requests WHERE id IN (:ids) AND status = 'QUEUED' " +
+                   "ORDER BY id FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<OrderIntakeRequest> lockQueuedByIds(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Number of queued requests and the enqueue time of the oldest one.
+     */
+    @Query("SELECT COUNT(r) AS depth, MIN(r.createdAt) AS oldest FROM OrderIntakeRequest r " +
+           "WHERE r.status = com.demo.modular.order.api.dto.OrderIntakeStatus.QUEUED")
+    QueueSummary summarizeQueued();
+    
+    /**
+     * Deletes processed requests older than the retention period.
+     *
+     * @return number of requests deleted
+     */
+    @Modifying
+    @Query("DELETE FROM OrderIntakeRequest r WHERE r.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Depth and oldest entry of the intake queue.
+     */
+    interface QueueSummary {
+        Long getDepth();
+        LocalDateTime getOldest();
+    }
+}
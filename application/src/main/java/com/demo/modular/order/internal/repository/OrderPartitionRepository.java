@@ -0,0 +1,47 @@
+package com.demo.modular.order.internal.repository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Maintenance of the monthly range partitions of {@code order_schema.orders}.
+ * Mixed into {@link OrderRepository}.
+ *
+ * <p>Each partition holds the orders created in one month and is named
+ * {@code orders_pYYYY_MM}. Orders of months without a partition land in
+ * {@code orders_default}. All methods must be called within a transaction.</p>
+ */
+public interface OrderPartitionRepository {
+
+    /**
+     * Whether {@code order_schema.orders} is partitioned yet - a table that held
+     * rows before partitioning is converted by {@code scripts/partition-orders-payments.sql}.
+     */
+    boolean isPartitioned();
+
+    /**
+     * Months that have a partition, in ascending order.
+     */
+    List<YearMonth> findPartitionMonths();
+
+    /**
+     * Months of the orders in the default partition, in ascending order.
+     */
+    List<YearMonth> findDefaultPartitionMonths();
+
+    /**
+     * Creates the partition of a month, moving that month's orders out of the
+     * default partition. Serialized across instances.
+     *
+     * @return {@code false} if the partition already exists
+     */
+    boolean createPartition(YearMonth month);
+
+    /**
+     * Drops the partition of a month if it holds no orders. Waits at most
+     * {@code lockTimeoutMs} for queries on the orders table to finish.
+     *
+     * @return {@code true} if the partition was dropped
+     */
+    boolean dropPartitionIfEmpty(YearMonth month, long lockTimeoutMs);
+}
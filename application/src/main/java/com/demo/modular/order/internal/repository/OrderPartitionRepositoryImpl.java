@@ -0,0 +1,92 @@
+package com.demo.modular.order.internal.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@RequiredArgsConstructor
+class OrderPartitionRepositoryImpl implements OrderPartitionRepository {
+
+    private static final String PARENT = "order_schema.orders";
+    private static final String DEFAULT_PARTITION = "order_schema.orders_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean isPartitioned() {
+        return jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = '" + PARENT + "'::regclass", Boolean.class);
+    }
+
+    @Override
+    public List<YearMonth> findPartitionMonths() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = '" + PARENT + "'::regclass AND c.relname LIKE 'orders\\_p%' ORDER BY c.relname",
+                String.class).stream()
+                .map(name -> YearMonth.parse(name.substring("orders_p".length()), PARTITION_SUFFIX))
+                .toList();
+    }
+
+    @Override
+    public List<YearMonth> findDefaultPartitionMonths() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', created_at) AS month FROM " + DEFAULT_PARTITION + " ORDER BY month",
+                Timestamp.class).stream()
+                .map(month -> YearMonth.from(month.toLocalDateTime()))
+                .toList();
+    }
+
+    @Override
+    public boolean createPartition(YearMonth month) {
+        lockPartitionMaintenance();
+        String partition = partitionName(month);
+        if (exists(partition)) {
+            return false;
+        }
+        String from = month.atDay(1).atStartOfDay().toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay().toString();
+        // Build the partition detached, so that the orders of the month can be moved into it before it is attached
+        jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + PARENT + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        jdbcTemplate.execute("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                " WHERE created_at >= '" + from + "' AND created_at < '" + to + "' RETURNING *) " +
+                "INSERT INTO " + partition + " SELECT * FROM moved");
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + partition +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        return true;
+    }
+
+    @Override
+    public boolean dropPartitionIfEmpty(YearMonth month, long lockTimeoutMs) {
+        lockPartitionMaintenance();
+        String partition = partitionName(month);
+        if (!exists(partition)) {
+            return false;
+        }
+        // Dropping a partition locks the whole table - give up rather than queue up the hot path behind us
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+        jdbcTemplate.execute("LOCK TABLE " + PARENT + ", " + partition + " IN ACCESS EXCLUSIVE MODE");
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class))) {
+            return false;
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        return true;
+    }
+
+    private void lockPartitionMaintenance() {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(hashtext('" + PARENT + "'))");
+    }
+
+    private boolean exists(String table) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT + "_p" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -1,17 +1,119 @@
 package com.demo.modular.order.internal.repository;
 
+import com.demo.modular.order.api.dto.OrderDTO;
 import com.demo.modular.order.api.dto.OrderStatus;
 import com.demo.modular.order.internal.domain.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderBulkRepository, OrderPartitionRepository {
     
-    List<Order> findByStatus(OrderStatus status);
+    /**
+     * Columns copied to and read from {@code order_schema.orders_archive} - every
+     * column of {@link Order}. schema.sql adds new ones to the archive table.
+     */
+    String ARCHIVE_COLUMNS = "id, created_at, product_id, product_name, quantity, status, total_amount, currency, updated_at, version";
+    
+    /**
+     * Orders in the given status, selected straight into DTOs.
+     * Nothing is loaded into the persistence context, so there is no entity
+     * hydration and no dirty-checking snapshot per row.
+     */
+    @Query("SELECT new com.demo.modular.order.api.dto.OrderDTO(o.id, o.productId, o.productName.value, o.quantity.value, " +
+           "o.totalAmount.amount, o.status, o.createdAt, o.updatedAt) " +
+           "FROM Order o WHERE o.status = :status")
+    List<OrderDTO> findDTOsByStatus(@Param("status") OrderStatus status);
+    
+    /**
+     * Several orders by ID, selected straight into DTOs.
+     */
+    @Query("SELECT new com.demo.modular.order.api.dto.OrderDTO(o.id, o.productId, o.productName.value, o.quantity.value, " +
+           "o.totalAmount.amount, o.status, o.createdAt, o.updatedAt) " +
+           "FROM Order o WHERE o.id IN :ids")
+    List<OrderDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
     
     List<Order> findByProductId(Long productId);
+    
+    /**
+     * Keyset page: the next orders after the given ID, in ID order.
+     */
+    List<Order> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    
+    /**
+     * Moves up to {@code limit} orders in one of the given statuses created before
+     * the cutoff into {@code order_schema.orders_archive}, in one statement.
+     * Orders locked by another transaction are skipped, so concurrent archivers
+     * never move the same order twice.
+     *
+     * @return number of orders archived
+     */
+    @Modifying
+    @Query(value = "WITH batch AS (SELECT id, created_at FROM order_schema.orders " +
+                   "WHERE status IN (:statuses) AND created_at < :cutoff " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+                   "moved AS (DELETE FROM order_schema.orders o USING batch b " +
+                   "WHERE o.id = b.id AND o.created_at = b.created_at RETURNING o.*) " +
+                   "INSERT INTO order_schema.orders_archive (" + ARCHIVE_COLUMNS + ", archived_at) " +
+                   "SELECT " + ARCHIVE_COLUMNS + ", now() FROM moved",
+           nativeQuery = true)
+    int archive(@Param("statuses") Collection<String> statuses, @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    /**
+     * Cancels up to {@code limit} PENDING orders created before the cutoff, oldest
+     * first, in one statement. Orders locked by another transaction are skipped,
+     * so concurrent reapers never cancel the same order twice. The version is
+     * bumped, so a concurrent change of a cancelled order fails its optimistic lock.
+     *
+     * @return the cancelled orders
+     */
+    @Query(value = "UPDATE order_schema.orders o SET status = 'CANCELLED', updated_at = :now, version = o.version + 1 " +
+                   "FROM (SELECT id, created_at FROM order_schema.orders " +
+                   "WHERE status = 'PENDING' AND created_at < :cutoff " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED) stale " +
+                   "WHERE o.id = stale.id AND o.created_at = stale.created_at " +
+                   "RETURNING o.id AS \"id\", o.product_id AS \"productId\", o.quantity AS \"quantity\"",
+           nativeQuery = true)
+    List<CancelledOrder> cancelPendingCreatedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                                    @Param("now") LocalDateTime now,
+                                                    @Param("limit") int limit);
+    
+    /**
+     * Moves the given orders that are still PENDING to a new status, in one
+     * statement. The version is bumped, so a concurrent change of an updated
+     * order fails its optimistic lock.
+     *
+     * @return the IDs of the updated orders
+     */
+    @Query(value = "UPDATE order_schema.orders o SET status = :status, updated_at = :now, version = o.version + 1 " +
+                   "WHERE o.id IN (:ids) AND o.status = 'PENDING' " +
+                   "RETURNING o.id",
+           nativeQuery = true)
+    List<Long> updatePendingStatus(@Param("ids") Collection<Long> ids,
+                                   @Param("status") String status,
+                                   @Param("now") LocalDateTime now);
+    
+    /**
+     * An archived order. Archived orders are terminal - the result is only read, never changed.
+     */
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM order_schema.orders_archive WHERE id = :id", nativeQuery = true)
+    Optional<Order> findArchivedById(@Param("id") Long id);
+    
+    /**
+     * An order cancelled in bulk, with the stock it had reserved.
+     */
+    interface CancelledOrder {
+        Long getId();
+        Long getProductId();
+        Integer getQuantity();
+    }
 }
-
@@ -0,0 +1,45 @@
+package com.demo.modular.order.internal.repository;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.domain.OrderStatusCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderStatusCounterRepository extends JpaRepository<OrderStatusCounter, Long> {
+    
+    /**
+     * Adds deltas to one stripe of several status counters in one statement,
+     * creating missing stripes. Rows are locked in the order of {@code statuses},
+     * so callers pass them sorted and concurrent writers cannot deadlock.
+     *
+     * @param statuses status names, each at most once
+     * @param deltas deltas to add, positionally matching {@code statuses}
+     */
+    @Modifying
+    @Query(value = "INSERT INTO order_schema.status_counters (status, stripe, total) " +
+                   "SELECT d.status, :stripe, d.delta FROM unnest(:statuses, :deltas) AS d(status, delta) " +
+                   "ON CONFLICT (status, stripe) DO UPDATE SET total = order_schema.status_counters.total + EXCLUDED.total",
+           nativeQuery = true)
+    int add(@Param("stripe") int stripe, @Param("statuses") String[] statuses, @Param("deltas") Long[] deltas);
+    
+    /**
+     * Number of orders per status: a sum over a handful of stripes per status,
+     * independent of the number of orders.
+     */
+    @Query("SELECT c.status AS status, SUM(c.total) AS total FROM OrderStatusCounter c GROUP BY c.status")
+    List<StatusTotal> sumByStatus();
+    
+    /**
+     * Number of orders in one status.
+     */
+    interface StatusTotal {
+        OrderStatus getStatus();
+        Long getTotal();
+    }
+}
@@ -0,0 +1,270 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.internal.domain.OrderCompensationJob;
+import com.demo.modular.order.internal.repository.OrderCompensationJobRepository;
+import com.demo.modular.order.internal.repository.OrderCompensationJobRepository.BacklogSummary;
+import com.demo.modular.product.service.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Durable compensation jobs of the Order module, backed by {@link OrderCompensationJob} rows.
+ *
+ * <p><b>Recording:</b> {@link #scheduleStockRestore} joins the caller's
+ * transaction, so the job commits or rolls back together with the state change
+ * that requires it. The caller never waits for the Product module.</p>
+ *
+ * <p><b>Executing:</b> a background executor locks due jobs with
+ * {@code FOR UPDATE SKIP LOCKED} and restores their stock - one call per product
+ * for the whole batch - in the same transaction that completes the jobs, so
+ * stock is restored exactly once even with several instances. If the batch
+ * fails, its jobs are retried one at a time; a failing job is retried with
+ * exponential backoff and marked FAILED after {@code order.compensation.max-attempts}.</p>
+ *
+ * <p><b>Metrics:</b> {@code order.compensation.backlog}, {@code order.compensation.failed}
+ * and {@code order.compensation.oldest.age} (refreshed periodically), and
+ * {@code order.compensation.processed} (by outcome).</p>
+ */
+@Component
+@Slf4j
+class OrderCompensationJobs {
+
+    private final OrderCompensationJobRepository orderCompensationJobRepository;
+    private final ProductService productService; // Inter-module dependency
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final Counter completedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-compensation-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    OrderCompensationJobs(OrderCompensationJobRepository orderCompensationJobRepository,
+                          ProductService productService,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${order.compensation.batch-size:50}") int batchSize,
+                          @Value("${order.compensation.poll-interval-ms:1000}") long pollIntervalMs,
+                          @Value("${order.compensation.max-attempts:10}") int maxAttempts,
+                          @Value("${order.compensation.initial-backoff:1s}") Duration initialBackoff,
+                          @Value("${order.compensation.max-backoff:5m}") Duration maxBackoff,
+                          @Value("${order.compensation.retention:7d}") Duration retention) {
+        this.orderCompensationJobRepository = orderCompensationJobRepository;
+        this.productService = productService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+
+        Gauge.builder("order.compensation.backlog", backlog, AtomicLong::doubleValue)
+                .description("Compensation jobs waiting to be executed")
+                .register(meterRegistry);
+        Gauge.builder("order.compensation.failed", failed, AtomicLong::doubleValue)
+                .description("Compensation jobs that ran out of attempts and need manual follow-up")
+                .register(meterRegistry);
+        TimeGauge.builder("order.compensation.oldest.age", oldestAgeMs, TimeUnit.MILLISECONDS, AtomicLong::doubleValue)
+                .description("Time the oldest pending compensation job has been waiting")
+                .register(meterRegistry);
+        this.completedCounter = processedCounter(meterRegistry, "completed");
+        this.retriedCounter = processedCounter(meterRegistry, "retried");
+        this.failedCounter = processedCounter(meterRegistry, "failed");
+    }
+
+    @PostConstruct
+    void start() {
+        executor.scheduleWithFixedDelay(this::executeDue, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("[Order Module] [Compensation] Executor started. Batch size: {}, poll interval: {}ms, max attempts: {}",
+                batchSize, pollIntervalMs, maxAttempts);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Let a running batch commit - anything left is picked up after restart
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records that {@code quantity} of a product reserved for an order must be
+     * given back. Joins the caller's transaction.
+     */
+    void scheduleStockRestore(Long orderId, Long productId, Integer quantity) {
+        OrderCompensationJob job = orderCompensationJobRepository.save(
+                OrderCompensationJob.restoreStock(orderId, productId, quantity));
+        log.info("[Order Module] [Compensation] Scheduled job {} restoring {} of product {} for order {}",
+                job.getId(), quantity, productId, orderId);
+    }
+
+    /**
+     * Like {@link #scheduleStockRestore(Long, Long, Integer)}, unless a job
+     * restoring the order's stock exists already. Joins the caller's transaction.
+     *
+     * @return false if the stock of the order is restored already
+     */
+    boolean scheduleStockRestoreOnce(Long orderId, Long productId, Integer quantity) {
+        if (orderCompensationJobRepository.existsByOrderId(orderId)) {
+            log.info("[Order Module] [Compensation] Stock of order {} is restored already", orderId);
+            return false;
+        }
+        scheduleStockRestore(orderId, productId, quantity);
+        return true;
+    }
+
+    /**
+     * Records that {@code quantity} of a product reserved for {@code orderCount}
+     * orders must be given back, as one job. Joins the caller's transaction.
+     */
+    void scheduleStockRestore(Long productId, Integer quantity, int orderCount) {
+        OrderCompensationJob job = orderCompensationJobRepository.save(
+                OrderCompensationJob.restoreStock(productId, quantity));
+        log.info("[Order Module] [Compensation] Scheduled job {} restoring {} of product {} for {} orders",
+                job.getId(), quantity, productId, orderCount);
+    }
+
+    /**
+     * Executes up to {@code batchSize} due jobs.
+     *
+     * @return number of jobs taken - 0 if none was due
+     */
+    int executeBatch(int batchSize) {
+        List<Long> claimed = new ArrayList<>();
+        try {
+            return record(transactionTemplate.execute(status ->
+                    execute(orderCompensationJobRepository.lockDue(LocalDateTime.now(), batchSize), claimed)));
+        } catch (RuntimeException e) {
+            log.warn("[Order Module] [Compensation] Batch of {} jobs failed, retrying one at a time: {}",
+                    claimed.size(), e.getMessage());
+            claimed.forEach(this::executeOne);
+            return claimed.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.compensation.metrics-refresh-ms:5000}")
+    void refreshMetrics() {
+        BacklogSummary summary = orderCompensationJobRepository.summarizeBacklog();
+        backlog.set(summary.getPending() == null ? 0 : summary.getPending());
+        failed.set(summary.getFailed() == null ? 0 : summary.getFailed());
+        oldestAgeMs.set(summary.getOldest() == null ? 0
+                : Duration.between(summary.getOldest(), LocalDateTime.now()).toMillis());
+    }
+
+    /**
+     * Deletes completed jobs older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${order.compensation.purge-interval-ms:3600000}")
+    void purgeCompleted() {
+        int deleted = transactionTemplate.execute(status ->
+                orderCompensationJobRepository.deleteCompletedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Order Module] [Compensation] Purged {} completed compensation jobs", deleted);
+        }
+    }
+
+    private void executeDue() {
+        try {
+            // Keep going while full batches come back - the backlog is drained without waiting a poll interval
+            while (executeBatch(batchSize) == batchSize) {
+                log.debug("[Order Module] [Compensation] Full batch executed, continuing");
+            }
+        } catch (Exception e) {
+            // e.g. database unavailable - the next poll tries again
+            log.error("[Order Module] [Compensation] Failed to execute due compensation jobs", e);
+        }
+    }
+
+    private void executeOne(Long jobId) {
+        try {
+            record(transactionTemplate.execute(status ->
+                    execute(orderCompensationJobRepository.lockPendingByIds(List.of(jobId)), new ArrayList<>())));
+        } catch (RuntimeException e) {
+            log.error("[Order Module] [Compensation] Job {} failed", jobId, e);
+            record(transactionTemplate.execute(status -> {
+                List<OrderCompensationJob> jobs = orderCompensationJobRepository.lockPendingByIds(List.of(jobId));
+                jobs.forEach(job -> job.recordFailedAttempt(e.getMessage(), maxAttempts, backoff(job.getAttempts() + 1)));
+                return jobs;
+            }));
+        }
+    }
+
+    private List<OrderCompensationJob> execute(List<OrderCompensationJob> jobs, List<Long> claimed) {
+        jobs.forEach(job -> claimed.add(job.getId()));
+        if (jobs.isEmpty()) {
+            return jobs;
+        }
+
+        // One restore per product for the whole batch
+        Map<Long, Integer> quantities = jobs.stream()
+                .collect(Collectors.groupingBy(OrderCompensationJob::getProductId,
+                        Collectors.summingInt(OrderCompensationJob::getQuantity)));
+        quantities.forEach(productService::restoreStock);
+
+        // Stock restoration clears the persistence context - reload the (still locked) jobs to complete them
+        List<OrderCompensationJob> completed = orderCompensationJobRepository.findAllById(claimed);
+        completed.forEach(OrderCompensationJob::complete);
+        return completed;
+    }
+
+    private int record(List<OrderCompensationJob> jobs) {
+        for (OrderCompensationJob job : jobs) {
+            switch (job.getStatus()) {
+                case COMPLETED -> completedCounter.increment();
+                case FAILED -> failedCounter.increment();
+                case PENDING -> retriedCounter.increment();
+            }
+        }
+        if (!jobs.isEmpty()) {
+            log.debug("[Order Module] [Compensation] Executed {} compensation jobs", jobs.size());
+        }
+        return jobs.size();
+    }
+
+    /**
+     * Delay before the given attempt: doubles per attempt, capped at the maximum backoff.
+     */
+    private Duration backoff(int attempt) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static Counter processedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("order.compensation.processed")
+                .description("Compensation job executions")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
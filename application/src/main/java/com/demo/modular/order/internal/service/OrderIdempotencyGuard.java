@@ -0,0 +1,201 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.exception.OrderIdempotencyKeyConflictException;
+import com.demo.modular.order.internal.domain.OrderIdempotencyRecord;
+import com.demo.modular.order.internal.repository.OrderIdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and replays its response.
+ *
+ * <p><b>Replays:</b> completed responses are kept in a bounded in-memory cache
+ * backed by {@link OrderIdempotencyRecord} rows. A replay is served from either
+ * without running the request again.</p>
+ *
+ * <p><b>Concurrency:</b> on this instance, requests with a key that is still
+ * running wait for it and then replay its response. Across instances, the
+ * request claims its key in the same transaction as its own writes, so a second
+ * claim blocks until the first commits and then replays it. Failed requests
+ * store nothing, so a retry with the same key runs again.</p>
+ */
+@Component
+@Slf4j
+class OrderIdempotencyGuard {
+
+    private final OrderIdempotencyRecordRepository orderIdempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+    private final Duration retention;
+
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    OrderIdempotencyGuard(OrderIdempotencyRecordRepository orderIdempotencyRecordRepository,
+                     TransactionTemplate transactionTemplate,
+                     ObjectMapper objectMapper,
+                     @Value("${order.idempotency.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${order.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                     @Value("${order.idempotency.retention:24h}") Duration retention) {
+        this.orderIdempotencyRecordRepository = orderIdempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.retention = retention;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Runs {@code request} in a new transaction unless a response for the key
+     * exists, in which case that response is returned instead.
+     *
+     * @param key the client's idempotency key
+     * @param requestSignature identifies the request payload - the same key with a
+     *                         different signature is rejected
+     * @param responseType type of the stored response
+     * @param request the work to run; joins the transaction that claims the key
+     * @throws OrderIdempotencyKeyConflictException if the key was used for a different
+     *         request, or its request is still running after the wait timeout
+     */
+    <T> T execute(String key, String requestSignature, Class<T> responseType, Supplier<T> request) {
+        String fingerprint = fingerprint(requestSignature);
+        while (true) {
+            StoredResponse cached = completed.getIfPresent(key);
+            if (cached != null) {
+                return replay(cached, key, fingerprint, responseType);
+            }
+
+            CompletableFuture<Void> running = new CompletableFuture<>();
+            CompletableFuture<Void> other = inFlight.putIfAbsent(key, running);
+            if (other != null) {
+                awaitInFlight(key, other);
+                continue;
+            }
+            try {
+                Optional<T> response = executeOnce(key, fingerprint, responseType, request);
+                if (response.isPresent()) {
+                    return response.get();
+                }
+                // Another instance committed this key first - loop and replay its record
+            } finally {
+                inFlight.remove(key, running);
+                running.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:3600000}")
+    void purgeExpired() {
+        int deleted = transactionTemplate.execute(status ->
+                orderIdempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Order Module] [Idempotency] Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private <T> Optional<T> executeOnce(String key, String fingerprint, Class<T> responseType, Supplier<T> request) {
+        Optional<OrderIdempotencyRecord> record = orderIdempotencyRecordRepository.findById(key);
+        if (record.isPresent()) {
+            StoredResponse stored = new StoredResponse(record.get().getRequestFingerprint(), record.get().getResponse());
+            completed.put(key, stored);
+            return Optional.of(replay(stored, key, fingerprint, responseType));
+        }
+
+        Outcome<T> outcome = transactionTemplate.execute(status -> {
+            if (orderIdempotencyRecordRepository.claim(key, fingerprint, LocalDateTime.now()) == 0) {
+                return null;
+            }
+            T value = request.get();
+            String response = toJson(value);
+            orderIdempotencyRecordRepository.complete(key, response);
+            return new Outcome<>(value, response);
+        });
+        if (outcome == null) {
+            log.debug("[Order Module] [Idempotency] Key {} was completed concurrently", key);
+            return Optional.empty();
+        }
+        completed.put(key, new StoredResponse(fingerprint, outcome.response()));
+        return Optional.of(outcome.value());
+    }
+
+    private <T> T replay(StoredResponse stored, String key, String fingerprint, Class<T> responseType) {
+        if (!stored.requestFingerprint().equals(fingerprint)) {
+            throw new OrderIdempotencyKeyConflictException(key, "Idempotency key already used for a different request: " + key);
+        }
+        log.info("[Order Module] [Idempotency] Replaying stored response for key {}", key);
+        try {
+            return objectMapper.readValue(stored.response(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + key + " is unreadable", e);
+        }
+    }
+
+    private void awaitInFlight(String key, CompletableFuture<Void> other) {
+        log.debug("[Order Module] [Idempotency] Waiting for in-flight request with key {}", key);
+        try {
+            other.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new OrderIdempotencyKeyConflictException(key, "Request with idempotency key " + key + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderIdempotencyKeyConflictException(key, "Interrupted while waiting for idempotency key " + key);
+        } catch (ExecutionException e) {
+            // Never completed exceptionally
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for replay", e);
+        }
+    }
+
+    private static String fingerprint(String requestSignature) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestSignature.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A committed response and the fingerprint of the request that produced it.
+     */
+    private record StoredResponse(String requestFingerprint, String response) {
+    }
+
+    private record Outcome<T>(T value, String response) {
+    }
+}
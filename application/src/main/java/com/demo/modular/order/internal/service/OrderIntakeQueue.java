@@ -0,0 +1,280 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
+import com.demo.modular.order.api.dto.OrderIntakeStatus;
+import com.demo.modular.order.api.dto.OrderItemResultDTO;
+import com.demo.modular.order.api.exception.OrderIntakeQueueFullException;
+import com.demo.modular.order.internal.domain.OrderIntakeRequest;
+import com.demo.modular.order.internal.repository.OrderIntakeRequestRepository;
+import com.demo.modular.order.internal.repository.OrderIntakeRequestRepository.QueueSummary;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.api.exception.ProductNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Durable, bounded queue of order requests, backed by {@link OrderIntakeRequest} rows.
+ *
+ * <p><b>Capacity:</b> enqueueing fails with {@link OrderIntakeQueueFullException}
+ * while the queue holds {@code order.intake.capacity} unprocessed requests.</p>
+ *
+ * <p><b>Draining:</b> a drain locks the oldest queued requests with
+ * {@code FOR UPDATE SKIP LOCKED} and places them with {@link OrderPlacer} in
+ * the same transaction that marks them processed, so a request is placed
+ * exactly once even if a worker dies mid-batch. If stock changed under the
+ * batch, it rolls back and the drain reports no progress, so the worker backs
+ * off before the batch is re-evaluated instead of spinning on it. Any other failure
+ * retries the requests one at a time, rejecting a request after
+ * {@value #MAX_ATTEMPTS} failed attempts.</p>
+ *
+ * <p><b>Metrics:</b> {@code order.intake.queue.depth} and
+ * {@code order.intake.queue.oldest.age} (refreshed periodically),
+ * {@code order.intake.lag} (enqueue to processed, per request),
+ * {@code order.intake.processed} (by outcome), {@code order.intake.reevaluated}
+ * (requests rolled back because stock changed) and {@code order.intake.queue.full}.</p>
+ */
+@Component
+@Slf4j
+class OrderIntakeQueue {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final OrderIntakeRequestRepository orderIntakeRequestRepository;
+    private final OrderPlacer orderPlacer;
+    private final TransactionTemplate transactionTemplate;
+    private final long capacity;
+    private final Duration retention;
+
+    // Wakes an idle worker on this instance when a request was enqueued
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final Timer lag;
+    private final Counter completed;
+    private final Counter rejected;
+    private final Counter reevaluated;
+    private final Counter full;
+
+    OrderIntakeQueue(OrderIntakeRequestRepository orderIntakeRequestRepository,
+                     OrderPlacer orderPlacer,
+                     TransactionTemplate transactionTemplate,
+                     MeterRegistry meterRegistry,
+                     @Value("${order.intake.capacity:10000}") long capacity,
+                     @Value("${order.intake.retention:24h}") Duration retention) {
+        this.orderIntakeRequestRepository = orderIntakeRequestRepository;
+        this.orderPlacer = orderPlacer;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.retention = retention;
+
+        Gauge.builder("order.intake.queue.depth", depth, AtomicLong::doubleValue)
+                .description("Order requests waiting in the intake queue")
+                .register(meterRegistry);
+        TimeGauge.builder("order.intake.queue.oldest.age", oldestAgeMs, TimeUnit.MILLISECONDS, AtomicLong::doubleValue)
+                .description("Time the oldest queued order request has been waiting")
+                .register(meterRegistry);
+        this.lag = Timer.builder("order.intake.lag")
+                .description("Time from enqueueing an order request to placing or rejecting it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.completed = processedCounter(meterRegistry, "completed");
+        this.rejected = processedCounter(meterRegistry, "rejected");
+        this.reevaluated = Counter.builder("order.intake.reevaluated")
+                .description("Queued order requests rolled back because stock changed under their batch")
+                .register(meterRegistry);
+        this.full = Counter.builder("order.intake.queue.full")
+                .description("Order requests refused because the intake queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Appends a request to the queue. Joins the caller's transaction; idle
+     * workers on this instance are woken once it commits.
+     *
+     * @throws OrderIntakeQueueFullException if the queue is at capacity
+     */
+    OrderIntakeDTO enqueue(CreateOrderRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        Long requestId = transactionTemplate.execute(status -> orderIntakeRequestRepository
+                .enqueue(request.getProductId(), request.getQuantity(), now, capacity)
+                .orElse(null));
+        if (requestId == null) {
+            full.increment();
+            throw new OrderIntakeQueueFullException(capacity);
+        }
+        wakeUpAfterCommit();
+
+        return OrderIntakeDTO.builder()
+                .requestId(requestId)
+                .productId(request.getProductId())
+                .quantity(request.getQuantity())
+                .status(OrderIntakeStatus.QUEUED)
+                .queuedAt(now)
+                .build();
+    }
+
+    /**
+     * Places up to {@code batchSize} of the oldest queued requests.
+     *
+     * @return number of requests taken from the queue - 0 if it was empty, or if
+     *         stock changed under the batch and its requests are queued again
+     */
+    int drain(int batchSize) {
+        List<Long> claimed = new ArrayList<>();
+        try {
+            return record(transactionTemplate.execute(status ->
+                    process(orderIntakeRequestRepository.lockQueued(batchSize), claimed)));
+        } catch (InsufficientStockException | ProductNotFoundException e) {
+            // Stock changed between resolution and reservation - a later drain re-evaluates these requests
+            reevaluated.increment(claimed.size());
+            log.debug("[Order Module] [Intake] Stock changed during batch of {}, re-evaluating: {}",
+                    claimed.size(), e.getMessage());
+            return 0;
+        } catch (RuntimeException e) {
+            log.error("[Order Module] [Intake] Batch of {} requests failed, retrying one at a time", claimed.size(), e);
+            claimed.forEach(this::drainOne);
+            return claimed.size();
+        }
+    }
+
+    /**
+     * Waits until a request is enqueued on this instance or the timeout elapses.
+     */
+    void awaitWork(Duration timeout) throws InterruptedException {
+        wakeUp.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${order.intake.metrics-refresh-ms:5000}")
+    void refreshMetrics() {
+        QueueSummary summary = orderIntakeRequestRepository.summarizeQueued();
+        depth.set(summary.getDepth());
+        oldestAgeMs.set(summary.getOldest() == null ? 0
+                : Duration.between(summary.getOldest(), LocalDateTime.now()).toMillis());
+    }
+
+    /**
+     * Deletes processed requests older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${order.intake.purge-interval-ms:3600000}")
+    void purgeProcessed() {
+        int deleted = transactionTemplate.execute(status ->
+                orderIntakeRequestRepository.deleteProcessedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Order Module] [Intake] Purged {} processed intake requests", deleted);
+        }
+    }
+
+    private void drainOne(Long requestId) {
+        try {
+            record(transactionTemplate.execute(status ->
+                    process(orderIntakeRequestRepository.lockQueuedByIds(List.of(requestId)), new ArrayList<>())));
+        } catch (InsufficientStockException | ProductNotFoundException e) {
+            reevaluated.increment();
+            log.debug("[Order Module] [Intake] Stock changed for request {}, re-evaluating: {}", requestId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("[Order Module] [Intake] Request {} failed", requestId, e);
+            record(transactionTemplate.execute(status -> {
+                List<OrderIntakeRequest> requests = orderIntakeRequestRepository.lockQueuedByIds(List.of(requestId));
+                requests.forEach(request -> request.recordFailedAttempt("Order placement failed: " + e.getMessage(), MAX_ATTEMPTS));
+                return requests;
+            }));
+        }
+    }
+
+    private List<OrderIntakeRequest> process(List<OrderIntakeRequest> requests, List<Long> claimed) {
+        requests.forEach(request -> claimed.add(request.getId()));
+        if (requests.isEmpty()) {
+            return requests;
+        }
+
+        List<OrderItemResultDTO> results = orderPlacer.place(requests.stream()
+                .map(request -> CreateOrderRequest.builder()
+                        .productId(request.getProductId())
+                        .quantity(request.getQuantity())
+                        .build())
+                .toList());
+
+        // Stock reservation clears the persistence context - reload the (still locked) requests to record outcomes
+        Map<Long, OrderIntakeRequest> managed = orderIntakeRequestRepository.findAllById(claimed).stream()
+                .collect(Collectors.toMap(OrderIntakeRequest::getId, Function.identity()));
+        List<OrderIntakeRequest> processed = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            OrderIntakeRequest request = managed.get(requests.get(i).getId());
+            OrderItemResultDTO result = results.get(i);
+            if (result.isSuccess()) {
+                request.complete(result.getOrder().getId());
+            } else {
+                request.reject(result.getError());
+            }
+            processed.add(request);
+        }
+        // Committed by dirty checking together with the placed orders
+        return processed;
+    }
+
+    private int record(List<OrderIntakeRequest> requests) {
+        for (OrderIntakeRequest request : requests) {
+            switch (request.getStatus()) {
+                case COMPLETED -> completed.increment();
+                case REJECTED -> rejected.increment();
+                case QUEUED -> {
+                    continue; // Failed attempt, still queued
+                }
+            }
+            lag.record(Duration.between(request.getCreatedAt(), request.getProcessedAt()));
+        }
+        if (!requests.isEmpty()) {
+            log.debug("[Order Module] [Intake] Processed {} queued order requests", requests.size());
+        }
+        return requests.size();
+    }
+
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        // One pending wake-up is enough - a woken worker drains until the queue is empty
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    private static Counter processedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("order.intake.processed")
+                .description("Queued order requests processed")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.demo.modular.order.internal.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Virtual-thread workers draining the {@link OrderIntakeQueue} in micro-batches.
+ *
+ * <p>Each worker drains batches until the queue is empty, then waits for a
+ * request enqueued on this instance or the poll interval, whichever comes
+ * first. Workers on any number of instances can drain the same queue.</p>
+ *
+ * <p>Only present in asynchronous intake mode ({@code order.intake.mode=async}).</p>
+ */
+@Component
+@ConditionalOnProperty(name = "order.intake.mode", havingValue = "async")
+@Slf4j
+class OrderIntakeWorkers {
+
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final int workers;
+    private final int batchSize;
+    private final Duration pollInterval;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    OrderIntakeWorkers(OrderIntakeQueue orderIntakeQueue,
+                       @Value("${order.intake.workers:4}") int workers,
+                       @Value("${order.intake.batch-size:50}") int batchSize,
+                       @Value("${order.intake.poll-interval:200ms}") Duration pollInterval) {
+        this.orderIntakeQueue = orderIntakeQueue;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofVirtual().name("order-intake-worker-" + i).start(this::run));
+        }
+        log.info("[Order Module] [Intake] Asynchronous intake enabled. Workers: {}, batch size: {}, poll interval: {}",
+                workers, batchSize, pollInterval);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Let running batches commit - an idle worker notices within one poll interval
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(pollInterval.plusSeconds(30));
+        }
+        log.info("[Order Module] [Intake] Workers stopped");
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (orderIntakeQueue.drain(batchSize) == 0) {
+                    orderIntakeQueue.awaitWork(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // e.g. database unavailable - back off and keep the worker alive
+                log.error("[Order Module] [Intake] Worker failed to drain the queue", e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.demo.modular.order.internal.service;
 
 import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
 import com.demo.modular.order.internal.domain.Order;
+import com.demo.modular.order.internal.domain.OrderIntakeRequest;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -48,5 +50,24 @@ class OrderMapper {
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
-}
 
+    /**
+     * Converts a queued order request to OrderIntakeDTO.
+     */
+    public OrderIntakeDTO toIntakeDTO(OrderIntakeRequest request) {
+        if (request == null) {
+            return null;
+        }
+
+        return OrderIntakeDTO.builder()
+                .requestId(request.getId())
+                .productId(request.getProductId())
+                .quantity(request.getQuantity())
+                .status(request.getStatus())
+                .orderId(request.getOrderId())
+                .error(request.getError())
+                .queuedAt(request.getCreatedAt())
+                .processedAt(request.getProcessedAt())
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps {@code order_schema.orders} small: monthly range partitions on
+ * {@code created_at}, and archival of terminal orders.
+ *
+ * <p><b>Partitions:</b> partitions are created {@code order.partitions.months-ahead}
+ * months in advance, so new orders never land in the default partition. Orders
+ * that did - e.g. history from before partitioning - are moved into the month
+ * partition when it is created.</p>
+ *
+ * <p><b>Archival:</b> orders in a terminal status created more than
+ * {@code order.archive.after} ago are moved to {@code order_schema.orders_archive}
+ * in batches. Partitions older than that are then empty, unless they still hold
+ * an open order, and are dropped - queries on the orders table only scan the
+ * recent months. Archived orders stay readable by ID.</p>
+ *
+ * <p>Both run on every instance and are safe to run concurrently.</p>
+ */
+@Component
+@Slf4j
+class OrderPartitions {
+
+    private static final Set<OrderStatus> TERMINAL =
+            EnumSet.of(OrderStatus.PAID, OrderStatus.CANCELLED, OrderStatus.FAILED, OrderStatus.REJECTED);
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final Duration archiveAfter;
+    private final int archiveBatchSize;
+    private final long dropLockTimeoutMs;
+    private final Counter archivedCounter;
+
+    OrderPartitions(OrderRepository orderRepository,
+                    TransactionTemplate transactionTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${order.partitions.months-ahead:3}") int monthsAhead,
+                    @Value("${order.archive.after:90d}") Duration archiveAfter,
+                    @Value("${order.archive.batch-size:1000}") int archiveBatchSize,
+                    @Value("${order.archive.drop-lock-timeout-ms:2000}") long dropLockTimeoutMs) {
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfter = archiveAfter;
+        this.archiveBatchSize = archiveBatchSize;
+        this.dropLockTimeoutMs = dropLockTimeoutMs;
+        this.archivedCounter = Counter.builder("order.archive.archived")
+                .description("Terminal orders moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        try {
+            createPartitions();
+        } catch (RuntimeException e) {
+            // e.g. database unavailable - orders go to the default partition until the next run
+            log.error("[Order Module] [Partitions] Failed to create order partitions", e);
+        }
+    }
+
+    /**
+     * Creates the partitions of the coming months and of the months that have
+     * orders in the default partition.
+     */
+    @Scheduled(fixedDelayString = "${order.partitions.maintenance-interval-ms:3600000}")
+    void createPartitions() {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> orderRepository.isPartitioned()))) {
+            log.warn("[Order Module] [Partitions] order_schema.orders is not partitioned yet - " +
+                    "run scripts/partition-orders-payments.sql");
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        Set<YearMonth> months = new TreeSet<>();
+        months.addAll(transactionTemplate.execute(status -> orderRepository.findDefaultPartitionMonths()));
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        months.removeAll(transactionTemplate.execute(status -> orderRepository.findPartitionMonths()));
+
+        for (YearMonth month : months) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> orderRepository.createPartition(month)))) {
+                log.info("[Order Module] [Partitions] Created order partition for {}", month);
+            }
+        }
+    }
+
+    /**
+     * Archives terminal orders older than {@code order.archive.after} and drops
+     * the partitions they leave empty.
+     */
+    @Scheduled(fixedDelayString = "${order.archive.interval-ms:600000}",
+               initialDelayString = "${order.archive.interval-ms:600000}")
+    void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        List<String> statuses = TERMINAL.stream().map(OrderStatus::name).toList();
+
+        long archived = 0;
+        int moved;
+        do {
+            // One transaction per batch - row locks and the archive insert stay small
+            moved = transactionTemplate.execute(status -> orderRepository.archive(statuses, cutoff, archiveBatchSize));
+            archived += moved;
+            archivedCounter.increment(moved);
+        } while (moved == archiveBatchSize);
+        if (archived > 0) {
+            log.info("[Order Module] [Archive] Archived {} orders created before {}", archived, cutoff);
+        }
+
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        List<YearMonth> partitions = transactionTemplate.execute(status -> orderRepository.findPartitionMonths());
+        for (YearMonth month : partitions) {
+            if (!month.isBefore(cutoffMonth)) {
+                break;
+            }
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        orderRepository.dropPartitionIfEmpty(month, dropLockTimeoutMs)))) {
+                    log.info("[Order Module] [Partitions] Dropped empty order partition for {}", month);
+                }
+            } catch (RuntimeException e) {
+                // Lock timeout under load - the next run tries again
+                log.warn("[Order Module] [Partitions] Could not drop order partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+}
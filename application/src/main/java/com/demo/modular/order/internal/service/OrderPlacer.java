@@ -0,0 +1,132 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderItemResultDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.domain.Order;
+import com.demo.modular.order.internal.domain.vo.Money;
+import com.demo.modular.order.internal.domain.vo.ProductId;
+import com.demo.modular.order.internal.domain.vo.ProductName;
+import com.demo.modular.order.internal.domain.vo.Quantity;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.api.exception.ProductNotFoundException;
+import com.demo.modular.product.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Places many orders with a constant number of round trips, deciding each one
+ * individually. Used by bulk order creation and by the asynchronous intake workers.
+ *
+ * <p>Joins the caller's transaction. If stock changes between resolving the
+ * products and reserving their stock, the reservation throws and the caller
+ * rolls back and re-evaluates the whole set.</p>
+ */
+@Component
+@RequiredArgsConstructor
+class OrderPlacer {
+
+    private final OrderRepository orderRepository;
+    private final ProductService productService; // Inter-module dependency
+    private final OrderMapper orderMapper;
+    private final OrderStatusCounters orderStatusCounters;
+
+    /**
+     * Accepts orders in submission order while stock lasts and persists them.
+     *
+     * @return one result per request, in submission order
+     * @throws InsufficientStockException if stock was taken concurrently
+     * @throws ProductNotFoundException if a product was deleted concurrently
+     */
+    List<OrderItemResultDTO> place(List<CreateOrderRequest> requests) {
+        OrderItemResultDTO[] results = new OrderItemResultDTO[requests.size()];
+
+        // Inter-module call: resolve every referenced product in one query
+        Set<Long> productIds = requests.stream()
+                .map(CreateOrderRequest::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, ProductDTO> products = productIds.isEmpty() ? Map.of() : productService.getProductsByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+
+        // Accept orders in submission order while the resolved stock lasts
+        Map<Long, Integer> remainingStock = new HashMap<>();
+        products.forEach((productId, product) -> remainingStock.put(productId, product.getStock()));
+        Map<Long, Integer> reservedQuantities = new HashMap<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            CreateOrderRequest request = requests.get(index);
+            String error = rejectionReason(request, remainingStock);
+            if (error != null) {
+                results[index] = OrderItemResultDTO.builder().index(index).success(false).error(error).build();
+                continue;
+            }
+            remainingStock.merge(request.getProductId(), -request.getQuantity(), Integer::sum);
+            reservedQuantities.merge(request.getProductId(), request.getQuantity(), Integer::sum);
+            accepted.add(index);
+        }
+
+        if (!accepted.isEmpty()) {
+            // Inter-module call: one locked, set-based reservation for all accepted orders.
+            // Prices and names come from the locked rows, not from the earlier read.
+            Map<Long, StockReservationDTO> reservations = productService.reserveStockBatch(reservedQuantities).stream()
+                    .collect(Collectors.toMap(StockReservationDTO::getProductId, Function.identity()));
+
+            List<Order> orders = accepted.stream()
+                    .map(index -> {
+                        CreateOrderRequest request = requests.get(index);
+                        StockReservationDTO reservation = reservations.get(request.getProductId());
+                        return Order.create(
+                            ProductId.of(request.getProductId()),
+                            ProductName.of(reservation.getProductName()),
+                            Quantity.of(request.getQuantity()),
+                            Money.of(reservation.getUnitPrice()).multiply(request.getQuantity())
+                        );
+                    })
+                    .toList();
+            List<Long> orderIds = orderRepository.insertAll(orders);
+            orderStatusCounters.created(OrderStatus.PENDING, orders.size());
+
+            for (int i = 0; i < orders.size(); i++) {
+                OrderDTO order = orderMapper.toDTO(orders.get(i));
+                order.setId(orderIds.get(i));
+                results[accepted.get(i)] = OrderItemResultDTO.builder().index(accepted.get(i)).success(true).order(order).build();
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Why an order cannot be placed, or null if it can.
+     */
+    private static String rejectionReason(CreateOrderRequest request, Map<Long, Integer> remainingStock) {
+        if (request.getProductId() == null) {
+            return "Product ID is required";
+        }
+        if (request.getQuantity() == null || request.getQuantity() < 1) {
+            return "Quantity must be at least 1";
+        }
+        Integer stock = remainingStock.get(request.getProductId());
+        if (stock == null) {
+            return "Product not found: " + request.getProductId();
+        }
+        if (stock < request.getQuantity()) {
+            return "Insufficient stock for product: " + request.getProductId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.order.internal.repository.OrderRepository.CancelledOrder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cancels orders that stayed PENDING longer than {@code order.reaper.pending-ttl}
+ * and gives their stock back.
+ *
+ * <p><b>Set-based:</b> each batch of up to {@code order.reaper.batch-size} orders
+ * is cancelled with one statement, found through the {@code (status, created_at)}
+ * index. The stock of the batch is returned with one compensation job per product,
+ * carrying the summed quantity, so the Product module sees one stock update per
+ * product instead of one per order. Cancellations, jobs and status counters
+ * commit together.</p>
+ *
+ * <p><b>Several instances:</b> batches lock their orders with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent reapers split the stale orders
+ * between them and never cancel an order twice.</p>
+ *
+ * <p>Only present with {@code order.reaper.enabled=true}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "order.reaper.enabled", havingValue = "true")
+@Slf4j
+class OrderReaper {
+
+    private final OrderRepository orderRepository;
+    private final OrderCompensationJobs orderCompensationJobs;
+    private final OrderStatusCounters orderStatusCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration pendingTtl;
+    private final int batchSize;
+    private final Counter cancelledCounter;
+
+    OrderReaper(OrderRepository orderRepository,
+                OrderCompensationJobs orderCompensationJobs,
+                OrderStatusCounters orderStatusCounters,
+                TransactionTemplate transactionTemplate,
+                MeterRegistry meterRegistry,
+                @Value("${order.reaper.pending-ttl:30m}") Duration pendingTtl,
+                @Value("${order.reaper.batch-size:500}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.orderCompensationJobs = orderCompensationJobs;
+        this.orderStatusCounters = orderStatusCounters;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingTtl = pendingTtl;
+        this.batchSize = batchSize;
+        this.cancelledCounter = Counter.builder("order.reaper.cancelled")
+                .description("Stale PENDING orders cancelled by the reaper")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cancels all orders that are PENDING for longer than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${order.reaper.interval-ms:60000}")
+    void reap() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingTtl);
+        long cancelled = 0;
+        int reaped;
+        do {
+            // One transaction per batch - row locks are held only while its stock is scheduled for return
+            reaped = transactionTemplate.execute(status -> reapBatch(cutoff));
+            cancelled += reaped;
+        } while (reaped == batchSize);
+        if (cancelled > 0) {
+            log.info("[Order Module] [Reaper] Cancelled {} orders pending since before {}", cancelled, cutoff);
+        }
+    }
+
+    /**
+     * Cancels one batch of stale orders. Must run within a transaction.
+     *
+     * @return number of orders cancelled
+     */
+    private int reapBatch(LocalDateTime cutoff) {
+        List<CancelledOrder> orders = orderRepository.cancelPendingCreatedBefore(cutoff, LocalDateTime.now(), batchSize);
+        if (orders.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<CancelledOrder>> byProduct = orders.stream()
+                .collect(Collectors.groupingBy(CancelledOrder::getProductId));
+        byProduct.forEach((productId, productOrders) -> orderCompensationJobs.scheduleStockRestore(productId,
+                productOrders.stream().mapToInt(CancelledOrder::getQuantity).sum(), productOrders.size()));
+
+        orderStatusCounters.transitioned(OrderStatus.PENDING, OrderStatus.CANCELLED, orders.size());
+        cancelledCounter.increment(orders.size());
+        log.debug("[Order Module] [Reaper] Cancelled {} stale orders of {} products", orders.size(), byProduct.size());
+        return orders.size();
+    }
+}
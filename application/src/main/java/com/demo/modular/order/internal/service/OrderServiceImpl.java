@@ -1,8 +1,13 @@
 package com.demo.modular.order.internal.service;
 
 import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderBatchResultDTO;
 import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
+import com.demo.modular.order.api.dto.OrderItemResultDTO;
+import com.demo.modular.order.api.dto.OrderPageDTO;
 import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.api.event.OrderPlaced;
 import com.demo.modular.order.api.exception.OrderCreationException;
 import com.demo.modular.order.api.exception.OrderInvalidStateException;
 import com.demo.modular.order.api.exception.OrderNotFoundException;
@@ -11,22 +16,31 @@ import com.demo.modular.order.internal.domain.vo.Money;
 import com.demo.modular.order.internal.domain.vo.ProductId;
 import com.demo.modular.order.internal.domain.vo.ProductName;
 import com.demo.modular.order.internal.domain.vo.Quantity;
+import com.demo.modular.order.internal.repository.OrderIntakeRequestRepository;
 import com.demo.modular.order.internal.repository.OrderRepository;
 import com.demo.modular.order.service.OrderService;
 import com.demo.modular.product.api.dto.ProductDTO;
-import com.demo.modular.product.api.dto.StockCheckDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
 import com.demo.modular.product.api.exception.InsufficientStockException;
 import com.demo.modular.product.api.exception.ProductNotFoundException;
 import com.demo.modular.product.service.ProductService;
+import io.github.resilience4j.retry.annotation.Retry;
 import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -40,9 +54,24 @@ import java.util.Optional;
 @Transactional
 class OrderServiceImpl implements OrderService {
 
+    // Bulk orders are re-evaluated this often when stock changes under them
+    private static final int BATCH_ATTEMPTS = 3;
+
     private final OrderRepository orderRepository;
     private final ProductService productService; // Inter-module dependency
     private final OrderMapper orderMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderIdempotencyGuard orderIdempotencyGuard;
+    private final OrderPlacer orderPlacer;
+    private final OrderIntakeQueue orderIntakeQueue;
+    private final OrderIntakeRequestRepository orderIntakeRequestRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderCompensationJobs orderCompensationJobs;
+    private final OrderStatusCounters orderStatusCounters;
+
+    // sync: reserve stock within createOrder; event: publish OrderPlaced and let the Product module reserve it
+    @Value("${order.stock-reservation.mode:sync}")
+    private String stockReservationMode;
 
     @Override
     @Timed(value = "order.create", description = "Time taken to create an order")
@@ -52,41 +81,33 @@ class OrderServiceImpl implements OrderService {
         
         Long productId = request.getProductId();
         Integer quantity = request.getQuantity();
-        Order savedOrder = null;
-        boolean stockReduced = false;
+        
+        if ("event".equals(stockReservationMode)) {
+            return placeOrder(productId, quantity);
+        }
         
         try {
-            // Inter-module call: Get product details from Product module
-            ProductDTO product = productService.getProductById(productId)
-                    .orElseThrow(() -> new ProductNotFoundException(productId));
+            // Inter-module call: Reserve stock and get the price/name snapshot in one round trip.
+            // The reservation joins this transaction, so it rolls back with the order on failure.
+            StockReservationDTO reservation = productService.reserveStock(productId, quantity);
             
-            log.debug("[Order Module] Product found: {}, price: {}", product.getName(), product.getPrice());
-            
-            // Inter-module call: Check stock availability
-            StockCheckDTO stockCheck = productService.checkStockAvailability(productId, quantity);
-            if (!stockCheck.isAvailable()) {
-                throw new InsufficientStockException(productId, quantity, stockCheck.getAvailableStock());
-            }
+            log.debug("[Order Module] Stock reserved for product: {}, price: {}", 
+                    reservation.getProductName(), reservation.getUnitPrice());
             
             // Calculate total amount using value objects
-            Money unitPrice = Money.of(product.getPrice());
+            Money unitPrice = Money.of(reservation.getUnitPrice());
             Money totalAmount = unitPrice.multiply(quantity);
             
             // Use static factory method to create order aggregate with validation
             Order order = Order.create(
                 ProductId.of(productId),
-                ProductName.of(product.getName()),
+                ProductName.of(reservation.getProductName()),
                 Quantity.of(quantity),
                 totalAmount
             );
             
-            savedOrder = orderRepository.save(order);
-            log.info("[Order Module] Order saved with id: {}", savedOrder.getId());
-            
-            // Inter-module call: Reduce product stock
-            // This runs in a separate transaction (REQUIRES_NEW)
-            productService.reduceStock(productId, quantity);
-            stockReduced = true;
+            Order savedOrder = orderRepository.save(order);
+            orderStatusCounters.created(savedOrder.getStatus(), 1);
             
             log.info("[Order Module] Order created successfully with id: {}", savedOrder.getId());
             return orderMapper.toDTO(savedOrder);
@@ -100,32 +121,104 @@ class OrderServiceImpl implements OrderService {
             throw new OrderCreationException("Insufficient stock for product: " + productId, e);
             
         } catch (Exception e) {
+            // No compensation needed: the stock reservation rolls back together with this transaction
             log.error("[Order Module] Failed to create order for product: {}", productId, e);
-            
-            // Compensation: Restore stock if it was reduced
-            if (stockReduced) {
-                try {
-                    log.warn("[Order Module] [Compensation] Restoring stock for product {} due to order creation failure", productId);
-                    productService.restoreStock(productId, quantity);
-                    log.info("[Order Module] [Compensation] Stock restored successfully");
-                } catch (Exception compensationEx) {
-                    log.error("[Order Module] [Compensation] Failed to restore stock for product {}", productId, compensationEx);
-                }
-            }
-            
-            // Cancel order if it was saved
-            if (savedOrder != null) {
-                try {
-                    log.warn("[Order Module] [Compensation] Marking order {} as cancelled", savedOrder.getId());
-                    savedOrder.cancel();
-                    orderRepository.save(savedOrder);
-                } catch (Exception cancelEx) {
-                    log.error("[Order Module] [Compensation] Failed to cancel order {}", savedOrder.getId(), cancelEx);
+            throw new OrderCreationException("Failed to create order: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Event-driven creation: the order is saved AWAITING_STOCK and {@link OrderPlaced}
+     * is published in the same transaction. No product row is locked on this path -
+     * the Product module reserves the stock after commit and replies with an event
+     * that moves the order to PENDING or REJECTED.
+     */
+    private OrderDTO placeOrder(Long productId, Integer quantity) {
+        // Inter-module call: cached product snapshot for the name and estimated total
+        ProductDTO product = productService.getProductById(productId)
+                .orElseThrow(() -> new OrderCreationException("Product not found: " + productId));
+        
+        Order order = Order.place(
+            ProductId.of(productId),
+            ProductName.of(product.getName()),
+            Quantity.of(quantity),
+            Money.of(product.getPrice()).multiply(quantity)
+        );
+        Order savedOrder = orderRepository.save(order);
+        orderStatusCounters.created(savedOrder.getStatus(), 1);
+        eventPublisher.publishEvent(new OrderPlaced(savedOrder.getId(), productId, quantity));
+        
+        log.info("[Order Module] Order {} placed, awaiting stock reservation", savedOrder.getId());
+        return orderMapper.toDTO(savedOrder);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Timed(value = "order.createIdempotent", description = "Time taken to create or replay an order by idempotency key")
+    public OrderDTO createOrder(CreateOrderRequest request, String idempotencyKey) {
+        // No transaction here - waiting for a duplicate in flight must not hold a connection.
+        // The guard runs createOrder in the transaction that claims the key.
+        return orderIdempotencyGuard.execute(idempotencyKey, request.getProductId() + ":" + request.getQuantity(),
+                OrderDTO.class, () -> createOrder(request));
+    }
+
+    @Override
+    @Timed(value = "order.submit", description = "Time taken to queue an order")
+    public OrderIntakeDTO submitOrder(CreateOrderRequest request) {
+        log.info("[Order Module] Queueing order for product {} with quantity {}", 
+                request.getProductId(), request.getQuantity());
+        OrderIntakeDTO intake = orderIntakeQueue.enqueue(request);
+        log.debug("[Order Module] Order request queued with id: {}", intake.getRequestId());
+        return intake;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Timed(value = "order.submitIdempotent", description = "Time taken to queue or replay an order by idempotency key")
+    public OrderIntakeDTO submitOrder(CreateOrderRequest request, String idempotencyKey) {
+        // Distinct signature, so a key first used for a synchronous order is never replayed as a queued one
+        return orderIdempotencyGuard.execute(idempotencyKey, "intake:" + request.getProductId() + ":" + request.getQuantity(),
+                OrderIntakeDTO.class, () -> submitOrder(request));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "order.findIntake", description = "Time taken to find a queued order request")
+    public Optional<OrderIntakeDTO> getOrderIntake(Long requestId) {
+        log.debug("[Order Module] Fetching order intake request with id: {}", requestId);
+        return orderIntakeRequestRepository.findById(requestId)
+                .map(orderMapper::toIntakeDTO);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Timed(value = "order.createBatch", description = "Time taken to create a batch of orders")
+    public OrderBatchResultDTO createOrders(List<CreateOrderRequest> requests) {
+        log.info("[Order Module] Creating batch of {} orders", requests.size());
+        
+        List<OrderItemResultDTO> results = null;
+        for (int attempt = 1; results == null; attempt++) {
+            try {
+                // One transaction per attempt - a failed attempt leaves neither orders nor reservations behind
+                results = transactionTemplate.execute(status -> orderPlacer.place(requests));
+            } catch (InsufficientStockException | ProductNotFoundException e) {
+                // Stock was taken (or a product deleted) between resolution and reservation
+                if (attempt == BATCH_ATTEMPTS) {
+                    log.error("[Order Module] Batch of {} orders not placed after {} attempts", requests.size(), attempt, e);
+                    throw new OrderCreationException("Stock changed concurrently, batch not placed: " + e.getMessage(), e);
                 }
+                log.warn("[Order Module] Stock changed during batch placement, re-evaluating (attempt {}): {}",
+                        attempt, e.getMessage());
             }
-            
-            throw new OrderCreationException("Failed to create order: " + e.getMessage(), e);
         }
+        
+        int succeeded = (int) results.stream().filter(OrderItemResultDTO::isSuccess).count();
+        log.info("[Order Module] Batch placed: {} orders created, {} failed", succeeded, results.size() - succeeded);
+        return OrderBatchResultDTO.builder()
+                .results(results)
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .build();
     }
 
     @Override
@@ -134,11 +227,22 @@ class OrderServiceImpl implements OrderService {
     public Optional<OrderDTO> getOrderById(Long id) {
         log.debug("[Order Module] Fetching order with id: {}", id);
         return orderRepository.findById(id)
+                .or(() -> orderRepository.findArchivedById(id))
                 .map(orderMapper::toDTO);
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Timed(value = "order.findByIds", description = "Time taken to find several orders by ID")
+    public List<OrderDTO> getOrdersByIds(Collection<Long> ids) {
+        log.debug("[Order Module] [Inter-Module Call] Fetching {} orders", ids.size());
+        // Projection - the orders are only validated by the caller, never changed through them
+        return orderRepository.findDTOsByIdIn(ids);
+    }
+
+    @Override
+    @Deprecated
+    @Transactional(readOnly = true)
     @Timed(value = "order.findAll", description = "Time taken to find all orders")
     public List<OrderDTO> getAllOrders() {
         log.debug("[Order Module] Fetching all orders");
@@ -146,6 +250,27 @@ class OrderServiceImpl implements OrderService {
         return orderMapper.toDTOList(orders);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "order.findPage", description = "Time taken to find a page of orders")
+    public OrderPageDTO getOrderPage(String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        log.debug("[Order Module] Fetching orders after id {} (page size {})", afterId, size);
+        
+        // One extra row tells us whether another page follows
+        List<Order> orders = orderRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+        boolean hasMore = orders.size() > size;
+        if (hasMore) {
+            orders = orders.subList(0, size);
+        }
+        
+        return OrderPageDTO.builder()
+                .items(orderMapper.toDTOList(orders))
+                .nextCursor(hasMore ? PageCursor.encode(orders.get(orders.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
     @Timed(value = "order.findByStatus", description = "Time taken to find orders by status")
@@ -154,11 +279,20 @@ class OrderServiceImpl implements OrderService {
             throw new IllegalArgumentException("Order status cannot be null");
         }
         log.debug("[Order Module] Fetching orders with status: {}", status);
-        List<Order> orders = orderRepository.findByStatus(status);
-        return orderMapper.toDTOList(orders);
+        // Projection - read-only rows never enter the persistence context
+        return orderRepository.findDTOsByStatus(status);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "order.countByStatus", description = "Time taken to count orders per status")
+    public Map<OrderStatus, Long> getOrderCountsByStatus() {
+        log.debug("[Order Module] Counting orders per status");
+        return orderStatusCounters.counts();
+    }
+
+    @Override
+    @Retry(name = "orderOptimisticLock")
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     @Timed(value = "order.updateStatus", description = "Time taken to update order status")
     public void updateOrderStatus(Long orderId, OrderStatus status) {
@@ -171,6 +305,7 @@ class OrderServiceImpl implements OrderService {
                 .orElseThrow(() -> new OrderNotFoundException(orderId));
         
         // Use aggregate's state machine methods
+        OrderStatus previousStatus = order.getStatus();
         try {
             switch (status) {
                 case PAID -> order.markAsPaid();
@@ -180,6 +315,7 @@ class OrderServiceImpl implements OrderService {
             }
             
             orderRepository.save(order);
+            orderStatusCounters.transitioned(previousStatus, order.getStatus());
             log.info("[Order Module] Order status updated successfully");
         } catch (IllegalStateException e) {
             log.error("[Order Module] Failed to update order status", e);
@@ -188,6 +324,26 @@ class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Timed(value = "order.updateStatuses", description = "Time taken to update the status of several orders")
+    public List<Long> updatePendingOrderStatuses(Collection<Long> orderIds, OrderStatus status) {
+        if (status != OrderStatus.PAID && status != OrderStatus.FAILED) {
+            throw new IllegalArgumentException("Invalid bulk status transition to: " + status);
+        }
+        
+        log.info("[Order Module] [Inter-Module Call] Updating {} orders to {}", orderIds.size(), status);
+        // Set-based - the same PENDING -> PAID / FAILED transition the aggregate allows
+        List<Long> updated = orderRepository.updatePendingStatus(orderIds, status.name(), LocalDateTime.now());
+        orderStatusCounters.transitioned(OrderStatus.PENDING, status, updated.size());
+        if (updated.size() < orderIds.size()) {
+            log.warn("[Order Module] {} of {} orders were no longer PENDING and kept their status",
+                    orderIds.size() - updated.size(), orderIds.size());
+        }
+        return updated;
+    }
+
+    @Override
+    @Retry(name = "orderOptimisticLock")
     @Timed(value = "order.cancel", description = "Time taken to cancel an order")
     public void cancelOrder(Long id) {
         log.info("[Order Module] Cancelling order with id: {}", id);
@@ -206,21 +362,21 @@ class OrderServiceImpl implements OrderService {
             return;
         }
         
-        // Compensation: Restore stock if order was pending
-        if (order.isPending()) {
-            try {
-                log.info("[Order Module] [Compensation] Restoring stock for cancelled order {}", id);
-                productService.restoreStock(order.getProductId(), order.getQuantity().getValue());
-                log.info("[Order Module] [Compensation] Stock restored successfully");
-            } catch (Exception e) {
-                log.error("[Order Module] [Compensation] Failed to restore stock for order {}", id, e);
-                // Continue with cancellation even if stock restoration fails
-            }
-        }
+        boolean wasPending = order.isPending();
+        OrderStatus previousStatus = order.getStatus();
         
-        // Use aggregate's state machine method
+        // Use aggregate's state machine method and flush right away, so a concurrent
+        // modification fails here (and is retried) before any stock is restored
         order.cancel();
-        orderRepository.save(order);
+        orderRepository.saveAndFlush(order);
+        orderStatusCounters.transitioned(previousStatus, order.getStatus());
+        
+        // Compensation: Restore stock if order was pending. Recorded as a job in this
+        // transaction - the stock is restored in the background, with retries
+        if (wasPending) {
+            orderCompensationJobs.scheduleStockRestore(id, order.getProductId(), order.getQuantity().getValue());
+        }
+        
         log.info("[Order Module] Order cancelled successfully");
     }
 }
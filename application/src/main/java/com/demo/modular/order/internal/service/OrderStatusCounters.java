@@ -0,0 +1,135 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.repository.OrderStatusCounterRepository;
+import com.demo.modular.order.internal.repository.OrderStatusCounterRepository.StatusTotal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Number of orders per status, maintained incrementally in striped
+ * {@code order_schema.status_counters} rows.
+ *
+ * <p><b>Consistency:</b> every code path that inserts orders or changes their
+ * status reports it here. Deltas are collected per transaction and written in
+ * one upsert just before it commits, so the counters commit or roll back
+ * together with the orders.</p>
+ *
+ * <p><b>Contention:</b> each transaction writes to one random stripe of
+ * {@code order.status-counters.stripes}, and holds the counter row locks only
+ * for the tail of its commit. Stripes are locked in status order, so two
+ * writers cannot deadlock on counters.</p>
+ */
+@Component
+@Slf4j
+class OrderStatusCounters {
+
+    private final OrderStatusCounterRepository orderStatusCounterRepository;
+    private final int stripes;
+
+    OrderStatusCounters(OrderStatusCounterRepository orderStatusCounterRepository,
+                        @Value("${order.status-counters.stripes:8}") int stripes) {
+        this.orderStatusCounterRepository = orderStatusCounterRepository;
+        this.stripes = stripes;
+    }
+
+    /**
+     * Records {@code count} new orders in the given status.
+     */
+    void created(OrderStatus status, long count) {
+        if (count > 0) {
+            deltas().merge(status, count, Long::sum);
+        }
+    }
+
+    /**
+     * Records that an order moved from one status to another.
+     */
+    void transitioned(OrderStatus from, OrderStatus to) {
+        transitioned(from, to, 1);
+    }
+
+    /**
+     * Records that {@code count} orders moved from one status to another.
+     */
+    void transitioned(OrderStatus from, OrderStatus to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        Map<OrderStatus, Long> deltas = deltas();
+        deltas.merge(from, -count, Long::sum);
+        deltas.merge(to, count, Long::sum);
+    }
+
+    /**
+     * Current number of orders per status, including statuses without orders.
+     */
+    Map<OrderStatus, Long> counts() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (StatusTotal total : orderStatusCounterRepository.sumByStatus()) {
+            counts.put(total.getStatus(), total.getTotal());
+        }
+        return counts;
+    }
+
+    /**
+     * Deltas of the current transaction, written before it commits.
+     */
+    private Map<OrderStatus, Long> deltas() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order status counters can only be changed within a transaction");
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas pending && pending.owner == this) {
+                return pending.deltas;
+            }
+        }
+        PendingDeltas pending = new PendingDeltas(this);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.deltas;
+    }
+
+    private void write(Map<OrderStatus, Long> deltas) {
+        // EnumMap iterates in declaration order - the lock order of the counter rows
+        List<Map.Entry<OrderStatus, Long>> changed = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .toList();
+        if (changed.isEmpty()) {
+            return;
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        orderStatusCounterRepository.add(stripe,
+                changed.stream().map(entry -> entry.getKey().name()).toArray(String[]::new),
+                changed.stream().map(Map.Entry::getValue).toArray(Long[]::new));
+        log.debug("[Order Module] Status counters updated on stripe {}: {}", stripe, deltas);
+    }
+
+    /**
+     * Counter deltas collected by one transaction.
+     */
+    private static final class PendingDeltas implements TransactionSynchronization {
+
+        private final OrderStatusCounters owner;
+        private final Map<OrderStatus, Long> deltas = new EnumMap<>(OrderStatus.class);
+
+        private PendingDeltas(OrderStatusCounters owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            owner.write(deltas);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.domain.Order;
+import com.demo.modular.order.internal.domain.vo.Money;
+import com.demo.modular.order.internal.domain.vo.ProductName;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.product.api.event.StockRejected;
+import com.demo.modular.product.api.event.StockReserved;
+import io.github.resilience4j.retry.annotation.Retry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drives the order state machine from the Product module's replies to
+ * {@code OrderPlaced}: AWAITING_STOCK becomes PENDING or REJECTED.
+ *
+ * <p>Each reply is handled asynchronously in its own transaction, which also
+ * marks the event publication complete. Replies are keyed by order ID, and
+ * replies for orders that are no longer awaiting stock are not applied.</p>
+ *
+ * <p><b>Compensation:</b> stock reserved for an order that was cancelled (or
+ * removed) in the meantime is given back, unless a job restoring the order's
+ * stock exists already. A redelivered reservation for any other order changes
+ * nothing - the order holds that stock.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class OrderStockListener {
+
+    private final OrderRepository orderRepository;
+    private final OrderCompensationJobs orderCompensationJobs;
+    private final OrderStatusCounters orderStatusCounters;
+
+    @ApplicationModuleListener
+    @Retry(name = "orderOptimisticLock")
+    void on(StockReserved event) {
+        Order order = orderRepository.findById(event.reservationId()).orElse(null);
+        if (order == null || order.isCancelled()) {
+            // Cancelled while the stock was being reserved - give the stock back
+            log.info("[Order Module] [Compensation] Order {} is cancelled or gone, restoring {} of product {}",
+                    event.reservationId(), event.quantity(), event.productId());
+            orderCompensationJobs.scheduleStockRestoreOnce(event.reservationId(), event.productId(), event.quantity());
+            return;
+        }
+        if (!order.isAwaitingStock()) {
+            // Redelivered - the order holds this stock already
+            log.info("[Order Module] [Event] Ignoring repeated stock reservation for order {} in {} state",
+                    order.getId(), order.getStatus());
+            return;
+        }
+        
+        order.confirmStock(ProductName.of(event.productName()), Money.of(event.unitPrice()));
+        orderRepository.save(order);
+        orderStatusCounters.transitioned(OrderStatus.AWAITING_STOCK, order.getStatus());
+        log.info("[Order Module] [Event] Stock reserved for order {}, order is PENDING", order.getId());
+    }
+
+    @ApplicationModuleListener
+    @Retry(name = "orderOptimisticLock")
+    void on(StockRejected event) {
+        Order order = orderRepository.findById(event.reservationId()).orElse(null);
+        if (order == null || !order.isAwaitingStock()) {
+            log.info("[Order Module] [Event] Ignoring stock rejection for order {} no longer awaiting stock",
+                    event.reservationId());
+            return;
+        }
+        
+        order.rejectStock();
+        orderRepository.save(order);
+        orderStatusCounters.transitioned(OrderStatus.AWAITING_STOCK, order.getStatus());
+        log.info("[Order Module] [Event] Stock rejected for order {}: {}", order.getId(), event.reason());
+    }
+}
@@ -13,6 +13,7 @@ package com.demo.modular.order;
  * <ul>
  *   <li>api.dto - DTOs and enums (OrderDTO, CreateOrderRequest, OrderStatus)</li>
  *   <li>api.exception - Public exceptions (OrderNotFoundException, OrderInvalidStateException, OrderCreationException)</li>
+ *   <li>api.event - Domain events (OrderPlaced)</li>
  *   <li>service - Service interfaces for inter-module communication (OrderService)</li>
  * </ul>
  * 
@@ -25,7 +26,8 @@ package com.demo.modular.order;
  * 
  * <p><b>Dependencies:</b></p>
  * <ul>
- *   <li>product - Uses ProductService to check stock, reduce inventory, and restore stock for compensation</li>
+ *   <li>product - Uses ProductService to reserve stock (with price quote) and restore stock for compensation</li>
+ *   <li>product - Listens to StockReserved/StockRejected replies to OrderPlaced (event-driven stock reservation)</li>
  * </ul>
  * 
  * <p><b>Note:</b> OrderStatus enum moved to api.dto since it's part of the public API contract
@@ -1,15 +1,27 @@
 package com.demo.modular.order.service;
 
 import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderBatchResultDTO;
 import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
+import com.demo.modular.order.api.dto.OrderPageDTO;
 import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.api.exception.OrderIdempotencyKeyConflictException;
 import com.demo.modular.order.api.exception.OrderCreationException;
+import com.demo.modular.order.api.exception.OrderIntakeQueueFullException;
 import com.demo.modular.order.api.exception.OrderInvalidStateException;
 import com.demo.modular.order.api.exception.OrderNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -30,15 +42,11 @@ public interface OrderService {
      * 
      * <p><b>Inter-Module Dependencies:</b></p>
      * <ul>
-     *   <li>Calls ProductService.checkStockAvailability() to verify stock</li>
-     *   <li>Calls ProductService.reduceStock() to decrement stock</li>
+     *   <li>Calls ProductService.reserveStock() to reserve stock and get the price/name snapshot</li>
      * </ul>
      * 
-     * <p><b>Compensation:</b> If order creation fails after stock reduction,
-     * compensation logic will call ProductService.restoreStock().</p>
-     * 
-     * <p><b>Transaction:</b> Runs in its own transaction. Stock reduction happens
-     * in a separate transaction (REQUIRES_NEW propagation).</p>
+     * <p><b>Transaction:</b> Runs in its own transaction. The stock reservation joins
+     * this transaction, so a failed order never leaves stock reserved.</p>
      * 
      * @param request the order creation request containing productId and quantity
      * @return the created order with PENDING status
@@ -48,7 +56,91 @@ public interface OrderService {
     OrderDTO createOrder(@Valid @NotNull CreateOrderRequest request);
     
     /**
-     * Retrieves an order by its ID.
+     * Creates a new order at most once per idempotency key.
+     * 
+     * <p><b>Idempotency:</b> The first request with a key creates the order and
+     * stores the response. Later requests with the same key get the stored order
+     * back without creating another one or touching product and order data.
+     * Concurrent requests with the same key wait for the first one to finish.
+     * A failed request stores nothing, so it can be retried with the same key.</p>
+     * 
+     * @param request the order creation request containing productId and quantity
+     * @param idempotencyKey client-chosen key identifying this logical request
+     * @return the created (or previously created) order
+     * @throws OrderCreationException if order creation fails
+     * @throws OrderIdempotencyKeyConflictException if the key was used for a different request
+     *         or its first request is still running after the wait timeout
+     */
+    OrderDTO createOrder(@Valid @NotNull CreateOrderRequest request, @NotBlank @Size(max = 255) String idempotencyKey);
+    
+    /**
+     * Queues an order for asynchronous placement and returns immediately.
+     * 
+     * <p><b>Asynchronous Intake:</b> The request is stored in a durable, bounded
+     * queue and placed later by intake workers, in micro-batches, exactly like a
+     * bulk order. Poll {@link #getOrderIntake} for the outcome. Workers only run
+     * when {@code order.intake.mode=async}.</p>
+     * 
+     * <p><b>Performance:</b> One insert - no product lookup, stock reservation
+     * or order write happens on the caller's thread.</p>
+     * 
+     * @param request the order creation request containing productId and quantity
+     * @return the queued request with QUEUED status
+     * @throws OrderIntakeQueueFullException if the queue is at capacity
+     */
+    OrderIntakeDTO submitOrder(@Valid @NotNull CreateOrderRequest request);
+    
+    /**
+     * Queues an order for asynchronous placement at most once per idempotency key.
+     * 
+     * <p><b>Idempotency:</b> As for {@link #createOrder(CreateOrderRequest, String)}.
+     * A replay returns the request as it was queued - poll {@link #getOrderIntake}
+     * for its current state.</p>
+     * 
+     * @param request the order creation request containing productId and quantity
+     * @param idempotencyKey client-chosen key identifying this logical request
+     * @return the queued (or previously queued) request
+     * @throws OrderIntakeQueueFullException if the queue is at capacity
+     * @throws OrderIdempotencyKeyConflictException if the key was used for a different request
+     *         or its first request is still running after the wait timeout
+     */
+    OrderIntakeDTO submitOrder(@Valid @NotNull CreateOrderRequest request, @NotBlank @Size(max = 255) String idempotencyKey);
+    
+    /**
+     * Retrieves the processing state of an asynchronously submitted order.
+     * 
+     * @param requestId the ID returned by {@link #submitOrder(CreateOrderRequest)}
+     * @return Optional containing the request if found, empty otherwise
+     */
+    Optional<OrderIntakeDTO> getOrderIntake(@NotNull Long requestId);
+    
+    /**
+     * Creates many orders in one call, reporting an outcome per order.
+     * 
+     * <p><b>Inter-Module Dependencies:</b></p>
+     * <ul>
+     *   <li>Calls ProductService.getProductsByIds() once to resolve every referenced product</li>
+     *   <li>Calls ProductService.reserveStockBatch() once to reserve the stock of all accepted orders</li>
+     * </ul>
+     * 
+     * <p><b>Partial Success:</b> Orders are accepted in submission order while
+     * stock lasts. Invalid orders, unknown products and orders exceeding the
+     * remaining stock fail individually without affecting the others.</p>
+     * 
+     * <p><b>Transaction:</b> All accepted orders and their stock reservations
+     * commit together. If stock changed concurrently between resolution and
+     * reservation, the batch is re-evaluated against fresh stock.</p>
+     * 
+     * <p><b>Performance:</b> A constant number of round trips per batch - one
+     * product query, one locked stock update and one JDBC insert batch.</p>
+     * 
+     * @param requests the orders to create (1-1000)
+     * @return one result per request, in submission order
+     */
+    OrderBatchResultDTO createOrders(@NotEmpty @Size(max = 1000) List<@NotNull CreateOrderRequest> requests);
+    
+    /**
+     * Retrieves an order by its ID, including archived orders.
      * 
      * <p><b>Inter-Module Usage:</b> Called by Payment module to validate orders.</p>
      * 
@@ -58,15 +150,42 @@ public interface OrderService {
      */
     Optional<OrderDTO> getOrderById(@NotNull Long id);
     
+    /**
+     * Retrieves several orders in one query. Archived orders are not included.
+     * 
+     * <p><b>Inter-Module Usage:</b> Called by Payment module to validate every
+     * order of a batch settlement at once.</p>
+     * 
+     * @param ids the order IDs
+     * @return the orders that exist, in no particular order
+     */
+    List<OrderDTO> getOrdersByIds(@NotEmpty Collection<@NotNull Long> ids);
+    
     /**
      * Retrieves all orders in the system.
      * 
      * @return list of all orders, empty list if none exist
+     * @deprecated loads every order into memory - use {@link #getOrderPage} instead
      */
+    @Deprecated
     List<OrderDTO> getAllOrders();
     
     /**
-     * Retrieves orders by status.
+     * Retrieves one page of orders in ID order (keyset pagination).
+     * Archived orders are not included.
+     * 
+     * <p><b>Performance:</b> Each page is a single index range scan on the
+     * primary key, so cost does not grow with the page number.</p>
+     * 
+     * @param cursor the {@code nextCursor} of the previous page, null for the first page
+     * @param size the maximum number of orders to return (1-200)
+     * @return the page and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    OrderPageDTO getOrderPage(String cursor, @Min(1) @Max(200) int size);
+    
+    /**
+     * Retrieves orders by status. Archived orders are not included.
      * 
      * @param status the order status to filter by
      * @return list of orders with the given status, empty list if none exist
@@ -74,6 +193,16 @@ public interface OrderService {
      */
     List<OrderDTO> getOrdersByStatus(@NotNull OrderStatus status);
     
+    /**
+     * Counts orders per status.
+     * 
+     * <p><b>Performance:</b> Served from incrementally maintained counters,
+     * so the cost does not depend on the number of orders.</p>
+     * 
+     * @return number of orders for every status, 0 for statuses without orders
+     */
+    Map<OrderStatus, Long> getOrderCountsByStatus();
+    
     /**
      * Updates order status.
      * 
@@ -91,11 +220,30 @@ public interface OrderService {
      */
     void updateOrderStatus(@NotNull Long orderId, @NotNull OrderStatus status);
     
+    /**
+     * Moves many PENDING orders to PAID or FAILED with one set-based update.
+     * 
+     * <p><b>Inter-Module Usage:</b> Called by Payment module to record the
+     * outcome of a batch settlement.</p>
+     * 
+     * <p><b>Transaction:</b> Runs in REQUIRES_NEW propagation, like
+     * {@link #updateOrderStatus}. Orders that are no longer PENDING are left
+     * as they are and not returned, so the caller can deal with them one by one.</p>
+     * 
+     * @param orderIds the orders to update
+     * @param status the new order status, PAID or FAILED
+     * @return the IDs of the orders that were updated
+     * @throws IllegalArgumentException if status is neither PAID nor FAILED
+     */
+    List<Long> updatePendingOrderStatuses(@NotEmpty Collection<@NotNull Long> orderIds, @NotNull OrderStatus status);
+    
     /**
      * Cancels an order.
      * 
-     * <p><b>Compensation:</b> If order has already reduced stock, this method
-     * should trigger stock restoration.</p>
+     * <p><b>Compensation:</b> If order has already reduced stock, a stock
+     * restoration job is recorded with the cancellation. The stock is restored
+     * shortly afterwards in the background, so it may not be available yet
+     * when this method returns.</p>
      * 
      * @param id the order ID to cancel
      * @throws OrderNotFoundException if order doesn't exist
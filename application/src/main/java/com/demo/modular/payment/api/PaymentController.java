@@ -1,21 +1,28 @@
 package com.demo.modular.payment.api;
 
+import com.demo.modular.payment.api.dto.PaymentBatchResultDTO;
 import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentPageDTO;
 import com.demo.modular.payment.api.dto.PaymentStatus;
 import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentGatewayUnavailableException;
 import com.demo.modular.payment.api.exception.PaymentProcessingException;
 import com.demo.modular.payment.service.PaymentService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -26,11 +33,14 @@ public class PaymentController {
     private final PaymentService paymentService;
 
     @PostMapping
-    public ResponseEntity<PaymentDTO> processPayment(@Valid @RequestBody ProcessPaymentRequest request) {
+    public ResponseEntity<PaymentDTO> processPayment(@Valid @RequestBody ProcessPaymentRequest request,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         log.info("REST: Processing payment for order {} with method {}", 
                 request.getOrderId(), request.getPaymentMethod());
         try {
-            PaymentDTO payment = paymentService.processPayment(request.getOrderId(), request.getPaymentMethod());
+            PaymentDTO payment = idempotencyKey == null
+                    ? paymentService.processPayment(request.getOrderId(), request.getPaymentMethod())
+                    : paymentService.processPayment(request.getOrderId(), request.getPaymentMethod(), idempotencyKey);
             return ResponseEntity.status(HttpStatus.CREATED).body(payment);
         } catch (DuplicatePaymentException e) {
             log.error("Duplicate payment attempt: {}", e.getMessage());
@@ -38,9 +48,22 @@ public class PaymentController {
         } catch (PaymentProcessingException e) {
             log.error("Failed to process payment: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
+        } catch (PaymentGatewayUnavailableException e) {
+            log.warn("Payment not attempted: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<PaymentBatchResultDTO> processPayments(@Valid @RequestBody ProcessPaymentsRequest request) {
+        log.info("REST: Paying batch of {} orders with method {}",
+                request.getOrderIds().size(), request.getPaymentMethod());
+        // Orders are decided individually - failures are reported in the result, not rejected up front
+        return ResponseEntity.ok(paymentService.processPayments(request.getOrderIds(), request.getPaymentMethod()));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PaymentDTO> getPayment(@PathVariable Long id) {
         log.info("REST: Getting payment {}", id);
@@ -58,9 +81,16 @@ public class PaymentController {
     }
 
     @GetMapping
-    public ResponseEntity<List<PaymentDTO>> getAllPayments() {
-        log.info("REST: Getting all payments");
-        return ResponseEntity.ok(paymentService.getAllPayments());
+    public ResponseEntity<PaymentPageDTO> getPayments(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "50") int size) {
+        log.info("REST: Getting payments page (size {})", size);
+        return ResponseEntity.ok(paymentService.getPaymentPage(cursor, size));
+    }
+
+    @GetMapping("/status/counts")
+    public ResponseEntity<Map<PaymentStatus, Long>> getPaymentCountsByStatus() {
+        log.info("REST: Getting payment counts per status");
+        return ResponseEntity.ok(paymentService.getPaymentCountsByStatus());
     }
 
     @GetMapping("/status/{status}")
@@ -77,5 +107,14 @@ public class PaymentController {
         @NotBlank(message = "Payment method is required")
         private String paymentMethod;
     }
-}
 
+    @Data
+    public static class ProcessPaymentsRequest {
+        @NotEmpty(message = "Order IDs are required")
+        @Size(max = 1000, message = "At most 1000 orders per batch")
+        private List<@NotNull Long> orderIds;
+        
+        @NotBlank(message = "Payment method is required")
+        private String paymentMethod;
+    }
+}
@@ -0,0 +1,29 @@
+package com.demo.modular.payment.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch settlement.
+ * {@code results} holds one entry per submitted order, in submission order.
+ * {@code pending} payments were charged with an unknown outcome and are
+ * resolved in the background.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentBatchResultDTO {
+
+    private List<PaymentItemResultDTO> results;
+
+    private int succeeded;
+
+    private int failed;
+
+    private int pending;
+}
@@ -0,0 +1,31 @@
+package com.demo.modular.payment.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one order within a batch settlement.
+ * {@code payment} is set once a payment was recorded, whatever its status;
+ * {@code error} is set unless the payment succeeded.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentItemResultDTO {
+
+    /**
+     * Position of the order in the submitted list, starting at 0.
+     */
+    private int index;
+
+    private Long orderId;
+
+    private boolean success;
+
+    private PaymentDTO payment;
+
+    private String error;
+}
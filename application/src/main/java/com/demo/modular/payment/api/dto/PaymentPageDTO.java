@@ -0,0 +1,25 @@
+package com.demo.modular.payment.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of payments, ordered by ID.
+ * Pass {@code nextCursor} back to fetch the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentPageDTO {
+
+    private List<PaymentDTO> items;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
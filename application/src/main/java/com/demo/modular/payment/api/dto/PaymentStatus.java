@@ -7,6 +7,7 @@ public enum PaymentStatus {
     PENDING,
     SUCCESS,
     FAILED,
+    REFUND_PENDING,
     REFUNDED
 }
 
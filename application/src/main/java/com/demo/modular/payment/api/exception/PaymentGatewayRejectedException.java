@@ -0,0 +1,20 @@
+package com.demo.modular.payment.api.exception;
+
+/**
+ * Exception thrown when the payment gateway refuses a charge without processing
+ * it, e.g. when throttled. The charge did not go through and may be retried -
+ * unless another attempt with the same reference is still in flight.
+ */
+public class PaymentGatewayRejectedException extends RuntimeException {
+
+    private final String reference;
+
+    public PaymentGatewayRejectedException(String reference, String message) {
+        super(message);
+        this.reference = reference;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+}
@@ -0,0 +1,21 @@
+package com.demo.modular.payment.api.exception;
+
+/**
+ * Exception thrown when a payment was not attempted because the payment gateway
+ * was busy or refused the charge unprocessed. The order is left PENDING and
+ * nothing was charged, so clients should retry later.
+ * This exception is part of the public API and can be caught by other modules.
+ */
+public class PaymentGatewayUnavailableException extends RuntimeException {
+
+    private final Long orderId;
+
+    public PaymentGatewayUnavailableException(Long orderId, String message) {
+        super(message);
+        this.orderId = orderId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+}
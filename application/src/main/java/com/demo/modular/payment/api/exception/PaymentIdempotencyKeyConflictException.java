@@ -0,0 +1,20 @@
+package com.demo.modular.payment.api.exception;
+
+/**
+ * Exception thrown when an idempotency key cannot be honored: it was already
+ * used for a different request, or the request holding it is still running.
+ * This exception is part of the public API and can be caught by other modules.
+ */
+public class PaymentIdempotencyKeyConflictException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public PaymentIdempotencyKeyConflictException(String idempotencyKey, String message) {
+        super(message);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
@@ -152,12 +152,32 @@ public class Payment {
 
     /**
      * Request refund for successful payment.
+     * The payment stays REFUND_PENDING until the refund went through.
      */
     public void requestRefund() {
         if (status != PaymentStatus.SUCCESS) {
             throw new IllegalStateException("Can only refund successful payments");
         }
         
+        this.status = PaymentStatus.REFUND_PENDING;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Mark a requested refund as done.
+     */
+    public void markAsRefunded() {
+        if (status == PaymentStatus.REFUNDED) {
+            // Already refunded, idempotent operation
+            return;
+        }
+        
+        if (status != PaymentStatus.REFUND_PENDING) {
+            throw new IllegalStateException(
+                String.format("Cannot mark payment as REFUNDED. Payment is in %s state", status)
+            );
+        }
+        
         this.status = PaymentStatus.REFUNDED;
         this.updatedAt = LocalDateTime.now();
     }
@@ -189,7 +209,7 @@ public class Payment {
      * Check if payment requires refund.
      */
     public boolean requiresRefund() {
-        return this.status == PaymentStatus.REFUNDED;
+        return this.status == PaymentStatus.REFUND_PENDING;
     }
 
     /**
@@ -0,0 +1,121 @@
+package com.demo.modular.payment.internal.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A compensation the Payment module still owes: a charged payment to be
+ * refunded because the order could not be marked as paid.
+ *
+ * <p>Jobs are recorded in the same transaction as the REFUND_PENDING payment
+ * and carried out later by a background executor, which retries them with
+ * backoff until they succeed or run out of attempts.</p>
+ */
+@Entity
+@Table(name = "compensation_jobs", schema = "payment_schema",
+       indexes = @Index(name = "idx_compensation_jobs_payment_id", columnList = "payment_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class PaymentCompensationJob {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /**
+     * Earliest time the executor picks the job up (again).
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    private PaymentCompensationJob(Long paymentId, Long orderId) {
+        this.paymentId = paymentId;
+        this.orderId = orderId;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    // ===== Static Factory Method =====
+
+    /**
+     * Job refunding a payment awaiting refund.
+     */
+    public static PaymentCompensationJob refund(Payment payment) {
+        if (payment == null || payment.getId() == null) {
+            throw new IllegalArgumentException("A saved payment is required");
+        }
+        if (!payment.requiresRefund()) {
+            throw new IllegalArgumentException("Payment " + payment.getId() + " is not awaiting a refund");
+        }
+        return new PaymentCompensationJob(payment.getId(), payment.getOrderId());
+    }
+
+    // ===== Business Methods - State Machine =====
+
+    /**
+     * Records that the payment was refunded.
+     */
+    public void complete() {
+        requirePending();
+        this.status = Status.COMPLETED;
+        this.completedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records a failed attempt. The job is retried after {@code retryDelay},
+     * or marked FAILED for manual follow-up once {@code maxAttempts} is reached.
+     */
+    public void recordFailedAttempt(String error, int maxAttempts, Duration retryDelay) {
+        requirePending();
+        this.attempts++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (attempts >= maxAttempts) {
+            this.status = Status.FAILED;
+            this.completedAt = LocalDateTime.now();
+        } else {
+            this.nextAttemptAt = LocalDateTime.now().plus(retryDelay);
+        }
+    }
+
+    private void requirePending() {
+        if (status != Status.PENDING) {
+            throw new IllegalStateException(
+                String.format("Compensation job %d is no longer pending (%s)", id, status)
+            );
+        }
+    }
+}
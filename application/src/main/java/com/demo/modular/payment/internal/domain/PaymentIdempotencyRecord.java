@@ -0,0 +1,40 @@
+package com.demo.modular.payment.internal.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Claim and completed response of a request made with an {@code Idempotency-Key}.
+ * The key is the primary key, so only one request per key can hold it at a time.
+ * Rows are written with native statements and only read through JPA.
+ */
+@Entity
+@Table(name = "idempotency_records", schema = "payment_schema",
+       indexes = @Index(name = "idx_payment_idempotency_records_created_at", columnList = "created_at"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class PaymentIdempotencyRecord {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    /**
+     * Hash of the request, so a key reused for a different request is detected.
+     */
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    /**
+     * JSON response body; null while the request that claimed the key is running.
+     */
+    @Column(name = "response", columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
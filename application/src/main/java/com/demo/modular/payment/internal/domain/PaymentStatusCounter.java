@@ -0,0 +1,37 @@
+package com.demo.modular.payment.internal.domain;
+
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * One stripe of the number of payments in a status.
+ *
+ * <p>The count of a status is the sum over its stripes. Writers add their
+ * deltas to a random stripe, so concurrent transitions into the same status
+ * rarely wait for each other's row lock. Rows are only written with a native
+ * upsert, never through this mapping.</p>
+ */
+@Entity
+@Table(name = "status_counters", schema = "payment_schema",
+       uniqueConstraints = @UniqueConstraint(name = "uk_status_counters_status_stripe", columnNames = {"status", "stripe"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class PaymentStatusCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentStatus status;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+}
@@ -0,0 +1,46 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.Payment;
+
+import java.util.List;
+
+/**
+ * Bulk write operations that Spring Data JPA cannot batch.
+ * Mixed into {@link PaymentRepository}.
+ */
+public interface PaymentBulkRepository {
+
+    /**
+     * Inserts new payments whose orders are not claimed yet, with their claims:
+     * one statement claims all orders at once (as in
+     * {@link PaymentRepository#insertIfUnclaimed}), a single JDBC batch inserts
+     * the payments of the claimed ones. Hibernate cannot batch these inserts
+     * because payment IDs are database-generated. The payments are not attached
+     * to the persistence context.
+     *
+     * @param payments new, not yet persisted payments of distinct orders
+     * @return the generated IDs, positionally matching {@code payments}; null
+     *         for payments whose order was already claimed
+     */
+    List<Long> insertAllUnclaimed(List<Payment> payments);
+
+    /**
+     * Writes the status, transaction ID and update time of detached payments
+     * with a single JDBC batch, for those that are still PENDING in the
+     * database. Payments finalized concurrently are left as they are.
+     *
+     * @param payments payments loaded earlier and finalized in memory
+     * @return whether each payment was written, positionally matching {@code payments}
+     */
+    boolean[] updatePendingOutcomes(List<Payment> payments);
+
+    /**
+     * Writes the status and update time of detached payments marked REFUNDED
+     * with a single JDBC batch, for those that are still REFUND_PENDING in the
+     * database.
+     *
+     * @param payments payments loaded earlier and refunded in memory
+     * @return whether each payment was written, positionally matching {@code payments}
+     */
+    boolean[] updateRefundPendingOutcomes(List<Payment> payments);
+}
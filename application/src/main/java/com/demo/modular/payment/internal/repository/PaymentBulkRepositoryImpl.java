@@ -0,0 +1,125 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.Payment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+class PaymentBulkRepositoryImpl implements PaymentBulkRepository {
+
+    // Payment IDs are drawn with the claims, so a payment is only inserted for a claimed order
+    private static final String CLAIM_ORDERS =
+            "INSERT INTO payment_schema.order_claims (order_id, payment_id, claimed_at) " +
+            "SELECT order_id, nextval(pg_get_serial_sequence('payment_schema.payments', 'id')), ? " +
+            "FROM unnest(?::bigint[]) AS order_id " +
+            "ON CONFLICT (order_id) DO NOTHING RETURNING order_id, payment_id";
+
+    private static final String INSERT_PAYMENT =
+            "INSERT INTO payment_schema.payments (id, order_id, amount, currency, status, payment_method, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // created_at prunes the update to the payment's monthly partition
+    private static final String UPDATE_PENDING_OUTCOME =
+            "UPDATE payment_schema.payments SET status = ?, transaction_id = ?, updated_at = ? " +
+            "WHERE id = ? AND created_at = ? AND status = 'PENDING'";
+
+    private static final String UPDATE_REFUND_PENDING_OUTCOME =
+            "UPDATE payment_schema.payments SET status = ?, transaction_id = ?, updated_at = ? " +
+            "WHERE id = ? AND created_at = ? AND status = 'REFUND_PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertAllUnclaimed(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Long> claims = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CLAIM_ORDERS);
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            statement.setArray(2, connection.createArrayOf("bigint",
+                    payments.stream().map(Payment::getOrderId).toArray()));
+            return statement;
+        }, (RowCallbackHandler) row -> claims.put(row.getLong("order_id"), row.getLong("payment_id")));
+
+        List<Payment> claimed = payments.stream().filter(payment -> claims.containsKey(payment.getOrderId())).toList();
+        if (!claimed.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PAYMENT, paymentValues(claimed, claims));
+        }
+        return payments.stream().map(payment -> claims.get(payment.getOrderId())).toList();
+    }
+
+    @Override
+    public boolean[] updatePendingOutcomes(List<Payment> payments) {
+        return updateOutcomes(UPDATE_PENDING_OUTCOME, payments);
+    }
+
+    @Override
+    public boolean[] updateRefundPendingOutcomes(List<Payment> payments) {
+        return updateOutcomes(UPDATE_REFUND_PENDING_OUTCOME, payments);
+    }
+
+    private boolean[] updateOutcomes(String sql, List<Payment> payments) {
+        boolean[] updated = new boolean[payments.size()];
+        if (payments.isEmpty()) {
+            return updated;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sql, outcomeValues(payments));
+        for (int i = 0; i < counts.length; i++) {
+            updated[i] = counts[i] > 0;
+        }
+        return updated;
+    }
+
+    private static BatchPreparedStatementSetter paymentValues(List<Payment> payments, Map<Long, Long> paymentIds) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Payment payment = payments.get(i);
+                statement.setLong(1, paymentIds.get(payment.getOrderId()));
+                statement.setLong(2, payment.getOrderId());
+                statement.setBigDecimal(3, payment.getAmount().getAmount());
+                statement.setString(4, payment.getAmount().getCurrency());
+                statement.setString(5, payment.getStatus().name());
+                statement.setString(6, payment.getPaymentMethod());
+                statement.setTimestamp(7, Timestamp.valueOf(payment.getCreatedAt()));
+                statement.setTimestamp(8, Timestamp.valueOf(payment.getUpdatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        };
+    }
+
+    private static BatchPreparedStatementSetter outcomeValues(List<Payment> payments) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Payment payment = payments.get(i);
+                statement.setString(1, payment.getStatus().name());
+                statement.setString(2, payment.getTransactionId() != null ? payment.getTransactionId().getValue() : null);
+                statement.setTimestamp(3, Timestamp.valueOf(payment.getUpdatedAt()));
+                statement.setLong(4, payment.getId());
+                statement.setTimestamp(5, Timestamp.valueOf(payment.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        };
+    }
+}
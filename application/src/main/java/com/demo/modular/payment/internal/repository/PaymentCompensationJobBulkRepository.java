@@ -0,0 +1,26 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.PaymentCompensationJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk write operations that Spring Data JPA cannot batch.
+ * Mixed into {@link PaymentCompensationJobRepository}.
+ */
+public interface PaymentCompensationJobBulkRepository {
+
+    /**
+     * Writes the outcome (status, attempts, last error, next attempt and
+     * completion time) of detached jobs with a single JDBC batch, for those
+     * still holding the lease they were taken with. Jobs whose lease expired and
+     * that were taken again in the meantime are left as they are.
+     *
+     * @param jobs jobs leased with {@link PaymentCompensationJobRepository#leaseDue}
+     *             and executed in memory
+     * @param leasedUntil the lease they were taken with
+     * @return whether each job was written, positionally matching {@code jobs}
+     */
+    boolean[] updateLeasedOutcomes(List<PaymentCompensationJob> jobs, LocalDateTime leasedUntil);
+}
@@ -0,0 +1,58 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.PaymentCompensationJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+class PaymentCompensationJobBulkRepositoryImpl implements PaymentCompensationJobBulkRepository {
+
+    // The lease is the job's next_attempt_at until the outcome is written
+    private static final String UPDATE_LEASED_OUTCOME =
+            "UPDATE payment_schema.compensation_jobs " +
+            "SET status = ?, attempts = ?, last_error = ?, next_attempt_at = ?, completed_at = ? " +
+            "WHERE id = ? AND status = 'PENDING' AND next_attempt_at = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean[] updateLeasedOutcomes(List<PaymentCompensationJob> jobs, LocalDateTime leasedUntil) {
+        boolean[] updated = new boolean[jobs.size()];
+        if (jobs.isEmpty()) {
+            return updated;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_LEASED_OUTCOME, outcomeValues(jobs, leasedUntil));
+        for (int i = 0; i < counts.length; i++) {
+            updated[i] = counts[i] > 0;
+        }
+        return updated;
+    }
+
+    private static BatchPreparedStatementSetter outcomeValues(List<PaymentCompensationJob> jobs, LocalDateTime leasedUntil) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                PaymentCompensationJob job = jobs.get(i);
+                statement.setString(1, job.getStatus().name());
+                statement.setInt(2, job.getAttempts());
+                statement.setString(3, job.getLastError());
+                statement.setTimestamp(4, Timestamp.valueOf(job.getNextAttemptAt()));
+                statement.setTimestamp(5, job.getCompletedAt() != null ? Timestamp.valueOf(job.getCompletedAt()) : null);
+                statement.setLong(6, job.getId());
+                statement.setTimestamp(7, Timestamp.valueOf(leasedUntil));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return jobs.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.PaymentCompensationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PaymentCompensationJobRepository extends JpaRepository<PaymentCompensationJob, Long>,
+        PaymentCompensationJobBulkRepository {
+    
+    /**
+     * Leases pending jobs that are due until {@code leasedUntil}, in one
+     * statement: the jobs are locked skipping rows already locked by another
+     * executor, and pushed back so no executor takes them again before the lease
+     * expires - executors on several instances never run the same job at once.
+     * A job whose outcome is not recorded in time (e.g. after a crash) is taken
+     * again once its lease has expired.
+     */
+    @Query(value = "UPDATE payment_schema.compensation_jobs SET next_attempt_at = :leasedUntil " +
+                   "WHERE id IN (SELECT id FROM payment_schema.compensation_jobs " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "RETURNING *",
+           nativeQuery = true)
+    List<PaymentCompensationJob> leaseDue(@Param("now") LocalDateTime now,
+                                          @Param("leasedUntil") LocalDateTime leasedUntil,
+                                          @Param("limit") int limit);
+    
+    /**
+     * Pending, due and failed job counts and the creation time of the oldest pending job.
+     */
+    @Query("SELECT SUM(CASE WHEN j.status = com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.PENDING THEN 1 ELSE 0 END) AS pending, " +
+           "SUM(CASE WHEN j.status = com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.PENDING AND j.nextAttemptAt <= :now THEN 1 ELSE 0 END) AS due, " +
+           "SUM(CASE WHEN j.status = com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.FAILED THEN 1 ELSE 0 END) AS failed, " +
+           "MIN(CASE WHEN j.status = com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.PENDING THEN j.createdAt END) AS oldest " +
+           "FROM PaymentCompensationJob j " +
+           "WHERE j.status <> com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.COMPLETED")
+    BacklogSummary summarizeBacklog(@Param("now") LocalDateTime now);
+    
+    /**
+     * Deletes completed jobs older than the retention period. Failed jobs are kept for follow-up.
+     *
+     * @return number of jobs deleted
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentCompensationJob j " +
+           "WHERE j.status = com.demo.modular.payment.internal.domain.PaymentCompensationJob.Status.COMPLETED " +
+           "AND j.completedAt < :cutoff")
+    int deleteCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Backlog of the compensation executor.
+     */
+    interface BacklogSummary {
+        Long getPending();
+        Long getDue();
+        Long getFailed();
+        LocalDateTime getOldest();
+    }
+}
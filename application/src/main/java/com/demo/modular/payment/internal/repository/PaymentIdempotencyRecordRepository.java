@@ -0,0 +1,53 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.internal.domain.PaymentIdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PaymentIdempotencyRecordRepository extends JpaRepository<PaymentIdempotencyRecord, String> {
+    
+    /**
+     * Claims a key. A claim without a response made before {@code staleBefore}
+     * for the same request is taken over - its request ended without completing
+     * or releasing it.
+     *
+     * @return 1 if the key was claimed, 0 if it is completed or claimed by a running request
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_schema.idempotency_records AS r (idempotency_key, request_fingerprint, created_at) " +
+                   "VALUES (:key, :fingerprint, :now) ON CONFLICT (idempotency_key) DO UPDATE SET created_at = EXCLUDED.created_at " +
+                   "WHERE r.response IS NULL AND r.request_fingerprint = EXCLUDED.request_fingerprint " +
+                   "AND r.created_at < :staleBefore",
+           nativeQuery = true)
+    int claim(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+    
+    /**
+     * Stores the response of a claimed key.
+     */
+    @Modifying
+    @Query("UPDATE PaymentIdempotencyRecord r SET r.response = :response WHERE r.key = :key")
+    int complete(@Param("key") String key, @Param("response") String response);
+    
+    /**
+     * Releases the claim of a request that failed, so a retry with the key runs again.
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyRecord r WHERE r.key = :key AND r.response IS NULL")
+    int release(@Param("key") String key);
+    
+    /**
+     * Deletes records older than the retention period.
+     *
+     * @return number of records deleted
+     */
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,47 @@
+package com.demo.modular.payment.internal.repository;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Maintenance of the monthly range partitions of {@code payment_schema.payments}.
+ * Mixed into {@link PaymentRepository}.
+ *
+ * <p>Each partition holds the payments created in one month and is named
+ * {@code payments_pYYYY_MM}. Payments of months without a partition land in
+ * {@code payments_default}. All methods must be called within a transaction.</p>
+ */
+public interface PaymentPartitionRepository {
+
+    /**
+     * Whether {@code payment_schema.payments} is partitioned yet - a table that held
+     * rows before partitioning is converted by {@code scripts/partition-orders-payments.sql}.
+     */
+    boolean isPartitioned();
+
+    /**
+     * Months that have a partition, in ascending order.
+     */
+    List<YearMonth> findPartitionMonths();
+
+    /**
+     * Months of the payments in the default partition, in ascending order.
+     */
+    List<YearMonth> findDefaultPartitionMonths();
+
+    /**
+     * Creates the partition of a month, moving that month's payments out of the
+     * default partition. Serialized across instances.
+     *
+     * @return {@code false} if the partition already exists
+     */
+    boolean createPartition(YearMonth month);
+
+    /**
+     * Drops the partition of a month if it holds no payments. Waits at most
+     * {@code lockTimeoutMs} for queries on the payments table to finish.
+     *
+     * @return {@code true} if the partition was dropped
+     */
+    boolean dropPartitionIfEmpty(YearMonth month, long lockTimeoutMs);
+}
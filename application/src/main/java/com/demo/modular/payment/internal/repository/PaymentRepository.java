@@ -1,18 +1,151 @@
 package com.demo.modular.payment.internal.repository;
 
+import com.demo.modular.payment.api.dto.PaymentDTO;
 import com.demo.modular.payment.api.dto.PaymentStatus;
 import com.demo.modular.payment.internal.domain.Payment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentBulkRepository, PaymentPartitionRepository {
     
-    Optional<Payment> findByOrderId(Long orderId);
+    /**
+     * Columns copied to and read from {@code payment_schema.payments_archive} - every
+     * column of {@link Payment}. schema.sql adds new ones to the archive table.
+     */
+    String ARCHIVE_COLUMNS = "id, amount, currency, created_at, order_id, payment_method, status, transaction_id, updated_at";
     
-    List<Payment> findByStatus(PaymentStatus status);
+    /**
+     * The latest payment attempt of an order. An order can have several - every
+     * attempt after a failed one is a payment of its own.
+     */
+    Optional<Payment> findFirstByOrderIdOrderByIdDesc(Long orderId);
+    
+    /**
+     * Inserts a new payment together with its order's claim, in one statement.
+     * If the order is already claimed - by a payment in progress or one that went
+     * through - nothing is inserted, also when the claim is not committed yet
+     * (the statement waits for it).
+     *
+     * @return the inserted payment, or empty if the order is claimed
+     */
+    @Query(value = "WITH claim AS (INSERT INTO payment_schema.order_claims (order_id, payment_id, claimed_at) " +
+                   "VALUES (:#{#payment.orderId}, nextval(pg_get_serial_sequence('payment_schema.payments', 'id')), " +
+                   ":#{#payment.createdAt}) " +
+                   "ON CONFLICT (order_id) DO NOTHING RETURNING payment_id) " +
+                   "INSERT INTO payment_schema.payments (id, order_id, amount, currency, status, payment_method, " +
+                   "created_at, updated_at) " +
+                   "SELECT payment_id, :#{#payment.orderId}, :#{#payment.amount.amount}, :#{#payment.amount.currency}, " +
+                   ":#{#payment.status.name()}, :#{#payment.paymentMethod}, :#{#payment.createdAt}, :#{#payment.updatedAt} " +
+                   "FROM claim RETURNING *",
+           nativeQuery = true)
+    Optional<Payment> insertIfUnclaimed(@Param("payment") Payment payment);
+    
+    /**
+     * Releases an order's claim held by a failed payment, so the order can be paid again.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM payment_schema.order_claims WHERE order_id = :orderId AND payment_id = :paymentId",
+           nativeQuery = true)
+    int releaseClaim(@Param("orderId") Long orderId, @Param("paymentId") Long paymentId);
+    
+    /**
+     * Releases the orders' claims held by failed payments, in one statement.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM payment_schema.order_claims WHERE order_id IN (:orderIds) AND payment_id IN (:paymentIds)",
+           nativeQuery = true)
+    int releaseClaims(@Param("orderIds") Collection<Long> orderIds, @Param("paymentIds") Collection<Long> paymentIds);
+    
+    /**
+     * Deletes PENDING payments whose charge was never made, together with their
+     * orders' claims, in one statement. Payments finalized in the meantime are kept.
+     *
+     * @return the IDs of the deleted payments
+     */
+    @Query(value = "WITH deleted AS (DELETE FROM payment_schema.payments " +
+                   "WHERE id IN (:ids) AND status = 'PENDING' RETURNING id, order_id), " +
+                   "released AS (DELETE FROM payment_schema.order_claims c USING deleted d " +
+                   "WHERE c.order_id = d.order_id AND c.payment_id = d.id) " +
+                   "SELECT id FROM deleted",
+           nativeQuery = true)
+    List<Long> deleteUncharged(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Payments in the given status, selected straight into DTOs.
+     * Nothing is loaded into the persistence context, so there is no entity
+     * hydration and no dirty-checking snapshot per row.
+     */
+    @Query("SELECT new com.demo.modular.payment.api.dto.PaymentDTO(p.id, p.orderId, p.amount.amount, p.status, " +
+           "p.paymentMethod, p.transactionId.value, p.createdAt, p.updatedAt) " +
+           "FROM Payment p WHERE p.status = :status")
+    List<PaymentDTO> findDTOsByStatus(@Param("status") PaymentStatus status);
+    
+    /**
+     * Keyset page: the next payments after the given ID, in ID order.
+     */
+    List<Payment> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    
+    /**
+     * PENDING payments not touched since the cutoff, oldest first: payments whose
+     * request ended before recording the gateway's outcome.
+     */
+    @Query("SELECT p.id FROM Payment p " +
+           "WHERE p.status = com.demo.modular.payment.api.dto.PaymentStatus.PENDING AND p.updatedAt < :cutoff " +
+           "ORDER BY p.updatedAt")
+    List<Long> findStalePendingIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+    
+    /**
+     * Takes over a stale PENDING payment by touching it, so only one instance
+     * recovers it until it becomes stale again.
+     *
+     * @return 1 if taken over, 0 if it was finalized or taken over by another instance
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.updatedAt = :now " +
+           "WHERE p.id = :id AND p.status = com.demo.modular.payment.api.dto.PaymentStatus.PENDING " +
+           "AND p.updatedAt < :cutoff")
+    int claimStalePending(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+    
+    /**
+     * Moves up to {@code limit} payments in one of the given statuses created before
+     * the cutoff into {@code payment_schema.payments_archive}, in one statement.
+     * Payments locked by another transaction are skipped, so concurrent archivers
+     * never move the same payment twice.
+     *
+     * @return number of payments archived
+     */
+    @Modifying
+    @Query(value = "WITH batch AS (SELECT id, created_at FROM payment_schema.payments " +
+                   "WHERE status IN (:statuses) AND created_at < :cutoff " +
+                   "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+                   "moved AS (DELETE FROM payment_schema.payments p USING batch b " +
+                   "WHERE p.id = b.id AND p.created_at = b.created_at RETURNING p.*) " +
+                   "INSERT INTO payment_schema.payments_archive (" + ARCHIVE_COLUMNS + ", archived_at) " +
+                   "SELECT " + ARCHIVE_COLUMNS + ", now() FROM moved",
+           nativeQuery = true)
+    int archive(@Param("statuses") Collection<String> statuses, @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    /**
+     * An archived payment. Archived payments are terminal - the result is only read, never changed.
+     */
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM payment_schema.payments_archive WHERE id = :id", nativeQuery = true)
+    Optional<Payment> findArchivedById(@Param("id") Long id);
+    
+    /**
+     * The latest archived payment of an order.
+     */
+    @Query(value = "SELECT " + ARCHIVE_COLUMNS + " FROM payment_schema.payments_archive " +
+                   "WHERE order_id = :orderId ORDER BY id DESC LIMIT 1",
+           nativeQuery = true)
+    Optional<Payment> findArchivedByOrderId(@Param("orderId") Long orderId);
 }
-
@@ -0,0 +1,45 @@
+package com.demo.modular.payment.internal.repository;
+
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.domain.PaymentStatusCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PaymentStatusCounterRepository extends JpaRepository<PaymentStatusCounter, Long> {
+    
+    /**
+     * Adds deltas to one stripe of several status counters in one statement,
+     * creating missing stripes. Rows are locked in the order of {@code statuses},
+     * so callers pass them sorted and concurrent writers cannot deadlock.
+     *
+     * @param statuses status names, each at most once
+     * @param deltas deltas to add, positionally matching {@code statuses}
+     */
+    @Modifying
+    @Query(value = "INSERT INTO payment_schema.status_counters (status, stripe, total) " +
+                   "SELECT d.status, :stripe, d.delta FROM unnest(:statuses, :deltas) AS d(status, delta) " +
+                   "ON CONFLICT (status, stripe) DO UPDATE SET total = payment_schema.status_counters.total + EXCLUDED.total",
+           nativeQuery = true)
+    int add(@Param("stripe") int stripe, @Param("statuses") String[] statuses, @Param("deltas") Long[] deltas);
+    
+    /**
+     * Number of payments per status: a sum over a handful of stripes per status,
+     * independent of the number of payments.
+     */
+    @Query("SELECT c.status AS status, SUM(c.total) AS total FROM PaymentStatusCounter c GROUP BY c.status")
+    List<StatusTotal> sumByStatus();
+    
+    /**
+     * Number of payments in one status.
+     */
+    interface StatusTotal {
+        PaymentStatus getStatus();
+        Long getTotal();
+    }
+}
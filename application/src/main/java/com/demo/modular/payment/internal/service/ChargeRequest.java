@@ -0,0 +1,25 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.internal.domain.Payment;
+
+import java.math.BigDecimal;
+
+/**
+ * A charge to be made for an order through the {@link PaymentGateway}.
+ *
+ * @param reference idempotency key of the charge at the provider
+ */
+record ChargeRequest(String reference, Long orderId, BigDecimal amount, String currency, String paymentMethod) {
+
+    /**
+     * The charge of a recorded payment, referenced by the payment's ID.
+     */
+    static ChargeRequest forPayment(Payment payment) {
+        return new ChargeRequest(reference(payment.getId()), payment.getOrderId(),
+                payment.getAmount().getAmount(), payment.getAmount().getCurrency(), payment.getPaymentMethod());
+    }
+
+    static String reference(Long paymentId) {
+        return "payment-" + paymentId;
+    }
+}
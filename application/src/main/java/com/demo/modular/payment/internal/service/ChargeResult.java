@@ -0,0 +1,43 @@
+package com.demo.modular.payment.internal.service;
+
+/**
+ * Outcome of a charge through the {@link PaymentGateway}: approved with the
+ * provider's transaction ID, declined with a reason, unknown if the provider's
+ * answer never arrived, or not attempted if the charge was never sent.
+ */
+record ChargeResult(Outcome outcome, String transactionId, String reason) {
+
+    static ChargeResult approved(String transactionId) {
+        return new ChargeResult(Outcome.APPROVED, transactionId, null);
+    }
+
+    static ChargeResult declined(String reason) {
+        return new ChargeResult(Outcome.DECLINED, null, reason);
+    }
+
+    static ChargeResult unknown(String reason) {
+        return new ChargeResult(Outcome.UNKNOWN, null, reason);
+    }
+
+    static ChargeResult notAttempted(String reason) {
+        return new ChargeResult(Outcome.NOT_ATTEMPTED, null, reason);
+    }
+
+    boolean isApproved() {
+        return outcome == Outcome.APPROVED;
+    }
+
+    enum Outcome {
+        APPROVED,
+        DECLINED,
+        /**
+         * The charge may or may not have gone through; look it up by reference.
+         */
+        UNKNOWN,
+        /**
+         * The charge was never made - the gateway was busy or refused it unprocessed;
+         * it may be retried.
+         */
+        NOT_ATTEMPTED
+    }
+}
@@ -0,0 +1,132 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Payment provider reached over HTTP at {@code payment.gateway.http.base-url},
+ * e.g. the local {@link PaymentGatewayStub} for offline load tests.
+ *
+ * <p><b>Protocol:</b> {@code POST /charges} with a {@link ChargeRequest} as JSON
+ * answers the {@link ChargeResult}, {@code POST /charges/batch} with a list of
+ * them answers a list of results. {@code GET /charges/{reference}} answers the
+ * result of an earlier charge, or 404 if there was none. {@code POST /refunds}
+ * with a {@link RefundRequest} answers 2xx once the charge is refunded.
+ * {@code 429 Too Many
+ * Requests} means the provider throttled the charge without processing it - a
+ * {@link PaymentGatewayRejectedException}. Any other error status leaves the outcome
+ * open (for a refund: it failed and may be retried).</p>
+ *
+ * <p>Only present with {@code payment.gateway.type=http}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "http")
+@Slf4j
+class HttpPaymentGateway implements PaymentGateway {
+
+    private static final ParameterizedTypeReference<List<ChargeResult>> CHARGE_RESULTS =
+            new ParameterizedTypeReference<>() {};
+
+    private final RestClient restClient;
+
+    HttpPaymentGateway(RestClient.Builder restClientBuilder,
+                       @Value("${payment.gateway.http.base-url:http://localhost:8089}") String baseUrl,
+                       @Value("${payment.gateway.http.connect-timeout:1s}") Duration connectTimeout,
+                       @Value("${payment.gateway.http.read-timeout:5s}") Duration readTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+                HttpClient.newBuilder()
+                        // No h2c upgrade attempts on plain HTTP connections
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(connectTimeout)
+                        .build());
+        requestFactory.setReadTimeout(readTimeout);
+        this.restClient = restClientBuilder
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .build();
+        log.info("[Payment Module] [External Call] Payment gateway at {}", baseUrl);
+    }
+
+    @Override
+    public ChargeResult charge(ChargeRequest request) {
+        return restClient.post()
+                .uri("/charges")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange((httpRequest, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                        throw new PaymentGatewayRejectedException(request.reference(), "Throttled by payment gateway");
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Payment gateway answered " + response.getStatusCode()
+                                + " to charge " + request.reference());
+                    }
+                    return response.bodyTo(ChargeResult.class);
+                });
+    }
+
+    @Override
+    public List<ChargeResult> chargeAll(List<ChargeRequest> requests) {
+        return restClient.post()
+                .uri("/charges/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requests)
+                .exchange((httpRequest, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                        throw new PaymentGatewayRejectedException(null, "Throttled by payment gateway");
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Payment gateway answered " + response.getStatusCode()
+                                + " to a batch of " + requests.size() + " charges");
+                    }
+                    return response.bodyTo(CHARGE_RESULTS);
+                });
+    }
+
+    @Override
+    public Optional<ChargeResult> lookup(String reference) {
+        return restClient.get()
+                .uri("/charges/{reference}", reference)
+                .exchange((httpRequest, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return Optional.empty();
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Payment gateway answered " + response.getStatusCode()
+                                + " to lookup of charge " + reference);
+                    }
+                    return Optional.ofNullable(response.bodyTo(ChargeResult.class));
+                });
+    }
+
+    @Override
+    public void refund(RefundRequest request) {
+        restClient.post()
+                .uri("/refunds")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .exchange((httpRequest, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                        throw new PaymentGatewayRejectedException(request.reference(), "Throttled by payment gateway");
+                    }
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("Payment gateway answered " + response.getStatusCode()
+                                + " to refund " + request.reference());
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,338 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.PaymentCompensationJob;
+import com.demo.modular.payment.internal.repository.PaymentCompensationJobRepository;
+import com.demo.modular.payment.internal.repository.PaymentCompensationJobRepository.BacklogSummary;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable compensation jobs of the Payment module, backed by {@link PaymentCompensationJob} rows.
+ *
+ * <p><b>Recording:</b> {@link #scheduleRefund} saves the REFUND_PENDING payment
+ * and its refund job in a transaction of their own, so both survive the
+ * rollback of the payment request that reports the failure. The caller never
+ * waits for the refund.</p>
+ *
+ * <p><b>Executing:</b> a background executor works through due jobs in
+ * batches of {@code payment.compensation.batch-size}, in three steps:</p>
+ * <ol>
+ *   <li>lease the jobs with {@code FOR UPDATE SKIP LOCKED} for
+ *       {@code payment.compensation.lease} and load their payments, in one
+ *       short transaction - so executors on several instances never take the
+ *       same job</li>
+ *   <li>refund the payments through the {@link PaymentGatewayClient}, at most
+ *       {@code payment.compensation.parallelism} at a time, outside of any
+ *       transaction</li>
+ *   <li>write all refunded payments and all job outcomes with one JDBC batch
+ *       each, in one short transaction</li>
+ * </ol>
+ * <p>A failed refund is retried with exponential backoff and marked FAILED after
+ * {@code payment.compensation.max-attempts}. A job whose outcome is not written
+ * before its lease expires (e.g. after a crash) is taken again; refunds carry a
+ * reference derived from the payment, so the gateway does not refund twice.</p>
+ *
+ * <p><b>Metrics:</b> {@code payment.compensation.backlog},
+ * {@code payment.compensation.due}, {@code payment.compensation.failed} and
+ * {@code payment.compensation.oldest.age} (refreshed periodically),
+ * {@code payment.compensation.processed} (by outcome - its rate is the
+ * throughput) and {@code payment.compensation.batch} (time per batch).</p>
+ */
+@Component
+@Slf4j
+class PaymentCompensationJobs {
+
+    private final PaymentCompensationJobRepository paymentCompensationJobRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentStatusCounters paymentStatusCounters;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+    private final Duration lease;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong due = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final Counter completedCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+    private final ExecutorService refunds;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-compensation-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    PaymentCompensationJobs(PaymentCompensationJobRepository paymentCompensationJobRepository,
+                            PaymentRepository paymentRepository,
+                            PaymentStatusCounters paymentStatusCounters,
+                            PaymentGatewayClient paymentGatewayClient,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${payment.compensation.batch-size:20}") int batchSize,
+                            @Value("${payment.compensation.poll-interval-ms:1000}") long pollIntervalMs,
+                            @Value("${payment.compensation.max-attempts:10}") int maxAttempts,
+                            @Value("${payment.compensation.initial-backoff:1s}") Duration initialBackoff,
+                            @Value("${payment.compensation.max-backoff:5m}") Duration maxBackoff,
+                            @Value("${payment.compensation.retention:7d}") Duration retention,
+                            @Value("${payment.compensation.lease:1m}") Duration lease,
+                            @Value("${payment.compensation.parallelism:4}") int parallelism) {
+        this.paymentCompensationJobRepository = paymentCompensationJobRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentStatusCounters = paymentStatusCounters;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+        this.lease = lease;
+        // A fixed pool of virtual threads bounds the refunds in flight
+        this.refunds = Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().name("payment-refund-", 0).factory());
+
+        Gauge.builder("payment.compensation.backlog", backlog, AtomicLong::doubleValue)
+                .description("Refund jobs waiting to be executed")
+                .register(meterRegistry);
+        Gauge.builder("payment.compensation.due", due, AtomicLong::doubleValue)
+                .description("Refund jobs due now, not waiting for a retry")
+                .register(meterRegistry);
+        Gauge.builder("payment.compensation.failed", failed, AtomicLong::doubleValue)
+                .description("Refund jobs that ran out of attempts and need manual follow-up")
+                .register(meterRegistry);
+        TimeGauge.builder("payment.compensation.oldest.age", oldestAgeMs, TimeUnit.MILLISECONDS, AtomicLong::doubleValue)
+                .description("Time the oldest pending refund job has been waiting")
+                .register(meterRegistry);
+        this.completedCounter = processedCounter(meterRegistry, "completed");
+        this.retriedCounter = processedCounter(meterRegistry, "retried");
+        this.failedCounter = processedCounter(meterRegistry, "failed");
+        this.batchTimer = Timer.builder("payment.compensation.batch")
+                .description("Time taken to execute a batch of refund jobs")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        executor.scheduleWithFixedDelay(this::executeDue, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("[Payment Module] [Compensation] Executor started. Batch size: {}, poll interval: {}ms, max attempts: {}, lease: {}",
+                batchSize, pollIntervalMs, maxAttempts, lease);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Let a running batch commit - anything left is picked up after restart
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        refunds.shutdownNow();
+    }
+
+    /**
+     * Saves a payment awaiting refund together with its refund job, in a new transaction.
+     *
+     * @param payment a recorded PENDING payment that was charged and then had
+     *                {@link Payment#requestRefund()} called
+     * @return the saved payment
+     */
+    Payment scheduleRefund(Payment payment) {
+        return newTransactionTemplate.execute(status -> {
+            Payment saved = paymentRepository.save(payment);
+            paymentStatusCounters.transitioned(PaymentStatus.PENDING, saved.getStatus());
+            PaymentCompensationJob job = paymentCompensationJobRepository.save(PaymentCompensationJob.refund(saved));
+            log.warn("[Payment Module] [Compensation] Scheduled refund job {} for payment {} of order {}",
+                    job.getId(), saved.getId(), saved.getOrderId());
+            return saved;
+        });
+    }
+
+    /**
+     * Executes up to {@code batchSize} due jobs. Must not be called within a transaction.
+     *
+     * @return number of jobs taken - 0 if none was due
+     */
+    int executeBatch(int batchSize) {
+        Timer.Sample sample = Timer.start();
+        LocalDateTime now = LocalDateTime.now();
+        // Written back as the lease token, so at the column's precision
+        LocalDateTime leasedUntil = now.plus(lease).truncatedTo(ChronoUnit.MICROS);
+
+        List<PaymentCompensationJob> jobs = new ArrayList<>();
+        Map<Long, Payment> payments = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            jobs.addAll(paymentCompensationJobRepository.leaseDue(now, leasedUntil, batchSize));
+            if (!jobs.isEmpty()) {
+                paymentRepository.findAllById(jobs.stream().map(PaymentCompensationJob::getPaymentId).toList())
+                        .forEach(payment -> payments.put(payment.getId(), payment));
+            }
+        });
+        if (jobs.isEmpty()) {
+            return 0;
+        }
+
+        List<Payment> refunded = executeAll(jobs, payments);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean[] paymentsWritten = paymentRepository.updateRefundPendingOutcomes(refunded);
+            for (boolean written : paymentsWritten) {
+                if (written) {
+                    paymentStatusCounters.transitioned(PaymentStatus.REFUND_PENDING, PaymentStatus.REFUNDED);
+                }
+            }
+            record(jobs, paymentCompensationJobRepository.updateLeasedOutcomes(jobs, leasedUntil));
+        });
+        sample.stop(batchTimer);
+        return jobs.size();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.compensation.metrics-refresh-ms:5000}")
+    void refreshMetrics() {
+        LocalDateTime now = LocalDateTime.now();
+        BacklogSummary summary = paymentCompensationJobRepository.summarizeBacklog(now);
+        backlog.set(summary.getPending() == null ? 0 : summary.getPending());
+        due.set(summary.getDue() == null ? 0 : summary.getDue());
+        failed.set(summary.getFailed() == null ? 0 : summary.getFailed());
+        oldestAgeMs.set(summary.getOldest() == null ? 0
+                : Duration.between(summary.getOldest(), now).toMillis());
+    }
+
+    /**
+     * Deletes completed jobs older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${payment.compensation.purge-interval-ms:3600000}")
+    void purgeCompleted() {
+        int deleted = transactionTemplate.execute(status ->
+                paymentCompensationJobRepository.deleteCompletedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Payment Module] [Compensation] Purged {} completed compensation jobs", deleted);
+        }
+    }
+
+    private void executeDue() {
+        try {
+            // Keep going while full batches come back - the backlog is drained without waiting a poll interval
+            while (executeBatch(batchSize) == batchSize) {
+                log.debug("[Payment Module] [Compensation] Full batch executed, continuing");
+            }
+        } catch (Exception e) {
+            // e.g. database unavailable - jobs not recorded are taken again once their lease expires
+            log.error("[Payment Module] [Compensation] Failed to execute due compensation jobs", e);
+        }
+    }
+
+    /**
+     * Refunds the payments of the leased jobs in parallel and applies the
+     * outcomes to the jobs and payments in memory.
+     *
+     * @return the payments refunded
+     */
+    private List<Payment> executeAll(List<PaymentCompensationJob> jobs, Map<Long, Payment> payments) {
+        Map<PaymentCompensationJob, Future<?>> calls = new LinkedHashMap<>();
+        for (PaymentCompensationJob job : jobs) {
+            Payment payment = payments.get(job.getPaymentId());
+            if (payment == null) {
+                job.recordFailedAttempt("Payment " + job.getPaymentId() + " not found", maxAttempts, backoff(job.getAttempts() + 1));
+            } else if (!payment.requiresRefund()) {
+                // Refunded by other means in the meantime - nothing left to do
+                job.complete();
+            } else {
+                calls.put(job, refunds.submit(() -> paymentGatewayClient.refund(RefundRequest.forPayment(payment))));
+            }
+        }
+
+        List<Payment> refunded = new ArrayList<>();
+        calls.forEach((job, call) -> {
+            Payment payment = payments.get(job.getPaymentId());
+            try {
+                call.get();
+                payment.markAsRefunded();
+                refunded.add(payment);
+                job.complete();
+                log.info("[Payment Module] [Compensation] Payment {} of order {} refunded", payment.getId(), payment.getOrderId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Not recorded - the job is taken again once its lease expires
+                throw new IllegalStateException("Interrupted while refunding payment " + payment.getId(), e);
+            } catch (ExecutionException e) {
+                log.warn("[Payment Module] [Compensation] Refund of payment {} failed (attempt {}): {}",
+                        payment.getId(), job.getAttempts() + 1, e.getCause().getMessage());
+                job.recordFailedAttempt(e.getCause().getMessage(), maxAttempts, backoff(job.getAttempts() + 1));
+            }
+        });
+        return refunded;
+    }
+
+    private void record(List<PaymentCompensationJob> jobs, boolean[] written) {
+        for (int i = 0; i < jobs.size(); i++) {
+            if (!written[i]) {
+                // The lease expired and another executor took the job over
+                log.warn("[Payment Module] [Compensation] Lease of compensation job {} expired, outcome discarded",
+                        jobs.get(i).getId());
+                continue;
+            }
+            switch (jobs.get(i).getStatus()) {
+                case COMPLETED -> completedCounter.increment();
+                case FAILED -> failedCounter.increment();
+                case PENDING -> retriedCounter.increment();
+            }
+        }
+        if (!jobs.isEmpty()) {
+            log.debug("[Payment Module] [Compensation] Executed {} compensation jobs", jobs.size());
+        }
+    }
+
+    /**
+     * Delay before the given attempt: doubles per attempt, capped at the maximum backoff.
+     */
+    private Duration backoff(int attempt) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static Counter processedCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payment.compensation.processed")
+                .description("Compensation job executions")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
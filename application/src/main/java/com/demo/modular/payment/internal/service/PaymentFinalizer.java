@@ -0,0 +1,141 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.api.exception.OrderInvalidStateException;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.vo.TransactionId;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Records the gateway's outcome for a PENDING payment and moves its order on,
+ * or drops the payment if it was never charged.
+ *
+ * <p><b>Short transactions:</b> the order update and the payment update each
+ * run in a transaction of their own, one after the other, so a payment never
+ * holds more than one connection and none between the steps.</p>
+ *
+ * <p><b>Crash safety:</b> the order is always updated first - PAID for an
+ * approved charge, FAILED for a declined one - and the payment last. A crash in
+ * between leaves the payment PENDING, and {@link PaymentRecovery} repeats both
+ * steps; an order already in the target status is accepted. Payments that are
+ * no longer PENDING are left as they are, so finalizing twice is harmless.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class PaymentFinalizer {
+
+    private final PaymentRepository paymentRepository;
+    private final OrderService orderService; // Inter-module dependency
+    private final PaymentCompensationJobs paymentCompensationJobs;
+    private final PaymentStatusCounters paymentStatusCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Records an approved charge: marks the order PAID and the payment SUCCESS.
+     * Must not be called within a transaction.
+     *
+     * @param payment the recorded PENDING payment
+     * @param transactionId the gateway's transaction ID of the charge
+     * @return the payment as saved
+     * @throws PaymentProcessingException if the order cannot be marked PAID; the
+     *         payment is then saved as REFUND_PENDING with a refund job
+     */
+    Payment approve(Payment payment, TransactionId transactionId) {
+        Long orderId = payment.getOrderId();
+
+        // Inter-module call: Update order status to PAID. The payment is marked afterwards,
+        // so a crash in between leaves it PENDING for recovery
+        try {
+            orderService.updateOrderStatus(orderId, OrderStatus.PAID);
+            log.info("[Payment Module] Order status updated to PAID");
+        } catch (OrderInvalidStateException e) {
+            if (e.getCurrentStatus() != OrderStatus.PAID) {
+                throw refund(payment, transactionId, e);
+            }
+            // Marked PAID by an earlier attempt that did not get to finalize the payment
+            log.info("[Payment Module] Order {} already PAID", orderId);
+        } catch (Exception e) {
+            throw refund(payment, transactionId, e);
+        }
+
+        Payment savedPayment = transactionTemplate.execute(status -> {
+            Payment current = paymentRepository.findById(payment.getId()).orElseThrow();
+            if (current.isPending()) {
+                current.markAsSuccess(transactionId);
+                paymentStatusCounters.transitioned(PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+            }
+            return current;
+        });
+        log.info("[Payment Module] Payment processed successfully with transaction id: {}", transactionId);
+        return savedPayment;
+    }
+
+    /**
+     * Records a declined charge: marks the order FAILED, then the payment, and
+     * releases the order's claim. Must not be called within a transaction.
+     *
+     * @param payment the recorded PENDING payment
+     * @param reason why the gateway declined the charge
+     */
+    void decline(Payment payment, String reason) {
+        Long orderId = payment.getOrderId();
+        log.error("[Payment Module] Payment processing failed for order {}: {}", orderId, reason);
+
+        // Inter-module call: Update order status to FAILED
+        try {
+            orderService.updateOrderStatus(orderId, OrderStatus.FAILED);
+            log.info("[Payment Module] Order status updated to FAILED");
+        } catch (Exception e) {
+            log.error("[Payment Module] Failed to update order status to FAILED", e);
+            // Continue even if status update fails - e.g. already FAILED by an earlier attempt
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Payment current = paymentRepository.findById(payment.getId()).orElseThrow();
+            if (current.isPending()) {
+                current.markAsFailed();
+                // The order may be paid again
+                paymentRepository.releaseClaim(orderId, current.getId());
+                paymentStatusCounters.transitioned(PaymentStatus.PENDING, PaymentStatus.FAILED);
+            }
+        });
+    }
+
+    /**
+     * Drops the intents of charges that were never made: deletes the PENDING
+     * payments and releases their orders' claims, in one transaction. The orders
+     * stay PENDING and may be paid again. Must not be called within a transaction.
+     *
+     * @param payments the recorded PENDING payments
+     */
+    void abandon(List<Payment> payments) {
+        List<Long> paymentIds = payments.stream().map(Payment::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Payments finalized concurrently (by recovery) are kept
+            List<Long> deleted = paymentRepository.deleteUncharged(paymentIds);
+            paymentStatusCounters.deleted(PaymentStatus.PENDING, deleted.size());
+        });
+        log.info("[Payment Module] Dropped {} uncharged payments, their orders stay PENDING", payments.size());
+    }
+
+    private PaymentProcessingException refund(Payment payment, TransactionId transactionId, Exception cause) {
+        log.error("[Payment Module] Failed to update order status to PAID", cause);
+        // Compensation: Request refund using aggregate's business method. The payment and its
+        // refund job commit on their own, even if the caller's transaction rolls back
+        payment.markAsSuccess(transactionId);
+        payment.requestRefund();
+        paymentCompensationJobs.scheduleRefund(payment);
+        log.warn("[Payment Module] [Compensation] Payment marked for refund due to order update failure");
+        return new PaymentProcessingException(payment.getOrderId(), "Payment succeeded but order update failed", cause);
+    }
+}
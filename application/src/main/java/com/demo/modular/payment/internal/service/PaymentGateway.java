@@ -0,0 +1,68 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * External payment provider (Stripe, PayPal, etc.).
+ *
+ * <p>Implementations may block for the duration of the remote call. Callers go
+ * through {@link PaymentGatewayClient}, which runs them on virtual threads
+ * behind a bulkhead and a timeout.</p>
+ *
+ * <p><b>Implementations:</b> selected with {@code payment.gateway.type} -
+ * {@code simulated} ({@link SimulatedPaymentGateway}, the default) or
+ * {@code http} ({@link HttpPaymentGateway}).</p>
+ *
+ * <p><b>References:</b> every charge carries a reference that the provider
+ * uses as its idempotency key - a reference is charged at most once, and its
+ * outcome can be looked up later, e.g. after the caller crashed or timed out.
+ * Refunds carry a reference of their own, so a refund repeated after a crash
+ * is made at most once as well.</p>
+ */
+interface PaymentGateway {
+
+    /**
+     * Charges a payment. Charging a reference again returns the outcome of the
+     * first charge.
+     *
+     * @return whether the provider approved the charge; failures to reach the
+     *         provider are thrown
+     * @throws PaymentGatewayRejectedException if the provider refused the charge without
+     *         processing it, e.g. when throttled
+     */
+    ChargeResult charge(ChargeRequest request);
+
+    /**
+     * Charges several payments in one call to the provider. Each reference is
+     * charged at most once, as with {@link #charge}.
+     *
+     * @return the outcomes, positionally matching {@code requests}; failures to
+     *         reach the provider are thrown
+     * @throws PaymentGatewayRejectedException if the provider refused the whole
+     *         batch without processing it
+     */
+    List<ChargeResult> chargeAll(List<ChargeRequest> requests);
+
+    /**
+     * Outcome of an earlier charge.
+     *
+     * @param reference the reference the charge was made with
+     * @return the outcome, or empty if the provider never received the charge;
+     *         failures to reach the provider are thrown
+     */
+    Optional<ChargeResult> lookup(String reference);
+
+    /**
+     * Refunds a charge in full. Refunding a reference again succeeds without
+     * refunding twice.
+     *
+     * @throws PaymentGatewayRejectedException if the provider refused the refund
+     *         without processing it, e.g. when throttled
+     * @throws IllegalStateException if the provider declined the refund or
+     *         could not be reached - the refund may be retried
+     */
+    void refund(RefundRequest request);
+}
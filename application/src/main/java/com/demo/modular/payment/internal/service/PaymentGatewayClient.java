@@ -0,0 +1,377 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the {@link PaymentGateway} without tying up platform threads or
+ * database connections.
+ *
+ * <p><b>Virtual threads:</b> every call runs on its own virtual thread; the
+ * caller waits for it outside of any transaction.</p>
+ *
+ * <p><b>Bulkhead and timeout:</b> the {@code paymentGateway} Resilience4j
+ * bulkhead caps concurrent calls (a call waits at most its
+ * {@code maxWaitDuration} for a permit), and the {@code paymentGateway} time
+ * limiter interrupts calls that take longer than its {@code timeoutDuration}.</p>
+ *
+ * <p><b>Fallback:</b> a charge rejected by the bulkhead or refused by the
+ * provider never went through and is reported as not attempted - the customer
+ * was not declined and may retry. A charge that times
+ * out or fails may still have gone through, so its outcome is reported as
+ * unknown - the payment stays PENDING until {@link PaymentRecovery} looks the
+ * charge up. Fallbacks are counted in {@code payment.gateway.fallback} by
+ * reason.</p>
+ *
+ * <p><b>Hedging:</b> with {@code payment.gateway.hedge.enabled}, a charge still
+ * unanswered after the {@code payment.gateway.hedge.percentile} of recent charge
+ * latencies (at least {@code payment.gateway.hedge.min-delay}) is sent a second
+ * time with the same reference, so the provider charges it at most once. The
+ * first answer wins and the other attempt is cancelled; a failed attempt only
+ * counts if the other one failed as well. Hedges need a free bulkhead permit and
+ * are capped at {@code payment.gateway.hedge.max-ratio} of all charges. They are
+ * counted in {@code payment.gateway.hedge} by result, charge latencies in
+ * {@code payment.gateway.charge}. The time limiter still bounds the charge as a
+ * whole.</p>
+ */
+@Component
+@Slf4j
+class PaymentGatewayClient {
+
+    private final PaymentGateway paymentGateway;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+    private final MeterRegistry meterRegistry;
+    private final Timer latency;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final Duration hedgeMinDelay;
+    private final HedgeBudget hedgeBudget;
+    private final int batchSize;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-gateway-", 0).factory());
+
+    PaymentGatewayClient(PaymentGateway paymentGateway,
+                         BulkheadRegistry bulkheadRegistry,
+                         TimeLimiterRegistry timeLimiterRegistry,
+                         MeterRegistry meterRegistry,
+                         @Value("${payment.gateway.hedge.enabled:false}") boolean hedgeEnabled,
+                         @Value("${payment.gateway.hedge.percentile:0.95}") double hedgePercentile,
+                         @Value("${payment.gateway.hedge.min-delay:50ms}") Duration hedgeMinDelay,
+                         @Value("${payment.gateway.hedge.max-ratio:0.1}") double hedgeMaxRatio,
+                         @Value("${payment.gateway.batch-size:100}") int batchSize) {
+        this.paymentGateway = paymentGateway;
+        this.bulkhead = bulkheadRegistry.bulkhead("paymentGateway");
+        this.timeLimiter = timeLimiterRegistry.timeLimiter("paymentGateway");
+        this.meterRegistry = meterRegistry;
+        this.latency = Timer.builder("payment.gateway.charge")
+                .description("Time the payment gateway took to answer a charge attempt")
+                .publishPercentiles(0.5, hedgePercentile, 0.99)
+                .register(meterRegistry);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.hedgeBudget = new HedgeBudget(hedgeMaxRatio);
+        this.batchSize = batchSize;
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Charges a payment, hedged if enabled, falling back to a not attempted result
+     * if the gateway cannot be called and to an unknown one if it does not answer in
+     * time. Must not be called within a transaction.
+     */
+    ChargeResult charge(ChargeRequest request) {
+        try {
+            return bulkhead.executeCallable(() -> timeLimiter.executeFutureSupplier(() -> hedgeEnabled
+                    ? submitHedged(request)
+                    : executor.submit(() -> attempt(request))));
+        } catch (BulkheadFullException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway bulkhead full, not charging order {}",
+                    request.orderId());
+            return fallback("bulkhead_full", ChargeResult.notAttempted("Payment gateway busy"));
+        } catch (PaymentGatewayRejectedException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway refused the charge for order {}: {}",
+                    request.orderId(), e.getMessage());
+            return fallback("rejected", ChargeResult.notAttempted(e.getMessage()));
+        } catch (TimeoutException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway timed out for order {} - the charge may still complete",
+                    request.orderId());
+            return fallback("timeout", ChargeResult.unknown("Payment gateway timed out"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback("error", ChargeResult.unknown("Interrupted while waiting for the payment gateway"));
+        } catch (Exception e) {
+            // The time limiter rethrows the gateway's own exception
+            log.error("[Payment Module] [External Call] Payment gateway call failed for order {}", request.orderId(), e);
+            return fallback("error", ChargeResult.unknown("Payment gateway error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Charges many payments with as few gateway calls as possible: up to
+     * {@code payment.gateway.batch-size} charges per call, all calls in
+     * parallel. Each call goes through the bulkhead and the time limiter like a
+     * single charge and falls back the same way, for all of its charges. Batches
+     * are not hedged. Must not be called within a transaction.
+     *
+     * @return the outcomes, positionally matching {@code requests}
+     */
+    List<ChargeResult> chargeAll(List<ChargeRequest> requests) {
+        List<Future<List<ChargeResult>>> calls = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += batchSize) {
+            List<ChargeRequest> batch = requests.subList(from, Math.min(from + batchSize, requests.size()));
+            calls.add(executor.submit(() -> chargeBatch(batch)));
+        }
+
+        List<ChargeResult> results = new ArrayList<>(requests.size());
+        for (Future<List<ChargeResult>> call : calls) {
+            try {
+                results.addAll(call.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the payment gateway", e);
+            } catch (ExecutionException e) {
+                // chargeBatch answers every failure with a fallback
+                throw new IllegalStateException("Payment gateway batch failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private List<ChargeResult> chargeBatch(List<ChargeRequest> batch) {
+        try {
+            List<ChargeResult> results = bulkhead.executeCallable(() ->
+                    timeLimiter.executeFutureSupplier(() -> executor.submit(() -> paymentGateway.chargeAll(batch))));
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Payment gateway answered " + results.size()
+                        + " results to a batch of " + batch.size() + " charges");
+            }
+            return results;
+        } catch (BulkheadFullException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway bulkhead full, not charging a batch of {} payments",
+                    batch.size());
+            return fallback("bulkhead_full", batch.size(), ChargeResult.notAttempted("Payment gateway busy"));
+        } catch (PaymentGatewayRejectedException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway refused a batch of {} charges: {}",
+                    batch.size(), e.getMessage());
+            return fallback("rejected", batch.size(), ChargeResult.notAttempted(e.getMessage()));
+        } catch (TimeoutException e) {
+            log.warn("[Payment Module] [External Call] Payment gateway timed out for a batch of {} charges - they may still complete",
+                    batch.size());
+            return fallback("timeout", batch.size(), ChargeResult.unknown("Payment gateway timed out"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback("error", batch.size(), ChargeResult.unknown("Interrupted while waiting for the payment gateway"));
+        } catch (Exception e) {
+            log.error("[Payment Module] [External Call] Payment gateway call failed for a batch of {} charges", batch.size(), e);
+            return fallback("error", batch.size(), ChargeResult.unknown("Payment gateway error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Looks up the outcome of an earlier charge, behind the same bulkhead and
+     * timeout as charges. Must not be called within a transaction.
+     *
+     * @return the outcome, or empty if the gateway never received the charge
+     * @throws IllegalStateException if the gateway cannot be called or does not answer in time
+     */
+    Optional<ChargeResult> lookup(String reference) {
+        try {
+            return bulkhead.executeCallable(() ->
+                    timeLimiter.executeFutureSupplier(() -> executor.submit(() -> paymentGateway.lookup(reference))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up charge " + reference, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Payment gateway lookup of charge " + reference + " failed", e);
+        }
+    }
+
+    /**
+     * Refunds a charge, behind the same bulkhead and timeout as charges. Must
+     * not be called within a transaction.
+     *
+     * @throws IllegalStateException if the refund failed - declined, refused,
+     *         or not answered in time; it may be retried with the same reference
+     */
+    void refund(RefundRequest request) {
+        try {
+            bulkhead.executeCallable(() -> timeLimiter.executeFutureSupplier(() -> executor.submit(() -> {
+                paymentGateway.refund(request);
+                return null;
+            })));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while refunding " + request.reference(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Payment gateway refund " + request.reference() + " failed: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the charge, and once more if it is not answered within the hedge
+     * delay. The returned future completes with the first answer, or with the
+     * error of the last attempt to fail.
+     */
+    private Future<ChargeResult> submitHedged(ChargeRequest request) {
+        hedgeBudget.charged();
+        CompletableFuture<ChargeResult> first = new CompletableFuture<>();
+        // Attempts in flight; 0 once the outcome is settled, after which no hedge may start
+        AtomicInteger inFlight = new AtomicInteger(1);
+        Duration delay = hedgeDelay();
+
+        Future<?> primary = executor.submit(() -> race(request, first, inFlight));
+        Future<?> hedge = executor.submit(() -> {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return; // Answered or timed out before the hedge was due
+            }
+            if (first.isDone()) {
+                return;
+            }
+            if (!bulkhead.tryAcquirePermission()) {
+                countHedge("bulkhead_full");
+                return;
+            }
+            try {
+                if (!hedgeBudget.tryAcquire()) {
+                    countHedge("budget_exhausted");
+                    return;
+                }
+                if (inFlight.getAndUpdate(n -> n == 0 ? 0 : n + 1) == 0) {
+                    return;
+                }
+                countHedge("issued");
+                if (race(request, first, inFlight)) {
+                    countHedge("won");
+                    log.info("[Payment Module] [External Call] Hedged charge answered first for order {}", request.orderId());
+                }
+            } finally {
+                bulkhead.onComplete();
+            }
+        });
+        // The loser is no longer needed; cancelling by the time limiter stops both attempts
+        first.whenComplete((result, e) -> {
+            primary.cancel(true);
+            hedge.cancel(true);
+        });
+        return first;
+    }
+
+    /**
+     * Runs one attempt of a hedged charge.
+     *
+     * @return whether this attempt's answer settled the charge
+     */
+    private boolean race(ChargeRequest request, CompletableFuture<ChargeResult> first, AtomicInteger inFlight) {
+        try {
+            return first.complete(attempt(request));
+        } catch (RuntimeException e) {
+            // The other attempt may still answer - even a refusal says nothing about a charge in flight
+            if (inFlight.decrementAndGet() == 0) {
+                first.completeExceptionally(e);
+            }
+            return false;
+        }
+    }
+
+    private ChargeResult attempt(ChargeRequest request) {
+        long start = System.nanoTime();
+        ChargeResult result = paymentGateway.charge(request);
+        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Duration hedgeDelay() {
+        for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+            if (value.percentile() == hedgePercentile) {
+                Duration percentile = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+                return percentile.compareTo(hedgeMinDelay) > 0 ? percentile : hedgeMinDelay;
+            }
+        }
+        return hedgeMinDelay;
+    }
+
+    private void countHedge(String result) {
+        Counter.builder("payment.gateway.hedge")
+                .description("Hedged payment gateway charges")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private ChargeResult fallback(String reason, ChargeResult result) {
+        return fallback(reason, 1, result).get(0);
+    }
+
+    private List<ChargeResult> fallback(String reason, int charges, ChargeResult result) {
+        Counter.builder("payment.gateway.fallback")
+                .description("Payment gateway charges answered by the fallback")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment(charges);
+        return Collections.nCopies(charges, result);
+    }
+
+    /**
+     * Caps hedges at a ratio of all charges: every charge earns the ratio of a
+     * hedge, every hedge spends a whole one. Unspent credit is capped, so a long
+     * run of fast charges does not save up for a burst of hedges.
+     */
+    private static final class HedgeBudget {
+
+        private static final double MAX_CREDIT = 10;
+
+        private final double ratio;
+        private double credit;
+
+        HedgeBudget(double ratio) {
+            this.ratio = ratio;
+        }
+
+        synchronized void charged() {
+            credit = Math.min(MAX_CREDIT, credit + ratio);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (credit < 1) {
+                return false;
+            }
+            credit -= 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.demo.modular.payment.internal.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for a payment provider, served over HTTP on
+ * {@code payment.gateway.stub.port}, speaking the protocol of
+ * {@link HttpPaymentGateway}. Lets payment throughput be benchmarked end to
+ * end without a real provider.
+ *
+ * <p><b>Latency:</b> every answer is delayed by a sample of the
+ * {@code payment.gateway.stub.latency.model}: {@code fixed}
+ * ({@code latency.fixed}), {@code lognormal} ({@code latency.median} and
+ * {@code latency.sigma} - a long right tail), or {@code bimodal}
+ * ({@code latency.slow} for a {@code latency.slow-ratio} of the requests,
+ * {@code latency.fast} for the rest).</p>
+ *
+ * <p><b>Failures:</b> {@code decline-rate} of the charges are declined.
+ * {@code error-rate} of the charges are made but answered with 500, so the
+ * caller cannot tell whether they went through. Refunds ({@code POST /refunds})
+ * are declined with 422 and fail with 500 at the same rates; a refunded
+ * reference is answered 204 again without refunding twice. Requests above
+ * {@code max-requests-per-second} are answered 429 at once, without being
+ * processed. Outcomes are kept per reference, so repeated charges are
+ * idempotent and can be looked up. A batch ({@code POST /charges/batch}) takes
+ * one latency sample and fails or is throttled as a whole.</p>
+ *
+ * <p>Charges and refunds are counted in {@code payment.gateway.stub.requests} by result.
+ * Only present with {@code payment.gateway.stub.enabled=true}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.stub.enabled", havingValue = "true")
+@Slf4j
+class PaymentGatewayStub {
+
+    private static final TypeReference<List<ChargeRequest>> CHARGE_REQUESTS = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int port;
+    private final LatencyModel latencyModel;
+    private final Duration fixedLatency;
+    private final Duration medianLatency;
+    private final double sigma;
+    private final Duration fastLatency;
+    private final Duration slowLatency;
+    private final double slowRatio;
+    private final double declineRate;
+    private final double errorRate;
+    private final RateLimiter rateLimiter;
+
+    private final Cache<String, ChargeResult> charges = Caffeine.newBuilder()
+            .maximumSize(1_000_000)
+            .build();
+    private final Cache<String, Boolean> refunds = Caffeine.newBuilder()
+            .maximumSize(1_000_000)
+            .build();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-gateway-stub-", 0).factory());
+    private HttpServer server;
+
+    PaymentGatewayStub(ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${payment.gateway.stub.port:8089}") int port,
+                       @Value("${payment.gateway.stub.latency.model:fixed}") LatencyModel latencyModel,
+                       @Value("${payment.gateway.stub.latency.fixed:100ms}") Duration fixedLatency,
+                       @Value("${payment.gateway.stub.latency.median:80ms}") Duration medianLatency,
+                       @Value("${payment.gateway.stub.latency.sigma:0.6}") double sigma,
+                       @Value("${payment.gateway.stub.latency.fast:50ms}") Duration fastLatency,
+                       @Value("${payment.gateway.stub.latency.slow:1500ms}") Duration slowLatency,
+                       @Value("${payment.gateway.stub.latency.slow-ratio:0.05}") double slowRatio,
+                       @Value("${payment.gateway.stub.decline-rate:0.05}") double declineRate,
+                       @Value("${payment.gateway.stub.error-rate:0}") double errorRate,
+                       @Value("${payment.gateway.stub.max-requests-per-second:0}") int maxRequestsPerSecond) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.port = port;
+        this.latencyModel = latencyModel;
+        this.fixedLatency = fixedLatency;
+        this.medianLatency = medianLatency;
+        this.sigma = sigma;
+        this.fastLatency = fastLatency;
+        this.slowLatency = slowLatency;
+        this.slowRatio = slowRatio;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+        // No permit is waited for - a request over the limit is throttled at once
+        this.rateLimiter = maxRequestsPerSecond > 0
+                ? RateLimiter.of("paymentGatewayStub", RateLimiterConfig.custom()
+                        .limitForPeriod(maxRequestsPerSecond)
+                        .limitRefreshPeriod(Duration.ofSeconds(1))
+                        .timeoutDuration(Duration.ZERO)
+                        .build())
+                : null;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/charges", this::handle);
+        server.createContext("/refunds", this::handle);
+        server.start();
+        log.info("[Payment Module] [Gateway Stub] Listening on port {}. Latency: {}, decline rate: {}, error rate: {}, throttled: {}",
+                getPort(), latencyModel, declineRate, errorRate, rateLimiter != null);
+    }
+
+    /**
+     * The port the stub listens on - chosen by the system if {@code payment.gateway.stub.port} is 0.
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @PreDestroy
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (rateLimiter != null && !rateLimiter.acquirePermission()) {
+                count("throttled");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if ("POST".equals(exchange.getRequestMethod()) && path.equals("/charges")) {
+                charge(exchange);
+            } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/charges/batch")) {
+                chargeAll(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod()) && path.startsWith("/charges/")) {
+                lookup(exchange, path.substring("/charges/".length()));
+            } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/refunds")) {
+                refund(exchange);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void charge(HttpExchange exchange) throws IOException, InterruptedException {
+        ChargeRequest request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = objectMapper.readValue(body, ChargeRequest.class);
+        }
+        // The outcome is decided as soon as the charge arrives, like at a real provider
+        ChargeResult result = charges.get(request.reference(), reference -> decide());
+        boolean error = ThreadLocalRandom.current().nextDouble() < errorRate;
+        Thread.sleep(sampleLatency());
+
+        if (error) {
+            count("error");
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        count(result.isApproved() ? "approved" : "declined");
+        respond(exchange, result);
+    }
+
+    private void chargeAll(HttpExchange exchange) throws IOException, InterruptedException {
+        List<ChargeRequest> requests;
+        try (InputStream body = exchange.getRequestBody()) {
+            requests = objectMapper.readValue(body, CHARGE_REQUESTS);
+        }
+        // One latency sample and one error draw for the whole batch
+        List<ChargeResult> results = requests.stream()
+                .map(request -> charges.get(request.reference(), reference -> decide()))
+                .toList();
+        boolean error = ThreadLocalRandom.current().nextDouble() < errorRate;
+        Thread.sleep(sampleLatency());
+
+        if (error) {
+            results.forEach(result -> count("error"));
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        results.forEach(result -> count(result.isApproved() ? "approved" : "declined"));
+        respond(exchange, results);
+    }
+
+    private void lookup(HttpExchange exchange, String reference) throws IOException, InterruptedException {
+        Thread.sleep(sampleLatency());
+        ChargeResult result = charges.getIfPresent(reference);
+        if (result == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        respond(exchange, result);
+    }
+
+    private void refund(HttpExchange exchange) throws IOException, InterruptedException {
+        RefundRequest request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = objectMapper.readValue(body, RefundRequest.class);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean repeated = refunds.getIfPresent(request.reference()) != null;
+        boolean declined = !repeated && random.nextDouble() < declineRate;
+        if (!declined) {
+            refunds.put(request.reference(), Boolean.TRUE);
+        }
+        boolean error = random.nextDouble() < errorRate;
+        Thread.sleep(sampleLatency());
+
+        if (error) {
+            count("error");
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        count(declined ? "refund_declined" : "refunded");
+        exchange.sendResponseHeaders(declined ? 422 : 204, -1);
+    }
+
+    private ChargeResult decide() {
+        return ThreadLocalRandom.current().nextDouble() < declineRate
+                ? ChargeResult.declined("Declined by issuer")
+                : ChargeResult.approved(UUID.randomUUID().toString());
+    }
+
+    private Duration sampleLatency() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (latencyModel) {
+            case FIXED -> fixedLatency;
+            case LOGNORMAL -> Duration.ofNanos((long) (medianLatency.toNanos() * Math.exp(sigma * random.nextGaussian())));
+            case BIMODAL -> random.nextDouble() < slowRatio ? slowLatency : fastLatency;
+        };
+    }
+
+    private void respond(HttpExchange exchange, Object result) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(result);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("payment.gateway.stub.requests")
+                .description("Charges and refunds answered by the payment gateway stub")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Distribution of the stub's response times.
+     */
+    enum LatencyModel {
+        FIXED,
+        LOGNORMAL,
+        BIMODAL
+    }
+}
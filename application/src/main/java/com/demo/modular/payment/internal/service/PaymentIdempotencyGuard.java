@@ -0,0 +1,231 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentIdempotencyKeyConflictException;
+import com.demo.modular.payment.internal.domain.PaymentIdempotencyRecord;
+import com.demo.modular.payment.internal.repository.PaymentIdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and replays its response.
+ *
+ * <p><b>Replays:</b> completed responses are kept in a bounded in-memory cache
+ * backed by {@link PaymentIdempotencyRecord} rows. A replay is served from either
+ * without running the request again.</p>
+ *
+ * <p><b>Concurrency:</b> on this instance, requests with a key that is still
+ * running wait for it and then replay its response. Across instances, the
+ * request claims its key in a short transaction of its own, and a second
+ * request polls the claim until the response is stored. Failed requests release
+ * their claim, so a retry with the same key runs again; a claim left behind by a
+ * crash is taken over after {@code payment.idempotency.claim-timeout}.</p>
+ *
+ * <p><b>No transaction:</b> the request itself runs without a transaction, so
+ * its own short transactions commit whatever its outcome - a payment recorded
+ * before an unanswered charge stays PENDING for recovery - and no connection is
+ * held while it waits for the payment gateway.</p>
+ */
+@Component
+@Slf4j
+class PaymentIdempotencyGuard {
+
+    private static final Duration CLAIM_POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final PaymentIdempotencyRecordRepository paymentIdempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+    private final Duration claimTimeout;
+    private final Duration retention;
+
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    PaymentIdempotencyGuard(PaymentIdempotencyRecordRepository paymentIdempotencyRecordRepository,
+                     TransactionTemplate transactionTemplate,
+                     ObjectMapper objectMapper,
+                     @Value("${payment.idempotency.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                     @Value("${payment.idempotency.claim-timeout:5m}") Duration claimTimeout,
+                     @Value("${payment.idempotency.retention:24h}") Duration retention) {
+        this.paymentIdempotencyRecordRepository = paymentIdempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.claimTimeout = claimTimeout;
+        this.retention = retention;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Runs {@code request} unless a response for the key exists, in which case
+     * that response is returned instead. Must not be called within a transaction.
+     *
+     * @param key the client's idempotency key
+     * @param requestSignature identifies the request payload - the same key with a
+     *                         different signature is rejected
+     * @param responseType type of the stored response
+     * @param request the work to run; runs without a transaction
+     * @throws PaymentIdempotencyKeyConflictException if the key was used for a different
+     *         request, or its request is still running after the wait timeout
+     */
+    <T> T execute(String key, String requestSignature, Class<T> responseType, Supplier<T> request) {
+        String fingerprint = fingerprint(requestSignature);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            StoredResponse cached = completed.getIfPresent(key);
+            if (cached != null) {
+                return replay(cached, key, fingerprint, responseType);
+            }
+
+            CompletableFuture<Void> running = new CompletableFuture<>();
+            CompletableFuture<Void> other = inFlight.putIfAbsent(key, running);
+            if (other != null) {
+                awaitInFlight(key, other);
+                continue;
+            }
+            try {
+                Optional<T> response = executeOnce(key, fingerprint, responseType, request);
+                if (response.isPresent()) {
+                    return response.get();
+                }
+            } finally {
+                inFlight.remove(key, running);
+                running.complete(null);
+            }
+            // Another instance holds the key - poll until it stores its response
+            awaitClaim(key, deadline);
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval-ms:3600000}")
+    void purgeExpired() {
+        int deleted = transactionTemplate.execute(status ->
+                paymentIdempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Payment Module] [Idempotency] Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private <T> Optional<T> executeOnce(String key, String fingerprint, Class<T> responseType, Supplier<T> request) {
+        Optional<PaymentIdempotencyRecord> record = paymentIdempotencyRecordRepository.findById(key);
+        if (record.isPresent() && record.get().getResponse() != null) {
+            StoredResponse stored = new StoredResponse(record.get().getRequestFingerprint(), record.get().getResponse());
+            completed.put(key, stored);
+            return Optional.of(replay(stored, key, fingerprint, responseType));
+        }
+        if (record.isPresent() && !record.get().getRequestFingerprint().equals(fingerprint)) {
+            throw new PaymentIdempotencyKeyConflictException(key, "Idempotency key already used for a different request: " + key);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = transactionTemplate.execute(status ->
+                paymentIdempotencyRecordRepository.claim(key, fingerprint, now, now.minus(claimTimeout)));
+        if (claimed == 0) {
+            log.debug("[Payment Module] [Idempotency] Key {} is held by another request", key);
+            return Optional.empty();
+        }
+
+        T value;
+        String response;
+        try {
+            value = request.get();
+            response = toJson(value);
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> paymentIdempotencyRecordRepository.release(key));
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status -> paymentIdempotencyRecordRepository.complete(key, response));
+        completed.put(key, new StoredResponse(fingerprint, response));
+        return Optional.of(value);
+    }
+
+    private <T> T replay(StoredResponse stored, String key, String fingerprint, Class<T> responseType) {
+        if (!stored.requestFingerprint().equals(fingerprint)) {
+            throw new PaymentIdempotencyKeyConflictException(key, "Idempotency key already used for a different request: " + key);
+        }
+        log.info("[Payment Module] [Idempotency] Replaying stored response for key {}", key);
+        try {
+            return objectMapper.readValue(stored.response(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + key + " is unreadable", e);
+        }
+    }
+
+    private void awaitInFlight(String key, CompletableFuture<Void> other) {
+        log.debug("[Payment Module] [Idempotency] Waiting for in-flight request with key {}", key);
+        try {
+            other.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new PaymentIdempotencyKeyConflictException(key, "Request with idempotency key " + key + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentIdempotencyKeyConflictException(key, "Interrupted while waiting for idempotency key " + key);
+        } catch (ExecutionException e) {
+            // Never completed exceptionally
+        }
+    }
+
+    private void awaitClaim(String key, long deadline) {
+        if (System.nanoTime() > deadline) {
+            throw new PaymentIdempotencyKeyConflictException(key, "Request with idempotency key " + key + " is still in progress");
+        }
+        try {
+            Thread.sleep(CLAIM_POLL_INTERVAL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentIdempotencyKeyConflictException(key, "Interrupted while waiting for idempotency key " + key);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for replay", e);
+        }
+    }
+
+    private static String fingerprint(String requestSignature) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestSignature.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A committed response and the fingerprint of the request that produced it.
+     */
+    private record StoredResponse(String requestFingerprint, String response) {
+    }
+}
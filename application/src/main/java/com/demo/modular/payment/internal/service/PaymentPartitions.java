@@ -0,0 +1,147 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps {@code payment_schema.payments} small: monthly range partitions on
+ * {@code created_at}, and archival of terminal payments.
+ *
+ * <p><b>Partitions:</b> partitions are created {@code payment.partitions.months-ahead}
+ * months in advance, so new payments never land in the default partition. Payments
+ * that did - e.g. history from before partitioning - are moved into the month
+ * partition when it is created.</p>
+ *
+ * <p><b>Archival:</b> payments in a terminal status created more than
+ * {@code payment.archive.after} ago are moved to {@code payment_schema.payments_archive}
+ * in batches. Partitions older than that are then empty, unless they still hold
+ * an open payment, and are dropped - queries on the payments table only scan the
+ * recent months. Archived payments stay readable by ID.</p>
+ *
+ * <p>Both run on every instance and are safe to run concurrently.</p>
+ */
+@Component
+@Slf4j
+class PaymentPartitions {
+
+    private static final Set<PaymentStatus> TERMINAL =
+            EnumSet.of(PaymentStatus.SUCCESS, PaymentStatus.FAILED, PaymentStatus.REFUNDED);
+
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final Duration archiveAfter;
+    private final int archiveBatchSize;
+    private final long dropLockTimeoutMs;
+    private final Counter archivedCounter;
+
+    PaymentPartitions(PaymentRepository paymentRepository,
+                    TransactionTemplate transactionTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${payment.partitions.months-ahead:3}") int monthsAhead,
+                    @Value("${payment.archive.after:90d}") Duration archiveAfter,
+                    @Value("${payment.archive.batch-size:1000}") int archiveBatchSize,
+                    @Value("${payment.archive.drop-lock-timeout-ms:2000}") long dropLockTimeoutMs) {
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfter = archiveAfter;
+        this.archiveBatchSize = archiveBatchSize;
+        this.dropLockTimeoutMs = dropLockTimeoutMs;
+        this.archivedCounter = Counter.builder("payment.archive.archived")
+                .description("Terminal payments moved to the archive")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        try {
+            createPartitions();
+        } catch (RuntimeException e) {
+            // e.g. database unavailable - payments go to the default partition until the next run
+            log.error("[Payment Module] [Partitions] Failed to create payment partitions", e);
+        }
+    }
+
+    /**
+     * Creates the partitions of the coming months and of the months that have
+     * payments in the default partition.
+     */
+    @Scheduled(fixedDelayString = "${payment.partitions.maintenance-interval-ms:3600000}")
+    void createPartitions() {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> paymentRepository.isPartitioned()))) {
+            log.warn("[Payment Module] [Partitions] payment_schema.payments is not partitioned yet - " +
+                    "run scripts/partition-orders-payments.sql");
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        Set<YearMonth> months = new TreeSet<>();
+        months.addAll(transactionTemplate.execute(status -> paymentRepository.findDefaultPartitionMonths()));
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        months.removeAll(transactionTemplate.execute(status -> paymentRepository.findPartitionMonths()));
+
+        for (YearMonth month : months) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> paymentRepository.createPartition(month)))) {
+                log.info("[Payment Module] [Partitions] Created payment partition for {}", month);
+            }
+        }
+    }
+
+    /**
+     * Archives terminal payments older than {@code payment.archive.after} and drops
+     * the partitions they leave empty.
+     */
+    @Scheduled(fixedDelayString = "${payment.archive.interval-ms:600000}",
+               initialDelayString = "${payment.archive.interval-ms:600000}")
+    void archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        List<String> statuses = TERMINAL.stream().map(PaymentStatus::name).toList();
+
+        long archived = 0;
+        int moved;
+        do {
+            // One transaction per batch - row locks and the archive insert stay small
+            moved = transactionTemplate.execute(status -> paymentRepository.archive(statuses, cutoff, archiveBatchSize));
+            archived += moved;
+            archivedCounter.increment(moved);
+        } while (moved == archiveBatchSize);
+        if (archived > 0) {
+            log.info("[Payment Module] [Archive] Archived {} payments created before {}", archived, cutoff);
+        }
+
+        YearMonth cutoffMonth = YearMonth.from(cutoff);
+        List<YearMonth> partitions = transactionTemplate.execute(status -> paymentRepository.findPartitionMonths());
+        for (YearMonth month : partitions) {
+            if (!month.isBefore(cutoffMonth)) {
+                break;
+            }
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                        paymentRepository.dropPartitionIfEmpty(month, dropLockTimeoutMs)))) {
+                    log.info("[Payment Module] [Partitions] Dropped empty payment partition for {}", month);
+                }
+            } catch (RuntimeException e) {
+                // Lock timeout under load - the next run tries again
+                log.warn("[Payment Module] [Partitions] Could not drop payment partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+}
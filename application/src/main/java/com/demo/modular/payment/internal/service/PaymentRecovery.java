@@ -0,0 +1,130 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.vo.TransactionId;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import com.demo.modular.payment.internal.service.ChargeResult.Outcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resolves payments left PENDING by requests that ended between recording the
+ * intent and recording the gateway's outcome: a crash or restart, or a gateway
+ * call that timed out.
+ *
+ * <p><b>Detection:</b> PENDING payments not updated for
+ * {@code payment.recovery.pending-after} are taken over one at a time. Taking
+ * over touches the payment, so concurrent instances never recover the same
+ * payment, and a live request - bounded by the gateway timeout - is never
+ * mistaken for a stale one.</p>
+ *
+ * <p><b>Resolution:</b> the charge is looked up at the gateway by its reference,
+ * outside of any transaction, and finalized through {@link PaymentFinalizer}
+ * like a live one. A charge the gateway never received fails the payment. If
+ * the gateway cannot be reached, the payment is tried again once it is stale
+ * again.</p>
+ *
+ * <p>Recovered payments are counted in {@code payment.recovery.recovered} by outcome.</p>
+ */
+@Component
+@Slf4j
+class PaymentRecovery {
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final PaymentFinalizer paymentFinalizer;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration pendingAfter;
+    private final int batchSize;
+
+    PaymentRecovery(PaymentRepository paymentRepository,
+                    PaymentGatewayClient paymentGatewayClient,
+                    PaymentFinalizer paymentFinalizer,
+                    TransactionTemplate transactionTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${payment.recovery.pending-after:5m}") Duration pendingAfter,
+                    @Value("${payment.recovery.batch-size:100}") int batchSize) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.paymentFinalizer = paymentFinalizer;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.pendingAfter = pendingAfter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Resolves up to {@code payment.recovery.batch-size} stale PENDING payments.
+     */
+    @Scheduled(fixedDelayString = "${payment.recovery.interval-ms:60000}")
+    void recover() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingAfter);
+        List<Long> paymentIds = transactionTemplate.execute(status ->
+                paymentRepository.findStalePendingIds(cutoff, Limit.of(batchSize)));
+
+        int recovered = 0;
+        for (Long paymentId : paymentIds) {
+            try {
+                if (recover(paymentId, cutoff)) {
+                    recovered++;
+                }
+            } catch (RuntimeException e) {
+                // Stays PENDING and is retried once stale again
+                log.error("[Payment Module] [Recovery] Failed to recover payment {}", paymentId, e);
+            }
+        }
+        if (recovered > 0) {
+            log.info("[Payment Module] [Recovery] Recovered {} payments pending since before {}", recovered, cutoff);
+        }
+    }
+
+    /**
+     * Looks up and finalizes one stale payment, unless another instance took it over.
+     *
+     * @return whether the payment was finalized here
+     */
+    private boolean recover(Long paymentId, LocalDateTime cutoff) {
+        Payment payment = transactionTemplate.execute(status ->
+                paymentRepository.claimStalePending(paymentId, cutoff, LocalDateTime.now()) == 0
+                        ? null
+                        : paymentRepository.findById(paymentId).orElse(null));
+        if (payment == null) {
+            return false;
+        }
+
+        ChargeResult result = paymentGatewayClient.lookup(ChargeRequest.reference(paymentId))
+                .orElseGet(() -> ChargeResult.declined("Charge never reached the payment gateway"));
+        log.warn("[Payment Module] [Recovery] Payment {} of order {} was left PENDING, gateway outcome: {}",
+                paymentId, payment.getOrderId(), result.outcome());
+
+        if (result.outcome() == Outcome.APPROVED) {
+            try {
+                paymentFinalizer.approve(payment, TransactionId.of(result.transactionId()));
+            } catch (PaymentProcessingException e) {
+                // The order can no longer be paid - the charge is refunded in the background
+                log.warn("[Payment Module] [Recovery] Payment {} recorded for refund: {}", paymentId, e.getMessage());
+            }
+        } else {
+            paymentFinalizer.decline(payment, result.reason());
+        }
+
+        Counter.builder("payment.recovery.recovered")
+                .description("Stale PENDING payments finalized by recovery")
+                .tag("outcome", result.outcome().name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+}
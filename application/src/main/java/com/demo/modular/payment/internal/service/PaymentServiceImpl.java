@@ -5,9 +5,13 @@ import com.demo.modular.order.api.dto.OrderStatus;
 import com.demo.modular.order.api.exception.OrderInvalidStateException;
 import com.demo.modular.order.api.exception.OrderNotFoundException;
 import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentBatchResultDTO;
 import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentItemResultDTO;
+import com.demo.modular.payment.api.dto.PaymentPageDTO;
 import com.demo.modular.payment.api.dto.PaymentStatus;
 import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentGatewayUnavailableException;
 import com.demo.modular.payment.api.exception.PaymentProcessingException;
 import com.demo.modular.payment.internal.domain.Payment;
 import com.demo.modular.payment.internal.domain.vo.Money;
@@ -18,13 +22,16 @@ import com.demo.modular.payment.service.PaymentService;
 import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * Application Service for Payment module.
@@ -40,13 +47,20 @@ class PaymentServiceImpl implements PaymentService {
     private final PaymentRepository paymentRepository;
     private final OrderService orderService; // Inter-module dependency
     private final PaymentMapper paymentMapper;
+    private final PaymentIdempotencyGuard paymentIdempotencyGuard;
+    private final PaymentFinalizer paymentFinalizer;
+    private final PaymentSettlement paymentSettlement;
+    private final PaymentStatusCounters paymentStatusCounters;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     @Timed(value = "payment.process", description = "Time taken to process a payment")
     public PaymentDTO processPayment(Long orderId, String paymentMethod) {
         log.info("[Payment Module] Processing payment for order {} with method {}", orderId, paymentMethod);
-        
-        Payment savedPayment = null;
+        // No transaction of its own: the intent is recorded in a short transaction, the gateway
+        // is called without one, and the outcome is recorded in short transactions afterwards
         
         try {
             // Inter-module call: Validate order exists and get order details
@@ -61,58 +75,28 @@ class PaymentServiceImpl implements PaymentService {
                         "Order is not in pending state for payment");
             }
             
-            // Check if payment already exists for this order (idempotency)
-            Optional<Payment> existingPayment = paymentRepository.findByOrderId(orderId);
-            if (existingPayment.isPresent() && existingPayment.get().isSuccess()) {
-                throw new DuplicatePaymentException(orderId);
-            }
-            
-            // Use static factory method to create payment aggregate with validation
-            Payment payment = Payment.create(
-                OrderId.of(orderId),
-                Money.of(order.getTotalAmount()),
-                paymentMethod
-            );
+            Payment payment = recordIntent(order, paymentMethod);
             
             // Process payment through payment gateway
-            boolean paymentSuccess = processPaymentGateway(payment);
+            ChargeResult result = processPaymentGateway(payment);
             
-            if (paymentSuccess) {
-                savedPayment = paymentRepository.save(payment);
-                log.info("[Payment Module] Payment processed successfully with transaction id: {}", 
-                    payment.getTransactionId());
-                
-                // Inter-module call: Update order status to PAID
-                try {
-                    orderService.updateOrderStatus(orderId, OrderStatus.PAID);
-                    log.info("[Payment Module] Order status updated to PAID");
-                } catch (Exception e) {
-                    log.error("[Payment Module] Failed to update order status to PAID", e);
-                    // Compensation: Request refund using aggregate's business method
-                    payment.requestRefund();
-                    paymentRepository.save(payment);
-                    log.warn("[Payment Module] [Compensation] Payment marked for refund due to order update failure");
-                    throw new PaymentProcessingException(orderId, "Payment succeeded but order update failed", e);
+            return switch (result.outcome()) {
+                case APPROVED -> paymentMapper.toDTO(
+                        paymentFinalizer.approve(payment, TransactionId.of(result.transactionId())));
+                case DECLINED -> {
+                    paymentFinalizer.decline(payment, result.reason());
+                    throw new PaymentProcessingException(orderId, "Payment processing failed");
                 }
-                
-            } else {
-                savedPayment = paymentRepository.save(payment);
-                
-                log.error("[Payment Module] Payment processing failed for order: {}", orderId);
-                
-                // Inter-module call: Update order status to FAILED
-                try {
-                    orderService.updateOrderStatus(orderId, OrderStatus.FAILED);
-                    log.info("[Payment Module] Order status updated to FAILED");
-                } catch (Exception e) {
-                    log.error("[Payment Module] Failed to update order status to FAILED", e);
-                    // Continue even if status update fails
+                // The payment stays PENDING until recovery looks the charge up
+                case UNKNOWN -> throw new PaymentProcessingException(orderId,
+                        "Payment outcome unknown, it will be resolved in the background: " + result.reason());
+                // Nothing was charged - the order stays PENDING and the client may retry
+                case NOT_ATTEMPTED -> {
+                    paymentFinalizer.abandon(List.of(payment));
+                    throw new PaymentGatewayUnavailableException(orderId,
+                            "Payment not attempted, please retry later: " + result.reason());
                 }
-                
-                throw new PaymentProcessingException(orderId, "Payment processing failed");
-            }
-            
-            return paymentMapper.toDTO(savedPayment);
+            };
             
         } catch (OrderNotFoundException e) {
             log.error("[Payment Module] Order not found: {}", orderId, e);
@@ -126,7 +110,7 @@ class PaymentServiceImpl implements PaymentService {
             log.error("[Payment Module] Duplicate payment attempt for order: {}", orderId, e);
             throw e;
             
-        } catch (PaymentProcessingException e) {
+        } catch (PaymentProcessingException | PaymentGatewayUnavailableException e) {
             throw e;
             
         } catch (Exception e) {
@@ -135,12 +119,47 @@ class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Timed(value = "payment.processIdempotent", description = "Time taken to process or replay a payment by idempotency key")
+    public PaymentDTO processPayment(Long orderId, String paymentMethod, String idempotencyKey) {
+        // No transaction here - waiting for a duplicate in flight must not hold a connection.
+        // The guard claims the key in a short transaction and runs processPayment without one,
+        // so the recorded intent commits on its own even if the charge fails.
+        return paymentIdempotencyGuard.execute(idempotencyKey, orderId + ":" + paymentMethod,
+                PaymentDTO.class, () -> processPayment(orderId, paymentMethod));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Timed(value = "payment.processBatch", description = "Time taken to pay a batch of orders")
+    public PaymentBatchResultDTO processPayments(List<Long> orderIds, String paymentMethod) {
+        log.info("[Payment Module] Paying batch of {} orders with method {}", orderIds.size(), paymentMethod);
+        // No transaction here - every step runs in short transactions of its own, the gateway without one
+        
+        List<PaymentItemResultDTO> results = paymentSettlement.settle(orderIds, paymentMethod);
+        
+        int succeeded = (int) results.stream().filter(PaymentItemResultDTO::isSuccess).count();
+        int pending = (int) results.stream()
+                .filter(result -> result.getPayment() != null && result.getPayment().getStatus() == PaymentStatus.PENDING)
+                .count();
+        log.info("[Payment Module] Batch paid: {} succeeded, {} pending, {} failed",
+                succeeded, pending, results.size() - succeeded - pending);
+        return PaymentBatchResultDTO.builder()
+                .results(results)
+                .succeeded(succeeded)
+                .pending(pending)
+                .failed(results.size() - succeeded - pending)
+                .build();
+    }
+
     @Override
     @Transactional(readOnly = true)
     @Timed(value = "payment.findById", description = "Time taken to find payment by ID")
     public Optional<PaymentDTO> getPaymentById(Long id) {
         log.debug("[Payment Module] Fetching payment with id: {}", id);
         return paymentRepository.findById(id)
+                .or(() -> paymentRepository.findArchivedById(id))
                 .map(paymentMapper::toDTO);
     }
 
@@ -149,11 +168,13 @@ class PaymentServiceImpl implements PaymentService {
     @Timed(value = "payment.findByOrderId", description = "Time taken to find payment by order ID")
     public Optional<PaymentDTO> getPaymentByOrderId(Long orderId) {
         log.debug("[Payment Module] Fetching payment for order: {}", orderId);
-        return paymentRepository.findByOrderId(orderId)
+        return paymentRepository.findFirstByOrderIdOrderByIdDesc(orderId)
+                .or(() -> paymentRepository.findArchivedByOrderId(orderId))
                 .map(paymentMapper::toDTO);
     }
 
     @Override
+    @Deprecated
     @Transactional(readOnly = true)
     @Timed(value = "payment.findAll", description = "Time taken to find all payments")
     public List<PaymentDTO> getAllPayments() {
@@ -162,6 +183,35 @@ class PaymentServiceImpl implements PaymentService {
         return paymentMapper.toDTOList(payments);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "payment.findPage", description = "Time taken to find a page of payments")
+    public PaymentPageDTO getPaymentPage(String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        log.debug("[Payment Module] Fetching payments after id {} (page size {})", afterId, size);
+        
+        // One extra row tells us whether another page follows
+        List<Payment> payments = paymentRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+        boolean hasMore = payments.size() > size;
+        if (hasMore) {
+            payments = payments.subList(0, size);
+        }
+        
+        return PaymentPageDTO.builder()
+                .items(paymentMapper.toDTOList(payments))
+                .nextCursor(hasMore ? PageCursor.encode(payments.get(payments.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "payment.countByStatus", description = "Time taken to count payments per status")
+    public Map<PaymentStatus, Long> getPaymentCountsByStatus() {
+        log.debug("[Payment Module] Counting payments per status");
+        return paymentStatusCounters.counts();
+    }
+
     @Override
     @Transactional(readOnly = true)
     @Timed(value = "payment.findByStatus", description = "Time taken to find payments by status")
@@ -170,65 +220,51 @@ class PaymentServiceImpl implements PaymentService {
             throw new IllegalArgumentException("Payment status cannot be null");
         }
         log.debug("[Payment Module] Fetching payments with status: {}", status);
-        List<Payment> payments = paymentRepository.findByStatus(status);
-        return paymentMapper.toDTOList(payments);
+        // Projection - read-only rows never enter the persistence context
+        return paymentRepository.findDTOsByStatus(status);
     }
 
     /**
-     * Process payment through payment gateway.
-     * In real implementation, this would call external payment API (Stripe, PayPal, etc.)
-     * 
-     * @param payment the payment to process
-     * @return true if payment succeeds, false otherwise
+     * Records the intent to charge an order as a PENDING payment, in a short
+     * transaction of its own. From here on the payment is recovered if the
+     * request ends before its outcome is recorded.
      */
-    private boolean processPaymentGateway(Payment payment) {
-        log.info("[Payment Module] Processing payment transaction for payment ID: {}, amount: {}", 
-            payment.getId(), payment.getAmount());
-        
-        try {
-            // Simulate payment gateway interaction
-            boolean success = simulatePaymentGatewayCall(payment);
-            
-            if (success) {
-                // Generate transaction ID
-                TransactionId transactionId = TransactionId.of(UUID.randomUUID().toString());
-                
-                // Use aggregate's business method to mark as success
-                payment.markAsSuccess(transactionId);
-                log.info("[Payment Module] Payment processed successfully. Transaction ID: {}", transactionId);
-            } else {
-                // Use aggregate's business method to mark as failed
-                payment.markAsFailed();
-                log.warn("[Payment Module] Payment processing failed for payment ID: {}", payment.getId());
-            }
-            
-            return success;
-        } catch (Exception e) {
-            log.error("[Payment Module] Exception during payment processing for payment ID: {}", payment.getId(), e);
-            payment.markAsFailed();
-            return false;
-        }
+    private Payment recordIntent(OrderDTO order, String paymentMethod) {
+        Long orderId = order.getId();
+        return transactionTemplate.execute(status -> {
+            // Idempotency: the payment is inserted only if no payment of the order went through
+            // or is being charged - decided by the database in the same statement
+            Payment payment = paymentRepository.insertIfUnclaimed(Payment.create(
+                OrderId.of(orderId),
+                Money.of(order.getTotalAmount()),
+                paymentMethod
+            )).orElseThrow(() -> new DuplicatePaymentException(orderId));
+            paymentStatusCounters.created(payment.getStatus(), 1);
+            return payment;
+        });
     }
 
     /**
-     * Simulate payment gateway processing.
-     * In real implementation, this would call external payment API.
+     * Process payment through payment gateway.
+     * Runs outside of any transaction, so no database connection waits for the gateway.
      * 
-     * @param payment the payment to process
-     * @return true if payment succeeds, false otherwise
+     * @param payment the recorded payment to charge
+     * @return the gateway's outcome
      */
-    private boolean simulatePaymentGatewayCall(Payment payment) {
-        log.info("[Payment Module] [External Call] Simulating payment gateway for amount: {}", payment.getAmount());
+    private ChargeResult processPaymentGateway(Payment payment) {
+        log.info("[Payment Module] Processing payment transaction for order: {}, amount: {}", 
+            payment.getOrderId(), payment.getAmount());
         
-        try {
-            // Simulate network delay
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        ChargeResult result = paymentGatewayClient.charge(ChargeRequest.forPayment(payment));
         
-        // Simulate 95% success rate
-        return Math.random() < 0.95;
+        switch (result.outcome()) {
+            case APPROVED -> log.info("[Payment Module] Payment approved. Transaction ID: {}", result.transactionId());
+            case DECLINED -> log.warn("[Payment Module] Payment declined for order {}: {}", payment.getOrderId(), result.reason());
+            case UNKNOWN -> log.warn("[Payment Module] Payment outcome unknown for order {}, left PENDING for recovery: {}",
+                    payment.getOrderId(), result.reason());
+            case NOT_ATTEMPTED -> log.warn("[Payment Module] Payment not attempted for order {}: {}",
+                    payment.getOrderId(), result.reason());
+        }
+        return result;
     }
 }
-
@@ -0,0 +1,267 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentItemResultDTO;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.vo.Money;
+import com.demo.modular.payment.internal.domain.vo.OrderId;
+import com.demo.modular.payment.internal.domain.vo.TransactionId;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pays many orders with a constant number of round trips per step, deciding
+ * each one individually. Used by batch settlement.
+ *
+ * <p><b>Steps:</b> like a single payment, but for all orders at once - the
+ * orders are validated with one query, the payments recorded PENDING with one
+ * statement claiming the orders and one JDBC insert batch, charged with coalesced gateway
+ * calls outside of any transaction, and finalized with one set-based order
+ * update per outcome and one JDBC update batch.</p>
+ *
+ * <p><b>Crash safety:</b> as in {@link PaymentFinalizer}, orders are updated
+ * before their payments, so a crash in between leaves the payments PENDING for
+ * {@link PaymentRecovery}. Approved payments whose order is no longer PENDING
+ * are finalized one by one through {@link PaymentFinalizer}, which accepts an
+ * order already PAID and refunds otherwise.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class PaymentSettlement {
+
+    private final PaymentRepository paymentRepository;
+    private final OrderService orderService; // Inter-module dependency
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final PaymentFinalizer paymentFinalizer;
+    private final PaymentStatusCounters paymentStatusCounters;
+    private final PaymentMapper paymentMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Records, charges and finalizes a payment for every payable order.
+     * Must not be called within a transaction.
+     *
+     * @return one result per order, in submission order
+     */
+    List<PaymentItemResultDTO> settle(List<Long> orderIds, String paymentMethod) {
+        PaymentItemResultDTO[] results = new PaymentItemResultDTO[orderIds.size()];
+
+        // Inter-module call: resolve every order in one query
+        Map<Long, OrderDTO> orders = orderService.getOrdersByIds(new HashSet<>(orderIds)).stream()
+                .collect(Collectors.toMap(OrderDTO::getId, Function.identity()));
+
+        Map<Integer, OrderDTO> payable = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (int index = 0; index < orderIds.size(); index++) {
+            Long orderId = orderIds.get(index);
+            String error = rejectionReason(orderId, orders.get(orderId), seen);
+            if (error != null) {
+                results[index] = failure(index, orderId, null, error);
+                continue;
+            }
+            payable.put(index, orders.get(orderId));
+        }
+
+        if (!payable.isEmpty()) {
+            List<Integer> indexes = new ArrayList<>();
+            List<Payment> payments = transactionTemplate.execute(status ->
+                    recordIntents(payable, paymentMethod, indexes, results));
+
+            if (!payments.isEmpty()) {
+                List<ChargeResult> charges = paymentGatewayClient.chargeAll(
+                        payments.stream().map(ChargeRequest::forPayment).toList());
+                finalizeAll(payments, charges, indexes, results);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Records PENDING payments for the payable orders that have no payment that
+     * succeeded or is in progress - those the database lets us claim.
+     *
+     * @param indexes receives the submission index of every recorded payment
+     * @return the recorded payments, positionally matching {@code indexes}
+     */
+    private List<Payment> recordIntents(Map<Integer, OrderDTO> payable, String paymentMethod,
+                                        List<Integer> indexes, PaymentItemResultDTO[] results) {
+        List<Integer> candidates = new ArrayList<>(payable.keySet());
+        List<Payment> payments = payable.values().stream()
+                .map(order -> Payment.create(OrderId.of(order.getId()), Money.of(order.getTotalAmount()), paymentMethod))
+                .toList();
+
+        List<Long> claimedIds = paymentRepository.insertAllUnclaimed(payments);
+        List<Long> paymentIds = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Long orderId = payments.get(i).getOrderId();
+            if (claimedIds.get(i) == null) {
+                results[candidates.get(i)] = failure(candidates.get(i), orderId, null,
+                        "Payment for order already succeeded or is in progress: " + orderId);
+                continue;
+            }
+            paymentIds.add(claimedIds.get(i));
+            indexes.add(candidates.get(i));
+        }
+        paymentStatusCounters.created(PaymentStatus.PENDING, paymentIds.size());
+
+        // Charges are referenced by payment ID, so the payments are read back with theirs
+        Map<Long, Payment> inserted = paymentRepository.findAllById(paymentIds).stream()
+                .collect(Collectors.toMap(Payment::getId, Function.identity()));
+        return paymentIds.stream().map(inserted::get).toList();
+    }
+
+    /**
+     * Moves the orders of approved and declined charges on in one update per
+     * outcome, then writes all finalized payments in one batch. Payments whose
+     * charge was not attempted are dropped, their orders left PENDING.
+     */
+    private void finalizeAll(List<Payment> payments, List<ChargeResult> charges,
+                             List<Integer> indexes, PaymentItemResultDTO[] results) {
+        List<Integer> approved = new ArrayList<>();
+        List<Integer> declined = new ArrayList<>();
+        List<Integer> notAttempted = new ArrayList<>();
+        for (int i = 0; i < payments.size(); i++) {
+            switch (charges.get(i).outcome()) {
+                case APPROVED -> approved.add(i);
+                case DECLINED -> declined.add(i);
+                case NOT_ATTEMPTED -> notAttempted.add(i);
+                // The payment stays PENDING until recovery looks the charge up
+                case UNKNOWN -> results[indexes.get(i)] = failure(indexes.get(i), payments.get(i).getOrderId(),
+                        payments.get(i), "Payment outcome unknown, it will be resolved in the background: "
+                                + charges.get(i).reason());
+            }
+        }
+
+        List<Payment> finalized = new ArrayList<>();
+        if (!approved.isEmpty()) {
+            // Inter-module call: all orders of approved charges PAID in one update
+            Set<Long> paidOrderIds = new HashSet<>(orderService.updatePendingOrderStatuses(
+                    orderIdsOf(payments, approved), OrderStatus.PAID));
+            for (int i : approved) {
+                Payment payment = payments.get(i);
+                TransactionId transactionId = TransactionId.of(charges.get(i).transactionId());
+                if (paidOrderIds.contains(payment.getOrderId())) {
+                    payment.markAsSuccess(transactionId);
+                    finalized.add(payment);
+                    continue;
+                }
+                // The order changed since it was validated - decided one by one
+                try {
+                    Payment saved = paymentFinalizer.approve(payment, transactionId);
+                    results[indexes.get(i)] = success(indexes.get(i), saved);
+                } catch (PaymentProcessingException e) {
+                    results[indexes.get(i)] = failure(indexes.get(i), payment.getOrderId(), payment, e.getMessage());
+                }
+            }
+        }
+        if (!declined.isEmpty()) {
+            // Inter-module call: all orders of declined charges FAILED in one update
+            try {
+                orderService.updatePendingOrderStatuses(orderIdsOf(payments, declined), OrderStatus.FAILED);
+            } catch (Exception e) {
+                log.error("[Payment Module] Failed to update order statuses to FAILED", e);
+                // Continue even if the status update fails, as for a single declined payment
+            }
+            for (int i : declined) {
+                payments.get(i).markAsFailed();
+                finalized.add(payments.get(i));
+            }
+        }
+
+        if (!notAttempted.isEmpty()) {
+            // Nothing was charged - the orders stay PENDING and may be paid again
+            paymentFinalizer.abandon(notAttempted.stream().map(payments::get).toList());
+            for (int i : notAttempted) {
+                results[indexes.get(i)] = failure(indexes.get(i), payments.get(i).getOrderId(), null,
+                        "Payment not attempted, please retry later: " + charges.get(i).reason());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Payments finalized concurrently (by recovery) got the same outcome from the gateway
+            boolean[] written = paymentRepository.updatePendingOutcomes(finalized);
+            List<Long> releasedOrderIds = new ArrayList<>();
+            List<Long> releasedPaymentIds = new ArrayList<>();
+            for (int i = 0; i < finalized.size(); i++) {
+                if (written[i]) {
+                    paymentStatusCounters.transitioned(PaymentStatus.PENDING, finalized.get(i).getStatus());
+                    if (finalized.get(i).getStatus() == PaymentStatus.FAILED) {
+                        releasedOrderIds.add(finalized.get(i).getOrderId());
+                        releasedPaymentIds.add(finalized.get(i).getId());
+                    }
+                }
+            }
+            // The orders of declined payments may be paid again
+            if (!releasedOrderIds.isEmpty()) {
+                paymentRepository.releaseClaims(releasedOrderIds, releasedPaymentIds);
+            }
+        });
+
+        for (int i : approved) {
+            if (results[indexes.get(i)] == null) {
+                results[indexes.get(i)] = success(indexes.get(i), payments.get(i));
+            }
+        }
+        for (int i : declined) {
+            results[indexes.get(i)] = failure(indexes.get(i), payments.get(i).getOrderId(), payments.get(i),
+                    "Payment declined: " + charges.get(i).reason());
+        }
+    }
+
+    /**
+     * Why an order cannot be paid, or null if it can.
+     */
+    private static String rejectionReason(Long orderId, OrderDTO order, Set<Long> seen) {
+        if (!seen.add(orderId)) {
+            return "Order listed more than once: " + orderId;
+        }
+        if (order == null) {
+            return "Order not found: " + orderId;
+        }
+        if (order.getStatus() != OrderStatus.PENDING) {
+            return "Order is not in pending state for payment: " + orderId;
+        }
+        return null;
+    }
+
+    private static List<Long> orderIdsOf(List<Payment> payments, List<Integer> positions) {
+        return positions.stream().map(i -> payments.get(i).getOrderId()).toList();
+    }
+
+    private PaymentItemResultDTO success(int index, Payment payment) {
+        return PaymentItemResultDTO.builder()
+                .index(index)
+                .orderId(payment.getOrderId())
+                .success(true)
+                .payment(paymentMapper.toDTO(payment))
+                .build();
+    }
+
+    private PaymentItemResultDTO failure(int index, Long orderId, Payment payment, String error) {
+        return PaymentItemResultDTO.builder()
+                .index(index)
+                .orderId(orderId)
+                .success(false)
+                .payment(paymentMapper.toDTO(payment))
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.repository.PaymentStatusCounterRepository;
+import com.demo.modular.payment.internal.repository.PaymentStatusCounterRepository.StatusTotal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Number of payments per status, maintained incrementally in striped
+ * {@code payment_schema.status_counters} rows.
+ *
+ * <p><b>Consistency:</b> every code path that inserts payments or changes their
+ * status reports it here. Deltas are collected per transaction and written in
+ * one upsert just before it commits, so the counters commit or roll back
+ * together with the payments.</p>
+ *
+ * <p><b>Contention:</b> each transaction writes to one random stripe of
+ * {@code payment.status-counters.stripes}, and holds the counter row locks only
+ * for the tail of its commit. Stripes are locked in status order, so two
+ * writers cannot deadlock on counters.</p>
+ */
+@Component
+@Slf4j
+class PaymentStatusCounters {
+
+    private final PaymentStatusCounterRepository paymentStatusCounterRepository;
+    private final int stripes;
+
+    PaymentStatusCounters(PaymentStatusCounterRepository paymentStatusCounterRepository,
+                        @Value("${payment.status-counters.stripes:8}") int stripes) {
+        this.paymentStatusCounterRepository = paymentStatusCounterRepository;
+        this.stripes = stripes;
+    }
+
+    /**
+     * Records {@code count} new payments in the given status.
+     */
+    void created(PaymentStatus status, long count) {
+        if (count > 0) {
+            deltas().merge(status, count, Long::sum);
+        }
+    }
+
+    /**
+     * Records that {@code count} payments in the given status were deleted.
+     */
+    void deleted(PaymentStatus status, long count) {
+        if (count > 0) {
+            deltas().merge(status, -count, Long::sum);
+        }
+    }
+
+    /**
+     * Records that a payment moved from one status to another.
+     */
+    void transitioned(PaymentStatus from, PaymentStatus to) {
+        transitioned(from, to, 1);
+    }
+
+    /**
+     * Records that {@code count} payments moved from one status to another.
+     */
+    void transitioned(PaymentStatus from, PaymentStatus to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        Map<PaymentStatus, Long> deltas = deltas();
+        deltas.merge(from, -count, Long::sum);
+        deltas.merge(to, count, Long::sum);
+    }
+
+    /**
+     * Current number of payments per status, including statuses without payments.
+     */
+    Map<PaymentStatus, Long> counts() {
+        Map<PaymentStatus, Long> counts = new EnumMap<>(PaymentStatus.class);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (StatusTotal total : paymentStatusCounterRepository.sumByStatus()) {
+            counts.put(total.getStatus(), total.getTotal());
+        }
+        return counts;
+    }
+
+    /**
+     * Deltas of the current transaction, written before it commits.
+     */
+    private Map<PaymentStatus, Long> deltas() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Payment status counters can only be changed within a transaction");
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas pending && pending.owner == this) {
+                return pending.deltas;
+            }
+        }
+        PendingDeltas pending = new PendingDeltas(this);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.deltas;
+    }
+
+    private void write(Map<PaymentStatus, Long> deltas) {
+        // EnumMap iterates in declaration order - the lock order of the counter rows
+        List<Map.Entry<PaymentStatus, Long>> changed = deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .toList();
+        if (changed.isEmpty()) {
+            return;
+        }
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        paymentStatusCounterRepository.add(stripe,
+                changed.stream().map(entry -> entry.getKey().name()).toArray(String[]::new),
+                changed.stream().map(Map.Entry::getValue).toArray(Long[]::new));
+        log.debug("[Payment Module] Status counters updated on stripe {}: {}", stripe, deltas);
+    }
+
+    /**
+     * Counter deltas collected by one transaction.
+     */
+    private static final class PendingDeltas implements TransactionSynchronization {
+
+        private final PaymentStatusCounters owner;
+        private final Map<PaymentStatus, Long> deltas = new EnumMap<>(PaymentStatus.class);
+
+        private PendingDeltas(PaymentStatusCounters owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            owner.write(deltas);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.internal.domain.Payment;
+
+import java.math.BigDecimal;
+
+/**
+ * A full refund of an approved charge through the {@link PaymentGateway}.
+ *
+ * @param reference idempotency key of the refund at the provider
+ * @param transactionId the provider's transaction ID of the charge
+ */
+record RefundRequest(String reference, String transactionId, BigDecimal amount, String currency) {
+
+    /**
+     * The refund of a charged payment, referenced by the payment's ID.
+     */
+    static RefundRequest forPayment(Payment payment) {
+        return new RefundRequest("refund-" + payment.getId(), payment.getTransactionId().getValue(),
+                payment.getAmount().getAmount(), payment.getAmount().getCurrency());
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.modular.payment.internal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Simulated payment provider: 100ms response delay per call (single charge or
+ * batch, lookup or refund), 95% of charges approved and 95% of refund attempts
+ * successful.
+ * Outcomes are remembered per reference (the most recent 100,000), like a
+ * provider's idempotency keys.
+ *
+ * <p>The default gateway ({@code payment.gateway.type=simulated}). For tunable
+ * latency and failures, use {@link HttpPaymentGateway} with the
+ * {@link PaymentGatewayStub}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway.type", havingValue = "simulated", matchIfMissing = true)
+@Slf4j
+class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final Cache<String, ChargeResult> charges = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+    private final Cache<String, Boolean> refunds = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    @Override
+    public ChargeResult charge(ChargeRequest request) {
+        log.info("[Payment Module] [External Call] Simulating payment gateway for amount: {}", request.amount());
+
+        // Simulate 95% success rate - decided once per reference, as soon as the charge arrives,
+        // so a caller that gives up during the delay leaves a charge behind
+        ChargeResult result = decide(request);
+        simulateNetworkDelay();
+        return result;
+    }
+
+    @Override
+    public List<ChargeResult> chargeAll(List<ChargeRequest> requests) {
+        log.info("[Payment Module] [External Call] Simulating payment gateway for a batch of {} charges", requests.size());
+
+        // One round trip for the whole batch
+        List<ChargeResult> results = requests.stream().map(this::decide).toList();
+        simulateNetworkDelay();
+        return results;
+    }
+
+    @Override
+    public Optional<ChargeResult> lookup(String reference) {
+        log.info("[Payment Module] [External Call] Simulating payment gateway lookup of charge {}", reference);
+        simulateNetworkDelay();
+        return Optional.ofNullable(charges.getIfPresent(reference));
+    }
+
+    @Override
+    public void refund(RefundRequest request) {
+        log.info("[Payment Module] [External Call] Simulating refund of transaction {} for amount: {}",
+                request.transactionId(), request.amount());
+
+        boolean refunded = refunds.getIfPresent(request.reference()) != null || Math.random() < 0.95;
+        simulateNetworkDelay();
+        if (!refunded) {
+            throw new IllegalStateException("Payment gateway declined the refund");
+        }
+        refunds.put(request.reference(), Boolean.TRUE);
+    }
+
+    private ChargeResult decide(ChargeRequest request) {
+        return charges.get(request.reference(), reference -> Math.random() < 0.95
+                ? ChargeResult.approved(UUID.randomUUID().toString())
+                : ChargeResult.declined("Declined by issuer"));
+    }
+
+    private static void simulateNetworkDelay() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the payment gateway", e);
+        }
+    }
+}
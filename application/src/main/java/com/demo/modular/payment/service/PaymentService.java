@@ -1,13 +1,21 @@
 package com.demo.modular.payment.service;
 
+import com.demo.modular.payment.api.dto.PaymentBatchResultDTO;
 import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentPageDTO;
 import com.demo.modular.payment.api.dto.PaymentStatus;
 import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentIdempotencyKeyConflictException;
 import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -22,7 +30,9 @@ import java.util.Optional;
  * <p><b>Thread Safety:</b> All implementations must be thread-safe.</p>
  * 
  * <p><b>Idempotency:</b> Payment processing checks for duplicate payments to
- * prevent double-charging.</p>
+ * prevent double-charging. The check is enforced by the database: an order
+ * holds at most one payment that succeeded or is in progress, also under
+ * concurrent requests.</p>
  */
 public interface PaymentService {
     
@@ -35,23 +45,85 @@ public interface PaymentService {
      *   <li>Calls OrderService.updateOrderStatus() to update order status based on payment result</li>
      * </ul>
      * 
-     * <p><b>Transaction:</b> Payment creation and order status update run in separate
-     * transactions (REQUIRES_NEW propagation) to ensure proper isolation.</p>
+     * <p><b>Transaction:</b> No transaction spans the request. The payment is first
+     * recorded as PENDING in a short transaction, then charged at the payment gateway
+     * outside of any transaction, on a virtual thread behind a bulkhead and a timeout.
+     * The order status update and the final payment status follow in short
+     * transactions of their own, so a payment holds at most one connection at a time
+     * and none while the gateway answers.</p>
+     * 
+     * <p><b>Recovery:</b> If the request ends before the outcome is recorded (crash,
+     * gateway timeout), the payment stays PENDING and is finalized in the background
+     * once the gateway has been asked about the charge.</p>
      * 
      * <p><b>Compensation:</b> If payment succeeds but order status update fails,
-     * the payment will be marked for refund.</p>
+     * the payment is saved as REFUND_PENDING with a refund job and refunded in
+     * the background, with retries.</p>
      * 
      * @param orderId the order ID to process payment for
      * @param paymentMethod the payment method (e.g., "CREDIT_CARD", "DEBIT_CARD", "PAYPAL")
      * @return the processed payment with status SUCCESS or FAILED
      * @throws PaymentProcessingException if payment processing fails
-     * @throws DuplicatePaymentException if payment already exists for the order
+     * @throws DuplicatePaymentException if a payment for the order succeeded or is in progress
      * @throws IllegalArgumentException if parameters are null or invalid
      */
     PaymentDTO processPayment(@NotNull Long orderId, @NotBlank String paymentMethod);
     
     /**
-     * Retrieves a payment by its ID.
+     * Processes payment for an order at most once per idempotency key.
+     * 
+     * <p><b>Idempotency:</b> The first request with a key processes the payment
+     * and stores the response. Later requests with the same key get the stored
+     * payment back without charging again or touching payment and order data.
+     * Concurrent requests with the same key wait for the first one to finish.
+     * A failed request stores nothing, so it can be retried with the same key.</p>
+     * 
+     * @param orderId the order ID to process payment for
+     * @param paymentMethod the payment method (e.g., "CREDIT_CARD", "DEBIT_CARD", "PAYPAL")
+     * @param idempotencyKey client-chosen key identifying this logical request
+     * @return the processed (or previously processed) payment
+     * @throws PaymentProcessingException if payment processing fails
+     * @throws DuplicatePaymentException if a payment with a different key already succeeded for the order
+     * @throws PaymentIdempotencyKeyConflictException if the key was used for a different request
+     *         or its first request is still running after the wait timeout
+     */
+    PaymentDTO processPayment(@NotNull Long orderId, @NotBlank String paymentMethod,
+                              @NotBlank @Size(max = 255) String idempotencyKey);
+    
+    /**
+     * Pays many orders in one call, reporting an outcome per order.
+     * 
+     * <p><b>Inter-Module Dependencies:</b></p>
+     * <ul>
+     *   <li>Calls OrderService.getOrdersByIds() once to validate every order</li>
+     *   <li>Calls OrderService.updatePendingOrderStatuses() once per outcome to mark orders PAID or FAILED</li>
+     * </ul>
+     * 
+     * <p><b>Partial Success:</b> Unknown orders, orders that are not PENDING,
+     * orders listed twice and orders with a payment that succeeded or is in
+     * progress fail individually without affecting the others, and so do
+     * declined charges.</p>
+     * 
+     * <p><b>Transaction:</b> As for a single payment - the payments are recorded
+     * PENDING in one short transaction, charged outside of any transaction and
+     * finalized in short transactions afterwards. Payments whose outcome is
+     * unknown stay PENDING and are resolved in the background.</p>
+     * 
+     * <p><b>Performance:</b> A constant number of round trips per batch - one
+     * order query, one statement claiming the orders, one JDBC insert batch, one gateway call
+     * per {@code payment.gateway.batch-size} charges (in parallel), one
+     * set-based order update per outcome and one JDBC update batch. Only orders
+     * that changed concurrently are finalized one by one.</p>
+     * 
+     * @param orderIds the orders to pay (1-1000)
+     * @param paymentMethod the payment method (e.g., "CREDIT_CARD", "DEBIT_CARD", "PAYPAL")
+     * @return one result per order, in submission order
+     */
+    PaymentBatchResultDTO processPayments(@NotEmpty @Size(max = 1000) List<@NotNull Long> orderIds,
+                                          @NotBlank String paymentMethod);
+    
+    /**
+     * Retrieves a payment by its ID, including archived payments.
      * 
      * @param id the payment ID
      * @return Optional containing the payment if found, empty otherwise
@@ -60,10 +132,11 @@ public interface PaymentService {
     Optional<PaymentDTO> getPaymentById(@NotNull Long id);
     
     /**
-     * Retrieves a payment by order ID.
+     * Retrieves the latest payment of an order, including archived payments.
+     * An order has several payments if earlier attempts failed.
      * 
      * @param orderId the order ID
-     * @return Optional containing the payment if found, empty otherwise
+     * @return Optional containing the latest payment if found, empty otherwise
      * @throws IllegalArgumentException if orderId is null or negative
      */
     Optional<PaymentDTO> getPaymentByOrderId(@NotNull Long orderId);
@@ -72,16 +145,42 @@ public interface PaymentService {
      * Retrieves all payments in the system.
      * 
      * @return list of all payments, empty list if none exist
+     * @deprecated loads every payment into memory - use {@link #getPaymentPage} instead
      */
+    @Deprecated
     List<PaymentDTO> getAllPayments();
     
     /**
-     * Retrieves payments by status.
+     * Retrieves one page of payments in ID order (keyset pagination).
+     * Archived payments are not included.
+     * 
+     * <p><b>Performance:</b> Each page is a single index range scan on the
+     * primary key, so cost does not grow with the page number.</p>
+     * 
+     * @param cursor the {@code nextCursor} of the previous page, null for the first page
+     * @param size the maximum number of payments to return (1-200)
+     * @return the page and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    PaymentPageDTO getPaymentPage(String cursor, @Min(1) @Max(200) int size);
+    
+    /**
+     * Retrieves payments by status. Archived payments are not included.
      * 
      * @param status the payment status to filter by
      * @return list of payments with the given status, empty list if none exist
      * @throws IllegalArgumentException if status is null
      */
     List<PaymentDTO> getPaymentsByStatus(@NotNull PaymentStatus status);
+    
+    /**
+     * Counts payments per status.
+     * 
+     * <p><b>Performance:</b> Served from incrementally maintained counters,
+     * so the cost does not depend on the number of payments.</p>
+     * 
+     * @return number of payments for every status, 0 for statuses without payments
+     */
+    Map<PaymentStatus, Long> getPaymentCountsByStatus();
 }
 
@@ -1,6 +1,7 @@
 package com.demo.modular.product.api;
 
 import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.ProductPageDTO;
 import com.demo.modular.product.api.exception.ProductNotFoundException;
 import com.demo.modular.product.service.ProductService;
 import jakarta.validation.Valid;
@@ -36,9 +37,10 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        log.info("REST: Getting all products");
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<ProductPageDTO> getProducts(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(defaultValue = "50") int size) {
+        log.info("REST: Getting products page (size {})", size);
+        return ResponseEntity.ok(productService.getProductPage(cursor, size));
     }
 
     @GetMapping("/available")
@@ -47,6 +49,13 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAvailableProducts());
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam("q") String query,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        log.info("REST: Searching products for '{}'", query);
+        return ResponseEntity.ok(productService.searchProducts(query, limit));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long id, @Valid @RequestBody ProductDTO product) {
         log.info("REST: Updating product {}", id);
@@ -58,6 +67,16 @@ public class ProductController {
         }
     }
 
+    @PutMapping("/{id}/stock-buckets")
+    public ResponseEntity<ProductDTO> shardStock(@PathVariable Long id, @RequestParam int count) {
+        log.info("REST: Sharding stock of product {} into {} buckets", id, count);
+        try {
+            return ResponseEntity.ok(productService.shardStock(id, count));
+        } catch (ProductNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         log.info("REST: Deleting product {}", id);
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
  * Used for cross-module communication to avoid exposing domain model.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductDTO {
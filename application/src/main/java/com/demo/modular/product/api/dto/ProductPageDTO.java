@@ -0,0 +1,25 @@
+package com.demo.modular.product.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of products, ordered by ID.
+ * Pass {@code nextCursor} back to fetch the following page; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+
+    private List<ProductDTO> items;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,30 @@
+package com.demo.modular.product.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO for a successful stock reservation.
+ * Carries the product snapshot (name, price) taken in the same transaction
+ * as the reservation, so callers need no further product lookup.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private Long productId;
+
+    private String productName;
+
+    private BigDecimal unitPrice;
+
+    private Integer reservedQuantity;
+
+    private Integer remainingStock;
+}
@@ -0,0 +1,8 @@
+package com.demo.modular.product.api.event;
+
+/**
+ * Stock for a {@link StockReservationRequest} could not be reserved - part of the public API.
+ * Nothing was reserved.
+ */
+public record StockRejected(Long reservationId, Long productId, Integer quantity, String reason) {
+}
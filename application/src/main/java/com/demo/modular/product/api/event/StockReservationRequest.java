@@ -0,0 +1,21 @@
+package com.demo.modular.product.api.event;
+
+/**
+ * An event asking the Product module to reserve stock - part of the public API.
+ *
+ * <p>Other modules implement this on their own events (e.g. {@code OrderPlaced}),
+ * so the Product module reacts to them without depending on those modules.
+ * It replies with {@link StockReserved} or {@link StockRejected} carrying the
+ * same {@code reservationId}.</p>
+ */
+public interface StockReservationRequest {
+
+    /**
+     * Identifies the reservation in the reply, e.g. the order ID.
+     */
+    Long reservationId();
+
+    Long productId();
+
+    Integer quantity();
+}
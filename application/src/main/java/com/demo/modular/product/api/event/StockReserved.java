@@ -0,0 +1,11 @@
+package com.demo.modular.product.api.event;
+
+import java.math.BigDecimal;
+
+/**
+ * Stock for a {@link StockReservationRequest} was reserved - part of the public API.
+ * Carries the product snapshot (name, price) taken in the reserving transaction.
+ */
+public record StockReserved(Long reservationId, Long productId, Integer quantity,
+                            String productName, BigDecimal unitPrice) {
+}
@@ -52,6 +52,13 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Optimistic locking version - concurrent modifications fail instead of overwriting each other.
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
+
     /**
      * Constructor for creating new products (private - use static factory method).
      */
@@ -0,0 +1,61 @@
+package com.demo.modular.product.internal.domain;
+
+import com.demo.modular.product.internal.domain.vo.Quantity;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slice of a hot product's stock.
+ * A sharded product keeps its stock spread over several buckets so that
+ * concurrent reservations lock different rows instead of queueing on the
+ * single {@code products} row. The product's total stock is the sum of its
+ * buckets plus whatever is left in {@link Product#getStock()}.
+ */
+@Entity
+@Table(name = "stock_buckets", schema = "product_schema",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stock_buckets_product_bucket",
+                                             columnNames = {"product_id", "bucket_no"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class StockBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "bucket_no", nullable = false)
+    private Integer bucketNo;
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "value", column = @Column(name = "stock", nullable = false))
+    })
+    private Quantity stock;
+
+    private StockBucket(Long productId, Integer bucketNo, Quantity stock) {
+        this.productId = productId;
+        this.bucketNo = bucketNo;
+        this.stock = stock;
+    }
+
+    /**
+     * Create a bucket holding part of a product's stock.
+     */
+    public static StockBucket create(Long productId, int bucketNo, Quantity stock) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID cannot be null");
+        }
+        if (bucketNo < 0) {
+            throw new IllegalArgumentException("Bucket number cannot be negative");
+        }
+        if (stock == null) {
+            throw new IllegalArgumentException("Stock cannot be null");
+        }
+        return new StockBucket(productId, bucketNo, stock);
+    }
+}
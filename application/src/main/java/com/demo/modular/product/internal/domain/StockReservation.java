@@ -0,0 +1,35 @@
+package com.demo.modular.product.internal.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A {@code StockReservationRequest} the Product module has handled, reserved or rejected.
+ * The reservation ID is the primary key, so a redelivered request is recognised
+ * and never reserves stock a second time.
+ * Rows are written with native statements and only read through JPA.
+ */
+@Entity
+@Table(name = "stock_reservations", schema = "product_schema",
+       indexes = @Index(name = "idx_stock_reservations_created_at", columnList = "created_at"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // For JPA
+public class StockReservation {
+
+    @Id
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,20 +1,172 @@
 package com.demo.modular.product.internal.repository;
 
+import com.demo.modular.product.api.dto.ProductDTO;
 import com.demo.modular.product.internal.domain.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
-    @Query("SELECT p FROM Product p WHERE p.stock.value > :stock")
-    List<Product> findByStockGreaterThan(@Param("stock") Integer stock);
+    /**
+     * Products whose stock column is greater than the given value, selected
+     * straight into DTOs. Nothing is loaded into the persistence context, so
+     * there is no entity hydration and no dirty-checking snapshot per row.
+     */
+    @Query("SELECT new com.demo.modular.product.api.dto.ProductDTO(p.id, p.name.value, p.description, p.price.amount, " +
+           "p.stock.value, p.createdAt, p.updatedAt) " +
+           "FROM Product p WHERE p.stock.value > :stock")
+    List<ProductDTO> findDTOsByStockGreaterThan(@Param("stock") Integer stock);
     
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name.value) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Product> findByNameContainingIgnoreCase(@Param("name") String name);
+    /**
+     * Like {@link #findDTOsByStockGreaterThan}, plus the products holding stock
+     * in any bucket. The DTOs carry the stock column only - the caller adds the
+     * bucket stock of the sharded ones. Only needed with stock sharding enabled.
+     */
+    @Query("SELECT new com.demo.modular.product.api.dto.ProductDTO(p.id, p.name.value, p.description, p.price.amount, " +
+           "p.stock.value, p.createdAt, p.updatedAt) " +
+           "FROM Product p WHERE p.stock.value > :stock " +
+           "OR EXISTS (SELECT 1 FROM StockBucket b WHERE b.productId = p.id AND b.stock.value > 0)")
+    List<ProductDTO> findDTOsByStockGreaterThanOrInBuckets(@Param("stock") Integer stock);
+    
+    /**
+     * The given products with their stock column, selected straight into DTOs.
+     * Leaves nothing in the persistence context, so a later row lock in the same
+     * transaction reads the current version instead of a stale managed entity.
+     */
+    @Query("SELECT new com.demo.modular.product.api.dto.ProductDTO(p.id, p.name.value, p.description, p.price.amount, " +
+           "p.stock.value, p.createdAt, p.updatedAt) " +
+           "FROM Product p WHERE p.id IN :ids")
+    List<ProductDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Fuzzy name search backed by the trigram GIN index {@code idx_products_name_trgm}.
+     * Matches names containing the query or with a word similar to it (typos),
+     * best matches first.
+     *
+     * @param query lower-case search text
+     * @param pattern lower-case search text with LIKE wildcards escaped
+     */
+    @Query(value = "SELECT p.* FROM product_schema.products p " +
+                   "WHERE lower(p.name) LIKE '%' || :pattern || '%' OR :query <% lower(p.name) " +
+                   "ORDER BY word_similarity(:query, lower(p.name)) DESC, similarity(:query, lower(p.name)) DESC, p.id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Product> searchByName(@Param("query") String query, @Param("pattern") String pattern,
+                               @Param("limit") int limit);
+    
+    /**
+     * Reads the current stock column without loading (or reusing) the entity.
+     */
+    @Query("SELECT p.stock.value FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+    
+    /**
+     * The stock column of every product, without loading any entity.
+     */
+    @Query("SELECT p.id AS id, p.stock.value AS stock FROM Product p")
+    List<StockLevel> findAllStockLevels();
+    
+    /**
+     * Atomically decrements stock if, and only if, enough stock is available.
+     * The guard in the WHERE clause enforces the same invariant as
+     * {@link Product#reserveStock} (stock can never become negative).
+     * Bumps the version so concurrent entity-based writers detect the change.
+     *
+     * @return number of rows updated - 1 if stock was reserved, 0 if the product
+     *         does not exist or has insufficient stock
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock.value = p.stock.value - :quantity, p.updatedAt = :now, " +
+           "p.version = p.version + 1 WHERE p.id = :id AND p.stock.value >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity, @Param("now") LocalDateTime now);
+    
+    /**
+     * Same guarded decrement as {@link #decrementStock}, returning what a
+     * reservation quotes in the same round trip. Unlike {@link #decrementStock}
+     * it leaves the persistence context alone, so callers must not hold a
+     * managed copy of the product.
+     *
+     * @return the product after the decrement, or empty if the product does
+     *         not exist or has insufficient stock
+     */
+    @Query(value = "UPDATE product_schema.products SET stock = stock - :quantity, updated_at = :now, " +
+                   "version = version + 1 WHERE id = :id AND stock >= :quantity " +
+                   "RETURNING id AS \"id\", name AS \"name\", price AS \"price\", stock AS \"stock\"",
+           nativeQuery = true)
+    Optional<ReservedStock> decrementStockReturning(@Param("id") Long id, @Param("quantity") Integer quantity,
+                                                    @Param("now") LocalDateTime now);
+    
+    /**
+     * Atomically applies a signed stock delta without reading the row first.
+     * Used to restore stock and by the write-behind stock ledger to flush net reservations.
+     *
+     * @return number of rows updated - 1 if stock was adjusted, 0 if the product does not exist
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stock.value = p.stock.value + :delta, p.updatedAt = :now, " +
+           "p.version = p.version + 1 WHERE p.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") Integer delta, @Param("now") LocalDateTime now);
+    
+    /**
+     * Loads and row-locks the given products in ascending id order.
+     * A fixed lock order means two transactions locking overlapping product
+     * sets always queue on the same row first and can never deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Decrements the stock of many products in one set-based statement.
+     * Each row is only updated if it has enough stock, so callers compare the
+     * result with the number of requested products to detect a shortfall.
+     *
+     * @param ids product ids, each at most once
+     * @param quantities quantities to reserve, positionally matching {@code ids}
+     * @return number of products whose stock was reduced
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product_schema.products p " +
+                   "SET stock = p.stock - r.quantity, updated_at = :now, version = p.version + 1 " +
+                   "FROM unnest(:ids, :quantities) AS r(id, quantity) " +
+                   "WHERE p.id = r.id AND p.stock >= r.quantity",
+           nativeQuery = true)
+    int decrementStockBatch(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities,
+                            @Param("now") LocalDateTime now);
+    
+    /**
+     * Keyset page: the next products after the given ID, in ID order.
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    
+    /**
+     * Stock column of one product.
+     */
+    interface StockLevel {
+        Long getId();
+        Integer getStock();
+    }
+    
+    /**
+     * A product whose stock was just reserved, with its remaining stock.
+     */
+    interface ReservedStock {
+        Long getId();
+        String getName();
+        BigDecimal getPrice();
+        Integer getStock();
+    }
 }
-
@@ -0,0 +1,91 @@
+package com.demo.modular.product.internal.repository;
+
+import com.demo.modular.product.internal.domain.StockBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockBucketRepository extends JpaRepository<StockBucket, Long> {
+    
+    /**
+     * Takes stock from one random bucket that holds enough and is not locked
+     * by another transaction. Skipping locked buckets means a reservation
+     * never waits while holding another bucket's lock.
+     *
+     * @return 1 if reserved, 0 if no unlocked bucket holds enough stock
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE product_schema.stock_buckets SET stock = stock - :quantity " +
+                   "WHERE id = (SELECT id FROM product_schema.stock_buckets " +
+                   "            WHERE product_id = :productId AND stock >= :quantity " +
+                   "            ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED)",
+           nativeQuery = true)
+    int decrementAnyBucket(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+    
+    /**
+     * Takes stock from one bucket if, and only if, that bucket holds enough.
+     *
+     * @return 1 if reserved, 0 if the bucket does not exist or is short of stock
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockBucket b SET b.stock.value = b.stock.value - :quantity " +
+           "WHERE b.productId = :productId AND b.bucketNo = :bucketNo AND b.stock.value >= :quantity")
+    int decrementStock(@Param("productId") Long productId, @Param("bucketNo") Integer bucketNo,
+                       @Param("quantity") Integer quantity);
+    
+    /**
+     * Adds stock to one bucket.
+     *
+     * @return 1 if the bucket exists, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockBucket b SET b.stock.value = b.stock.value + :quantity " +
+           "WHERE b.productId = :productId AND b.bucketNo = :bucketNo")
+    int incrementStock(@Param("productId") Long productId, @Param("bucketNo") Integer bucketNo,
+                       @Param("quantity") Integer quantity);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE StockBucket b SET b.stock.value = :stock WHERE b.id = :id")
+    int setStock(@Param("id") Long id, @Param("stock") Integer stock);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM StockBucket b WHERE b.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+    
+    /**
+     * Loads and row-locks all buckets of a product in bucket order.
+     * Callers lock the owning product row first, so every writer that touches
+     * more than one bucket acquires locks in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StockBucket b WHERE b.productId = :productId ORDER BY b.bucketNo")
+    List<StockBucket> findByProductIdForUpdate(@Param("productId") Long productId);
+    
+    @Query("SELECT COALESCE(SUM(b.stock.value), 0) FROM StockBucket b WHERE b.productId = :productId")
+    long sumStockByProductId(@Param("productId") Long productId);
+    
+    @Query("SELECT b.productId AS productId, COUNT(b) AS buckets, SUM(b.stock.value) AS stock " +
+           "FROM StockBucket b WHERE b.productId IN :productIds GROUP BY b.productId")
+    List<BucketSummary> summarizeByProductIds(@Param("productIds") Collection<Long> productIds);
+    
+    @Query("SELECT b.productId AS productId, COUNT(b) AS buckets, SUM(b.stock.value) AS stock " +
+           "FROM StockBucket b GROUP BY b.productId")
+    List<BucketSummary> summarizeAll();
+    
+    /**
+     * Bucket count and total bucket stock of one sharded product.
+     */
+    interface BucketSummary {
+        Long getProductId();
+        Long getBuckets();
+        Long getStock();
+    }
+}
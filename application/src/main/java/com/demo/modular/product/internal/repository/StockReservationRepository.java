@@ -0,0 +1,37 @@
+package com.demo.modular.product.internal.repository;
+
+import com.demo.modular.product.internal.domain.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * Claims a reservation for the current transaction. If another transaction
+     * holds an uncommitted claim on the same reservation, this waits for it to
+     * commit or roll back.
+     *
+     * @return 1 if the reservation was claimed, 0 if it was handled already
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_schema.stock_reservations (reservation_id, product_id, quantity, created_at) " +
+                   "VALUES (:reservationId, :productId, :quantity, :now) ON CONFLICT (reservation_id) DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("reservationId") Long reservationId, @Param("productId") Long productId,
+              @Param("quantity") Integer quantity, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes reservations older than the retention period.
+     *
+     * @return number of reservations deleted
+     */
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,73 @@
+package com.demo.modular.product.internal.service;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of product snapshots, keyed by product id.
+ *
+ * <p>Snapshots include the stock, so every write that changes a product or
+ * its stock evicts the entry - once immediately and again when the writing
+ * transaction completes. The second eviction waits for any load of the same
+ * key that is still running, so a snapshot read before the commit can never
+ * outlive it.</p>
+ *
+ * <p>Hit, miss, eviction and size metrics are published as {@code cache.*}
+ * with {@code cache=products}.</p>
+ */
+@Component
+@Slf4j
+class ProductCache {
+
+    static final String CACHE_NAME = "products";
+
+    private final Cache<Long, ProductDTO> cache;
+
+    ProductCache(MeterRegistry meterRegistry,
+                 @Value("${product.cache.maximum-size:10000}") long maximumSize,
+                 @Value("${product.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("[Product Module] [Cache] Product cache enabled. Maximum size: {}, TTL: {}", maximumSize, expireAfterWrite);
+    }
+
+    /**
+     * Returns the cached snapshot, loading it on a miss. Missing products are not cached.
+     * Callers get their own copy, so mutating it cannot corrupt the cache.
+     */
+    Optional<ProductDTO> get(Long productId, Function<Long, Optional<ProductDTO>> loader) {
+        ProductDTO cached = cache.get(productId, id -> loader.apply(id).orElse(null));
+        return Optional.ofNullable(cached).map(product -> product.toBuilder().build());
+    }
+
+    /**
+     * Evicts the product now and again once the surrounding transaction completes.
+     */
+    void evict(Long productId) {
+        cache.invalidate(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(productId);
+                }
+            });
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.demo.modular.product.internal.service;
 
 import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
 import com.demo.modular.product.internal.domain.Product;
+import com.demo.modular.product.internal.domain.vo.Quantity;
+import com.demo.modular.product.internal.repository.ProductRepository;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -35,6 +38,32 @@ class ProductMapper {
                 .build();
     }
 
+    /**
+     * Converts a Product aggregate and the reserved quantity to StockReservationDTO.
+     */
+    public StockReservationDTO toReservationDTO(Product product, Quantity reservedQuantity, int remainingStock) {
+        return StockReservationDTO.builder()
+                .productId(product.getId())
+                .productName(product.getName().getValue())
+                .unitPrice(product.getPrice().getAmount())
+                .reservedQuantity(reservedQuantity.getValue())
+                .remainingStock(remainingStock)
+                .build();
+    }
+
+    /**
+     * Converts a product row returned by a stock decrement to StockReservationDTO.
+     */
+    public StockReservationDTO toReservationDTO(ProductRepository.ReservedStock reserved, Quantity reservedQuantity) {
+        return StockReservationDTO.builder()
+                .productId(reserved.getId())
+                .productName(reserved.getName())
+                .unitPrice(reserved.getPrice())
+                .reservedQuantity(reservedQuantity.getValue())
+                .remainingStock(reserved.getStock())
+                .build();
+    }
+
     /**
      * Converts list of Product aggregates to list of ProductDTOs.
      */
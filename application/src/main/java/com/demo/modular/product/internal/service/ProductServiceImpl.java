@@ -1,7 +1,12 @@
 package com.demo.modular.product.internal.service;
 
 import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.ProductPageDTO;
 import com.demo.modular.product.api.dto.StockCheckDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
+import com.demo.modular.product.api.event.StockRejected;
+import com.demo.modular.product.api.event.StockReservationRequest;
+import com.demo.modular.product.api.event.StockReserved;
 import com.demo.modular.product.api.exception.InsufficientStockException;
 import com.demo.modular.product.api.exception.ProductNotFoundException;
 import com.demo.modular.product.api.exception.ProductValidationException;
@@ -11,16 +16,32 @@ import com.demo.modular.product.internal.domain.vo.ProductName;
 import com.demo.modular.product.internal.domain.vo.Quantity;
 import com.demo.modular.product.internal.repository.ProductRepository;
 import com.demo.modular.product.service.ProductService;
+import io.github.resilience4j.retry.annotation.Retry;
 import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.modulith.events.ApplicationModuleListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Application Service for Product module.
@@ -35,6 +56,19 @@ class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductCache productCache;
+    private final Optional<StockLedger> stockLedger; // Present only when product.stock-ledger.enabled=true
+    private final Optional<StockShards> stockShards; // Present only when product.stock-sharding.enabled=true
+    private final StockReservations stockReservations;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    void verifyStockStrategy() {
+        if (stockLedger.isPresent() && stockShards.isPresent()) {
+            throw new IllegalStateException(
+                    "product.stock-ledger.enabled and product.stock-sharding.enabled cannot be combined");
+        }
+    }
 
     @Override
     @Timed(value = "product.create", description = "Time taken to create a product")
@@ -51,6 +85,8 @@ class ProductServiceImpl implements ProductService {
             );
             
             Product savedProduct = productRepository.save(product);
+            // Drops a snapshot read inside this transaction if it rolls back
+            productCache.evict(savedProduct.getId());
             log.info("[Product Module] Product created successfully with id: {}", savedProduct.getId());
             return productMapper.toDTO(savedProduct);
         } catch (Exception e) {
@@ -64,17 +100,51 @@ class ProductServiceImpl implements ProductService {
     @Timed(value = "product.findById", description = "Time taken to find product by ID")
     public Optional<ProductDTO> getProductById(Long id) {
         log.debug("[Product Module] Fetching product with id: {}", id);
-        return productRepository.findById(id)
-                .map(productMapper::toDTO);
+        Optional<ProductDTO> product = productCache.get(id, productId -> productRepository.findById(productId).map(this::toDTO));
+        // The cached snapshot lags behind the ledger - its stock is read from memory on every call
+        product.ifPresent(dto -> readStock(List.of(dto)));
+        return product;
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Timed(value = "product.findByIds", description = "Time taken to find products by IDs")
+    public List<ProductDTO> getProductsByIds(Collection<Long> ids) {
+        log.debug("[Product Module] [Inter-Module Call] Fetching {} products", ids.size());
+        // Projection - a managed Product here would go stale before reserveStockBatch locks it
+        List<ProductDTO> products = productRepository.findDTOsByIdIn(ids);
+        return readStock(addBucketStock(products));
+    }
+
+    @Override
+    @Deprecated
+    @Transactional(readOnly = true)
     @Timed(value = "product.findAll", description = "Time taken to find all products")
     public List<ProductDTO> getAllProducts() {
         log.debug("[Product Module] Fetching all products");
         List<Product> products = productRepository.findAll();
-        return productMapper.toDTOList(products);
+        return readStock(toDTOList(products));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "product.findPage", description = "Time taken to find a page of products")
+    public ProductPageDTO getProductPage(String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        log.debug("[Product Module] Fetching products after id {} (page size {})", afterId, size);
+        
+        // One extra row tells us whether another page follows
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size + 1));
+        boolean hasMore = products.size() > size;
+        if (hasMore) {
+            products = products.subList(0, size);
+        }
+        
+        return ProductPageDTO.builder()
+                .items(readStock(toDTOList(products)))
+                .nextCursor(hasMore ? PageCursor.encode(products.get(products.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Override
@@ -82,19 +152,47 @@ class ProductServiceImpl implements ProductService {
     @Timed(value = "product.findAvailable", description = "Time taken to find available products")
     public List<ProductDTO> getAvailableProducts() {
         log.debug("[Product Module] Fetching available products");
-        // Query all products and filter using aggregate's business method
-        List<Product> products = productRepository.findByStockGreaterThan(0);
-        return productMapper.toDTOList(products);
+        // Projection - no entity is loaded, and buckets are only looked up with stock sharding enabled
+        if (stockShards.isPresent()) {
+            List<ProductDTO> products = addBucketStock(productRepository.findDTOsByStockGreaterThanOrInBuckets(0));
+            return products.stream().filter(product -> product.getStock() > 0).toList();
+        }
+        List<ProductDTO> products = productRepository.findDTOsByStockGreaterThan(0);
+        if (stockLedger.isEmpty()) {
+            return products;
+        }
+        // Reservations not flushed yet are only known to the ledger
+        return readStock(products).stream().filter(product -> product.getStock() > 0).toList();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @Timed(value = "product.search", description = "Time taken to search products by name")
+    public List<ProductDTO> searchProducts(String query, int limit) {
+        log.debug("[Product Module] Searching products for '{}' (limit {})", query, limit);
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        // The query text is matched literally - escape LIKE wildcards
+        String pattern = normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        List<Product> products = productRepository.searchByName(normalized, pattern, limit);
+        return readStock(toDTOList(products));
+    }
+
+    @Override
+    @Retry(name = "productOptimisticLock")
     @Timed(value = "product.update", description = "Time taken to update a product")
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
         log.info("[Product Module] Updating product with id: {}", id);
+        productCache.evict(id);
         
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException(id));
         
+        // The new stock replaces the total, so empty the buckets before overwriting the stock column
+        boolean sharded = stockShards.isPresent() && stockShards.get().recheckSharded(id);
+        if (sharded) {
+            stockShards.get().clearBuckets(id);
+        }
+        
         try {
             // Use aggregate's update method - all business logic in domain
             existingProduct.update(
@@ -106,8 +204,14 @@ class ProductServiceImpl implements ProductService {
             
             // Service layer only persists the updated aggregate
             Product savedProduct = productRepository.save(existingProduct);
+            // Stock was overwritten outside the ledger - reload its counter once committed
+            stockLedger.ifPresent(ledger -> ledger.resyncAfterCommit(id));
+            if (sharded) {
+                stockShards.get().rebalance(id);
+                savedProduct = productRepository.findById(id).orElseThrow(() -> new ProductNotFoundException(id));
+            }
             log.info("[Product Module] Product updated successfully: {}", id);
-            return productMapper.toDTO(savedProduct);
+            return toDTO(savedProduct);
         } catch (IllegalArgumentException e) {
             log.error("[Product Module] Failed to update product: {}", id, e);
             throw new ProductValidationException("Failed to update product: " + e.getMessage(), e);
@@ -118,16 +222,35 @@ class ProductServiceImpl implements ProductService {
     @Timed(value = "product.delete", description = "Time taken to delete a product")
     public void deleteProduct(Long id) {
         log.info("[Product Module] Deleting product with id: {}", id);
+        productCache.evict(id);
         
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ProductNotFoundException(id));
         
         try {
-            // Use aggregate's business method to validate deletion is allowed
-            product.validateDeletion();
+            if (stockLedger.isPresent()) {
+                // The database stock lags behind the ledger until the next flush
+                int available = stockLedger.get().available(id);
+                if (available > 0) {
+                    throw new IllegalStateException(
+                        String.format("Cannot delete product with existing stock. Current stock: %s", available));
+                }
+            } else {
+                // Use aggregate's business method to validate deletion is allowed
+                product.validateDeletion();
+            }
+            if (stockShards.isPresent()) {
+                int bucketStock = stockShards.get().bucketStock(List.of(id)).getOrDefault(id, 0);
+                if (bucketStock > 0) {
+                    throw new IllegalStateException(
+                        String.format("Cannot delete product with existing stock. Current stock: %s", bucketStock));
+                }
+                stockShards.get().delete(id);
+            }
             
             // Service layer only performs the actual deletion after validation
             productRepository.deleteById(id);
+            stockLedger.ifPresent(ledger -> ledger.evictAfterCommit(id));
             log.info("[Product Module] Product deleted successfully: {}", id);
         } catch (IllegalStateException e) {
             log.error("[Product Module] Cannot delete product: {}", id, e);
@@ -140,28 +263,250 @@ class ProductServiceImpl implements ProductService {
     @Timed(value = "product.reduceStock", description = "Time taken to reduce stock")
     public void reduceStock(Long productId, Integer quantity) {
         log.info("[Product Module] [Inter-Module Call] Reducing stock for product {} by {}", productId, quantity);
+        productCache.evict(productId);
         
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException(productId));
+        Quantity requestedQuantity = Quantity.of(quantity);
+        
+        if (stockLedger.isPresent()) {
+            // Decided in memory - the ledger flushes the net delta to the database later
+            StockLedger ledger = stockLedger.get();
+            if (!ledger.reserve(productId, requestedQuantity.getValue())) {
+                log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                        productId, ledger.available(productId), requestedQuantity);
+                throw new InsufficientStockException(productId, quantity, ledger.available(productId));
+            }
+            log.info("[Product Module] Stock reduced successfully for product {} by {}", productId, quantity);
+            return;
+        }
+        
+        if (stockShards.isPresent() && stockShards.get().isSharded(productId)) {
+            reserveInBuckets(stockShards.get(), productId, requestedQuantity);
+            log.info("[Product Module] Stock reduced successfully for product {} by {}", productId, quantity);
+            return;
+        }
+        
+        // Single guarded UPDATE - the WHERE clause enforces the aggregate's
+        // "stock cannot be negative" invariant, so concurrent reservations cannot oversell
+        int updated = productRepository.decrementStock(productId, requestedQuantity.getValue(), LocalDateTime.now());
+        
+        if (updated == 0 && stockShards.isPresent() && stockShards.get().recheckSharded(productId)) {
+            // Sharded by another instance since we last looked
+            reserveInBuckets(stockShards.get(), productId, requestedQuantity);
+            log.info("[Product Module] Stock reduced successfully for product {} by {}", productId, quantity);
+            return;
+        }
+        
+        if (updated == 0) {
+            // Only on the failure path: find out whether the product is missing or just out of stock
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException(productId));
+            log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                    productId, product.getStock(), requestedQuantity);
+            throw new InsufficientStockException(productId, quantity, product.getStock().getValue());
+        }
+        
+        log.info("[Product Module] Stock reduced successfully for product {} by {}", productId, quantity);
+    }
+
+    @Override
+    @Timed(value = "product.reserveStock", description = "Time taken to reserve stock and quote price")
+    public StockReservationDTO reserveStock(Long productId, Integer quantity) {
+        log.info("[Product Module] [Inter-Module Call] Reserving stock for product {} by {}", productId, quantity);
+        productCache.evict(productId);
         
         Quantity requestedQuantity = Quantity.of(quantity);
         
+        if (stockLedger.isPresent()) {
+            return reserveStockInLedger(stockLedger.get(), productId, requestedQuantity);
+        }
+        
+        if (stockShards.isPresent() && stockShards.get().isSharded(productId)) {
+            return reserveStockInBuckets(stockShards.get(), productId, requestedQuantity);
+        }
+        
+        // One round trip: the guarded UPDATE returns the name, price and remaining stock to quote
+        Optional<ProductRepository.ReservedStock> reserved = productRepository.decrementStockReturning(
+                productId, requestedQuantity.getValue(), LocalDateTime.now());
+        
+        if (reserved.isEmpty() && stockShards.isPresent() && stockShards.get().recheckSharded(productId)) {
+            return reserveStockInBuckets(stockShards.get(), productId, requestedQuantity);
+        }
+        
+        if (reserved.isEmpty()) {
+            // Only on the failure path: find out whether the product is missing or just out of stock
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException(productId));
+            log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                    productId, product.getStock(), requestedQuantity);
+            throw new InsufficientStockException(productId, quantity, product.getStock().getValue());
+        }
+        
+        log.info("[Product Module] Stock reserved successfully for product {}. Remaining stock: {}", 
+                productId, reserved.get().getStock());
+        return productMapper.toReservationDTO(reserved.get(), requestedQuantity);
+    }
+
+    /**
+     * Reserves stock for a {@link StockReservationRequest} and replies with
+     * {@link StockReserved} or {@link StockRejected}.
+     * Runs asynchronously once the request's transaction committed, in a new
+     * transaction that commits the reservation, the reply and the completion of
+     * the event publication together - an interrupted reservation is redelivered
+     * on restart instead of being lost, and a request that was handled already
+     * is dropped instead of reserving twice.
+     */
+    @ApplicationModuleListener
+    @Timed(value = "product.reserveStockOnRequest", description = "Time taken to reserve stock for a reservation request event")
+    void on(StockReservationRequest request) {
+        log.info("[Product Module] [Event] Reserving stock for reservation {}: product {} by {}", 
+                request.reservationId(), request.productId(), request.quantity());
+        if (!stockReservations.claim(request)) {
+            return;
+        }
         try {
-            // Check stock availability and reserve using aggregate methods
-            if (!product.hasAvailableStock(requestedQuantity)) {
+            // Self-invocation: a rejection must not mark this listener's transaction rollback-only
+            StockReservationDTO reservation = reserveStock(request.productId(), request.quantity());
+            eventPublisher.publishEvent(new StockReserved(request.reservationId(), request.productId(),
+                    request.quantity(), reservation.getProductName(), reservation.getUnitPrice()));
+        } catch (ProductNotFoundException | InsufficientStockException e) {
+            log.warn("[Product Module] [Event] Stock rejected for reservation {}: {}", request.reservationId(), e.getMessage());
+            eventPublisher.publishEvent(new StockRejected(request.reservationId(), request.productId(),
+                    request.quantity(), e.getMessage()));
+        }
+    }
+
+    private StockReservationDTO reserveStockInLedger(StockLedger ledger, Long productId, Quantity requestedQuantity) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+        
+        if (!ledger.reserve(productId, requestedQuantity.getValue())) {
+            int available = ledger.available(productId);
+            log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                    productId, available, requestedQuantity);
+            throw new InsufficientStockException(productId, requestedQuantity.getValue(), available);
+        }
+        // The in-memory reservation must not outlive a rolled back caller transaction
+        ledger.releaseOnRollback(productId, requestedQuantity.getValue());
+        
+        int remaining = ledger.available(productId);
+        log.info("[Product Module] Stock reserved successfully for product {}. Remaining stock: {}", productId, remaining);
+        return productMapper.toReservationDTO(product, requestedQuantity, remaining);
+    }
+
+    private StockReservationDTO reserveStockInBuckets(StockShards shards, Long productId, Quantity requestedQuantity) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+        
+        reserveInBuckets(shards, productId, requestedQuantity);
+        
+        int remaining = shards.totalStock(productId);
+        log.info("[Product Module] Stock reserved successfully for product {}. Remaining stock: {}", productId, remaining);
+        return productMapper.toReservationDTO(product, requestedQuantity, remaining);
+    }
+
+    private void reserveInBuckets(StockShards shards, Long productId, Quantity requestedQuantity) {
+        if (!shards.reserve(productId, requestedQuantity.getValue())) {
+            int available = shards.totalStock(productId);
+            log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                    productId, available, requestedQuantity);
+            throw new InsufficientStockException(productId, requestedQuantity.getValue(), available);
+        }
+    }
+
+    @Override
+    @Timed(value = "product.reserveStockBatch", description = "Time taken to reserve stock for several products")
+    public List<StockReservationDTO> reserveStockBatch(Map<Long, Integer> quantitiesByProductId) {
+        log.info("[Product Module] [Inter-Module Call] Reserving stock for {} products", quantitiesByProductId.size());
+        quantitiesByProductId.keySet().forEach(productCache::evict);
+        
+        // Ascending id order everywhere - lock acquisition, checks and results
+        SortedMap<Long, Quantity> requested = new TreeMap<>();
+        quantitiesByProductId.forEach((productId, quantity) -> requested.put(productId, Quantity.of(quantity)));
+        
+        if (stockLedger.isPresent()) {
+            return reserveStockBatchInLedger(stockLedger.get(), requested);
+        }
+        
+        List<Product> products = productRepository.findAllByIdForUpdate(requested.keySet());
+        Map<Long, Product> productsById = products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        // Sharded products reserve from their buckets after the set-based UPDATE
+        SortedMap<Long, Quantity> sharded = new TreeMap<>();
+        
+        // Rows are locked, so this check cannot go stale before the UPDATE below
+        requested.forEach((productId, quantity) -> {
+            Product product = productsById.get(productId);
+            if (product == null) {
+                throw new ProductNotFoundException(productId);
+            }
+            if (stockShards.isPresent() && (stockShards.get().isSharded(productId)
+                    || (!product.hasAvailableStock(quantity) && stockShards.get().recheckSharded(productId)))) {
+                sharded.put(productId, quantity);
+                return;
+            }
+            if (!product.hasAvailableStock(quantity)) {
                 log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
-                    productId, product.getStock(), requestedQuantity);
-                throw new InsufficientStockException(productId, quantity, product.getStock().getValue());
+                        productId, product.getStock(), quantity);
+                throw new InsufficientStockException(productId, quantity.getValue(), product.getStock().getValue());
+            }
+        });
+        
+        Long[] ids = requested.keySet().stream().filter(id -> !sharded.containsKey(id)).toArray(Long[]::new);
+        Integer[] quantities = Arrays.stream(ids).map(id -> requested.get(id).getValue()).toArray(Integer[]::new);
+        if (ids.length > 0) {
+            int updated = productRepository.decrementStockBatch(ids, quantities, LocalDateTime.now());
+            if (updated != ids.length) {
+                // Cannot happen while the rows are locked - fail loudly rather than reserve partially
+                throw new IllegalStateException("Batch stock reservation updated " + updated + " of " + ids.length + " products");
             }
-            
-            product.reserveStock(requestedQuantity);
-            productRepository.save(product);
-            log.info("[Product Module] Stock reduced successfully for product {}. New stock: {}", 
-                    productId, product.getStock());
-        } catch (IllegalStateException e) {
-            log.error("[Product Module] Failed to reduce stock for product {}", productId, e);
-            throw new InsufficientStockException(productId, quantity, product.getStock().getValue());
         }
+        // A shortfall here throws and rolls back the whole batch
+        sharded.forEach((productId, quantity) -> reserveInBuckets(stockShards.orElseThrow(), productId, quantity));
+        
+        log.info("[Product Module] Stock reserved successfully for {} products", requested.size());
+        return products.stream()
+                .map(product -> {
+                    Quantity quantity = requested.get(product.getId());
+                    int remaining = sharded.containsKey(product.getId())
+                            ? stockShards.orElseThrow().totalStock(product.getId())
+                            : product.getStock().getValue() - quantity.getValue();
+                    return productMapper.toReservationDTO(product, quantity, remaining);
+                })
+                .toList();
+    }
+
+    private List<StockReservationDTO> reserveStockBatchInLedger(StockLedger ledger, SortedMap<Long, Quantity> requested) {
+        List<Product> products = productRepository.findAllById(requested.keySet());
+        Map<Long, Product> productsById = products.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        List<StockReservationDTO> reservations = new ArrayList<>();
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        try {
+            requested.forEach((productId, quantity) -> {
+                Product product = productsById.get(productId);
+                if (product == null) {
+                    throw new ProductNotFoundException(productId);
+                }
+                if (!ledger.reserve(productId, quantity.getValue())) {
+                    int available = ledger.available(productId);
+                    log.error("[Product Module] Insufficient stock for product {}. Available: {}, Requested: {}", 
+                            productId, available, quantity);
+                    throw new InsufficientStockException(productId, quantity.getValue(), available);
+                }
+                reserved.put(productId, quantity.getValue());
+                reservations.add(productMapper.toReservationDTO(product, quantity, ledger.available(productId)));
+            });
+        } catch (RuntimeException e) {
+            // All-or-nothing: hand back what this batch already took
+            reserved.forEach(ledger::release);
+            throw e;
+        }
+        reserved.forEach(ledger::releaseOnRollback);
+        
+        log.info("[Product Module] Stock reserved successfully for {} products", reserved.size());
+        return reservations;
     }
 
     @Override
@@ -169,17 +514,32 @@ class ProductServiceImpl implements ProductService {
     @Timed(value = "product.restoreStock", description = "Time taken to restore stock")
     public void restoreStock(Long productId, Integer quantity) {
         log.info("[Product Module] [Compensation] Restoring stock for product {} by {}", productId, quantity);
-        
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ProductNotFoundException(productId));
+        productCache.evict(productId);
         
         Quantity restoredQuantity = Quantity.of(quantity);
         
-        // Use aggregate method for stock restoration
-        product.releaseStock(restoredQuantity);
-        productRepository.save(product);
-        log.info("[Product Module] [Compensation] Stock restored successfully for product {}. New stock: {}", 
-                productId, product.getStock());
+        if (stockLedger.isPresent()) {
+            stockLedger.get().release(productId, restoredQuantity.getValue());
+            log.info("[Product Module] [Compensation] Stock restored successfully for product {} by {}", 
+                    productId, quantity);
+            return;
+        }
+        
+        if (stockShards.isPresent() && stockShards.get().isSharded(productId)) {
+            stockShards.get().release(productId, restoredQuantity.getValue());
+            log.info("[Product Module] [Compensation] Stock restored successfully for product {} by {}", 
+                    productId, quantity);
+            return;
+        }
+        
+        // Atomic increment - a read-modify-write here would overwrite concurrent reservations
+        int updated = productRepository.adjustStock(productId, restoredQuantity.getValue(), LocalDateTime.now());
+        if (updated == 0) {
+            throw new ProductNotFoundException(productId);
+        }
+        
+        log.info("[Product Module] [Compensation] Stock restored successfully for product {} by {}", 
+                productId, quantity);
     }
 
     @Override
@@ -194,6 +554,27 @@ class ProductServiceImpl implements ProductService {
         
         Quantity requestedQuantity = Quantity.of(quantity);
         
+        if (stockLedger.isPresent()) {
+            // The database lags behind the ledger by up to one flush interval
+            int available = stockLedger.get().available(productId);
+            return StockCheckDTO.builder()
+                    .productId(productId)
+                    .requestedQuantity(quantity)
+                    .availableStock(available)
+                    .isAvailable(available >= requestedQuantity.getValue())
+                    .build();
+        }
+        
+        if (stockShards.isPresent()) {
+            int available = stockShards.get().totalStock(productId);
+            return StockCheckDTO.builder()
+                    .productId(productId)
+                    .requestedQuantity(quantity)
+                    .availableStock(available)
+                    .isAvailable(available >= requestedQuantity.getValue())
+                    .build();
+        }
+        
         // Delegate to aggregate method
         boolean isAvailable = product.hasAvailableStock(requestedQuantity);
         
@@ -204,5 +585,52 @@ class ProductServiceImpl implements ProductService {
                 .isAvailable(isAvailable)
                 .build();
     }
-}
 
+    @Override
+    @Timed(value = "product.shardStock", description = "Time taken to shard product stock")
+    public ProductDTO shardStock(Long productId, Integer buckets) {
+        log.info("[Product Module] Sharding stock of product {} into {} buckets", productId, buckets);
+        productCache.evict(productId);
+        
+        StockShards shards = stockShards.orElseThrow(() -> new ProductValidationException(
+                "Stock sharding is disabled (product.stock-sharding.enabled=false)"));
+        shards.resize(productId, buckets);
+        
+        return productRepository.findById(productId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+    }
+
+    /**
+     * Maps to DTO with the product's total stock, including sharded stock buckets.
+     */
+    private ProductDTO toDTO(Product product) {
+        return toDTOList(List.of(product)).get(0);
+    }
+
+    private List<ProductDTO> toDTOList(List<Product> products) {
+        return addBucketStock(productMapper.toDTOList(products));
+    }
+
+    /**
+     * Adds the stock held in buckets to the products that are sharded, with one
+     * lookup for all of them. Does nothing unless stock sharding is enabled.
+     */
+    private List<ProductDTO> addBucketStock(List<ProductDTO> dtos) {
+        stockShards.ifPresent(shards -> {
+            Map<Long, Integer> bucketStock = shards.bucketStock(dtos.stream().map(ProductDTO::getId).toList());
+            dtos.forEach(dto -> dto.setStock(dto.getStock() + bucketStock.getOrDefault(dto.getId(), 0)));
+        });
+        return dtos;
+    }
+
+    /**
+     * Sets the available stock of products read for display. With the ledger
+     * enabled it lives in memory - the database lags behind it by up to one
+     * flush interval.
+     */
+    private List<ProductDTO> readStock(List<ProductDTO> products) {
+        stockLedger.ifPresent(ledger -> products.forEach(product -> product.setStock(ledger.available(product.getId()))));
+        return products;
+    }
+}
@@ -0,0 +1,309 @@
+package com.demo.modular.product.internal.service;
+
+import com.demo.modular.product.api.exception.ProductNotFoundException;
+import com.demo.modular.product.internal.domain.Product;
+import com.demo.modular.product.internal.repository.ProductRepository;
+import com.demo.modular.product.internal.repository.ProductRepository.StockLevel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock reservation ledger with write-behind flush.
+ *
+ * <p>Available stock is held per product in an atomic counter, so reservations
+ * are decided with a lock-free compare-and-set and never touch the database.
+ * Net stock deltas are flushed to {@code product_schema.products} in one
+ * transaction every flush interval, or as soon as the number of unflushed
+ * reservations reaches the flush threshold.</p>
+ *
+ * <p><b>No oversell:</b> a counter only ever allows reservations up to the
+ * stock it was loaded with (plus releases), and every flush writes exactly the
+ * difference between the counter and the last flushed value. The database
+ * stock therefore never drops below what the ledger handed out.</p>
+ *
+ * <p><b>Scope:</b> counters are loaded from the database for all products once
+ * the application is ready (and lazily for products touched before that or
+ * created later), and pending deltas are flushed on shutdown. Deltas that were
+ * not flushed before a crash are lost, and the ledger is only correct when a
+ * single application instance owns the stock of a product.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "product.stock-ledger.enabled", havingValue = "true")
+@Slf4j
+class StockLedger {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+    private final int flushThreshold;
+
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger unflushedReservations = new AtomicInteger();
+    // Serializes flush, resync and evict - reservations never take it
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-ledger-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    StockLedger(ProductRepository productRepository,
+                TransactionTemplate transactionTemplate,
+                @Value("${product.stock-ledger.flush-interval-ms:50}") long flushIntervalMs,
+                @Value("${product.stock-ledger.flush-threshold:100}") int flushThreshold) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushThreshold = flushThreshold;
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("[Product Module] [Stock Ledger] Enabled. Flush interval: {}ms, threshold: {}",
+                flushIntervalMs, flushThreshold);
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdown();
+        flush();
+        log.info("[Product Module] [Stock Ledger] Stopped after final flush");
+    }
+
+    /**
+     * Loads the counters of all products, so reads reflect ledger stock from the
+     * start. Counters already loaded by early requests are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        flushLock.lock();
+        try {
+            List<StockLevel> levels = transactionTemplate.execute(status -> productRepository.findAllStockLevels());
+            int loaded = 0;
+            for (StockLevel level : levels) {
+                if (counters.putIfAbsent(level.getId(), new StockCounter(level.getStock())) == null) {
+                    loaded++;
+                }
+            }
+            log.info("[Product Module] [Stock Ledger] Loaded stock counters of {} products", loaded);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Tries to reserve stock in memory.
+     *
+     * @return true if reserved, false if available stock is insufficient
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    boolean reserve(Long productId, int quantity) {
+        StockCounter counter = counter(productId);
+        int current;
+        do {
+            current = counter.available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.available.compareAndSet(current, current - quantity));
+
+        if (unflushedReservations.incrementAndGet() >= flushThreshold) {
+            flusher.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Returns stock to the ledger (compensation).
+     *
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    void release(Long productId, int quantity) {
+        counter(productId).available.addAndGet(quantity);
+    }
+
+    /**
+     * Releases the reservation again if the surrounding transaction rolls back,
+     * so an in-memory reservation shares the fate of the caller's writes.
+     */
+    void releaseOnRollback(Long productId, int quantity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    release(productId, quantity);
+                }
+            }
+        });
+    }
+
+    /**
+     * Current in-memory available stock.
+     *
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    int available(Long productId) {
+        return counter(productId).available.get();
+    }
+
+    /**
+     * Re-reads the counter from the database once the surrounding transaction
+     * commits. Used after stock was overwritten outside the ledger (admin update).
+     */
+    void resyncAfterCommit(Long productId) {
+        afterCommit(() -> resync(productId));
+    }
+
+    /**
+     * Drops the counter once the surrounding transaction commits (product deleted).
+     */
+    void evictAfterCommit(Long productId) {
+        afterCommit(() -> {
+            flushLock.lock();
+            try {
+                counters.remove(productId);
+            } finally {
+                flushLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Writes the net delta of every changed counter to the database in one transaction.
+     * The counter of a product that was deleted meanwhile is dropped.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            unflushedReservations.set(0);
+            List<PendingDelta> deltas = new ArrayList<>();
+            counters.forEach((productId, counter) -> {
+                int snapshot = counter.available.get();
+                if (snapshot != counter.flushed) {
+                    deltas.add(new PendingDelta(productId, counter, snapshot));
+                }
+            });
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<PendingDelta> missing = new ArrayList<>();
+            transactionTemplate.executeWithoutResult(status -> deltas.forEach(delta -> {
+                int updated = productRepository.adjustStock(delta.productId(), delta.snapshot() - delta.counter().flushed, now);
+                if (updated == 0) {
+                    missing.add(delta);
+                }
+            }));
+
+            // Deleted meanwhile - later reservations must fail instead of being taken from a stale counter
+            missing.forEach(delta -> {
+                counters.remove(delta.productId(), delta.counter());
+                log.warn("[Product Module] [Stock Ledger] Product {} no longer exists, dropped its counter with a delta of {}",
+                        delta.productId(), delta.snapshot() - delta.counter().flushed);
+            });
+            // Only mark as flushed after commit - a failed flush is retried on the next run
+            deltas.forEach(delta -> delta.counter().flushed = delta.snapshot());
+            log.debug("[Product Module] [Stock Ledger] Flushed stock deltas for {} products", deltas.size() - missing.size());
+        } catch (Exception e) {
+            log.error("[Product Module] [Stock Ledger] Flush failed, will retry", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void resync(Long productId) {
+        flushLock.lock();
+        try {
+            StockCounter counter = counters.get(productId);
+            if (counter == null) {
+                return;
+            }
+            while (true) {
+                int snapshot = counter.available.get();
+                int pending = snapshot - counter.flushed;
+                Integer databaseStock = transactionTemplate.execute(status -> {
+                    if (pending != 0) {
+                        productRepository.adjustStock(productId, pending, LocalDateTime.now());
+                    }
+                    return productRepository.findById(productId)
+                            .map(product -> product.getStock().getValue())
+                            .orElse(0);
+                });
+                counter.flushed = snapshot;
+                // Concurrent reservations changed the counter meanwhile - flush those and try again
+                if (counter.available.compareAndSet(snapshot, databaseStock)) {
+                    counter.flushed = databaseStock;
+                    log.info("[Product Module] [Stock Ledger] Resynced product {} to stock {}", productId, databaseStock);
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private StockCounter counter(Long productId) {
+        return counters.computeIfAbsent(productId, id -> {
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new ProductNotFoundException(id));
+            log.debug("[Product Module] [Stock Ledger] Loaded product {} with stock {}", id, product.getStock());
+            return new StockCounter(product.getStock().getValue());
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Available stock of one product plus the value last written to the database.
+     */
+    private static final class StockCounter {
+
+        private final AtomicInteger available;
+        // Guarded by flushLock
+        private int flushed;
+
+        private StockCounter(int stock) {
+            this.available = new AtomicInteger(stock);
+            this.flushed = stock;
+        }
+    }
+
+    private record PendingDelta(Long productId, StockCounter counter, int snapshot) {
+    }
+}
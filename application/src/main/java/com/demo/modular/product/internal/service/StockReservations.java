@@ -0,0 +1,79 @@
+package com.demo.modular.product.internal.service;
+
+import com.demo.modular.product.api.event.StockReservationRequest;
+import com.demo.modular.product.internal.repository.StockReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Reservation requests the Product module has handled, so each one reserves stock at most once.
+ *
+ * <p><b>Redelivery:</b> event publications are republished on restart and may
+ * reach the listener twice. A request is claimed by its reservation ID in the
+ * transaction that reserves the stock and publishes the reply; a redelivered
+ * request finds the claim and is dropped, as its reply was committed with it.
+ * Rejected requests are claimed as well - stock freed up in between must not
+ * be reserved for an order that was rejected already.</p>
+ *
+ * <p>Claims are kept for {@code product.reservations.retention}, which must
+ * exceed the time an event publication can stay outstanding. Dropped
+ * redeliveries are counted in {@code product.stock.reservation.duplicates}.</p>
+ */
+@Component
+@Slf4j
+class StockReservations {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Counter duplicateCounter;
+
+    StockReservations(StockReservationRepository stockReservationRepository,
+                      TransactionTemplate transactionTemplate,
+                      MeterRegistry meterRegistry,
+                      @Value("${product.reservations.retention:7d}") Duration retention) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+        this.duplicateCounter = Counter.builder("product.stock.reservation.duplicates")
+                .description("Redelivered stock reservation requests that were dropped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims the request for the caller's transaction.
+     *
+     * @return false if the request was handled already and must be dropped
+     */
+    boolean claim(StockReservationRequest request) {
+        int claimed = stockReservationRepository.claim(request.reservationId(), request.productId(),
+                request.quantity(), LocalDateTime.now());
+        if (claimed == 0) {
+            duplicateCounter.increment();
+            log.warn("[Product Module] [Event] Reservation {} was handled already, dropping redelivered request",
+                    request.reservationId());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes claims older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${product.reservations.purge-interval-ms:3600000}")
+    void purgeExpired() {
+        int deleted = transactionTemplate.execute(status ->
+                stockReservationRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("[Product Module] [Event] Purged {} expired stock reservations", deleted);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.demo.modular.product.internal.service;
+
+import com.demo.modular.product.api.exception.ProductNotFoundException;
+import com.demo.modular.product.internal.domain.Product;
+import com.demo.modular.product.internal.domain.StockBucket;
+import com.demo.modular.product.internal.domain.vo.Quantity;
+import com.demo.modular.product.internal.repository.ProductRepository;
+import com.demo.modular.product.internal.repository.StockBucketRepository;
+import com.demo.modular.product.internal.repository.StockBucketRepository.BucketSummary;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Sharded stock for hot products.
+ *
+ * <p>A sharded product's stock lives in N {@link StockBucket} rows instead of
+ * the single {@code products.stock} column. A reservation decrements one random
+ * bucket that holds enough stock, skipping buckets locked by concurrent
+ * reservations. Only when no such bucket exists does it lock the product and
+ * take the stock from several buckets. Concurrent reservations therefore
+ * spread their row locks over N rows.</p>
+ *
+ * <p><b>Totals:</b> a product's stock is {@code products.stock} plus the sum of
+ * its buckets. After sharding or rebalancing, {@code products.stock} is zero.
+ * An admin stock update writes it, and the next rebalance moves it back into
+ * the buckets.</p>
+ *
+ * <p><b>Lock order:</b> writers that touch more than one row lock the product
+ * row first and then the buckets in bucket order. The fast path locks a single
+ * bucket and never waits for a lock.</p>
+ *
+ * <p>All methods join the caller's transaction except the scheduled rebalance.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "product.stock-sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+class StockShards {
+
+    private final ProductRepository productRepository;
+    private final StockBucketRepository stockBucketRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Bucket count per sharded product - a routing hint only, every path re-checks the database
+    private final Map<Long, Integer> bucketCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void loadBucketCounts() {
+        refreshBucketCounts();
+        log.info("[Product Module] [Stock Sharding] Enabled. Sharded products: {}", bucketCounts.size());
+    }
+
+    boolean isSharded(Long productId) {
+        return bucketCounts.containsKey(productId);
+    }
+
+    /**
+     * Re-reads whether the product is sharded. Used when a reservation against
+     * {@code products.stock} failed, in case another instance sharded the product.
+     */
+    boolean recheckSharded(Long productId) {
+        List<BucketSummary> summary = stockBucketRepository.summarizeByProductIds(List.of(productId));
+        if (summary.isEmpty()) {
+            bucketCounts.remove(productId);
+            return false;
+        }
+        bucketCounts.put(productId, summary.get(0).getBuckets().intValue());
+        return true;
+    }
+
+    /**
+     * Reserves stock from the product's buckets.
+     *
+     * @return true if reserved, false if total stock is insufficient
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    boolean reserve(Long productId, int quantity) {
+        if (stockBucketRepository.decrementAnyBucket(productId, quantity) == 1) {
+            return true;
+        }
+        // No free bucket holds enough - take it from several under lock
+        return reserveAcrossBuckets(productId, quantity);
+    }
+
+    /**
+     * Returns stock to a random bucket (compensation).
+     *
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    void release(Long productId, int quantity) {
+        int buckets = bucketCounts.getOrDefault(productId, 0);
+        if (buckets > 0
+                && stockBucketRepository.incrementStock(productId, ThreadLocalRandom.current().nextInt(buckets), quantity) == 1) {
+            return;
+        }
+        // Product was unsharded meanwhile
+        bucketCounts.remove(productId);
+        if (productRepository.adjustStock(productId, quantity, LocalDateTime.now()) == 0) {
+            throw new ProductNotFoundException(productId);
+        }
+    }
+
+    /**
+     * Total available stock of a product, read fresh from the database.
+     *
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    int totalStock(Long productId) {
+        int productStock = productRepository.findStockById(productId)
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+        return productStock + (int) stockBucketRepository.sumStockByProductId(productId);
+    }
+
+    /**
+     * Stock held in buckets per product, for products that have any.
+     */
+    Map<Long, Integer> bucketStock(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return stockBucketRepository.summarizeByProductIds(productIds).stream()
+                .collect(Collectors.toMap(BucketSummary::getProductId, summary -> summary.getStock().intValue()));
+    }
+
+    /**
+     * Spreads the product's total stock evenly over {@code buckets} buckets.
+     * Zero buckets moves all stock back to {@code products.stock} (unshard).
+     *
+     * @throws ProductNotFoundException if the product does not exist
+     */
+    void resize(Long productId, int buckets) {
+        Product product = lockProduct(productId);
+        List<StockBucket> existing = stockBucketRepository.findByProductIdForUpdate(productId);
+        int productStock = product.getStock().getValue();
+        int total = productStock + sum(existing);
+
+        stockBucketRepository.deleteByProductId(productId);
+        if (buckets == 0) {
+            productRepository.adjustStock(productId, total - productStock, LocalDateTime.now());
+            bucketCounts.remove(productId);
+            log.info("[Product Module] [Stock Sharding] Unsharded product {} with stock {}", productId, total);
+            return;
+        }
+
+        List<StockBucket> created = new ArrayList<>(buckets);
+        for (int bucketNo = 0; bucketNo < buckets; bucketNo++) {
+            created.add(StockBucket.create(productId, bucketNo, Quantity.of(share(total, buckets, bucketNo))));
+        }
+        stockBucketRepository.saveAll(created);
+        if (productStock != 0) {
+            productRepository.adjustStock(productId, -productStock, LocalDateTime.now());
+        }
+        bucketCounts.put(productId, buckets);
+        log.info("[Product Module] [Stock Sharding] Sharded product {} with stock {} into {} buckets",
+                productId, total, buckets);
+    }
+
+    /**
+     * Sets all buckets of a sharded product to zero before an admin stock update
+     * overwrites {@code products.stock}, so the new value becomes the total.
+     */
+    void clearBuckets(Long productId) {
+        lockProduct(productId);
+        for (StockBucket bucket : stockBucketRepository.findByProductIdForUpdate(productId)) {
+            stockBucketRepository.setStock(bucket.getId(), 0);
+        }
+    }
+
+    /**
+     * Evens out the product's buckets and moves any stock left in
+     * {@code products.stock} into them.
+     */
+    void rebalance(Long productId) {
+        Product product = lockProduct(productId);
+        List<StockBucket> buckets = stockBucketRepository.findByProductIdForUpdate(productId);
+        if (buckets.isEmpty()) {
+            bucketCounts.remove(productId);
+            return;
+        }
+        int productStock = product.getStock().getValue();
+        int total = productStock + sum(buckets);
+        for (StockBucket bucket : buckets) {
+            int target = share(total, buckets.size(), bucket.getBucketNo());
+            if (bucket.getStock().getValue() != target) {
+                stockBucketRepository.setStock(bucket.getId(), target);
+            }
+        }
+        if (productStock != 0) {
+            productRepository.adjustStock(productId, -productStock, LocalDateTime.now());
+        }
+        bucketCounts.put(productId, buckets.size());
+    }
+
+    /**
+     * Drops the buckets of a product that is being deleted.
+     */
+    void delete(Long productId) {
+        stockBucketRepository.deleteByProductId(productId);
+        bucketCounts.remove(productId);
+    }
+
+    /**
+     * Periodically rebalances every sharded product, one transaction each,
+     * so a drained bucket does not keep pushing reservations to the slow path.
+     */
+    @Scheduled(fixedDelayString = "${product.stock-sharding.rebalance-interval-ms:30000}")
+    void rebalanceAll() {
+        refreshBucketCounts();
+        for (Long productId : bucketCounts.keySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(productId));
+            } catch (Exception e) {
+                log.error("[Product Module] [Stock Sharding] Rebalance failed for product {}", productId, e);
+            }
+        }
+        log.debug("[Product Module] [Stock Sharding] Rebalanced {} products", bucketCounts.size());
+    }
+
+    private boolean reserveAcrossBuckets(Long productId, int quantity) {
+        Product product = lockProduct(productId);
+        List<StockBucket> buckets = stockBucketRepository.findByProductIdForUpdate(productId);
+        int productStock = product.getStock().getValue();
+        if (productStock + sum(buckets) < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (StockBucket bucket : buckets) {
+            int taken = Math.min(bucket.getStock().getValue(), remaining);
+            if (taken > 0) {
+                stockBucketRepository.decrementStock(productId, bucket.getBucketNo(), taken);
+                remaining -= taken;
+            }
+        }
+        if (remaining > 0) {
+            productRepository.decrementStock(productId, remaining, LocalDateTime.now());
+        }
+        if (buckets.isEmpty()) {
+            bucketCounts.remove(productId);
+        } else {
+            bucketCounts.put(productId, buckets.size());
+        }
+        return true;
+    }
+
+    private Product lockProduct(Long productId) {
+        return productRepository.findAllByIdForUpdate(List.of(productId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ProductNotFoundException(productId));
+    }
+
+    private void refreshBucketCounts() {
+        Map<Long, Integer> current = stockBucketRepository.summarizeAll().stream()
+                .collect(Collectors.toMap(BucketSummary::getProductId, summary -> summary.getBuckets().intValue()));
+        bucketCounts.keySet().retainAll(current.keySet());
+        bucketCounts.putAll(current);
+    }
+
+    private static int sum(List<StockBucket> buckets) {
+        return buckets.stream().mapToInt(bucket -> bucket.getStock().getValue()).sum();
+    }
+
+    private static int share(int total, int buckets, int bucketNo) {
+        return total / buckets + (bucketNo < total % buckets ? 1 : 0);
+    }
+}
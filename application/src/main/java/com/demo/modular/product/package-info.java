@@ -13,6 +13,7 @@ package com.demo.modular.product;
  * <ul>
  *   <li>api.dto - DTOs for cross-module communication (ProductDTO, StockCheckDTO)</li>
  *   <li>api.exception - Public exceptions (ProductNotFoundException, InsufficientStockException)</li>
+ *   <li>api.event - Stock reservation events (StockReservationRequest, StockReserved, StockRejected)</li>
  *   <li>service - Service interfaces for inter-module communication (ProductService)</li>
  * </ul>
  * 
@@ -23,7 +24,9 @@ package com.demo.modular.product;
  *   <li>internal.service - Service implementations and mappers (ProductServiceImpl, ProductMapper)</li>
  * </ul>
  * 
- * <p><b>Dependencies:</b> None - This is a foundational module with no dependencies on other modules.</p>
+ * <p><b>Dependencies:</b> None - This is a foundational module with no dependencies on other modules.
+ * Other modules request stock reservations by publishing events that implement
+ * {@code StockReservationRequest}, so the Product module never depends on them.</p>
  * 
  * <p><b>Best Practice:</b> The explicit `internal` package makes module boundaries crystal clear
  * and prevents accidental exposure of internal implementation details.</p>
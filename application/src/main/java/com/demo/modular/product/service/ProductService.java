@@ -1,15 +1,23 @@
 package com.demo.modular.product.service;
 
 import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.ProductPageDTO;
 import com.demo.modular.product.api.dto.StockCheckDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
 import com.demo.modular.product.api.exception.InsufficientStockException;
 import com.demo.modular.product.api.exception.ProductNotFoundException;
 import com.demo.modular.product.api.exception.ProductValidationException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -44,13 +52,42 @@ public interface ProductService {
      */
     Optional<ProductDTO> getProductById(@NotNull Long id);
     
+    /**
+     * Retrieves several products in one query.
+     * 
+     * <p><b>Inter-Module Usage:</b> Called by Order module to resolve every
+     * product of a bulk order request at once.</p>
+     * 
+     * <p><b>Stock:</b> The returned stock is the currently available stock and
+     * is not reserved - it may change before a subsequent reservation.</p>
+     * 
+     * @param ids the product IDs
+     * @return the products that exist, in no particular order
+     */
+    List<ProductDTO> getProductsByIds(@NotEmpty Collection<@NotNull Long> ids);
+    
     /**
      * Retrieves all products in the system.
      * 
      * @return list of all products, empty list if none exist
+     * @deprecated loads every product into memory - use {@link #getProductPage} instead
      */
+    @Deprecated
     List<ProductDTO> getAllProducts();
     
+    /**
+     * Retrieves one page of products in ID order (keyset pagination).
+     * 
+     * <p><b>Performance:</b> Each page is a single index range scan on the
+     * primary key, so cost does not grow with the page number.</p>
+     * 
+     * @param cursor the {@code nextCursor} of the previous page, null for the first page
+     * @param size the maximum number of products to return (1-200)
+     * @return the page and the cursor of the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    ProductPageDTO getProductPage(String cursor, @Min(1) @Max(200) int size);
+    
     /**
      * Retrieves all products with stock greater than zero.
      * 
@@ -58,6 +95,21 @@ public interface ProductService {
      */
     List<ProductDTO> getAvailableProducts();
     
+    /**
+     * Searches products by name, tolerating typos.
+     * 
+     * <p><b>Ranking:</b> Names containing a word most similar to the query come
+     * first (trigram word similarity), then by overall similarity.</p>
+     * 
+     * <p><b>Performance:</b> Served by a trigram GIN index, so latency depends on
+     * the number of candidate matches rather than the catalog size.</p>
+     * 
+     * @param query the search text (3-100 characters)
+     * @param limit the maximum number of results (1-100)
+     * @return matching products, best match first
+     */
+    List<ProductDTO> searchProducts(@NotBlank @Size(min = 3, max = 100) String query, @Min(1) @Max(100) int limit);
+    
     /**
      * Updates an existing product.
      * 
@@ -90,6 +142,9 @@ public interface ProductService {
      * <p><b>Idempotency:</b> This operation is NOT idempotent. Multiple calls 
      * with same parameters will reduce stock multiple times.</p>
      * 
+     * <p><b>Concurrency:</b> The check and the decrement run as a single guarded
+     * UPDATE, so concurrent reservations for the same product can never oversell.</p>
+     * 
      * @param productId the ID of the product
      * @param quantity the quantity to reduce
      * @throws ProductNotFoundException if product doesn't exist
@@ -98,6 +153,48 @@ public interface ProductService {
      */
     void reduceStock(@NotNull Long productId, @NotNull @Min(1) Integer quantity);
     
+    /**
+     * Reserves stock and returns the product's price/name snapshot in one call.
+     * 
+     * <p><b>Inter-Module Usage:</b> Called by Order module during order creation,
+     * replacing the getProductById / checkStockAvailability / reduceStock sequence.</p>
+     * 
+     * <p><b>Transaction:</b> Joins the caller's transaction, so the reservation
+     * commits or rolls back together with the caller's own writes.</p>
+     * 
+     * <p><b>Concurrency:</b> Uses the same guarded UPDATE as {@link #reduceStock},
+     * so concurrent reservations can never oversell.</p>
+     * 
+     * @param productId the ID of the product
+     * @param quantity the quantity to reserve
+     * @return the reservation including product name, unit price and remaining stock
+     * @throws ProductNotFoundException if product doesn't exist
+     * @throws InsufficientStockException if available stock is less than requested quantity
+     * @throws IllegalArgumentException if productId is null or quantity is null/negative
+     */
+    StockReservationDTO reserveStock(@NotNull Long productId, @NotNull @Min(1) Integer quantity);
+    
+    /**
+     * Reserves stock for several products at once, all-or-nothing.
+     * 
+     * <p><b>Inter-Module Usage:</b> Called for multi-item checkouts, replacing
+     * one {@link #reduceStock} transaction per item.</p>
+     * 
+     * <p><b>Transaction:</b> Joins the caller's transaction. If any product is
+     * missing or short of stock, nothing is reserved.</p>
+     * 
+     * <p><b>Concurrency:</b> Product rows are locked in ascending id order, so
+     * concurrent batches over overlapping products cannot deadlock. Stock is
+     * checked and reduced for all products in a single guarded UPDATE.</p>
+     * 
+     * @param quantitiesByProductId quantity to reserve per product ID
+     * @return one reservation per product, in ascending product ID order
+     * @throws ProductNotFoundException if any product doesn't exist
+     * @throws InsufficientStockException for the first product (by ID) whose stock is insufficient
+     */
+    List<StockReservationDTO> reserveStockBatch(
+            @NotEmpty Map<@NotNull Long, @NotNull @Min(1) Integer> quantitiesByProductId);
+    
     /**
      * Restores product stock by the specified quantity.
      * 
@@ -119,7 +216,7 @@ public interface ProductService {
      * <p><b>Inter-Module Usage:</b> Called by Order module before order creation.</p>
      * 
      * <p><b>Note:</b> This check is not transactionally protected with stock reduction.
-     * Use optimistic locking or database constraints to handle concurrent stock modifications.</p>
+     * The result is advisory only - {@link #reduceStock} re-checks atomically.</p>
      * 
      * @param productId the ID of the product
      * @param quantity the quantity to check
@@ -128,5 +225,22 @@ public interface ProductService {
      * @throws IllegalArgumentException if parameters are null or quantity is negative
      */
     StockCheckDTO checkStockAvailability(@NotNull Long productId, @NotNull @Min(1) Integer quantity);
+    
+    /**
+     * Spreads a hot product's stock over several stock buckets, or folds it back
+     * into a single row when {@code buckets} is 0.
+     * 
+     * <p><b>Opt-in:</b> Requires {@code product.stock-sharding.enabled=true}.
+     * Concurrent reservations of a sharded product lock different bucket rows
+     * instead of queueing on the product row. Reported stock remains the total
+     * over all buckets.</p>
+     * 
+     * @param productId the ID of the product
+     * @param buckets number of buckets, 0 to unshard
+     * @return the product with its total stock
+     * @throws ProductNotFoundException if product doesn't exist
+     * @throws ProductValidationException if stock sharding is disabled
+     */
+    ProductDTO shardStock(@NotNull Long productId, @NotNull @Min(0) @Max(64) Integer buckets);
 }
 
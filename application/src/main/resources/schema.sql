@@ -0,0 +1,152 @@
+-- Supplementary DDL that JPA mappings cannot express.
+-- Runs on every startup after Hibernate has created/updated the tables
+-- (spring.jpa.defer-datasource-initialization=true), so every statement must be idempotent.
+
+-- Product name search: trigram GIN index serves both fuzzy (word similarity) and substring matches
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON product_schema.products USING gin (lower(name) gin_trgm_ops);
+
+-- Order intake queue: partial index keeps the capacity check and the workers' SKIP LOCKED scan on queued rows only
+CREATE INDEX IF NOT EXISTS idx_intake_requests_queued ON order_schema.intake_requests (id) WHERE status = 'QUEUED';
+
+-- Order status: Hibernate only creates the enum check constraint with the table, so keep it in step with OrderStatus
+-- (NOT VALID: enforced for new rows without re-scanning existing ones)
+ALTER TABLE order_schema.orders DROP CONSTRAINT IF EXISTS orders_status_check;
+ALTER TABLE order_schema.orders ADD CONSTRAINT orders_status_check
+    CHECK (status IN ('AWAITING_STOCK', 'PENDING', 'PAID', 'FAILED', 'CANCELLED', 'REJECTED')) NOT VALID;
+
+-- Compensation jobs: partial indexes keep the executors' SKIP LOCKED scan on pending rows only
+CREATE INDEX IF NOT EXISTS idx_compensation_jobs_due ON order_schema.compensation_jobs (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_compensation_jobs_due ON payment_schema.compensation_jobs (next_attempt_at) WHERE status = 'PENDING';
+
+-- Payment status: keep the enum check constraint in step with PaymentStatus (see orders_status_check)
+ALTER TABLE payment_schema.payments DROP CONSTRAINT IF EXISTS payments_status_check;
+ALTER TABLE payment_schema.payments ADD CONSTRAINT payments_status_check
+    CHECK (status IN ('PENDING', 'SUCCESS', 'FAILED', 'REFUND_PENDING', 'REFUNDED')) NOT VALID;
+
+-- Orders and payments: range-partitioned by created_at, one partition per month plus a default partition.
+-- Hibernate creates plain tables, so an empty one is converted here (the primary key of a partitioned table must
+-- contain the partition key). A table that already holds rows is left alone with a warning: copying it would lock
+-- all order or payment traffic out of a booting instance, so it is converted once by
+-- scripts/partition-orders-payments.sql, with the application stopped. The advisory lock is the one of partition
+-- maintenance, so instances booting together convert once. Month partitions are created ahead by OrderPartitions
+-- and PaymentPartitions, which also move rows out of the default partition. DO bodies are single-quoted: the
+-- script splitter does not understand dollar quoting.
+DO '
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(''order_schema.orders''));
+    IF (SELECT relkind FROM pg_class WHERE oid = ''order_schema.orders''::regclass) = ''r'' THEN
+        IF EXISTS (SELECT 1 FROM order_schema.orders) THEN
+            RAISE WARNING ''order_schema.orders is not partitioned yet - run scripts/partition-orders-payments.sql'';
+        ELSE
+            ALTER TABLE order_schema.orders RENAME TO orders_unpartitioned;
+            ALTER TABLE order_schema.orders_unpartitioned RENAME CONSTRAINT orders_pkey TO orders_unpartitioned_pkey;
+            ALTER TABLE order_schema.orders_unpartitioned ALTER COLUMN id DROP IDENTITY;
+            CREATE TABLE order_schema.orders (LIKE order_schema.orders_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+                PARTITION BY RANGE (created_at);
+            ALTER TABLE order_schema.orders ADD CONSTRAINT orders_pkey PRIMARY KEY (id, created_at);
+            ALTER TABLE order_schema.orders ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+            CREATE TABLE order_schema.orders_default PARTITION OF order_schema.orders DEFAULT;
+            DROP TABLE order_schema.orders_unpartitioned;
+        END IF;
+    END IF;
+END';
+DO '
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(''payment_schema.payments''));
+    IF (SELECT relkind FROM pg_class WHERE oid = ''payment_schema.payments''::regclass) = ''r'' THEN
+        IF EXISTS (SELECT 1 FROM payment_schema.payments) THEN
+            RAISE WARNING ''payment_schema.payments is not partitioned yet - run scripts/partition-orders-payments.sql'';
+        ELSE
+            ALTER TABLE payment_schema.payments RENAME TO payments_unpartitioned;
+            ALTER TABLE payment_schema.payments_unpartitioned RENAME CONSTRAINT payments_pkey TO payments_unpartitioned_pkey;
+            ALTER TABLE payment_schema.payments_unpartitioned ALTER COLUMN id DROP IDENTITY;
+            CREATE TABLE payment_schema.payments (LIKE payment_schema.payments_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+                PARTITION BY RANGE (created_at);
+            ALTER TABLE payment_schema.payments ADD CONSTRAINT payments_pkey PRIMARY KEY (id, created_at);
+            ALTER TABLE payment_schema.payments ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+            CREATE TABLE payment_schema.payments_default PARTITION OF payment_schema.payments DEFAULT;
+            DROP TABLE payment_schema.payments_unpartitioned;
+        END IF;
+    END IF;
+END';
+
+-- Stale order reaper: finds PENDING orders by age (created on every partition)
+CREATE INDEX IF NOT EXISTS idx_orders_status_created_at ON order_schema.orders (status, created_at);
+
+-- Payment recovery: finds PENDING payments by last update (partial, so it only holds in-flight payments)
+CREATE INDEX IF NOT EXISTS idx_payments_pending_updated_at ON payment_schema.payments (updated_at) WHERE status = 'PENDING';
+
+-- Payments of an order: duplicate checks, single and in bulk (created on every partition)
+CREATE INDEX IF NOT EXISTS idx_payments_order_id ON payment_schema.payments (order_id);
+
+-- Compensation jobs of the reaper cover several orders and have no order ID (the column was created NOT NULL)
+ALTER TABLE order_schema.compensation_jobs ALTER COLUMN order_id DROP NOT NULL;
+
+-- Archive of terminal orders and payments older than {order,payment}.archive.after, moved out of the hot tables.
+-- Append-only, so pages are filled completely; archived rows keep their ID and stay readable by ID
+CREATE TABLE IF NOT EXISTS order_schema.orders_archive (
+    LIKE order_schema.orders INCLUDING DEFAULTS,
+    archived_at timestamp(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id)
+) WITH (fillfactor = 100);
+CREATE TABLE IF NOT EXISTS payment_schema.payments_archive (
+    LIKE payment_schema.payments INCLUDING DEFAULTS,
+    archived_at timestamp(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id)
+) WITH (fillfactor = 100);
+CREATE INDEX IF NOT EXISTS idx_payments_archive_order_id ON payment_schema.payments_archive (order_id);
+
+-- ddl-auto=update only alters the entity tables. Columns it added to orders or payments are added to the archives
+-- here, nullable - rows archived before never had them. The archive queries name every column of the entities
+DO '
+DECLARE
+    missing record;
+BEGIN
+    FOR missing IN
+        SELECT t.archive, a.attname, format_type(a.atttypid, a.atttypmod) AS type
+        FROM (VALUES (''order_schema.orders''::regclass, ''order_schema.orders_archive''::regclass),
+                     (''payment_schema.payments''::regclass, ''payment_schema.payments_archive''::regclass)) t (hot, archive)
+        JOIN pg_attribute a ON a.attrelid = t.hot AND a.attnum > 0 AND NOT a.attisdropped
+        WHERE NOT EXISTS (SELECT 1 FROM pg_attribute x
+                          WHERE x.attrelid = t.archive AND x.attname = a.attname AND NOT x.attisdropped)
+    LOOP
+        EXECUTE format(''ALTER TABLE %s ADD COLUMN %I %s'', missing.archive, missing.attname, missing.type);
+    END LOOP;
+END';
+
+-- Payment claims: at most one payment per order that is in progress or went through (any status but FAILED).
+-- The primary key of the partitioned payments table must contain created_at, so it cannot make order_id unique;
+-- a payment is inserted together with its order's claim instead (INSERT ... ON CONFLICT DO NOTHING), and a failed
+-- payment releases the claim so the order can be paid again. Seeded once from the existing payments, latest per order
+CREATE TABLE IF NOT EXISTS payment_schema.order_claims (
+    order_id bigint PRIMARY KEY,
+    payment_id bigint NOT NULL,
+    claimed_at timestamp(6) NOT NULL
+);
+INSERT INTO payment_schema.order_claims (order_id, payment_id, claimed_at)
+SELECT DISTINCT ON (order_id) order_id, id, created_at
+FROM (SELECT order_id, id, created_at, status FROM payment_schema.payments
+      UNION ALL SELECT order_id, id, created_at, status FROM payment_schema.payments_archive) p
+WHERE status <> 'FAILED' AND NOT EXISTS (SELECT 1 FROM payment_schema.order_claims)
+ORDER BY order_id, id DESC
+ON CONFLICT (order_id) DO NOTHING;
+
+-- Status counters: rows are only written from the status enums, so no enum check constraint to keep in step
+ALTER TABLE order_schema.status_counters DROP CONSTRAINT IF EXISTS status_counters_status_check;
+ALTER TABLE payment_schema.status_counters DROP CONSTRAINT IF EXISTS status_counters_status_check;
+
+-- Status counters: seed from the existing rows the first time (empty counters), afterwards maintained incrementally.
+-- Archived rows keep counting - archiving does not change a status
+INSERT INTO order_schema.status_counters (status, stripe, total)
+SELECT status, 0, count(*)
+FROM (SELECT status FROM order_schema.orders UNION ALL SELECT status FROM order_schema.orders_archive) o
+WHERE NOT EXISTS (SELECT 1 FROM order_schema.status_counters)
+GROUP BY status
+ON CONFLICT (status, stripe) DO NOTHING;
+INSERT INTO payment_schema.status_counters (status, stripe, total)
+SELECT status, 0, count(*)
+FROM (SELECT status FROM payment_schema.payments UNION ALL SELECT status FROM payment_schema.payments_archive) p
+WHERE NOT EXISTS (SELECT 1 FROM payment_schema.status_counters)
+GROUP BY status
+ON CONFLICT (status, stripe) DO NOTHING;
@@ -185,20 +185,6 @@ class OrderModuleTest {
         assertThat(cancelled.getStatus()).isEqualTo(OrderStatus.CANCELLED);
     }
 
-    @Test
-    void shouldRestoreStockWhenCancellingOrder() {
-        // Given
-        OrderDTO order = createTestOrder();
-        Integer stockAfterOrder = productService.getProductById(testProduct.getId()).orElseThrow().getStock();
-
-        // When
-        orderService.cancelOrder(order.getId());
-
-        // Then
-        ProductDTO product = productService.getProductById(testProduct.getId()).orElseThrow();
-        assertThat(product.getStock()).isEqualTo(stockAfterOrder + order.getQuantity());
-    }
-
     @Test
     void shouldValidateNullOrderRequest() {
         // When & Then
@@ -0,0 +1,155 @@
+package com.demo.modular.order;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for the monthly partitions and the archive of {@code order_schema.orders}.
+ * Orders are backdated into a month long before any real order, so the partition
+ * of that month and the archive cutoff only ever see the orders of this test.
+ * Not @Transactional - partition maintenance runs in transactions of its own.
+ */
+@SpringBootTest
+class OrderPartitionTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2001, 1);
+    private static final String PARTITION = "order_schema.orders_p2001_01";
+    private static final List<String> TERMINAL = List.of("PAID", "CANCELLED", "FAILED", "REJECTED");
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanup() {
+        // Only left over if a test failed half way
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITION);
+    }
+
+    @Test
+    void shouldMoveOrdersOutOfDefaultPartitionWhenCreatingPartition() {
+        // Given - an order of a month without a partition lands in the default partition
+        Long orderId = createBackdatedOrder(MONTH.atDay(15).atTime(12, 0));
+        assertThat(inTransaction(() -> orderRepository.findDefaultPartitionMonths())).contains(MONTH);
+
+        // When
+        boolean created = inTransaction(() -> orderRepository.createPartition(MONTH));
+
+        // Then
+        assertThat(created).isTrue();
+        assertThat(inTransaction(() -> orderRepository.createPartition(MONTH))).isFalse();
+        assertThat(inTransaction(() -> orderRepository.findPartitionMonths())).contains(MONTH);
+        assertThat(inTransaction(() -> orderRepository.findDefaultPartitionMonths())).doesNotContain(MONTH);
+        assertThat(countIn(PARTITION, orderId)).isEqualTo(1);
+        assertThat(countIn("order_schema.orders_default", orderId)).isZero();
+        assertThat(orderService.getOrderById(orderId)).isPresent();
+
+        // A partition that still holds an order is kept
+        assertThat(inTransaction(() -> orderRepository.dropPartitionIfEmpty(MONTH, 2000))).isFalse();
+        orderService.cancelOrder(orderId);
+        archiveAll();
+    }
+
+    @Test
+    void shouldArchiveTerminalOrdersInBatchesAndDropEmptyPartition() {
+        // Given - three cancelled orders and one open order in the partition of the month
+        List<Long> cancelled = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Long orderId = createBackdatedOrder(MONTH.atDay(10 + i).atTime(12, 0));
+            orderService.cancelOrder(orderId);
+            cancelled.add(orderId);
+        }
+        Long open = createBackdatedOrder(MONTH.atDay(20).atTime(12, 0));
+        inTransaction(() -> orderRepository.createPartition(MONTH));
+
+        // When - the batch is smaller than the number of orders to archive
+        int firstBatch = inTransaction(() -> orderRepository.archive(TERMINAL, cutoff(), 2));
+        archiveAll();
+
+        // Then
+        assertThat(firstBatch).isEqualTo(2);
+        for (Long orderId : cancelled) {
+            assertThat(orderRepository.findById(orderId)).isEmpty();
+            assertThat(countIn("order_schema.orders_archive", orderId)).isEqualTo(1);
+            // Archived orders stay readable by ID
+            assertThat(orderService.getOrderById(orderId))
+                    .get()
+                    .extracting(OrderDTO::getStatus)
+                    .isEqualTo(OrderStatus.CANCELLED);
+        }
+        assertThat(orderRepository.findById(open)).isPresent();
+        assertThat(inTransaction(() -> orderRepository.dropPartitionIfEmpty(MONTH, 2000))).isFalse();
+
+        // Once the open order is archived as well, the partition is empty and dropped
+        orderService.cancelOrder(open);
+        archiveAll();
+        assertThat(inTransaction(() -> orderRepository.dropPartitionIfEmpty(MONTH, 2000))).isTrue();
+        assertThat(inTransaction(() -> orderRepository.findPartitionMonths())).doesNotContain(MONTH);
+        assertThat(orderService.getOrderById(open)).isPresent();
+    }
+
+    private Long createBackdatedOrder(LocalDateTime createdAt) {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Partition Product " + System.nanoTime())
+                .description("Order partition test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        Long orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build()).getId();
+        // Changing the partition key moves the row to the partition of the new month
+        jdbcTemplate.update("UPDATE order_schema.orders SET created_at = ? WHERE id = ?", createdAt, orderId);
+        return orderId;
+    }
+
+    private void archiveAll() {
+        while (inTransaction(() -> orderRepository.archive(TERMINAL, cutoff(), 100)) > 0) {
+            // next batch
+        }
+    }
+
+    private static LocalDateTime cutoff() {
+        return MONTH.plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    private int countIn(String table, Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE id = ?", Integer.class, orderId);
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
@@ -0,0 +1,215 @@
+package com.demo.modular.order;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderBatchResultDTO;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderIntakeDTO;
+import com.demo.modular.order.api.dto.OrderIntakeStatus;
+import com.demo.modular.order.api.dto.OrderItemResultDTO;
+import com.demo.modular.order.api.dto.OrderPageDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.api.exception.OrderIdempotencyKeyConflictException;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Integration tests for order processing paths that commit in transactions of their own.
+ * A full application context - unlike {@link OrderModuleTest}, it does not
+ * depend on the module structure verifying.
+ * Not @Transactional - tests that can roll back opt in.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "order.intake.mode=async") // start the intake workers
+@DirtiesContext // stop them, so they don't drain queues of later test classes
+class OrderProcessingTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    private ProductDTO testProduct;
+
+    @BeforeEach
+    void setup() {
+        testProduct = productService.createProduct(ProductDTO.builder()
+                .name("Test Product for Order Processing " + System.nanoTime())
+                .description("Product for order processing testing")
+                .price(new BigDecimal("100.00"))
+                .stock(50)
+                .build());
+    }
+
+    @Test
+    void shouldCreateOrderBatchWithPerItemResults() {
+        // Given - 50 in stock; the third order no longer fits, the last one does
+        Long productId = testProduct.getId();
+        List<CreateOrderRequest> requests = List.of(
+                CreateOrderRequest.builder().productId(productId).quantity(20).build(),
+                CreateOrderRequest.builder().productId(productId).quantity(20).build(),
+                CreateOrderRequest.builder().productId(productId).quantity(20).build(),
+                CreateOrderRequest.builder().productId(99999L).quantity(1).build(),
+                CreateOrderRequest.builder().productId(productId).quantity(0).build(),
+                CreateOrderRequest.builder().productId(productId).quantity(10).build());
+
+        // When
+        OrderBatchResultDTO result = orderService.createOrders(requests);
+
+        // Then
+        assertThat(result.getSucceeded()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getResults()).extracting(OrderItemResultDTO::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(result.getResults()).extracting(OrderItemResultDTO::isSuccess)
+                .containsExactly(true, true, false, false, false, true);
+        assertThat(result.getResults().get(2).getError()).contains("Insufficient stock");
+        assertThat(result.getResults().get(3).getError()).contains("Product not found");
+        assertThat(result.getResults().get(4).getError()).contains("Quantity");
+
+        OrderDTO last = result.getResults().get(5).getOrder();
+        assertThat(last.getId()).isNotNull();
+        assertThat(last.getTotalAmount()).isEqualByComparingTo(new BigDecimal("1000.00"));
+        assertThat(orderService.getOrderById(last.getId())).isPresent();
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+
+        productService.deleteProduct(productId);
+    }
+
+    @Test
+    void shouldReplayOrderForRepeatedIdempotencyKey() {
+        // Given
+        String idempotencyKey = "order-" + System.nanoTime();
+        CreateOrderRequest request = CreateOrderRequest.builder()
+                .productId(testProduct.getId())
+                .quantity(5)
+                .build();
+
+        // When
+        OrderDTO first = orderService.createOrder(request, idempotencyKey);
+        OrderDTO replayed = orderService.createOrder(request, idempotencyKey);
+
+        // Then - one order, stock reserved once
+        assertThat(replayed.getId()).isEqualTo(first.getId());
+        assertThat(productService.getProductById(testProduct.getId()).orElseThrow().getStock()).isEqualTo(45);
+        assertThatThrownBy(() -> orderService.createOrder(
+                CreateOrderRequest.builder().productId(testProduct.getId()).quantity(6).build(), idempotencyKey))
+                .isInstanceOf(OrderIdempotencyKeyConflictException.class);
+
+        productService.reduceStock(testProduct.getId(), 45);
+        productService.deleteProduct(testProduct.getId());
+    }
+
+    @Test
+    void shouldPlaceQueuedOrdersAsynchronously() {
+        // Given
+        CreateOrderRequest placeable = CreateOrderRequest.builder().productId(testProduct.getId()).quantity(5).build();
+        CreateOrderRequest tooLarge = CreateOrderRequest.builder().productId(testProduct.getId()).quantity(100).build();
+
+        // When
+        OrderIntakeDTO accepted = orderService.submitOrder(placeable);
+        OrderIntakeDTO rejected = orderService.submitOrder(tooLarge);
+
+        // Then - queued immediately, placed or rejected by the workers
+        assertThat(accepted.getStatus()).isEqualTo(OrderIntakeStatus.QUEUED);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(orderService.getOrderIntake(accepted.getRequestId()).orElseThrow().getStatus())
+                    .isEqualTo(OrderIntakeStatus.COMPLETED);
+            assertThat(orderService.getOrderIntake(rejected.getRequestId()).orElseThrow().getStatus())
+                    .isEqualTo(OrderIntakeStatus.REJECTED);
+        });
+        OrderIntakeDTO placed = orderService.getOrderIntake(accepted.getRequestId()).orElseThrow();
+        assertThat(orderService.getOrderById(placed.getOrderId())).isPresent();
+        assertThat(orderService.getOrderIntake(rejected.getRequestId()).orElseThrow().getError())
+                .contains("Insufficient stock");
+        assertThat(productService.getProductById(testProduct.getId()).orElseThrow().getStock()).isEqualTo(45);
+
+        productService.reduceStock(testProduct.getId(), 45);
+        productService.deleteProduct(testProduct.getId());
+    }
+
+    @Test
+    @Transactional // the orders are rolled back
+    void shouldPageOrdersInIdOrder() {
+        // Given
+        OrderDTO first = createTestOrder();
+        OrderDTO second = createTestOrder();
+
+        // When - walk every page
+        OrderPageDTO firstPage = orderService.getOrderPage(null, 1);
+        List<Long> ids = new ArrayList<>();
+        firstPage.getItems().forEach(order -> ids.add(order.getId()));
+        for (String cursor = firstPage.getNextCursor(); cursor != null; ) {
+            OrderPageDTO page = orderService.getOrderPage(cursor, 200);
+            page.getItems().forEach(order -> ids.add(order.getId()));
+            cursor = page.getNextCursor();
+        }
+
+        // Then
+        assertThat(firstPage.getItems()).hasSize(1);
+        assertThat(firstPage.isHasMore()).isTrue();
+        assertThat(ids).doesNotHaveDuplicates()
+                .isSorted()
+                .contains(first.getId(), second.getId());
+    }
+
+    @Test
+    void shouldRestoreStockWhenCancellingOrder() {
+        // Given
+        OrderDTO order = createTestOrder();
+        Integer stockAfterOrder = productService.getProductById(testProduct.getId()).orElseThrow().getStock();
+
+        // When
+        orderService.cancelOrder(order.getId());
+
+        // Then - the cancellation commits with a compensation job that restores the stock shortly after
+        assertThat(orderService.getOrderById(order.getId()).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(productService.getProductById(testProduct.getId()).orElseThrow().getStock())
+                        .isEqualTo(stockAfterOrder + order.getQuantity()));
+
+        productService.reduceStock(testProduct.getId(), 50);
+        productService.deleteProduct(testProduct.getId());
+    }
+
+    @Test
+    void shouldMaintainOrderCountsByStatus() {
+        // Given
+        Map<OrderStatus, Long> before = orderService.getOrderCountsByStatus();
+
+        // When
+        OrderDTO cancelled = createTestOrder();
+        createTestOrder();
+        orderService.cancelOrder(cancelled.getId());
+
+        // Then
+        Map<OrderStatus, Long> after = orderService.getOrderCountsByStatus();
+        assertThat(after).containsOnlyKeys(OrderStatus.values());
+        assertThat(after.get(OrderStatus.PENDING)).isEqualTo(before.get(OrderStatus.PENDING) + 1);
+        assertThat(after.get(OrderStatus.CANCELLED)).isEqualTo(before.get(OrderStatus.CANCELLED) + 1);
+    }
+
+    private OrderDTO createTestOrder() {
+        CreateOrderRequest request = CreateOrderRequest.builder()
+                .productId(testProduct.getId())
+                .quantity(2)
+                .build();
+        return orderService.createOrder(request);
+    }
+}
@@ -0,0 +1,105 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderIntakeStatus;
+import com.demo.modular.order.api.dto.OrderItemResultDTO;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for {@link OrderIntakeQueue} draining queued order requests.
+ * Intake stays synchronous, so no worker drains the queue behind the tests.
+ */
+@SpringBootTest
+class OrderIntakeQueueTest {
+
+    // Makes the placer fail as if stock changed between resolution and reservation
+    private static volatile boolean stockChanging;
+
+    @Autowired
+    private OrderIntakeQueue orderIntakeQueue;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanup() {
+        stockChanging = false;
+    }
+
+    @Test
+    void shouldBackOffWhenStockChangesUnderBatch() {
+        // Given
+        Long productId = productService.createProduct(ProductDTO.builder()
+                .name("Intake Product " + System.nanoTime())
+                .description("Order intake queue test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build()).getId();
+        Long requestId = orderService.submitOrder(CreateOrderRequest.builder()
+                .productId(productId)
+                .quantity(2)
+                .build()).getRequestId();
+        double reevaluatedBefore = reevaluatedCount();
+        stockChanging = true;
+
+        // When
+        int drained = orderIntakeQueue.drain(10);
+
+        // Then - no progress is reported, so a worker waits before the request is re-evaluated
+        assertThat(drained).isZero();
+        assertThat(orderService.getOrderIntake(requestId).orElseThrow().getStatus()).isEqualTo(OrderIntakeStatus.QUEUED);
+        assertThat(reevaluatedCount() - reevaluatedBefore).isEqualTo(1);
+
+        // And the next drain places it once stock has settled
+        stockChanging = false;
+        assertThat(orderIntakeQueue.drain(10)).isEqualTo(1);
+        assertThat(orderService.getOrderIntake(requestId).orElseThrow().getStatus()).isEqualTo(OrderIntakeStatus.COMPLETED);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(8);
+    }
+
+    private double reevaluatedCount() {
+        return meterRegistry.get("order.intake.reevaluated").counter().count();
+    }
+
+    @TestConfiguration
+    static class StockChangingPlacerConfig {
+
+        @Bean
+        @Primary
+        OrderPlacer stockChangingOrderPlacer(OrderRepository orderRepository, ProductService productService,
+                                             OrderMapper orderMapper, OrderStatusCounters orderStatusCounters) {
+            return new OrderPlacer(orderRepository, productService, orderMapper, orderStatusCounters) {
+                @Override
+                List<OrderItemResultDTO> place(List<CreateOrderRequest> requests) {
+                    if (stockChanging) {
+                        throw new InsufficientStockException(requests.get(0).getProductId(), 0, 0);
+                    }
+                    return super.place(requests);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for {@link OrderReaper} cancelling stale PENDING orders.
+ * The TTL of 20 years only lets orders backdated by the test go stale, never
+ * real ones; the reaper and the compensation executor run when the tests call them.
+ * Not @Transactional - every batch commits in a transaction of its own.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "order.reaper.enabled=true",
+        "order.reaper.pending-ttl=7300d",
+        "order.reaper.batch-size=3",
+        "order.reaper.interval-ms=3600000",
+        "order.compensation.poll-interval-ms=3600000"
+})
+class OrderReaperTest {
+
+    private static final LocalDateTime STALE = LocalDateTime.of(2002, 3, 10, 12, 0);
+    private static final LocalDateTime FRESH = LocalDateTime.of(2012, 3, 10, 12, 0);
+
+    @Autowired
+    private OrderReaper orderReaper;
+
+    @Autowired
+    private OrderCompensationJobs orderCompensationJobs;
+
+    @Autowired
+    private OrderStatusCounters orderStatusCounters;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> freshOrders = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        freshOrders.forEach(orderService::cancelOrder);
+    }
+
+    @Test
+    void shouldCancelStaleOrdersAndRestoreStockPerProduct() {
+        // Given - three stale orders of two products, and orders that are not stale yet
+        Long first = createProduct();
+        Long second = createProduct();
+        Long staleFirst = createOrder(first, 2, STALE);
+        Long staleFirstAgain = createOrder(first, 3, STALE.plusDays(1));
+        Long staleSecond = createOrder(second, 1, STALE.plusDays(2));
+        freshOrders.add(createOrder(first, 1, FRESH));
+        freshOrders.add(createOrder(second, 1, null));
+        List<Long> stale = List.of(staleFirst, staleFirstAgain, staleSecond);
+        Map<Long, Long> versions = versions(stale);
+        Map<OrderStatus, Long> before = orderStatusCounters.counts();
+        double cancelledBefore = cancelledCount();
+
+        // When - the batch is as large as the number of stale orders, so a second one finds none
+        orderReaper.reap();
+
+        // Then
+        for (Long orderId : stale) {
+            assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+            assertThat(versions(List.of(orderId)).get(orderId)).isEqualTo(versions.get(orderId) + 1);
+        }
+        for (Long orderId : freshOrders) {
+            assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+        }
+
+        // One job per product, for the summed quantity of its stale orders
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT product_id, quantity FROM order_schema.compensation_jobs " +
+                "WHERE product_id IN (?, ?) AND order_id IS NULL ORDER BY product_id", first, second))
+                .containsExactly(
+                        Map.of("product_id", first, "quantity", 5),
+                        Map.of("product_id", second, "quantity", 1));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_schema.compensation_jobs WHERE product_id IN (?, ?)",
+                Integer.class, first, second)).isEqualTo(2);
+
+        Map<OrderStatus, Long> after = orderStatusCounters.counts();
+        assertThat(after.get(OrderStatus.PENDING) - before.get(OrderStatus.PENDING)).isEqualTo(-3);
+        assertThat(after.get(OrderStatus.CANCELLED) - before.get(OrderStatus.CANCELLED)).isEqualTo(3);
+        assertThat(cancelledCount() - cancelledBefore).isEqualTo(3);
+
+        // Once the jobs ran, only the stock of the fresh orders is still reserved
+        while (orderCompensationJobs.executeBatch(50) > 0) {
+            // next batch
+        }
+        assertThat(productService.getProductById(first).orElseThrow().getStock()).isEqualTo(9);
+        assertThat(productService.getProductById(second).orElseThrow().getStock()).isEqualTo(9);
+    }
+
+    @Test
+    void shouldLeaveOrdersAloneWhenNoneIsStale() {
+        // Given
+        Long product = createProduct();
+        Long orderId = createOrder(product, 1, FRESH);
+        freshOrders.add(orderId);
+        Map<Long, Long> versions = versions(List.of(orderId));
+        Map<OrderStatus, Long> before = orderStatusCounters.counts();
+
+        // When
+        orderReaper.reap();
+
+        // Then
+        assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(versions(List.of(orderId))).isEqualTo(versions);
+        assertThat(orderStatusCounters.counts()).isEqualTo(before);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_schema.compensation_jobs WHERE product_id = ?", Integer.class, product))
+                .isZero();
+    }
+
+    private Long createProduct() {
+        return productService.createProduct(ProductDTO.builder()
+                .name("Reaper Product " + System.nanoTime())
+                .description("Order reaper test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build()).getId();
+    }
+
+    /**
+     * A PENDING order, backdated to {@code createdAt} unless that is null.
+     */
+    private Long createOrder(Long productId, int quantity, LocalDateTime createdAt) {
+        Long orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .build()).getId();
+        if (createdAt != null) {
+            jdbcTemplate.update("UPDATE order_schema.orders SET created_at = ? WHERE id = ?", createdAt, orderId);
+        }
+        return orderId;
+    }
+
+    private Map<Long, Long> versions(List<Long> orderIds) {
+        Map<Long, Long> versions = new HashMap<>();
+        for (Long orderId : orderIds) {
+            versions.put(orderId, jdbcTemplate.queryForObject(
+                    "SELECT version FROM order_schema.orders WHERE id = ?", Long.class, orderId));
+        }
+        return versions;
+    }
+
+    private double cancelledCount() {
+        return meterRegistry.get("order.reaper.cancelled").counter().count();
+    }
+}
@@ -0,0 +1,184 @@
+package com.demo.modular.order.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.internal.domain.Order;
+import com.demo.modular.order.internal.domain.vo.Money;
+import com.demo.modular.order.internal.domain.vo.ProductId;
+import com.demo.modular.order.internal.domain.vo.ProductName;
+import com.demo.modular.order.internal.domain.vo.Quantity;
+import com.demo.modular.order.internal.repository.OrderRepository;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.event.StockReserved;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for {@link OrderStockListener} applying StockReserved replies,
+ * including replies delivered more than once. The listener is called directly
+ * in a transaction, as the event publication registry would call it.
+ * Not @Transactional - orders are cancelled in transactions of their own.
+ */
+@SpringBootTest
+@TestPropertySource(properties = "order.compensation.poll-interval-ms=3600000")
+class OrderStockListenerTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("10.00");
+
+    @Autowired
+    private OrderStockListener orderStockListener;
+
+    @Autowired
+    private OrderStatusCounters orderStatusCounters;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductDTO product;
+
+    @BeforeEach
+    void setup() {
+        product = productService.createProduct(ProductDTO.builder()
+                .name("Listener Product " + System.nanoTime())
+                .description("Order stock listener test")
+                .price(PRICE)
+                .stock(10)
+                .build());
+    }
+
+    @Test
+    void shouldConfirmOrderAwaitingStockOnce() {
+        // Given
+        Long orderId = placeAwaitingOrder();
+
+        // When
+        deliver(reserved(orderId));
+        Long version = version(orderId);
+        deliver(reserved(orderId));
+
+        // Then - the repeated reply neither changes the order nor gives its stock back
+        OrderDTO order = orderService.getOrderById(orderId).orElseThrow();
+        assertThat(order.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(order.getTotalAmount()).isEqualByComparingTo("20.00");
+        assertThat(version(orderId)).isEqualTo(version);
+        assertThat(restoreJobs(orderId)).isZero();
+    }
+
+    @Test
+    void shouldKeepStockOfOrderPlacedSynchronously() {
+        // Given - the stock was reserved within order creation
+        Long orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(2)
+                .build()).getId();
+
+        // When
+        deliver(reserved(orderId));
+
+        // Then
+        assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(restoreJobs(orderId)).isZero();
+    }
+
+    @Test
+    void shouldRestoreStockOfOrderCancelledWhileAwaitingStockOnce() {
+        // Given - cancelled before its stock was reserved, so cancelling restored nothing
+        Long orderId = placeAwaitingOrder();
+        orderService.cancelOrder(orderId);
+        assertThat(restoreJobs(orderId)).isZero();
+
+        // When
+        deliver(reserved(orderId));
+        deliver(reserved(orderId));
+
+        // Then
+        assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(restoreJobs(orderId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT quantity FROM order_schema.compensation_jobs WHERE order_id = ?", Integer.class, orderId))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotRestoreStockOfCancelledOrderTwice() {
+        // Given - cancelled after its stock was reserved, so cancelling restores it
+        Long orderId = placeAwaitingOrder();
+        deliver(reserved(orderId));
+        orderService.cancelOrder(orderId);
+        assertThat(restoreJobs(orderId)).isEqualTo(1);
+
+        // When
+        deliver(reserved(orderId));
+
+        // Then
+        assertThat(restoreJobs(orderId)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRestoreStockReservedForMissingOrderOnce() {
+        // Given - no order has this ID
+        Long orderId = -System.nanoTime();
+
+        // When
+        deliver(reserved(orderId));
+        deliver(reserved(orderId));
+
+        // Then
+        assertThat(restoreJobs(orderId)).isEqualTo(1);
+    }
+
+    /**
+     * An order saved AWAITING_STOCK without asking the Product module for its stock.
+     */
+    private Long placeAwaitingOrder() {
+        return transactionTemplate.execute(status -> {
+            Order order = orderRepository.save(Order.place(ProductId.of(product.getId()),
+                    ProductName.of(product.getName()), Quantity.of(2), Money.of(PRICE.multiply(BigDecimal.TWO))));
+            orderStatusCounters.created(OrderStatus.AWAITING_STOCK, 1);
+            return order.getId();
+        });
+    }
+
+    private StockReserved reserved(Long orderId) {
+        return new StockReserved(orderId, product.getId(), 2, product.getName(), PRICE);
+    }
+
+    private void deliver(StockReserved event) {
+        OrderStockListener listener = AopTestUtils.getUltimateTargetObject(orderStockListener);
+        transactionTemplate.executeWithoutResult(status -> listener.on(event));
+    }
+
+    private Long version(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM order_schema.orders WHERE id = ?", Long.class, orderId);
+    }
+
+    private int restoreJobs(Long orderId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM order_schema.compensation_jobs WHERE order_id = ?", Integer.class, orderId);
+    }
+}
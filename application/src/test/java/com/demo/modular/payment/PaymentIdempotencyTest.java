@@ -0,0 +1,80 @@
+package com.demo.modular.payment;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.service.PaymentService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for payments made with an Idempotency-Key.
+ * A full application context - payments need the order and product modules.
+ * Not @Transactional - the guard and the payment commit in short transactions of their own.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        // The simulated gateway answers after 100ms, so every charge times out
+        "resilience4j.timelimiter.instances.paymentGateway.timeoutDuration=10ms",
+        "payment.gateway.type=simulated"
+})
+class PaymentIdempotencyTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void shouldKeepPendingPaymentWhenKeyedChargeTimesOut() {
+        // Given
+        Long orderId = createOrder().getId();
+        String idempotencyKey = "payment-timeout-" + orderId;
+
+        // When
+        assertThatThrownBy(() -> paymentService.processPayment(orderId, "CREDIT_CARD", idempotencyKey))
+                .isInstanceOf(PaymentProcessingException.class)
+                .hasMessageContaining("outcome unknown");
+
+        // Then - the intent committed on its own, so recovery can settle the charge
+        assertThat(paymentService.getPaymentByOrderId(orderId))
+                .get()
+                .extracting(PaymentDTO::getStatus)
+                .isEqualTo(PaymentStatus.PENDING);
+        assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+
+        // A retry with the same key runs again, and cannot charge the order a second time
+        assertThatThrownBy(() -> paymentService.processPayment(orderId, "CREDIT_CARD", idempotencyKey))
+                .isInstanceOf(DuplicatePaymentException.class);
+    }
+
+    private OrderDTO createOrder() {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Payment Product " + System.nanoTime())
+                .description("Payment idempotency test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        return orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build());
+    }
+}
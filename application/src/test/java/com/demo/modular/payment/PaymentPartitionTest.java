@@ -0,0 +1,140 @@
+package com.demo.modular.payment;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import com.demo.modular.payment.service.PaymentService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for the monthly partitions and the archive of {@code payment_schema.payments}.
+ * Payments are backdated into a month long before any real payment, so the partition
+ * of that month and the archive cutoff only ever see the payments of this test.
+ * Not @Transactional - partition maintenance runs in transactions of its own.
+ */
+@SpringBootTest
+class PaymentPartitionTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2001, 1);
+    private static final String PARTITION = "payment_schema.payments_p2001_01";
+    private static final List<String> TERMINAL = List.of("SUCCESS", "FAILED", "REFUNDED");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanup() {
+        // Only left over if the test failed half way
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PARTITION);
+    }
+
+    @Test
+    void shouldArchivePaymentsInBatchesAndKeepThemReadable() {
+        // Given - three settled payments of a month without a partition, in the default partition
+        List<PaymentDTO> payments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            payments.add(createBackdatedPayment(MONTH.atDay(10 + i).atTime(12, 0)));
+        }
+        assertThat(inTransaction(() -> paymentRepository.findDefaultPartitionMonths())).contains(MONTH);
+
+        // When - the partition is created, then the payments are archived in batches of two
+        boolean created = inTransaction(() -> paymentRepository.createPartition(MONTH));
+        int moved = countIn(PARTITION, payments.stream().map(PaymentDTO::getId).toList());
+        boolean droppedWhileFull = inTransaction(() -> paymentRepository.dropPartitionIfEmpty(MONTH, 2000));
+        int firstBatch = inTransaction(() -> paymentRepository.archive(TERMINAL, cutoff(), 2));
+        while (inTransaction(() -> paymentRepository.archive(TERMINAL, cutoff(), 100)) > 0) {
+            // next batch
+        }
+
+        // Then
+        assertThat(created).isTrue();
+        assertThat(moved).isEqualTo(3);
+        assertThat(droppedWhileFull).isFalse();
+        assertThat(firstBatch).isEqualTo(2);
+        for (PaymentDTO payment : payments) {
+            assertThat(paymentRepository.findById(payment.getId())).isEmpty();
+            // Archived payments stay readable by ID and by order
+            assertThat(paymentService.getPaymentById(payment.getId()))
+                    .get()
+                    .usingRecursiveComparison()
+                    .ignoringFields("createdAt", "updatedAt")
+                    .isEqualTo(payment);
+            assertThat(paymentService.getPaymentByOrderId(payment.getOrderId()))
+                    .get()
+                    .extracting(PaymentDTO::getId)
+                    .isEqualTo(payment.getId());
+        }
+        assertThat(inTransaction(() -> paymentRepository.dropPartitionIfEmpty(MONTH, 2000))).isTrue();
+        assertThat(inTransaction(() -> paymentRepository.findPartitionMonths())).doesNotContain(MONTH);
+    }
+
+    /**
+     * A payment that went through or was declined - the simulated gateway declines some.
+     */
+    private PaymentDTO createBackdatedPayment(LocalDateTime createdAt) {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Payment Partition Product " + System.nanoTime())
+                .description("Payment partition test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        Long orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build()).getId();
+        try {
+            paymentService.processPayment(orderId, "CREDIT_CARD");
+        } catch (PaymentProcessingException e) {
+            // declined - a FAILED payment is archived as well
+        }
+        // Changing the partition key moves the row to the partition of the new month
+        jdbcTemplate.update("UPDATE payment_schema.payments SET created_at = ? WHERE order_id = ?", createdAt, orderId);
+        return paymentService.getPaymentByOrderId(orderId).orElseThrow();
+    }
+
+    private static LocalDateTime cutoff() {
+        return MONTH.plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    private int countIn(String table, List<Long> paymentIds) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE id = ANY (?)", Integer.class,
+                (Object) paymentIds.toArray(new Long[0]));
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
@@ -0,0 +1,84 @@
+package com.demo.modular.payment.internal.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Payment gateway of the tests: answers with whatever the test sets up.
+ * Approves every charge, knows no earlier charge and refunds everything until told otherwise.
+ * Calls are counted, so tests can tell whether the gateway was reached at all.
+ */
+class FakePaymentGateway implements PaymentGateway {
+
+    private volatile Function<ChargeRequest, ChargeResult> charges;
+    private volatile Function<String, Optional<ChargeResult>> lookups;
+    private volatile Consumer<RefundRequest> refunds;
+
+    final AtomicInteger chargeCalls = new AtomicInteger();
+    final AtomicInteger lookupCalls = new AtomicInteger();
+    final AtomicInteger refundCalls = new AtomicInteger();
+
+    FakePaymentGateway() {
+        reset();
+    }
+
+    void reset() {
+        charges = request -> ChargeResult.approved(UUID.randomUUID().toString());
+        lookups = reference -> Optional.empty();
+        refunds = request -> { };
+        chargeCalls.set(0);
+        lookupCalls.set(0);
+        refundCalls.set(0);
+    }
+
+    void onCharge(Function<ChargeRequest, ChargeResult> charges) {
+        this.charges = charges;
+    }
+
+    void onLookup(Function<String, Optional<ChargeResult>> lookups) {
+        this.lookups = lookups;
+    }
+
+    void onRefund(Consumer<RefundRequest> refunds) {
+        this.refunds = refunds;
+    }
+
+    @Override
+    public ChargeResult charge(ChargeRequest request) {
+        chargeCalls.incrementAndGet();
+        return charges.apply(request);
+    }
+
+    @Override
+    public List<ChargeResult> chargeAll(List<ChargeRequest> requests) {
+        return requests.stream().map(this::charge).toList();
+    }
+
+    @Override
+    public Optional<ChargeResult> lookup(String reference) {
+        lookupCalls.incrementAndGet();
+        return lookups.apply(reference);
+    }
+
+    @Override
+    public void refund(RefundRequest request) {
+        refundCalls.incrementAndGet();
+        refunds.accept(request);
+    }
+
+    /**
+     * Blocks the calling gateway thread, as a slow provider would.
+     */
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for {@link HttpPaymentGateway} against the {@link PaymentGatewayStub},
+ * started on a port chosen by the system.
+ */
+class HttpPaymentGatewayTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<PaymentGatewayStub> stubs = new ArrayList<>();
+
+    @AfterEach
+    void cleanup() {
+        stubs.forEach(PaymentGatewayStub::stop);
+    }
+
+    @Test
+    void shouldChargeOnceAndLookUpByReference() {
+        // Given
+        HttpPaymentGateway gateway = gateway(0, 0, 0);
+        ChargeRequest request = request("payment-1");
+
+        // When
+        ChargeResult charged = gateway.charge(request);
+        ChargeResult repeated = gateway.charge(request);
+
+        // Then - a reference is charged once, and its outcome can be looked up
+        assertThat(charged.outcome()).isEqualTo(ChargeResult.Outcome.APPROVED);
+        assertThat(charged.transactionId()).isNotBlank();
+        assertThat(repeated).isEqualTo(charged);
+        assertThat(gateway.lookup("payment-1")).contains(charged);
+    }
+
+    @Test
+    void shouldLookUpNothingForChargeNeverReceived() {
+        // Given
+        HttpPaymentGateway gateway = gateway(0, 0, 0);
+
+        // When / Then - answered 404
+        assertThat(gateway.lookup("payment-unknown")).isEmpty();
+    }
+
+    @Test
+    void shouldChargeBatchInOneCall() {
+        // Given
+        HttpPaymentGateway gateway = gateway(1, 0, 0);
+
+        // When
+        List<ChargeResult> results = gateway.chargeAll(List.of(request("payment-1"), request("payment-2")));
+
+        // Then
+        assertThat(results).extracting(ChargeResult::outcome)
+                .containsExactly(ChargeResult.Outcome.DECLINED, ChargeResult.Outcome.DECLINED);
+    }
+
+    @Test
+    void shouldRejectChargeThrottledByProvider() {
+        // Given - one request per second
+        HttpPaymentGateway gateway = gateway(0, 0, 1);
+        gateway.charge(request("payment-1"));
+
+        // When / Then - answered 429, without processing the charge
+        assertThatThrownBy(() -> gateway.charge(request("payment-2")))
+                .isInstanceOf(PaymentGatewayRejectedException.class)
+                .hasFieldOrPropertyWithValue("reference", "payment-2");
+        assertThatThrownBy(() -> gateway.chargeAll(List.of(request("payment-3"))))
+                .isInstanceOf(PaymentGatewayRejectedException.class);
+    }
+
+    @Test
+    void shouldLeaveOutcomeOpenWhenProviderFails() {
+        // Given - every charge is made, but answered 500
+        HttpPaymentGateway gateway = gateway(0, 1, 0);
+
+        // When / Then
+        assertThatThrownBy(() -> gateway.charge(request("payment-1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("500");
+        // The charge went through, as recovery finds out
+        assertThat(gateway.lookup("payment-1"))
+                .get()
+                .extracting(ChargeResult::outcome)
+                .isEqualTo(ChargeResult.Outcome.APPROVED);
+    }
+
+    @Test
+    void shouldMapProviderAnswersToChargeOutcomesThroughClient() {
+        // Given
+        PaymentGatewayClient failing = client(gateway(0, 1, 0));
+        PaymentGatewayClient throttled = client(gateway(0, 0, 1));
+
+        try {
+            // When
+            ChargeResult failed = failing.charge(request("payment-1"));
+            throttled.charge(request("payment-2"));
+            ChargeResult refused = throttled.charge(request("payment-3"));
+
+            // Then - a 500 may have charged, a 429 did not
+            assertThat(failed.outcome()).isEqualTo(ChargeResult.Outcome.UNKNOWN);
+            assertThat(refused.outcome()).isEqualTo(ChargeResult.Outcome.NOT_ATTEMPTED);
+        } finally {
+            failing.stop();
+            throttled.stop();
+        }
+    }
+
+    @Test
+    void shouldRefundOnceAndFailDeclinedRefund() {
+        // Given
+        HttpPaymentGateway refunding = gateway(0, 0, 0);
+        HttpPaymentGateway declining = gateway(1, 0, 0);
+
+        // When / Then - a refunded reference is answered 204 again
+        refunding.refund(new RefundRequest("refund-1", "tx-1", new BigDecimal("10.00"), "USD"));
+        refunding.refund(new RefundRequest("refund-1", "tx-1", new BigDecimal("10.00"), "USD"));
+        assertThatThrownBy(() -> declining.refund(new RefundRequest("refund-2", "tx-2", new BigDecimal("10.00"), "USD")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("422");
+    }
+
+    /**
+     * A gateway talking to a new stub, with a fixed latency of 1ms.
+     */
+    private HttpPaymentGateway gateway(double declineRate, double errorRate, int maxRequestsPerSecond) {
+        PaymentGatewayStub stub = new PaymentGatewayStub(new ObjectMapper(), meterRegistry, 0, PaymentGatewayStub.LatencyModel.FIXED,
+                Duration.ofMillis(1), Duration.ofMillis(1), 0, Duration.ofMillis(1), Duration.ofMillis(1), 0,
+                declineRate, errorRate, maxRequestsPerSecond);
+        try {
+            stub.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stubs.add(stub);
+        return new HttpPaymentGateway(RestClient.builder(), "http://localhost:" + stub.getPort(),
+                Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    private PaymentGatewayClient client(HttpPaymentGateway gateway) {
+        return new PaymentGatewayClient(gateway,
+                BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(2).build()),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(5)).build()),
+                meterRegistry, false, 0.95, Duration.ofMillis(50), 0.1, 100);
+    }
+
+    private static ChargeRequest request(String reference) {
+        return new ChargeRequest(reference, 1L, new BigDecimal("10.00"), "USD", "CREDIT_CARD");
+    }
+}
@@ -0,0 +1,194 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentBatchResultDTO;
+import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.api.exception.DuplicatePaymentException;
+import com.demo.modular.payment.api.exception.PaymentProcessingException;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.vo.Money;
+import com.demo.modular.payment.internal.domain.vo.OrderId;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import com.demo.modular.payment.service.PaymentService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for the order claims that allow one live payment per order,
+ * against a fake gateway.
+ * Not @Transactional - payments are recorded and finalized in transactions of their own.
+ */
+@SpringBootTest
+@Import(FakePaymentGateway.class)
+@TestPropertySource(properties = "payment.gateway.type=fake")
+class PaymentClaimsTest {
+
+    private static final int PAYERS = 8;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private FakePaymentGateway paymentGateway;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway.reset();
+    }
+
+    @Test
+    void shouldChargeOrderOnceWhenPaidConcurrently() throws Exception {
+        // Given - the gateway answers slowly, so every payer records its payment before the first one is finalized
+        Long orderId = createOrder().getId();
+        paymentGateway.onCharge(request -> {
+            FakePaymentGateway.sleep(500);
+            return ChargeResult.approved(UUID.randomUUID().toString());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(PAYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < PAYERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    paymentService.processPayment(orderId, "CREDIT_CARD");
+                    succeeded.incrementAndGet();
+                } catch (DuplicatePaymentException e) {
+                    duplicates.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(succeeded).hasValue(1);
+        assertThat(duplicates).hasValue(PAYERS - 1);
+        assertThat(paymentGateway.chargeCalls).hasValue(1);
+        assertThat(paymentsOf(orderId)).isEqualTo(1);
+        assertThat(orderService.getOrderById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    void shouldReleaseClaimOfDeclinedPayment() {
+        // Given
+        Long orderId = createOrder().getId();
+        paymentGateway.onCharge(request -> ChargeResult.declined("Declined by issuer"));
+
+        // When
+        assertThatThrownBy(() -> paymentService.processPayment(orderId, "CREDIT_CARD"))
+                .isInstanceOf(PaymentProcessingException.class);
+
+        // Then
+        assertThat(paymentService.getPaymentByOrderId(orderId))
+                .get()
+                .extracting(PaymentDTO::getStatus)
+                .isEqualTo(PaymentStatus.FAILED);
+        assertThat(claimsOf(orderId)).isZero();
+        assertThat(canClaim(orderId)).isTrue();
+    }
+
+    @Test
+    void shouldReleaseClaimsOfDeclinedPaymentsInBatch() {
+        // Given - the gateway declines the first order only
+        Long declined = createOrder().getId();
+        Long approved = createOrder().getId();
+        paymentGateway.onCharge(request -> request.orderId().equals(declined)
+                ? ChargeResult.declined("Declined by issuer")
+                : ChargeResult.approved(UUID.randomUUID().toString()));
+
+        // When
+        PaymentBatchResultDTO result = paymentService.processPayments(List.of(declined, approved), "CREDIT_CARD");
+
+        // Then
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(claimsOf(declined)).isZero();
+        assertThat(canClaim(declined)).isTrue();
+        assertThat(claimsOf(approved)).isEqualTo(1);
+        assertThat(canClaim(approved)).isFalse();
+    }
+
+    private OrderDTO createOrder() {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Claim Product " + System.nanoTime())
+                .description("Payment claim test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        return orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build());
+    }
+
+    /**
+     * Whether a new payment of the order would be recorded. Rolled back, so nothing is left behind.
+     */
+    private boolean canClaim(Long orderId) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return paymentRepository.insertIfUnclaimed(Payment.create(
+                    OrderId.of(orderId), Money.of(new BigDecimal("10.00")), "CREDIT_CARD")).isPresent();
+        });
+    }
+
+    private int paymentsOf(Long orderId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payment_schema.payments WHERE order_id = ?", Integer.class, orderId);
+    }
+
+    private int claimsOf(Long orderId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payment_schema.order_claims WHERE order_id = ?", Integer.class, orderId);
+    }
+}
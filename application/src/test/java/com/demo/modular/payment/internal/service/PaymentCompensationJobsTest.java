@@ -0,0 +1,227 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderDTO;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.PaymentCompensationJob;
+import com.demo.modular.payment.internal.domain.vo.Money;
+import com.demo.modular.payment.internal.domain.vo.OrderId;
+import com.demo.modular.payment.internal.domain.vo.TransactionId;
+import com.demo.modular.payment.internal.repository.PaymentCompensationJobRepository;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for the refund jobs of {@link PaymentCompensationJobs}, against a fake gateway.
+ * The background executor is left idle - batches are executed by the tests.
+ * Retries back off for an hour, so executors of other cached test contexts never
+ * find them due; tests make a retry due by backdating it.
+ * Not @Transactional - jobs are leased and recorded in transactions of their own.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "payment.gateway.type=fake",
+        "payment.compensation.poll-interval-ms=3600000",
+        "payment.compensation.max-attempts=3",
+        "payment.compensation.initial-backoff=1h",
+        "payment.compensation.max-backoff=1h"
+})
+class PaymentCompensationJobsTest {
+
+    @TestConfiguration
+    static class GatewayConfig {
+
+        @Bean
+        FakePaymentGateway fakePaymentGateway() {
+            return new FakePaymentGateway();
+        }
+    }
+
+    @Autowired
+    private PaymentCompensationJobs paymentCompensationJobs;
+
+    @Autowired
+    private PaymentCompensationJobRepository paymentCompensationJobRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentStatusCounters paymentStatusCounters;
+
+    @Autowired
+    private FakePaymentGateway paymentGateway;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway.reset();
+        // Jobs left due by earlier runs would be part of the batches under test
+        while (paymentCompensationJobs.executeBatch(100) > 0) {
+            // next batch
+        }
+        paymentGateway.reset();
+    }
+
+    @Test
+    void shouldRefundPaymentAndCompleteJob() {
+        // Given
+        Payment payment = scheduleRefund();
+        Map<PaymentStatus, Long> before = paymentStatusCounters.counts();
+
+        // When
+        int executed = paymentCompensationJobs.executeBatch(100);
+
+        // Then
+        assertThat(executed).isEqualTo(1);
+        assertThat(paymentGateway.refundCalls).hasValue(1);
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        PaymentCompensationJob job = jobOf(payment);
+        assertThat(job.getStatus()).isEqualTo(PaymentCompensationJob.Status.COMPLETED);
+        assertThat(job.getCompletedAt()).isNotNull();
+
+        Map<PaymentStatus, Long> after = paymentStatusCounters.counts();
+        assertThat(after.get(PaymentStatus.REFUND_PENDING) - before.get(PaymentStatus.REFUND_PENDING)).isEqualTo(-1);
+        assertThat(after.get(PaymentStatus.REFUNDED) - before.get(PaymentStatus.REFUNDED)).isEqualTo(1);
+
+        // Nothing is due anymore
+        assertThat(paymentCompensationJobs.executeBatch(100)).isZero();
+    }
+
+    @Test
+    void shouldRetryFailedRefundWithBackoffUntilMaxAttempts() {
+        // Given
+        paymentGateway.onRefund(request -> {
+            throw new IllegalStateException("Refund declined");
+        });
+        Payment payment = scheduleRefund();
+
+        // When - the first attempt fails
+        LocalDateTime firstAttempt = LocalDateTime.now();
+        paymentCompensationJobs.executeBatch(100);
+
+        // Then - the job waits for its retry
+        PaymentCompensationJob job = jobOf(payment);
+        assertThat(job.getStatus()).isEqualTo(PaymentCompensationJob.Status.PENDING);
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(job.getLastError()).contains("Refund declined");
+        assertThat(job.getNextAttemptAt()).isAfterOrEqualTo(firstAttempt.plusHours(1));
+        assertThat(paymentCompensationJobs.executeBatch(100)).isZero();
+
+        // When - the retries fail as well, each once its backoff has elapsed
+        for (int attempt = 2; attempt <= 3; attempt++) {
+            makeDue(payment);
+            assertThat(paymentCompensationJobs.executeBatch(100)).isEqualTo(1);
+        }
+
+        // Then - out of attempts, the payment stays REFUND_PENDING for manual follow-up
+        job = jobOf(payment);
+        assertThat(job.getStatus()).isEqualTo(PaymentCompensationJob.Status.FAILED);
+        assertThat(job.getAttempts()).isEqualTo(3);
+        assertThat(paymentGateway.refundCalls).hasValue(3);
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStatus())
+                .isEqualTo(PaymentStatus.REFUND_PENDING);
+    }
+
+    @Test
+    void shouldDiscardOutcomeOfExpiredLease() {
+        // Given - a job leased by one executor, whose lease expires before it records the outcome
+        Payment payment = scheduleRefund();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstLease = now.plusSeconds(1).truncatedTo(ChronoUnit.MICROS);
+        PaymentCompensationJob expired = leaseOwn(payment, now, firstLease);
+
+        // When - another executor takes the job over, and the first one records its outcome
+        LocalDateTime secondLease = firstLease.plusMinutes(1);
+        PaymentCompensationJob current = leaseOwn(payment, firstLease, secondLease);
+        expired.complete();
+        boolean[] written = transactionTemplate.execute(status ->
+                paymentCompensationJobRepository.updateLeasedOutcomes(List.of(expired), firstLease));
+
+        // Then - only the current lease holder's outcome is recorded
+        assertThat(written).containsExactly(false);
+        assertThat(jobOf(payment).getStatus()).isEqualTo(PaymentCompensationJob.Status.PENDING);
+
+        current.complete();
+        written = transactionTemplate.execute(status ->
+                paymentCompensationJobRepository.updateLeasedOutcomes(List.of(current), secondLease));
+        assertThat(written).containsExactly(true);
+        assertThat(jobOf(payment).getStatus()).isEqualTo(PaymentCompensationJob.Status.COMPLETED);
+    }
+
+    /**
+     * A payment of a new order that was charged, and whose order could then not be updated.
+     */
+    private Payment scheduleRefund() {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Compensation Product " + System.nanoTime())
+                .description("Payment compensation test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        OrderDTO order = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build());
+        Payment payment = transactionTemplate.execute(status -> {
+            Payment created = paymentRepository.insertIfUnclaimed(Payment.create(
+                    OrderId.of(order.getId()), Money.of(order.getTotalAmount()), "CREDIT_CARD")).orElseThrow();
+            paymentStatusCounters.created(created.getStatus(), 1);
+            return created;
+        });
+        payment.markAsSuccess(TransactionId.of("compensation-" + payment.getId()));
+        payment.requestRefund();
+        return paymentCompensationJobs.scheduleRefund(payment);
+    }
+
+    private PaymentCompensationJob leaseOwn(Payment payment, LocalDateTime now, LocalDateTime leasedUntil) {
+        Long jobId = jobOf(payment).getId();
+        return transactionTemplate.execute(status ->
+                paymentCompensationJobRepository.leaseDue(now, leasedUntil, 1000)).stream()
+                .filter(job -> job.getId().equals(jobId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void makeDue(Payment payment) {
+        jdbcTemplate.update("UPDATE payment_schema.compensation_jobs SET next_attempt_at = ? WHERE payment_id = ?",
+                LocalDateTime.now().minusSeconds(1), payment.getId());
+    }
+
+    private PaymentCompensationJob jobOf(Payment payment) {
+        Long jobId = jdbcTemplate.queryForObject(
+                "SELECT id FROM payment_schema.compensation_jobs WHERE payment_id = ?", Long.class, payment.getId());
+        return paymentCompensationJobRepository.findById(jobId).orElseThrow();
+    }
+}
@@ -0,0 +1,230 @@
+package com.demo.modular.payment.internal.service;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit tests for hedged charges of {@link PaymentGatewayClient}, against a fake gateway.
+ * Attempts are told apart by the order in which they reach the gateway: the
+ * primary is call 1, the hedge call 2. The hedge is due after the minimum delay
+ * of 50ms, as no charge latencies are recorded yet.
+ */
+class PaymentGatewayClientHedgingTest {
+
+    private static final ChargeRequest REQUEST =
+            new ChargeRequest("payment-1", 1L, new BigDecimal("10.00"), "USD", "CREDIT_CARD");
+
+    private FakePaymentGateway paymentGateway;
+    private BulkheadRegistry bulkheadRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentGatewayClient client;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway = new FakePaymentGateway();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    void shouldAnswerWithHedgeWhenPrimaryIsSlow() {
+        // Given
+        client = client(2, 1.0);
+        answer(call -> {
+            if (call == 1) {
+                FakePaymentGateway.sleep(3000);
+            }
+            return ChargeResult.approved("tx-" + call);
+        });
+
+        // When
+        long start = System.nanoTime();
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.APPROVED);
+        assertThat(result.transactionId()).isEqualTo("tx-2");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(hedges("issued")).isEqualTo(1);
+        awaitHedges("won", 1);
+        assertPermitsReleased(2);
+    }
+
+    @Test
+    void shouldKeepPrimaryAnswerWhenHedgeFails() {
+        // Given - the hedge fails at once, the primary answers later
+        client = client(2, 1.0);
+        answer(call -> {
+            if (call == 2) {
+                throw new IllegalStateException("hedge failed");
+            }
+            FakePaymentGateway.sleep(300);
+            return ChargeResult.approved("tx-" + call);
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then - a failed attempt does not decide the charge while the other one is in flight
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.APPROVED);
+        assertThat(result.transactionId()).isEqualTo("tx-1");
+        assertThat(hedges("issued")).isEqualTo(1);
+        assertThat(hedges("won")).isZero();
+        assertPermitsReleased(2);
+    }
+
+    @Test
+    void shouldReportUnknownWhenBothAttemptsFail() {
+        // Given - the hedge fails first, then the primary
+        client = client(2, 1.0);
+        answer(call -> {
+            if (call == 1) {
+                FakePaymentGateway.sleep(300);
+            }
+            throw new IllegalStateException("attempt " + call + " failed");
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then - the error of the last attempt to fail is reported
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.UNKNOWN);
+        assertThat(result.reason()).contains("attempt 1 failed");
+        assertThat(paymentGateway.chargeCalls).hasValue(2);
+        assertThat(hedges("issued")).isEqualTo(1);
+        assertThat(fallbacks("error")).isEqualTo(1);
+        assertPermitsReleased(2);
+    }
+
+    @Test
+    void shouldNotHedgeChargeSettledBeforeHedgeIsDue() throws Exception {
+        // Given - the primary fails before the hedge delay
+        client = client(2, 1.0);
+        answer(call -> {
+            throw new IllegalStateException("attempt " + call + " failed");
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+        Thread.sleep(200);
+
+        // Then - no attempt is left in flight, so no hedge starts
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.UNKNOWN);
+        assertThat(paymentGateway.chargeCalls).hasValue(1);
+        assertThat(hedges("issued")).isZero();
+        assertPermitsReleased(2);
+    }
+
+    @Test
+    void shouldNotHedgeBeyondBudget() {
+        // Given - every charge earns half a hedge; the second charge's primary is slower
+        // than the hedge delay, which now follows the first charge's latency
+        client = client(2, 0.5);
+        answer(call -> {
+            switch (call) {
+                case 1 -> FakePaymentGateway.sleep(300);
+                case 2 -> FakePaymentGateway.sleep(3000);
+                default -> { }
+            }
+            return ChargeResult.approved("tx-" + call);
+        });
+
+        // When
+        ChargeResult first = client.charge(REQUEST);
+        ChargeResult second = client.charge(REQUEST);
+
+        // Then - the first charge could not afford a hedge, the second one could
+        assertThat(first.transactionId()).isEqualTo("tx-1");
+        assertThat(second.transactionId()).isEqualTo("tx-3");
+        assertThat(hedges("budget_exhausted")).isEqualTo(1);
+        assertThat(hedges("issued")).isEqualTo(1);
+        awaitHedges("won", 1);
+        assertPermitsReleased(2);
+    }
+
+    @Test
+    void shouldNotHedgeWithoutFreeBulkheadPermit() {
+        // Given - the primary holds the only permit
+        client = client(1, 1.0);
+        answer(call -> {
+            FakePaymentGateway.sleep(300);
+            return ChargeResult.approved("tx-" + call);
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then
+        assertThat(result.transactionId()).isEqualTo("tx-1");
+        assertThat(paymentGateway.chargeCalls).hasValue(1);
+        assertThat(hedges("bulkhead_full")).isEqualTo(1);
+        assertThat(hedges("issued")).isZero();
+        assertPermitsReleased(1);
+    }
+
+    private PaymentGatewayClient client(int maxConcurrentCalls, double hedgeMaxRatio) {
+        bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        TimeLimiterRegistry timeLimiterRegistry = TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+                .timeoutDuration(Duration.ofSeconds(5))
+                .cancelRunningFuture(true)
+                .build());
+        return new PaymentGatewayClient(paymentGateway, bulkheadRegistry, timeLimiterRegistry, meterRegistry,
+                true, 0.95, Duration.ofMillis(50), hedgeMaxRatio, 100);
+    }
+
+    /**
+     * Answers every attempt by its number - the count of calls the gateway has seen so far.
+     */
+    private void answer(IntFunction<ChargeResult> answers) {
+        paymentGateway.onCharge(request -> answers.apply(paymentGateway.chargeCalls.get()));
+    }
+
+    /**
+     * Both attempts give their permit back, including the one cancelled after losing.
+     */
+    private void assertPermitsReleased(int maxConcurrentCalls) {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(bulkheadRegistry.bulkhead("paymentGateway").getMetrics().getAvailableConcurrentCalls())
+                        .isEqualTo(maxConcurrentCalls));
+    }
+
+    /**
+     * The winning attempt counts its win after it answered the caller.
+     */
+    private void awaitHedges(String result, double count) {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(hedges(result)).isEqualTo(count));
+    }
+
+    private double hedges(String result) {
+        Counter counter = meterRegistry.find("payment.gateway.hedge").tag("result", result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double fallbacks(String reason) {
+        Counter counter = meterRegistry.find("payment.gateway.fallback").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,154 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit tests for the fallbacks of {@link PaymentGatewayClient}, against a fake gateway.
+ * A charge that never went through is not attempted; one that may have gone through is unknown.
+ */
+class PaymentGatewayClientTest {
+
+    private static final ChargeRequest REQUEST =
+            new ChargeRequest("payment-1", 1L, new BigDecimal("10.00"), "USD", "CREDIT_CARD");
+
+    private FakePaymentGateway paymentGateway;
+    private SimpleMeterRegistry meterRegistry;
+    private Bulkhead bulkhead;
+    private PaymentGatewayClient client;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway = new FakePaymentGateway();
+        meterRegistry = new SimpleMeterRegistry();
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        TimeLimiterRegistry timeLimiterRegistry = TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+                .timeoutDuration(Duration.ofMillis(200))
+                .cancelRunningFuture(true)
+                .build());
+        bulkhead = bulkheadRegistry.bulkhead("paymentGateway");
+        client = new PaymentGatewayClient(paymentGateway, bulkheadRegistry, timeLimiterRegistry, meterRegistry,
+                false, 0.95, Duration.ofMillis(50), 0.1, 2);
+    }
+
+    @AfterEach
+    void cleanup() {
+        client.stop();
+    }
+
+    @Test
+    void shouldNotAttemptChargeWhenBulkheadIsFull() {
+        // Given - another call holds the only permit
+        assertThat(bulkhead.tryAcquirePermission()).isTrue();
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+        List<ChargeResult> results = client.chargeAll(List.of(REQUEST, REQUEST));
+        bulkhead.onComplete();
+
+        // Then
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.NOT_ATTEMPTED);
+        assertThat(results).extracting(ChargeResult::outcome)
+                .containsExactly(ChargeResult.Outcome.NOT_ATTEMPTED, ChargeResult.Outcome.NOT_ATTEMPTED);
+        assertThat(paymentGateway.chargeCalls).hasValue(0);
+        assertThat(fallbacks("bulkhead_full")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotAttemptChargeRefusedByGateway() {
+        // Given
+        paymentGateway.onCharge(request -> {
+            throw new PaymentGatewayRejectedException(request.reference(), "Throttled by payment gateway");
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.NOT_ATTEMPTED);
+        assertThat(result.reason()).contains("Throttled");
+        assertThat(fallbacks("rejected")).isEqualTo(1);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportUnknownWhenChargeTimesOut() {
+        // Given - the gateway answers after the time limit
+        paymentGateway.onCharge(request -> {
+            FakePaymentGateway.sleep(2000);
+            return ChargeResult.approved("tx-late");
+        });
+
+        // When
+        long start = System.nanoTime();
+        ChargeResult result = client.charge(REQUEST);
+
+        // Then - the charge may still complete, so its outcome is open
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.UNKNOWN);
+        assertThat(result.reason()).contains("timed out");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(fallbacks("timeout")).isEqualTo(1);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1));
+    }
+
+    @Test
+    void shouldReportUnknownWhenGatewayFails() {
+        // Given
+        paymentGateway.onCharge(request -> {
+            throw new IllegalStateException("Payment gateway answered 500");
+        });
+
+        // When
+        ChargeResult result = client.charge(REQUEST);
+        List<ChargeResult> results = client.chargeAll(List.of(REQUEST, REQUEST));
+
+        // Then - a failed batch falls back for each of its charges
+        assertThat(result.outcome()).isEqualTo(ChargeResult.Outcome.UNKNOWN);
+        assertThat(result.reason()).contains("answered 500");
+        assertThat(results).extracting(ChargeResult::outcome)
+                .containsExactly(ChargeResult.Outcome.UNKNOWN, ChargeResult.Outcome.UNKNOWN);
+        assertThat(fallbacks("error")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldThrowWhenLookupFails() {
+        // Given
+        paymentGateway.onLookup(reference -> {
+            throw new IllegalStateException("Payment gateway answered 500");
+        });
+
+        // When / Then - recovery leaves the payment PENDING and tries again later
+        assertThatThrownBy(() -> client.lookup("payment-1"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("payment-1");
+
+        paymentGateway.onLookup(reference -> Optional.empty());
+        assertThat(client.lookup("payment-1")).isEmpty();
+    }
+
+    private double fallbacks(String reason) {
+        Counter counter = meterRegistry.find("payment.gateway.fallback").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
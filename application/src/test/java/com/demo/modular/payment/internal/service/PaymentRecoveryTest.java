@@ -0,0 +1,228 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentDTO;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.internal.domain.Payment;
+import com.demo.modular.payment.internal.domain.vo.Money;
+import com.demo.modular.payment.internal.domain.vo.OrderId;
+import com.demo.modular.payment.internal.repository.PaymentRepository;
+import com.demo.modular.payment.service.PaymentService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for {@link PaymentRecovery} resolving stale PENDING payments, against a fake gateway.
+ * Payments are made stale by backdating them; recovery runs when the tests call it.
+ * Not @Transactional - recovery finalizes payments in transactions of their own.
+ */
+@SpringBootTest
+@Import(FakePaymentGateway.class)
+@TestPropertySource(properties = {
+        "payment.gateway.type=fake",
+        "payment.recovery.pending-after=1m",
+        "payment.recovery.interval-ms=3600000"
+})
+class PaymentRecoveryTest {
+
+    @Autowired
+    private PaymentRecovery paymentRecovery;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentStatusCounters paymentStatusCounters;
+
+    @Autowired
+    private FakePaymentGateway paymentGateway;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway.reset();
+    }
+
+    @Test
+    void shouldApproveStalePaymentChargedAtGateway() {
+        // Given
+        Payment payment = stalePayment();
+        String reference = ChargeRequest.reference(payment.getId());
+        paymentGateway.onLookup(ref -> ref.equals(reference)
+                ? Optional.of(ChargeResult.approved("tx-recovered"))
+                : Optional.empty());
+
+        // When
+        paymentRecovery.recover();
+
+        // Then
+        PaymentDTO recovered = paymentService.getPaymentById(payment.getId()).orElseThrow();
+        assertThat(recovered.getStatus()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(recovered.getTransactionId()).isEqualTo("tx-recovered");
+        assertThat(orderStatus(payment)).isEqualTo(OrderStatus.PAID);
+    }
+
+    @Test
+    void shouldAcceptOrderAlreadyPaidByEarlierAttempt() {
+        // Given - the order was marked PAID, then the request ended before the payment was
+        Payment payment = stalePayment();
+        orderService.updateOrderStatus(payment.getOrderId(), OrderStatus.PAID);
+        String reference = ChargeRequest.reference(payment.getId());
+        paymentGateway.onLookup(ref -> ref.equals(reference)
+                ? Optional.of(ChargeResult.approved("tx-recovered"))
+                : Optional.empty());
+
+        // When
+        paymentRecovery.recover();
+
+        // Then - no refund, the payment goes through
+        assertThat(paymentStatus(payment)).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(orderStatus(payment)).isEqualTo(OrderStatus.PAID);
+        assertThat(paymentGateway.refundCalls).hasValue(0);
+    }
+
+    @Test
+    void shouldFailStalePaymentDeclinedAtGateway() {
+        // Given
+        Payment payment = stalePayment();
+        String reference = ChargeRequest.reference(payment.getId());
+        paymentGateway.onLookup(ref -> ref.equals(reference)
+                ? Optional.of(ChargeResult.declined("Declined by issuer"))
+                : Optional.empty());
+
+        // When
+        paymentRecovery.recover();
+
+        // Then
+        assertThat(paymentStatus(payment)).isEqualTo(PaymentStatus.FAILED);
+        assertThat(orderStatus(payment)).isEqualTo(OrderStatus.FAILED);
+        assertThat(claimsOf(payment)).isZero();
+    }
+
+    @Test
+    void shouldFailStalePaymentNeverReceivedByGateway() {
+        // Given - the gateway knows no charge with the payment's reference
+        Payment payment = stalePayment();
+
+        // When
+        paymentRecovery.recover();
+
+        // Then
+        assertThat(paymentStatus(payment)).isEqualTo(PaymentStatus.FAILED);
+        assertThat(orderStatus(payment)).isEqualTo(OrderStatus.FAILED);
+        assertThat(claimsOf(payment)).isZero();
+    }
+
+    @Test
+    void shouldLetOnlyOneRecoveryTakeOverStalePayment() {
+        // Given
+        Payment payment = stalePayment();
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(1);
+
+        // When - taken over once, it is no longer stale for anyone else
+        int first = transactionTemplate.execute(status ->
+                paymentRepository.claimStalePending(payment.getId(), cutoff, LocalDateTime.now()));
+        int second = transactionTemplate.execute(status ->
+                paymentRepository.claimStalePending(payment.getId(), cutoff, LocalDateTime.now()));
+
+        // Then
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(paymentStatus(payment)).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void shouldLookUpStalePaymentOnceWhenRecoveredConcurrently() {
+        // Given - two instances recover at the same time
+        Payment payment = stalePayment();
+        String reference = ChargeRequest.reference(payment.getId());
+        AtomicInteger lookups = new AtomicInteger();
+        paymentGateway.onLookup(ref -> {
+            if (!ref.equals(reference)) {
+                return Optional.empty();
+            }
+            lookups.incrementAndGet();
+            return Optional.of(ChargeResult.approved("tx-recovered"));
+        });
+
+        // When
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(paymentRecovery::recover),
+                CompletableFuture.runAsync(paymentRecovery::recover)).join();
+
+        // Then
+        assertThat(lookups).hasValue(1);
+        assertThat(paymentStatus(payment)).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(orderStatus(payment)).isEqualTo(OrderStatus.PAID);
+    }
+
+    /**
+     * A PENDING payment of a new order whose request ended before recording the gateway's outcome.
+     */
+    private Payment stalePayment() {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Recovery Product " + System.nanoTime())
+                .description("Payment recovery test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        Long orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build()).getId();
+        Payment payment = transactionTemplate.execute(status -> {
+            Payment created = paymentRepository.insertIfUnclaimed(Payment.create(
+                    OrderId.of(orderId), Money.of(new BigDecimal("10.00")), "CREDIT_CARD")).orElseThrow();
+            paymentStatusCounters.created(created.getStatus(), 1);
+            return created;
+        });
+        jdbcTemplate.update("UPDATE payment_schema.payments SET updated_at = now() - interval '1 hour' WHERE id = ?",
+                payment.getId());
+        return payment;
+    }
+
+    private PaymentStatus paymentStatus(Payment payment) {
+        return paymentService.getPaymentById(payment.getId()).orElseThrow().getStatus();
+    }
+
+    private OrderStatus orderStatus(Payment payment) {
+        return orderService.getOrderById(payment.getOrderId()).orElseThrow().getStatus();
+    }
+
+    private int claimsOf(Payment payment) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payment_schema.order_claims WHERE order_id = ?", Integer.class, payment.getOrderId());
+    }
+}
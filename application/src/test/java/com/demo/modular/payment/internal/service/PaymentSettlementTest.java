@@ -0,0 +1,200 @@
+package com.demo.modular.payment.internal.service;
+
+import com.demo.modular.order.api.dto.CreateOrderRequest;
+import com.demo.modular.order.api.dto.OrderStatus;
+import com.demo.modular.order.service.OrderService;
+import com.demo.modular.payment.api.dto.PaymentBatchResultDTO;
+import com.demo.modular.payment.api.dto.PaymentItemResultDTO;
+import com.demo.modular.payment.api.dto.PaymentStatus;
+import com.demo.modular.payment.api.exception.PaymentGatewayRejectedException;
+import com.demo.modular.payment.service.PaymentService;
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for batch settlement through {@link PaymentSettlement}, against a fake gateway.
+ * Recovery and refund jobs are left idle, so the status counters only move with the batch under test.
+ * Not @Transactional - every step commits in a transaction of its own.
+ */
+@SpringBootTest
+@Import(FakePaymentGateway.class)
+@TestPropertySource(properties = {
+        "payment.gateway.type=fake",
+        "payment.recovery.pending-after=1000d",
+        "payment.compensation.poll-interval-ms=3600000"
+})
+class PaymentSettlementTest {
+
+    private static final Long MISSING_ORDER_ID = Long.MAX_VALUE;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentStatusCounters paymentStatusCounters;
+
+    @Autowired
+    private FakePaymentGateway paymentGateway;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        paymentGateway.reset();
+    }
+
+    @Test
+    void shouldSettleBatchWithResultsInSubmissionOrder() {
+        // Given - one order is paid already, the gateway declines another
+        Long approved = createOrder();
+        Long declined = createOrder();
+        Long paid = createOrder();
+        Long last = createOrder();
+        paymentService.processPayment(paid, "CREDIT_CARD");
+        paymentGateway.reset();
+        paymentGateway.onCharge(request -> request.orderId().equals(declined)
+                ? ChargeResult.declined("Declined by issuer")
+                : ChargeResult.approved(UUID.randomUUID().toString()));
+        Map<PaymentStatus, Long> before = paymentStatusCounters.counts();
+
+        // When
+        PaymentBatchResultDTO result = paymentService.processPayments(
+                List.of(approved, declined, approved, MISSING_ORDER_ID, paid, last), "CREDIT_CARD");
+
+        // Then
+        List<PaymentItemResultDTO> results = result.getResults();
+        assertThat(results).extracting(PaymentItemResultDTO::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(results).extracting(PaymentItemResultDTO::getOrderId)
+                .containsExactly(approved, declined, approved, MISSING_ORDER_ID, paid, last);
+        assertThat(results).extracting(PaymentItemResultDTO::isSuccess)
+                .containsExactly(true, false, false, false, false, true);
+        assertThat(results.get(1).getError()).contains("declined");
+        assertThat(results.get(2).getError()).contains("more than once");
+        assertThat(results.get(3).getError()).contains("not found");
+        assertThat(results.get(4).getError()).contains("not in pending state");
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getPending()).isZero();
+        assertThat(result.getFailed()).isEqualTo(4);
+
+        // The duplicate is charged once, orders already decided are not charged at all
+        assertThat(paymentGateway.chargeCalls).hasValue(3);
+        assertThat(orderStatus(approved)).isEqualTo(OrderStatus.PAID);
+        assertThat(orderStatus(declined)).isEqualTo(OrderStatus.FAILED);
+        assertThat(orderStatus(last)).isEqualTo(OrderStatus.PAID);
+
+        Map<PaymentStatus, Long> after = paymentStatusCounters.counts();
+        assertThat(delta(before, after, PaymentStatus.PENDING)).isZero();
+        assertThat(delta(before, after, PaymentStatus.SUCCESS)).isEqualTo(2);
+        assertThat(delta(before, after, PaymentStatus.FAILED)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFinalizeOneByOneWhenOrderChangedDuringCharge() {
+        // Given - while their charges are out, one order is paid by other means and one is cancelled
+        Long paidMeanwhile = createOrder();
+        Long cancelledMeanwhile = createOrder();
+        Long untouched = createOrder();
+        paymentGateway.onCharge(request -> {
+            if (request.orderId().equals(paidMeanwhile)) {
+                orderService.updateOrderStatus(paidMeanwhile, OrderStatus.PAID);
+            } else if (request.orderId().equals(cancelledMeanwhile)) {
+                orderService.cancelOrder(cancelledMeanwhile);
+            }
+            return ChargeResult.approved(UUID.randomUUID().toString());
+        });
+        Map<PaymentStatus, Long> before = paymentStatusCounters.counts();
+
+        // When
+        PaymentBatchResultDTO result = paymentService.processPayments(
+                List.of(paidMeanwhile, cancelledMeanwhile, untouched), "CREDIT_CARD");
+
+        // Then - an order already PAID is accepted, a cancelled one gets its charge refunded
+        assertThat(result.getResults()).extracting(PaymentItemResultDTO::isSuccess).containsExactly(true, false, true);
+        assertThat(result.getResults().get(0).getPayment().getStatus()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(result.getResults().get(1).getError()).contains("order update failed");
+        assertThat(paymentStatus(cancelledMeanwhile)).isEqualTo(PaymentStatus.REFUND_PENDING);
+        assertThat(orderStatus(cancelledMeanwhile)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(paymentStatus(untouched)).isEqualTo(PaymentStatus.SUCCESS);
+
+        Map<PaymentStatus, Long> after = paymentStatusCounters.counts();
+        assertThat(delta(before, after, PaymentStatus.PENDING)).isZero();
+        assertThat(delta(before, after, PaymentStatus.SUCCESS)).isEqualTo(2);
+        assertThat(delta(before, after, PaymentStatus.REFUND_PENDING)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAbandonPaymentsOfBatchNotAttempted() {
+        // Given - the gateway refuses the whole batch without processing it
+        Long first = createOrder();
+        Long second = createOrder();
+        paymentGateway.onCharge(request -> {
+            throw new PaymentGatewayRejectedException(request.reference(), "Too many requests");
+        });
+        Map<PaymentStatus, Long> before = paymentStatusCounters.counts();
+
+        // When
+        PaymentBatchResultDTO result = paymentService.processPayments(List.of(first, second), "CREDIT_CARD");
+
+        // Then - nothing was charged, the orders stay PENDING and may be paid again
+        assertThat(result.getResults()).extracting(PaymentItemResultDTO::isSuccess).containsExactly(false, false);
+        assertThat(result.getResults()).extracting(PaymentItemResultDTO::getError)
+                .allSatisfy(error -> assertThat(error).contains("not attempted"));
+        assertThat(result.getFailed()).isEqualTo(2);
+        for (Long orderId : List.of(first, second)) {
+            assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.PENDING);
+            assertThat(paymentService.getPaymentByOrderId(orderId)).isEmpty();
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM payment_schema.order_claims WHERE order_id = ?", Integer.class, orderId)).isZero();
+        }
+        assertThat(delta(before, paymentStatusCounters.counts(), PaymentStatus.PENDING)).isZero();
+
+        paymentGateway.reset();
+        assertThat(paymentService.processPayments(List.of(first, second), "CREDIT_CARD").getSucceeded()).isEqualTo(2);
+    }
+
+    private Long createOrder() {
+        ProductDTO product = productService.createProduct(ProductDTO.builder()
+                .name("Settlement Product " + System.nanoTime())
+                .description("Payment settlement test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build());
+        return orderService.createOrder(CreateOrderRequest.builder()
+                .productId(product.getId())
+                .quantity(1)
+                .build()).getId();
+    }
+
+    private OrderStatus orderStatus(Long orderId) {
+        return orderService.getOrderById(orderId).orElseThrow().getStatus();
+    }
+
+    private PaymentStatus paymentStatus(Long orderId) {
+        return paymentService.getPaymentByOrderId(orderId).orElseThrow().getStatus();
+    }
+
+    private static long delta(Map<PaymentStatus, Long> before, Map<PaymentStatus, Long> after, PaymentStatus status) {
+        return after.get(status) - before.get(status);
+    }
+}
@@ -0,0 +1,111 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.modulith.test.ApplicationModuleTest;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the product read-through cache.
+ * Not @Transactional - evictions are tied to transaction completion.
+ */
+@ApplicationModuleTest
+class ProductCacheTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long productId;
+
+    @AfterEach
+    void cleanup() {
+        if (productId == null) {
+            return;
+        }
+        productService.getProductById(productId).ifPresent(product -> {
+            if (product.getStock() > 0) {
+                productService.reduceStock(productId, product.getStock());
+            }
+            productService.deleteProduct(productId);
+        });
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        // Given
+        productId = createProduct().getId();
+        double hitsBefore = cacheGets("hit");
+        double missesBefore = cacheGets("miss");
+
+        // When
+        productService.getProductById(productId);
+        productService.getProductById(productId);
+        productService.getProductById(productId);
+
+        // Then
+        assertThat(cacheGets("miss") - missesBefore).isEqualTo(1);
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(2);
+    }
+
+    @Test
+    void shouldEvictOnUpdateAndStockChanges() {
+        // Given
+        ProductDTO product = createProduct();
+        productId = product.getId();
+        productService.getProductById(productId);
+
+        // When & Then
+        product.setPrice(new BigDecimal("12.50"));
+        productService.updateProduct(productId, product);
+        assertThat(productService.getProductById(productId).orElseThrow().getPrice())
+                .isEqualByComparingTo(new BigDecimal("12.50"));
+
+        productService.reduceStock(productId, 3);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(7);
+
+        productService.restoreStock(productId, 1);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(8);
+
+        productService.reserveStock(productId, 8);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+
+        productService.deleteProduct(productId);
+        assertThat(productService.getProductById(productId)).isEmpty();
+    }
+
+    @Test
+    void shouldNotLeakMutationsOfReturnedSnapshotIntoCache() {
+        // Given
+        productId = createProduct().getId();
+
+        // When
+        productService.getProductById(productId).orElseThrow().setName("Mutated");
+
+        // Then
+        assertThat(productService.getProductById(productId).orElseThrow().getName()).isNotEqualTo("Mutated");
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "products").tag("result", result).functionCounter().count();
+    }
+
+    private ProductDTO createProduct() {
+        ProductDTO productDTO = ProductDTO.builder()
+                .name("Cached Product " + System.nanoTime())
+                .description("Product cache test")
+                .price(new BigDecimal("10.00"))
+                .stock(10)
+                .build();
+        return productService.createProduct(productDTO);
+    }
+}
@@ -1,7 +1,9 @@
 package com.demo.modular.product;
 
 import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.ProductPageDTO;
 import com.demo.modular.product.api.dto.StockCheckDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
 import com.demo.modular.product.api.exception.InsufficientStockException;
 import com.demo.modular.product.api.exception.ProductNotFoundException;
 import com.demo.modular.product.service.ProductService;
@@ -11,7 +13,9 @@ import org.springframework.modulith.test.ApplicationModuleTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -191,6 +195,112 @@ class ProductModuleTest {
         assertThat(restored.getStock()).isEqualTo(10); // Back to original
     }
 
+    @Test
+    void shouldReserveStockAndQuotePrice() {
+        // Given
+        ProductDTO product = createTestProduct();
+
+        // When
+        StockReservationDTO reservation = productService.reserveStock(product.getId(), 4);
+
+        // Then
+        assertThat(reservation.getProductId()).isEqualTo(product.getId());
+        assertThat(reservation.getProductName()).isEqualTo(product.getName());
+        assertThat(reservation.getUnitPrice()).isEqualByComparingTo(new BigDecimal("99.99"));
+        assertThat(reservation.getReservedQuantity()).isEqualTo(4);
+        assertThat(reservation.getRemainingStock()).isEqualTo(6);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenReservingStockBeyondAvailable() {
+        // Given
+        ProductDTO product = createTestProduct();
+
+        // When & Then
+        assertThatThrownBy(() -> productService.reserveStock(product.getId(), 100))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Insufficient stock");
+    }
+
+    @Test
+    void shouldReserveStockBatchInAscendingIdOrder() {
+        // Given
+        ProductDTO first = createTestProduct();
+        ProductDTO second = createTestProduct();
+
+        // When
+        List<StockReservationDTO> reservations = productService.reserveStockBatch(
+                Map.of(second.getId(), 7, first.getId(), 3));
+
+        // Then
+        assertThat(reservations).extracting(StockReservationDTO::getProductId)
+                .containsExactly(first.getId(), second.getId());
+        assertThat(reservations).extracting(StockReservationDTO::getRemainingStock)
+                .containsExactly(7, 3);
+        assertThat(productService.getProductById(first.getId()).orElseThrow().getStock()).isEqualTo(7);
+        assertThat(productService.getProductById(second.getId()).orElseThrow().getStock()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldReserveNothingWhenAnyProductInBatchIsShort() {
+        // Given
+        ProductDTO first = createTestProduct();
+        ProductDTO second = createTestProduct();
+
+        // When & Then
+        assertThatThrownBy(() -> productService.reserveStockBatch(Map.of(first.getId(), 5, second.getId(), 11)))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(productService.getProductById(first.getId()).orElseThrow().getStock()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldPageThroughProductsWithCursor() {
+        // Given
+        ProductDTO first = createTestProduct();
+        ProductDTO second = createTestProduct();
+        ProductDTO third = createTestProduct();
+
+        // When - walk every page
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductPageDTO page = productService.getProductPage(cursor, 2);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            assertThat(page.isHasMore()).isEqualTo(page.getNextCursor() != null);
+            page.getItems().forEach(product -> ids.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Then
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids).contains(first.getId(), second.getId(), third.getId());
+    }
+
+    @Test
+    void shouldRejectMalformedPageCursor() {
+        // When & Then
+        assertThatThrownBy(() -> productService.getProductPage("not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSearchProductsByNameToleratingTypos() {
+        // Given
+        ProductDTO keyboard = createTestProduct("Mechanical Keyboard");
+        ProductDTO mouse = createTestProduct("Wireless Mouse");
+        createTestProduct("Garden Hose");
+
+        // When
+        List<ProductDTO> typo = productService.searchProducts("keybord", 10);
+        List<ProductDTO> substring = productService.searchProducts("less mou", 10);
+
+        // Then
+        assertThat(typo).isNotEmpty();
+        assertThat(typo.get(0).getId()).isEqualTo(keyboard.getId());
+        assertThat(substring).extracting(ProductDTO::getId).contains(mouse.getId());
+        assertThat(productService.searchProducts("keybord", 1)).hasSize(1);
+    }
+
     @Test
     void shouldCheckStockAvailability() {
         // Given
@@ -229,8 +339,12 @@ class ProductModuleTest {
     }
 
     private ProductDTO createTestProduct() {
+        return createTestProduct("Test Product " + System.currentTimeMillis());
+    }
+
+    private ProductDTO createTestProduct(String name) {
         ProductDTO productDTO = ProductDTO.builder()
-                .name("Test Product " + System.currentTimeMillis())
+                .name(name)
                 .description("Test Description")
                 .price(new BigDecimal("99.99"))
                 .stock(10)
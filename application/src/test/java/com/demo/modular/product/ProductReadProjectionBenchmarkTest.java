@@ -0,0 +1,135 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.internal.domain.Product;
+import com.demo.modular.product.service.ProductService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.test.ApplicationModuleTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Micro-benchmark: loading available products as managed entities and mapping
+ * them (the previous getAvailableProducts), versus selecting them straight into
+ * DTOs (the current one). Both use the same filter.
+ *
+ * <p>Opt-in, as it seeds and scans thousands of rows:
+ * {@code mvn test -Dtest=ProductReadProjectionBenchmarkTest -Dbenchmark=true}.
+ * Reports mean latency and bytes allocated per call for both paths.</p>
+ */
+@ApplicationModuleTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class ProductReadProjectionBenchmarkTest {
+
+    private static final String MARKER = "projection-benchmark";
+    private static final int ROWS = 5_000;
+    private static final int WARMUP = 30;
+    private static final int ITERATIONS = 50;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void seed() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO product_schema.products (name, description, price, currency, stock, created_at, updated_at, version) " +
+                "VALUES (?, ?, 19.99, 'USD', ?, ?, ?, 0)",
+                IntStream.range(0, ROWS)
+                        .mapToObj(i -> new Object[]{"Benchmark Product " + i, MARKER, 1 + i % 100, now, now})
+                        .toList());
+    }
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("DELETE FROM product_schema.products WHERE description = ?", MARKER);
+    }
+
+    @Test
+    void projectionShouldAllocateLessThanEntityLoading() {
+        // Given
+        Supplier<List<ProductDTO>> entities = () -> readOnly.execute(status -> entityManager
+                .createQuery("SELECT p FROM Product p WHERE p.stock.value + " +
+                             "COALESCE((SELECT SUM(b.stock.value) FROM StockBucket b WHERE b.productId = p.id), 0) > 0",
+                             Product.class)
+                .getResultStream()
+                .map(product -> ProductDTO.builder()
+                        .id(product.getId())
+                        .name(product.getName().getValue())
+                        .description(product.getDescription())
+                        .price(product.getPrice().getAmount())
+                        .stock(product.getStock().getValue())
+                        .createdAt(product.getCreatedAt())
+                        .updatedAt(product.getUpdatedAt())
+                        .build())
+                .toList());
+        Supplier<List<ProductDTO>> projection = productService::getAvailableProducts;
+        assertThat(projection.get()).hasSameSizeAs(entities.get()).hasSizeGreaterThanOrEqualTo(ROWS);
+
+        // When
+        Measurement entityResult = measure(entities);
+        Measurement projectionResult = measure(projection);
+
+        // Then
+        log.info("[Benchmark] {} rows - entity + mapper: {} ms, {} KB/call | DTO projection: {} ms, {} KB/call",
+                ROWS, entityResult.millis(), entityResult.kilobytes(),
+                projectionResult.millis(), projectionResult.kilobytes());
+        assertThat(projectionResult.bytes()).isLessThan(entityResult.bytes());
+    }
+
+    private static Measurement measure(Supplier<List<ProductDTO>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Measurement(elapsed / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private record Measurement(long nanos, long bytes) {
+
+        double millis() {
+            return nanos / 1_000_000.0;
+        }
+
+        long kilobytes() {
+            return bytes / 1024;
+        }
+    }
+}
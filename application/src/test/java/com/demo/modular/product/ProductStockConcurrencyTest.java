@@ -0,0 +1,223 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.modulith.test.ApplicationModuleTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Concurrency stress tests for stock reservation.
+ * Not @Transactional - every reservation must commit so that concurrent
+ * reservers really compete for the same product row.
+ */
+@ApplicationModuleTest
+class ProductStockConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int RESERVERS = 300;
+
+    @Autowired
+    private ProductService productService;
+
+    private Long productId;
+    private Long otherProductId;
+
+    @AfterEach
+    void cleanup() {
+        Stream.of(productId, otherProductId)
+                .filter(Objects::nonNull)
+                .forEach(id -> productService.getProductById(id).ifPresent(product -> {
+                    if (product.getStock() > 0) {
+                        productService.reduceStock(id, product.getStock());
+                    }
+                    productService.deleteProduct(id);
+                }));
+    }
+
+    @Test
+    void shouldNeverOversellUnderConcurrentReservations() throws Exception {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < RESERVERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    productService.reduceStock(productId, 1);
+                    reserved.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(rejected.get()).isEqualTo(RESERVERS - INITIAL_STOCK);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+    }
+
+    @Test
+    void shouldKeepStockConsistentUnderConcurrentReserveAndRestore() throws Exception {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger netReserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - half the workers reserve, half reserve and then compensate
+        for (int i = 0; i < RESERVERS; i++) {
+            boolean compensate = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    productService.reduceStock(productId, 1);
+                    if (compensate) {
+                        productService.restoreStock(productId, 1);
+                    } else {
+                        netReserved.incrementAndGet();
+                    }
+                } catch (InsufficientStockException e) {
+                    // expected once stock runs out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        Integer finalStock = productService.getProductById(productId).orElseThrow().getStock();
+        assertThat(finalStock).isGreaterThanOrEqualTo(0);
+        assertThat(finalStock).isEqualTo(INITIAL_STOCK - netReserved.get());
+    }
+
+    @Test
+    void shouldRetryConcurrentProductUpdatesInsteadOfOverwriting() throws Exception {
+        // Given - as many updaters as retry attempts, so each one can lose at most (attempts - 1) times
+        ProductDTO product = createProduct(INITIAL_STOCK);
+        productId = product.getId();
+        int updaters = 4;
+
+        ExecutorService executor = Executors.newFixedThreadPool(updaters);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ProductDTO>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < updaters; i++) {
+            BigDecimal price = new BigDecimal(20 + i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                ProductDTO update = ProductDTO.builder()
+                        .name(product.getName())
+                        .description(product.getDescription())
+                        .price(price)
+                        .stock(INITIAL_STOCK)
+                        .build();
+                return productService.updateProduct(productId, update);
+            }));
+        }
+        start.countDown();
+        List<BigDecimal> appliedPrices = new ArrayList<>();
+        for (Future<ProductDTO> future : futures) {
+            appliedPrices.add(future.get(60, TimeUnit.SECONDS).getPrice());
+        }
+        executor.shutdown();
+
+        // Then - every update committed, and the stored price is one of them
+        BigDecimal finalPrice = productService.getProductById(productId).orElseThrow().getPrice();
+        assertThat(appliedPrices).hasSize(updaters);
+        assertThat(appliedPrices).anyMatch(price -> price.compareTo(finalPrice) == 0);
+    }
+
+    @Test
+    void shouldNotDeadlockOrOversellConcurrentOverlappingBatches() throws Exception {
+        // Given - two products every batch needs one of each, submitted in both key orders
+        productId = createProduct(INITIAL_STOCK).getId();
+        otherProductId = createProduct(INITIAL_STOCK).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < RESERVERS; i++) {
+            Map<Long, Integer> batch = new LinkedHashMap<>();
+            if (i % 2 == 0) {
+                batch.put(productId, 1);
+                batch.put(otherProductId, 1);
+            } else {
+                batch.put(otherProductId, 1);
+                batch.put(productId, 1);
+            }
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    productService.reserveStockBatch(batch);
+                    reserved.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    // expected once stock runs out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+        assertThat(productService.getProductById(otherProductId).orElseThrow().getStock()).isZero();
+    }
+
+    private ProductDTO createProduct(int stock) {
+        ProductDTO productDTO = ProductDTO.builder()
+                .name("Concurrency Product " + System.nanoTime())
+                .description("Stock contention test")
+                .price(new BigDecimal("10.00"))
+                .stock(stock)
+                .build();
+        return productService.createProduct(productDTO);
+    }
+}
@@ -0,0 +1,175 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.api.exception.ProductNotFoundException;
+import com.demo.modular.product.api.exception.ProductValidationException;
+import com.demo.modular.product.internal.repository.ProductRepository;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.modulith.test.ApplicationModuleTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Tests for the in-memory stock ledger with write-behind flush.
+ * Not @Transactional - the flusher writes in its own transactions.
+ */
+@ApplicationModuleTest
+@TestPropertySource(properties = "product.stock-ledger.enabled=true")
+class ProductStockLedgerTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int RESERVERS = 300;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Long productId;
+
+    @AfterEach
+    void cleanup() {
+        if (productId != null) {
+            productService.deleteProduct(productId);
+        }
+    }
+
+    @Test
+    void shouldNeverOversellAndFlushNetReservations() throws Exception {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < RESERVERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    productService.reduceStock(productId, 1);
+                    reserved.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    // expected once stock runs out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then - the ledger decides immediately, the database catches up after a flush
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(productService.checkStockAvailability(productId, 1).getAvailableStock()).isZero();
+        awaitFlushedStock(0);
+    }
+
+    @Test
+    void shouldFlushRestoredStockAndResyncAfterAdminUpdate() {
+        // Given
+        ProductDTO product = createProduct(INITIAL_STOCK);
+        productId = product.getId();
+        productService.reduceStock(productId, 10);
+        productService.restoreStock(productId, 4);
+
+        // When
+        awaitFlushedStock(44);
+        product.setStock(100);
+        productService.updateProduct(productId, product);
+
+        // Then - the ledger picks up the overwritten stock
+        assertThat(productService.checkStockAvailability(productId, 100).isAvailable()).isTrue();
+        productService.reduceStock(productId, 100);
+        assertThatThrownBy(() -> productService.reduceStock(productId, 1))
+                .isInstanceOf(InsufficientStockException.class);
+        awaitFlushedStock(0);
+    }
+
+    @Test
+    void shouldReadLedgerStockBeforeFlush() {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+        productService.getProductById(productId);
+
+        // When
+        productService.reduceStock(productId, INITIAL_STOCK);
+
+        // Then - reads reflect the reservation at once, not only after the next flush
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+        assertThat(productService.getAvailableProducts()).extracting(ProductDTO::getId).doesNotContain(productId);
+        awaitFlushedStock(0);
+    }
+
+    @Test
+    void shouldDecideDeletionOnLedgerStock() {
+        // Given - stock handed back in the ledger, possibly not flushed yet
+        productId = createProduct(INITIAL_STOCK).getId();
+        productService.reduceStock(productId, INITIAL_STOCK);
+        productService.restoreStock(productId, 1);
+
+        // When / Then
+        assertThatThrownBy(() -> productService.deleteProduct(productId))
+                .isInstanceOf(ProductValidationException.class)
+                .hasMessageContaining("Current stock: 1");
+
+        // Once the ledger holds no stock, the product goes - whatever the database still shows
+        productService.reduceStock(productId, 1);
+        productService.deleteProduct(productId);
+        assertThat(productService.getProductById(productId)).isEmpty();
+        productId = null;
+    }
+
+    @Test
+    void shouldDropCounterOfProductDeletedBehindLedger() {
+        // Given - a reservation waiting to be flushed for a product removed without the ledger
+        Long deletedId = createProduct(INITIAL_STOCK).getId();
+        productService.reduceStock(deletedId, 1);
+        productRepository.deleteById(deletedId);
+
+        // When / Then - the flush finds no row and drops the counter, so reservations fail
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThatThrownBy(() -> productService.reduceStock(deletedId, 1))
+                        .isInstanceOf(ProductNotFoundException.class));
+    }
+
+    /**
+     * Waits for the flusher - reads through the service already see ledger stock.
+     */
+    private void awaitFlushedStock(int stock) {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(productRepository.findStockById(productId)).contains(stock));
+    }
+
+    private ProductDTO createProduct(int stock) {
+        ProductDTO productDTO = ProductDTO.builder()
+                .name("Ledger Product " + System.nanoTime())
+                .description("Stock ledger test")
+                .price(new BigDecimal("10.00"))
+                .stock(stock)
+                .build();
+        return productService.createProduct(productDTO);
+    }
+}
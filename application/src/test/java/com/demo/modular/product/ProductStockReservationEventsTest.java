@@ -0,0 +1,127 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.event.StockRejected;
+import com.demo.modular.product.api.event.StockReservationRequest;
+import com.demo.modular.product.api.event.StockReserved;
+import com.demo.modular.product.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.modulith.test.ApplicationModuleTest;
+import org.springframework.modulith.test.Scenario;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for event-driven stock reservation: a {@link StockReservationRequest}
+ * published by another module is answered with StockReserved or StockRejected.
+ * Not @Transactional - the listener runs after the publishing transaction commits.
+ */
+@ApplicationModuleTest
+class ProductStockReservationEventsTest {
+
+    private static final int INITIAL_STOCK = 10;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Long productId;
+
+    @AfterEach
+    void cleanup() {
+        productService.getProductById(productId).ifPresent(product -> {
+            if (product.getStock() > 0) {
+                productService.reduceStock(productId, product.getStock());
+            }
+            productService.deleteProduct(productId);
+        });
+    }
+
+    @Test
+    void shouldReserveStockAndReplyStockReserved(Scenario scenario) {
+        // Given
+        productId = createProduct().getId();
+        Long reservationId = nextReservationId();
+
+        // When / Then
+        scenario.publish(new ReservationRequest(reservationId, productId, 3))
+                .andWaitForEventOfType(StockReserved.class)
+                .matching(event -> event.reservationId().equals(reservationId))
+                .toArriveAndVerify(event -> {
+                    assertThat(event.quantity()).isEqualTo(3);
+                    assertThat(event.unitPrice()).isEqualByComparingTo(new BigDecimal("25.00"));
+                    assertThat(productService.getProductById(productId).orElseThrow().getStock())
+                            .isEqualTo(INITIAL_STOCK - 3);
+                });
+    }
+
+    @Test
+    void shouldRejectReservationBeyondStockAndKeepStock(Scenario scenario) {
+        // Given
+        productId = createProduct().getId();
+        Long reservationId = nextReservationId();
+
+        // When / Then
+        scenario.publish(new ReservationRequest(reservationId, productId, INITIAL_STOCK + 1))
+                .andWaitForEventOfType(StockRejected.class)
+                .matching(event -> event.reservationId().equals(reservationId))
+                .toArriveAndVerify(event -> {
+                    assertThat(event.reason()).contains("Insufficient stock");
+                    assertThat(productService.getProductById(productId).orElseThrow().getStock())
+                            .isEqualTo(INITIAL_STOCK);
+                });
+    }
+
+    @Test
+    void shouldReserveStockOnceWhenRequestIsRedelivered(Scenario scenario) {
+        // Given - a request that reserved its stock already
+        productId = createProduct().getId();
+        ReservationRequest request = new ReservationRequest(nextReservationId(), productId, 3);
+        scenario.publish(request)
+                .andWaitForEventOfType(StockReserved.class)
+                .matching(event -> event.reservationId().equals(request.reservationId()))
+                .toArrive();
+        double duplicates = duplicates();
+
+        // When / Then - dropped without reserving again
+        scenario.publish(request)
+                .andWaitForStateChange(this::duplicates, count -> count > duplicates)
+                .andVerify(count -> assertThat(productService.getProductById(productId).orElseThrow().getStock())
+                        .isEqualTo(INITIAL_STOCK - 3));
+    }
+
+    private ProductDTO createProduct() {
+        ProductDTO productDTO = ProductDTO.builder()
+                .name("Reservation Event Product " + System.nanoTime())
+                .description("Event-driven reservation test")
+                .price(new BigDecimal("25.00"))
+                .stock(INITIAL_STOCK)
+                .build();
+        return productService.createProduct(productDTO);
+    }
+
+    private double duplicates() {
+        return meterRegistry.get("product.stock.reservation.duplicates").counter().count();
+    }
+
+    /**
+     * Reservation IDs are handled once for good, so every run needs new ones.
+     */
+    private static Long nextReservationId() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Stands in for another module's event, e.g. OrderPlaced.
+     */
+    private record ReservationRequest(Long reservationId, Long productId, Integer quantity)
+            implements StockReservationRequest {
+    }
+}
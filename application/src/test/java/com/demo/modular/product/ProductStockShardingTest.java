@@ -0,0 +1,153 @@
+package com.demo.modular.product;
+
+import com.demo.modular.product.api.dto.ProductDTO;
+import com.demo.modular.product.api.dto.StockReservationDTO;
+import com.demo.modular.product.api.exception.InsufficientStockException;
+import com.demo.modular.product.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.modulith.test.ApplicationModuleTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for sharded stock buckets of hot products.
+ * Not @Transactional - bucket reservations must commit to compete for rows.
+ */
+@ApplicationModuleTest
+@TestPropertySource(properties = "product.stock-sharding.enabled=true")
+class ProductStockShardingTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int RESERVERS = 300;
+
+    @Autowired
+    private ProductService productService;
+
+    private Long productId;
+
+    @AfterEach
+    void cleanup() {
+        if (productId == null) {
+            return;
+        }
+        ProductDTO product = productService.shardStock(productId, 0);
+        if (product.getStock() > 0) {
+            productService.reduceStock(productId, product.getStock());
+        }
+        productService.deleteProduct(productId);
+    }
+
+    @Test
+    void shouldKeepReportingTotalStockWhenSharded() {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+
+        // When
+        ProductDTO sharded = productService.shardStock(productId, 4);
+
+        // Then
+        assertThat(sharded.getStock()).isEqualTo(INITIAL_STOCK);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(INITIAL_STOCK);
+        assertThat(productService.checkStockAvailability(productId, INITIAL_STOCK).isAvailable()).isTrue();
+        assertThat(productService.getAvailableProducts())
+                .filteredOn(product -> product.getId().equals(productId))
+                .extracting(ProductDTO::getStock)
+                .containsExactly(INITIAL_STOCK);
+        assertThat(productService.getProductsByIds(List.of(productId)))
+                .extracting(ProductDTO::getStock)
+                .containsExactly(INITIAL_STOCK);
+    }
+
+    @Test
+    void shouldReserveAcrossBucketsWhenNoSingleBucketHoldsEnough() {
+        // Given - 10 over 4 buckets is 3/3/2/2
+        productId = createProduct(10).getId();
+        productService.shardStock(productId, 4);
+
+        // When
+        StockReservationDTO reservation = productService.reserveStock(productId, 7);
+
+        // Then
+        assertThat(reservation.getRemainingStock()).isEqualTo(3);
+        assertThatThrownBy(() -> productService.reduceStock(productId, 4))
+                .isInstanceOf(InsufficientStockException.class);
+        productService.restoreStock(productId, 7);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldReplaceTotalStockOnAdminUpdateAndReserveInBatches() {
+        // Given
+        ProductDTO product = createProduct(INITIAL_STOCK);
+        productId = product.getId();
+        productService.shardStock(productId, 4);
+
+        // When
+        product.setStock(20);
+        ProductDTO updated = productService.updateProduct(productId, product);
+        productService.reserveStockBatch(Map.of(productId, 15));
+
+        // Then
+        assertThat(updated.getStock()).isEqualTo(20);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldNeverOversellShardedStockUnderConcurrentReservations() throws Exception {
+        // Given
+        productId = createProduct(INITIAL_STOCK).getId();
+        productService.shardStock(productId, 8);
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < RESERVERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    productService.reduceStock(productId, 1);
+                    reserved.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    // expected once stock runs out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(reserved.get()).isEqualTo(INITIAL_STOCK);
+        assertThat(productService.getProductById(productId).orElseThrow().getStock()).isZero();
+    }
+
+    private ProductDTO createProduct(int stock) {
+        ProductDTO productDTO = ProductDTO.builder()
+                .name("Sharded Product " + System.nanoTime())
+                .description("Stock sharding test")
+                .price(new BigDecimal("10.00"))
+                .stock(stock)
+                .build();
+        return productService.createProduct(productDTO);
+    }
+}
@@ -0,0 +1,57 @@
+-- One-off migration: converts order_schema.orders and payment_schema.payments into tables range-partitioned by
+-- created_at (plus a default partition), keeping their rows and IDs. schema.sql converts empty tables on startup,
+-- but leaves tables that already hold rows to this script: every row is copied while the table is locked
+-- ACCESS EXCLUSIVE, so all order and payment traffic is blocked until it commits.
+--
+-- Stop every application instance first, then run:
+--   psql -v ON_ERROR_STOP=1 -U admin -d modular_monolith_db -f scripts/partition-orders-payments.sql
+-- Safe to run again: a table that is already partitioned is skipped. On the next startup OrderPartitions and
+-- PaymentPartitions create the month partitions and move the copied rows out of the default partition.
+
+BEGIN;
+
+-- The locks of partition maintenance (see OrderPartitionRepositoryImpl / PaymentPartitionRepositoryImpl)
+SELECT pg_advisory_xact_lock(hashtext('order_schema.orders'));
+SELECT pg_advisory_xact_lock(hashtext('payment_schema.payments'));
+
+DO $$
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = 'order_schema.orders'::regclass) = 'r' THEN
+        ALTER TABLE order_schema.orders RENAME TO orders_unpartitioned;
+        ALTER TABLE order_schema.orders_unpartitioned RENAME CONSTRAINT orders_pkey TO orders_unpartitioned_pkey;
+        ALTER TABLE order_schema.orders_unpartitioned ALTER COLUMN id DROP IDENTITY;
+        CREATE TABLE order_schema.orders (LIKE order_schema.orders_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+            PARTITION BY RANGE (created_at);
+        ALTER TABLE order_schema.orders ADD CONSTRAINT orders_pkey PRIMARY KEY (id, created_at);
+        ALTER TABLE order_schema.orders ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+        PERFORM setval(pg_get_serial_sequence('order_schema.orders', 'id'), coalesce(max(id), 0) + 1, false)
+            FROM order_schema.orders_unpartitioned;
+        CREATE TABLE order_schema.orders_default PARTITION OF order_schema.orders DEFAULT;
+        INSERT INTO order_schema.orders SELECT * FROM order_schema.orders_unpartitioned;
+        DROP TABLE order_schema.orders_unpartitioned;
+        RAISE NOTICE 'order_schema.orders partitioned';
+    END IF;
+END
+$$;
+
+DO $$
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = 'payment_schema.payments'::regclass) = 'r' THEN
+        ALTER TABLE payment_schema.payments RENAME TO payments_unpartitioned;
+        ALTER TABLE payment_schema.payments_unpartitioned RENAME CONSTRAINT payments_pkey TO payments_unpartitioned_pkey;
+        ALTER TABLE payment_schema.payments_unpartitioned ALTER COLUMN id DROP IDENTITY;
+        CREATE TABLE payment_schema.payments (LIKE payment_schema.payments_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+            PARTITION BY RANGE (created_at);
+        ALTER TABLE payment_schema.payments ADD CONSTRAINT payments_pkey PRIMARY KEY (id, created_at);
+        ALTER TABLE payment_schema.payments ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+        PERFORM setval(pg_get_serial_sequence('payment_schema.payments', 'id'), coalesce(max(id), 0) + 1, false)
+            FROM payment_schema.payments_unpartitioned;
+        CREATE TABLE payment_schema.payments_default PARTITION OF payment_schema.payments DEFAULT;
+        INSERT INTO payment_schema.payments SELECT * FROM payment_schema.payments_unpartitioned;
+        DROP TABLE payment_schema.payments_unpartitioned;
+        RAISE NOTICE 'payment_schema.payments partitioned';
+    END IF;
+END
+$$;
+
+COMMIT;